@@ -0,0 +1,180 @@
+package com.oak.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.oak.api.finance.model.Economic;
+import com.oak.api.finance.model.FinancialAnalysis;
+import com.oak.api.finance.model.FinancialData;
+import com.oak.api.finance.model.Stock;
+import com.oak.api.finance.repository.MappedQuoteStore;
+import com.oak.external.finance.app.marketdata.api.FinancialStatementsProvider;
+import com.oak.external.finance.app.marketdata.api.impl.yahoo.YahooQuoteSummaryDecoder;
+import com.oak.external.finance.app.marketdata.api.yahoo.YahooDataConverterImpl;
+import com.oak.finance.app.indicators.IndicatorEngine;
+import com.oak.finance.app.monitor.analysis.FinanceAnalysisController.FinanceAnalysisCallback;
+import com.oak.finance.app.monitor.analysis.FinanceFundamentalAnalysisControllerImpl;
+import com.oak.finance.app.screeners.Filter;
+import com.oak.finance.app.screeners.FilterSreener;
+import com.oak.finance.app.screeners.SreenerRegistry;
+
+/**
+ * The analysis of the economics of a recorded quotes download, with the
+ * screen and ratio targets of the default configuration and the recorded
+ * statements standing in for the statements provider. Everything runs on
+ * the benchmark thread so only the analysis itself is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnalysisBenchmark {
+	private FinanceFundamentalAnalysisControllerImpl controller;
+	private Map<Stock, Map<Date, Economic>> marketData;
+	private Set<String> alwaysWatch;
+
+	@Setup
+	public void setUp() throws IOException {
+		Executor sameThread = Runnable::run;
+		SreenerRegistry screens = new SreenerRegistry(
+				new FilterSreener(SreenerRegistry.DEFAULT_SCREEN_ID, defaultFilter()), null,
+				LogManager.getLogger(SreenerRegistry.class));
+		// no quotes stored, the technical columns stay empty
+		IndicatorEngine indicators = new IndicatorEngine(
+				new MappedQuoteStore(Files.createTempDirectory("quotes").toFile(),
+						LogManager.getLogger(MappedQuoteStore.class)),
+				sameThread, LogManager.getLogger(IndicatorEngine.class));
+		controller = new FinanceFundamentalAnalysisControllerImpl(new RecordedStatements(), 2.0, 1.0, 3.0, screens,
+				indicators, new HashSet<>(Arrays.asList("USD", "EUR", "GBp")), sameThread, sameThread,
+				LogManager.getLogger(FinanceFundamentalAnalysisControllerImpl.class));
+		marketData = new YahooDataConverterImpl(LogManager.getLogger(YahooDataConverterImpl.class))
+				.yahooStockToEconomyPerDate(Fixtures.yahooStocks());
+		alwaysWatch = Collections.emptySet();
+	}
+
+	/**
+	 * One stock at a time, the way the economics used to be analysed.
+	 */
+	@Benchmark
+	public void onEconomicsUpdate(Blackhole blackhole) {
+		FinanceAnalysisCallback callback = new Sink(blackhole);
+		for (Map.Entry<Stock, Map<Date, Economic>> e : marketData.entrySet()) {
+			controller.onEconomicsUpdate(callback, e.getKey(), e.getValue(), alwaysWatch);
+		}
+	}
+
+	/**
+	 * The whole download as one batch, screened over columns.
+	 */
+	@Benchmark
+	public void onEconomicsUpdateBatch(Blackhole blackhole) {
+		controller.onEconomicsUpdateAsync(new Sink(blackhole), marketData, alwaysWatch).join();
+	}
+
+	/**
+	 * The screen0 bounds of application.properties.
+	 */
+	private static Filter defaultFilter() {
+		Filter ret = new Filter();
+		ret.setMaxPe(15.0);
+		ret.setMaxPerCalculated(15.0);
+		ret.setMaxPeg(1.0);
+		ret.setMinEpsCurrentYr(0.05);
+		ret.setMinEpsNextQtr(0.024);
+		ret.setMinEpsNextYr(0.01);
+		ret.setMaxBookValueMultiple(25.0);
+		ret.setMaxPerBookValueMultiple(27.0);
+		return ret;
+	}
+
+	/**
+	 * Hands out the recorded statements in turn, whatever the ticker.
+	 */
+	private static class RecordedStatements implements FinancialStatementsProvider {
+		private final FinancialData[] statements;
+		private int next;
+
+		RecordedStatements() throws IOException {
+			YahooQuoteSummaryDecoder decoder = new YahooQuoteSummaryDecoder();
+			statements = new FinancialData[Fixtures.STATEMENT_SYMBOLS.length];
+			for (int i = 0; i < statements.length; i++) {
+				String symbol = Fixtures.STATEMENT_SYMBOLS[i];
+				statements[i] = decoder.decode(symbol, new ByteArrayInputStream(Fixtures.quoteSummary(symbol)));
+			}
+		}
+
+		@Override
+		public FinancialData getFinancialStatements(String ticker) {
+			FinancialData ret = statements[next];
+			next = (next + 1) % statements.length;
+			return ret;
+		}
+
+		@Override
+		public Map<String, FinancialData> getFinancialStatements(Collection<String> tickers) {
+			Map<String, FinancialData> ret = new HashMap<>();
+			for (String ticker : tickers) {
+				ret.put(ticker, getFinancialStatements(ticker));
+			}
+			return ret;
+		}
+
+		@Override
+		public void statementsChanged(String ticker) {
+		}
+	}
+
+	private static class Sink implements FinanceAnalysisCallback {
+		private final Blackhole blackhole;
+
+		Sink(Blackhole blackhole) {
+			this.blackhole = blackhole;
+		}
+
+		@Override
+		public void onPriceMissing(Stock stock, Map<Date, Economic> economics) {
+			blackhole.consume(stock);
+		}
+
+		@Override
+		public void onBuy(Stock stock, Map<Date, Economic> economics, FinancialAnalysis financialAnalysis) {
+			blackhole.consume(financialAnalysis);
+		}
+
+		@Override
+		public void onSell(Stock stock, Map<Date, Economic> economics) {
+			blackhole.consume(stock);
+		}
+
+		@Override
+		public void onWatchList(Stock stock, Map<Date, Economic> economics, FinancialAnalysis stockAnalysis) {
+			blackhole.consume(stockAnalysis);
+		}
+	}
+}
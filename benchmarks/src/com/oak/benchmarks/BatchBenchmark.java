@@ -0,0 +1,52 @@
+package com.oak.benchmarks;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.oak.external.utils.collections.Batches;
+
+/**
+ * Splitting the symbols of a market into the batches the quotes are
+ * downloaded in, at the size the symbols and monitors controllers use and a
+ * larger one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchBenchmark {
+	@Param({ "10", "100" })
+	public int size;
+
+	private Set<String> symbols;
+
+	@Setup
+	public void setUp() {
+		// about the size of the symbols the sectors crawl finds
+		symbols = new HashSet<>();
+		for (int i = 0; i < 5000; i++) {
+			symbols.add("S" + i);
+		}
+	}
+
+	@Benchmark
+	public Collection<Set<String>> batch() {
+		return Batches.batch(symbols, size);
+	}
+}
@@ -0,0 +1,31 @@
+package com.oak.benchmarks;
+
+import java.io.File;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the usual JMH command line, except that the
+ * results are written as json to target/jmh-result.json unless -rf or -rff
+ * say otherwise, so runs on successive commits can be compared by tools.
+ */
+public class BenchmarkRunner {
+	static final String RESULT_FILE = "target/jmh-result.json";
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+		if (!commandLine.getResultFormat().hasValue()) {
+			options.resultFormat(ResultFormatType.JSON);
+		}
+		if (!commandLine.getResult().hasValue()) {
+			new File(RESULT_FILE).getParentFile().mkdirs();
+			options.result(RESULT_FILE);
+		}
+		new Runner(options.build()).run();
+	}
+}
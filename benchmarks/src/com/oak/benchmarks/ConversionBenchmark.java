@@ -0,0 +1,98 @@
+package com.oak.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.oak.api.finance.model.Economic;
+import com.oak.api.finance.model.FinancialData;
+import com.oak.api.finance.model.Stock;
+import com.oak.api.finance.model.dto.BalanceSheetDto;
+import com.oak.api.finance.model.dto.CashFlowStatementDto;
+import com.oak.api.finance.model.dto.IncomeStatementDto;
+import com.oak.api.finance.model.dto.StatementPeriod;
+import com.oak.external.finance.app.marketdata.api.impl.FinancialStatementsConverter;
+import com.oak.external.finance.app.marketdata.api.impl.yahoo.YahooQuoteSummaryDecoder;
+import com.oak.external.finance.app.marketdata.api.yahoo.YahooDataConverterImpl;
+
+/**
+ * The conversions between the Yahoo client, the model and the database
+ * entities: a whole quotes download into economics, and the statements of a
+ * ticker loaded from the database back into its financial data.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConversionBenchmark {
+	private YahooDataConverterImpl yahooConverter;
+	private Map<String, yahoofinance.Stock> yahooStocks;
+	private FinancialStatementsConverter statementsConverter;
+	private List<BalanceSheetDto> balanceSheets;
+	private List<CashFlowStatementDto> cashflowStatements;
+	private List<IncomeStatementDto> incomeStatements;
+
+	@Setup
+	public void setUp() throws Exception {
+		yahooConverter = new YahooDataConverterImpl(LogManager.getLogger(YahooDataConverterImpl.class));
+		yahooStocks = Fixtures.yahooStocks();
+		statementsConverter = new FinancialStatementsConverter(
+				LogManager.getLogger(FinancialStatementsConverter.class));
+		balanceSheets = new ArrayList<>();
+		cashflowStatements = new ArrayList<>();
+		incomeStatements = new ArrayList<>();
+		String symbol = Fixtures.STATEMENT_SYMBOLS[0];
+		FinancialData data = new YahooQuoteSummaryDecoder().decode(symbol,
+				new ByteArrayInputStream(Fixtures.quoteSummary(symbol)));
+		// the rows a ticker has in the database once both periods are stored
+		addAll(data.getAnnualBalanceSheet(), (s, d) -> balanceSheets
+				.add(statementsConverter.convertYahooToDbBalanceSheet(s, d, StatementPeriod.ANNUAL)));
+		addAll(data.getQuarterlyBalanceSheet(), (s, d) -> balanceSheets
+				.add(statementsConverter.convertYahooToDbBalanceSheet(s, d, StatementPeriod.QUARTERLY)));
+		addAll(data.getAnnualCashflowStatement(), (s, d) -> cashflowStatements
+				.add(statementsConverter.convertYahooToDbCashFlowStatement(s, d, StatementPeriod.ANNUAL)));
+		addAll(data.getQuarterlyCashflowStatement(), (s, d) -> cashflowStatements
+				.add(statementsConverter.convertYahooToDbCashFlowStatement(s, d, StatementPeriod.QUARTERLY)));
+		addAll(data.getAnnualIncomeStatement(), (s, d) -> incomeStatements
+				.add(statementsConverter.convertYahooToDbIncomeStatement(s, d, StatementPeriod.ANNUAL)));
+		addAll(data.getQuarterlyIncomeStatement(), (s, d) -> incomeStatements
+				.add(statementsConverter.convertYahooToDbIncomeStatement(s, d, StatementPeriod.QUARTERLY)));
+	}
+
+	@Benchmark
+	public Map<Stock, Map<Date, Economic>> yahooStockToEconomyPerDate() {
+		return yahooConverter.yahooStockToEconomyPerDate(yahooStocks);
+	}
+
+	@Benchmark
+	public FinancialData getFinancialData() {
+		// the converter drops duplicated rows from the lists it is given
+		return statementsConverter.getFinancialData(Fixtures.STATEMENT_SYMBOLS[0], new ArrayList<>(balanceSheets),
+				new ArrayList<>(cashflowStatements), new ArrayList<>(incomeStatements));
+	}
+
+	private static <S> void addAll(SortedMap<Date, S> statements, BiConsumer<S, Date> add) {
+		for (Map.Entry<Date, S> e : statements.entrySet()) {
+			add.accept(e.getValue(), e.getKey());
+		}
+	}
+}
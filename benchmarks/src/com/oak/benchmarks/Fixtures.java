@@ -0,0 +1,95 @@
+package com.oak.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import yahoofinance.Stock;
+import yahoofinance.quotes.stock.StockQuotesData;
+import yahoofinance.quotes.stock.StockQuotesRequest;
+
+/**
+ * The recorded responses the benchmarks run over, read from the classpath:
+ * <ul>
+ * <li>fixtures/quotes.csv, the lines of a quotes download in the csv format
+ * of the Yahoo quotes api, with its default properties</li>
+ * <li>fixtures/quoteSummary/&lt;symbol&gt;.json, the quoteSummary response of
+ * the statements download for that symbol</li>
+ * </ul>
+ */
+final class Fixtures {
+	static final String[] STATEMENT_SYMBOLS = { "AAPL", "KO", "IMH" };
+
+	private static final String QUOTES = "/fixtures/quotes.csv";
+	private static final String QUOTE_SUMMARY = "/fixtures/quoteSummary/";
+
+	private Fixtures() {
+	}
+
+	/**
+	 * The stocks of the recorded quotes download, parsed the way the Yahoo
+	 * client parses them, by symbol in the order they were recorded.
+	 */
+	static Map<String, Stock> yahooStocks() {
+		Map<String, Stock> ret = new LinkedHashMap<>();
+		QuotesCsv csv = new QuotesCsv();
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(open(QUOTES), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (!line.isEmpty()) {
+					Stock stock = csv.parse(line).getStock();
+					ret.put(stock.getSymbol(), stock);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return ret;
+	}
+
+	/**
+	 * The recorded quoteSummary response of the symbol.
+	 */
+	static byte[] quoteSummary(String symbol) {
+		ByteArrayOutputStream ret = new ByteArrayOutputStream();
+		try (InputStream in = open(QUOTE_SUMMARY + symbol + ".json")) {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) > 0) {
+				ret.write(buffer, 0, read);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return ret.toByteArray();
+	}
+
+	private static InputStream open(String resource) throws IOException {
+		InputStream ret = Fixtures.class.getResourceAsStream(resource);
+		if (ret == null) {
+			throw new IOException("missing fixture " + resource);
+		}
+		return ret;
+	}
+
+	/**
+	 * Gives access to the csv parsing of the Yahoo client, the request itself
+	 * is never sent.
+	 */
+	private static class QuotesCsv extends StockQuotesRequest {
+		QuotesCsv() {
+			super("fixture");
+		}
+
+		StockQuotesData parse(String line) {
+			return parseCSVLine(line);
+		}
+	}
+}
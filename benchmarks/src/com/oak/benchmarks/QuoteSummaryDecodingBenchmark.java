@@ -0,0 +1,51 @@
+package com.oak.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.oak.api.finance.model.FinancialData;
+import com.oak.external.finance.app.marketdata.api.impl.yahoo.YahooJsonFinancialDataDao;
+import com.oak.external.finance.app.marketdata.api.impl.yahoo.YahooQuoteSummaryDecoder;
+
+/**
+ * Decoding of the quoteSummary responses {@link YahooJsonFinancialDataDao}
+ * downloads, from the bytes of a recorded response so the network is left
+ * out.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QuoteSummaryDecodingBenchmark {
+	@Param({ "AAPL", "KO", "IMH" })
+	public String symbol;
+
+	private YahooQuoteSummaryDecoder decoder;
+	private byte[] response;
+
+	@Setup
+	public void setUp() {
+		decoder = new YahooQuoteSummaryDecoder();
+		response = Fixtures.quoteSummary(symbol);
+	}
+
+	@Benchmark
+	public FinancialData decode() throws IOException {
+		return decoder.decode(symbol, new ByteArrayInputStream(response));
+	}
+}
@@ -9,6 +9,7 @@ import java.util.Set;
 import com.oak.api.finance.model.dto.Control;
 import com.oak.api.finance.model.dto.Screen0Result;
 import com.oak.api.finance.model.dto.Status;
+import com.oak.finance.app.backtest.BacktestSummary;
 
 import lombok.Data;
 
@@ -41,5 +42,10 @@ public interface MainController {
 		void onDone(Status status, String ticker);
 	}
 	void loadHistoricalQuotes();
-	
+
+	/**
+	 * Replays the stored filters over the stored screen results, returns
+	 * once it is done.
+	 */
+	BacktestSummary backtestStoredScreens();
 }
@@ -13,6 +13,7 @@ import com.oak.api.finance.model.dto.Screen0Result;
 import com.oak.api.finance.model.dto.Status;
 import com.oak.api.finance.repository.ControlRepository;
 import com.oak.api.finance.repository.Screen0ResultsRepository;
+import com.oak.finance.app.backtest.BacktestSummary;
 import com.oak.finance.app.main.controllers.ApplicationController;
 
 public class MainControllerImpl implements MainController {
@@ -39,6 +40,10 @@ public class MainControllerImpl implements MainController {
 		appController.loadHistoricalQuotes();
 	}
 	@Override
+	public BacktestSummary backtestStoredScreens() {
+		return appController.backtestStoredScreens();
+	}
+	@Override
 	public List<Control> getStatuses() {
 		List<Control> sts = fromIterable(ctrlRepo.findAll(), 
 							(a,b) -> reverseCompare(a.getTimeStamp(), 
@@ -0,0 +1,23 @@
+package com.oak.api.finance.dao;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+
+import com.oak.api.finance.model.dto.EconomicDto;
+
+public interface EconomicsBatchDao {
+
+	/**
+	 * Loads, in a single query, the price dates already saved for the given
+	 * tickers between from and to (inclusive).
+	 */
+	Map<String, Set<Date>> findExistingPriceDates(Collection<String> tickers, Date from, Date to);
+
+	/**
+	 * Inserts the economics with JDBC batches, returns the number of rows
+	 * inserted.
+	 */
+	int insert(Collection<EconomicDto> economics);
+}
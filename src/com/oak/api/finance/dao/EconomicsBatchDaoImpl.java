@@ -0,0 +1,159 @@
+package com.oak.api.finance.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import com.oak.api.finance.model.dto.EconomicDto;
+
+/**
+ * Set based access to the economy table, bypassing the per entity round
+ * trips of EconomicRepository. Ids are drawn from the same sequence
+ * hibernate uses so rows written here and through JPA don't collide.
+ */
+public class EconomicsBatchDaoImpl implements EconomicsBatchDao {
+
+	private static final String EXISTING_SQL = "select ticker, price_date from economy "
+			+ "where ticker in (:tickers) and price_date between :from and :to";
+
+	private static final String INSERT_SQL = "insert into economy (id, company_id, ticker, price_date, bid, ask, eps, "
+			+ "day_high, day_low, last_trade_date_str, last_trade_size, last_trade_time_str, open, previous_close, "
+			+ "price_avg200, price_avg50, time_zone, volume, year_high, year_low, book_value_per_share, ebitda, "
+			+ "eps_estimate_current_year, eps_estimate_next_quarter, eps_estimate_next_year, market_cap, "
+			+ "one_year_target_price, pe, peg, price_book, price_sales, revenue, roe, shares_float, "
+			+ "shares_outstanding, shares_owned, annual_dividend_yield, annual_dividend_yield_percent, "
+			+ "dividend_ex_date, dividend_pay_date) values (nextval('hibernate_sequence'), "
+			+ "?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, "
+			+ "?, ?, ?, ?, ?)";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final NamedParameterJdbcTemplate namedJdbcTemplate;
+	private final int batchSize;
+
+	public EconomicsBatchDaoImpl(JdbcTemplate jdbcTemplate, int batchSize) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+		this.batchSize = batchSize;
+	}
+
+	@Override
+	public Map<String, Set<Date>> findExistingPriceDates(Collection<String> tickers, Date from, Date to) {
+		Map<String, Set<Date>> ret = new HashMap<>();
+		if (!tickers.isEmpty()) {
+			MapSqlParameterSource params = new MapSqlParameterSource().addValue("tickers", tickers)
+					.addValue("from", new Timestamp(from.getTime())).addValue("to", new Timestamp(to.getTime()));
+			namedJdbcTemplate.query(EXISTING_SQL, params, rs -> {
+				// keep plain Dates, Timestamp.equals(Date) is always false
+				Date priceDate = new Date(rs.getTimestamp("price_date").getTime());
+				ret.computeIfAbsent(rs.getString("ticker"), t -> new HashSet<>()).add(priceDate);
+			});
+		}
+		return ret;
+	}
+
+	@Override
+	public int insert(Collection<EconomicDto> economics) {
+		int ret = 0;
+		if (!economics.isEmpty()) {
+			int[][] counts = jdbcTemplate.batchUpdate(INSERT_SQL, new ArrayList<>(economics), batchSize,
+					this::setValues);
+			for (int[] batch : counts) {
+				for (int c : batch) {
+					// the driver may report SUCCESS_NO_INFO (-2) for batched rows
+					ret += c == PreparedStatement.SUCCESS_NO_INFO ? 1 : c;
+				}
+			}
+		}
+		return ret;
+	}
+
+	private void setValues(PreparedStatement ps, EconomicDto e) throws SQLException {
+		int i = 1;
+		setLong(ps, i++, e.getCompanyId());
+		ps.setString(i++, e.getTicker());
+		setDate(ps, i++, e.getPriceDate());
+		setDouble(ps, i++, e.getBid());
+		setDouble(ps, i++, e.getAsk());
+		setDouble(ps, i++, e.getEps());
+		setDouble(ps, i++, e.getDayHigh());
+		setDouble(ps, i++, e.getDayLow());
+		ps.setString(i++, e.getLastTradeDateStr());
+		setLong(ps, i++, e.getLastTradeSize());
+		ps.setString(i++, e.getLastTradeTimeStr());
+		setDouble(ps, i++, e.getOpen());
+		setDouble(ps, i++, e.getPreviousClose());
+		setDouble(ps, i++, e.getPriceAvg200());
+		setDouble(ps, i++, e.getPriceAvg50());
+		setTimeZone(ps, i++, e.getTimeZone());
+		setLong(ps, i++, e.getVolume());
+		setDouble(ps, i++, e.getYearHigh());
+		setDouble(ps, i++, e.getYearLow());
+		setDouble(ps, i++, e.getBookValuePerShare());
+		setDouble(ps, i++, e.getEbitda());
+		setDouble(ps, i++, e.getEpsEstimateCurrentYear());
+		setDouble(ps, i++, e.getEpsEstimateNextQuarter());
+		setDouble(ps, i++, e.getEpsEstimateNextYear());
+		setDouble(ps, i++, e.getMarketCap());
+		setDouble(ps, i++, e.getOneYearTargetPrice());
+		setDouble(ps, i++, e.getPe());
+		setDouble(ps, i++, e.getPeg());
+		setDouble(ps, i++, e.getPriceBook());
+		setDouble(ps, i++, e.getPriceSales());
+		setDouble(ps, i++, e.getRevenue());
+		setDouble(ps, i++, e.getRoe());
+		setLong(ps, i++, e.getSharesFloat());
+		setLong(ps, i++, e.getSharesOutstanding());
+		setLong(ps, i++, e.getSharesOwned());
+		setDouble(ps, i++, e.getAnnualDividendYield());
+		setDouble(ps, i++, e.getAnnualDividendYieldPercent());
+		setCalendar(ps, i++, e.getDividendExDate());
+		setCalendar(ps, i++, e.getDividendPayDate());
+	}
+
+	private void setDouble(PreparedStatement ps, int i, Double v) throws SQLException {
+		if (v == null) {
+			ps.setNull(i, Types.DOUBLE);
+		} else {
+			ps.setDouble(i, v);
+		}
+	}
+
+	private void setLong(PreparedStatement ps, int i, Long v) throws SQLException {
+		if (v == null) {
+			ps.setNull(i, Types.BIGINT);
+		} else {
+			ps.setLong(i, v);
+		}
+	}
+
+	private void setDate(PreparedStatement ps, int i, Date v) throws SQLException {
+		if (v == null) {
+			ps.setNull(i, Types.TIMESTAMP);
+		} else {
+			ps.setTimestamp(i, new Timestamp(v.getTime()));
+		}
+	}
+
+	private void setCalendar(PreparedStatement ps, int i, Calendar v) throws SQLException {
+		setDate(ps, i, v == null ? null : v.getTime());
+	}
+
+	// hibernate stores TimeZone attributes as their id
+	private void setTimeZone(PreparedStatement ps, int i, TimeZone v) throws SQLException {
+		ps.setString(i, v == null ? null : v.getID());
+	}
+}
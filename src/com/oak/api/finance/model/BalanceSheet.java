@@ -1,10 +1,13 @@
 package com.oak.api.finance.model;
 
-public class BalanceSheet {
+import java.io.Serializable;
+
+public class BalanceSheet implements Serializable {
+	private static final long serialVersionUID = 1L;
 	String symbol;
 
-	class Assets {
-		class CurrentAssets {
+	class Assets implements Serializable {
+		class CurrentAssets implements Serializable {
 			// current assets
 			private final Double cashAndEquivalent;
 			private final Double shortTermInvestements;
@@ -116,7 +119,7 @@ public class BalanceSheet {
 
 		}
 
-		class IlliquidAssets {
+		class IlliquidAssets implements Serializable {
 			private final Double longTermInvestments;
 			private final Double propertyPlantAndEquivalent;
 			private final Double goodwill;
@@ -355,8 +358,8 @@ public class BalanceSheet {
 
 	}
 
-	class Liabilities {
-		class CurrentLiabilities {
+	class Liabilities implements Serializable {
+		class CurrentLiabilities implements Serializable {
 			private final Double accountPayable;
 			private final Double shortCurrentLongTermDebt;
 			private final Double otherCurrentLiabilities;
@@ -446,7 +449,7 @@ public class BalanceSheet {
 
 		}
 
-		class LongTermLiabilities {
+		class LongTermLiabilities implements Serializable {
 			final Double longTermDebt;
 			final Double otherLiabilities;
 			final Double deferredLongTermLiabilityCharges;
@@ -647,7 +650,7 @@ public class BalanceSheet {
 
 	}
 
-	class StockholdersEquity {
+	class StockholdersEquity implements Serializable {
 		double miscStocksOptionsWarrants;
 		double redeemablePreferredStocks;
 		double commonStock;
@@ -1,8 +1,11 @@
 package com.oak.api.finance.model;
 
-public class CashFlowStatement {
+import java.io.Serializable;
 
-    class OperatingActivities {
+public class CashFlowStatement implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+    class OperatingActivities implements Serializable {
 	private final double depreciation;
 	private final double adjustmentsToNetIncome;
 	private final double changesInAccountsReceivables;
@@ -112,7 +115,7 @@ public class CashFlowStatement {
 	}
     }
 
-    class InvestingActivities {
+    class InvestingActivities implements Serializable {
 	private final double capitalExpenditures;
 	private final double investments;
 	private final double otherCashFlowsFromInvestingActivities;
@@ -189,7 +192,7 @@ public class CashFlowStatement {
 
     }
 
-    class FinancingActivities {
+    class FinancingActivities implements Serializable {
 	private final double dividendsPaid;
 	private final double salePurchaseOfStock;
 	private final double netBorrowings;
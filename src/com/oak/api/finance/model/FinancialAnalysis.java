@@ -25,6 +25,7 @@ public class FinancialAnalysis {
 		}
 	}
 
+	private final String screenId;
 	private final Stock stock;
 	private final Economic economic;
 	private final List<FinancialComment> comments;
@@ -36,7 +37,7 @@ public class FinancialAnalysis {
 	private final SortedMap<Date, Double> quickRatiosAnnual = new SafeMap();
 	private final SortedMap<Date, Double> assetToDebtRatiosAnnual = new SafeMap();
 
-	public FinancialAnalysis(Stock stock, Economic economic,
+	public FinancialAnalysis(String screenId, Stock stock, Economic economic,
 			List<FinancialComment> comments, Acceptance acceptance,
 			SortedMap<Date, Double> currentRatiosQutr,
 			SortedMap<Date, Double> quickRatiosQutr,
@@ -45,6 +46,7 @@ public class FinancialAnalysis {
 			SortedMap<Date, Double> quickRatiosAnnual,
 			SortedMap<Date, Double> assetToDebtRatiosAnnual) {
 		super();
+		this.screenId = screenId;
 		this.stock = stock;
 		this.economic = economic;
 		this.comments = comments;
@@ -58,6 +60,11 @@ public class FinancialAnalysis {
 		this.assetToDebtRatiosAnnual.putAll(assetToDebtRatiosAnnual);
 	}
 
+	/** the screen the stock was analysed for */
+	public String getScreenId() {
+		return screenId;
+	}
+
 	public Stock getStock() {
 		return stock;
 	}
@@ -110,7 +117,7 @@ public class FinancialAnalysis {
 
 	@Override
 	public String toString() {
-		return "FinancialAnalysis [stock=" + stock.getSymbol() + ", acceptance=" + acceptance
+		return "FinancialAnalysis [screenId=" + screenId + ", stock=" + stock.getSymbol() + ", acceptance=" + acceptance
 				+ ", currentRatiosAnnual=" + currentRatiosAnnual + ", quickRatiosAnnual=" + quickRatiosAnnual
 				+ ", assetToDebtRatiosAnnual=" + assetToDebtRatiosAnnual + "]";
 	}
@@ -3,7 +3,7 @@ package com.oak.api.finance.model;
 public class FinancialComment {
 
 	public enum CommentType {
-		PastEarnings, FutureEarnings, Peg, BookValue, Currency, MissingData
+		PastEarnings, FutureEarnings, Peg, BookValue, Currency, MissingData, Technical
 	}
 
 	private final String comment;
@@ -1,5 +1,6 @@
 package com.oak.api.finance.model;
 
+import java.io.Serializable;
 import java.util.Date;
 import java.util.SortedMap;
 
@@ -12,7 +13,8 @@ import com.oak.external.finance.model.economy.IncomeStatement;
 import lombok.Data;
 
 @Data
-public class FinancialData {
+public class FinancialData implements Serializable {
+	private static final long serialVersionUID = 1L;
 	
 	private final String symbol;
 	private final SortedMap<Date,BalanceSheet>annualBalanceSheet;
@@ -30,9 +30,6 @@ public class SectorsIndustriesCompanies {
 	}
 	
 	public void addCompanyToIndustry(Sector industry, Company company) {
-		if(!companiesPerIndustry.containsKey(industry)) {
-			companiesPerIndustry.put(industry, new ConcurrentSkipListSet<>());
-		}
 		Long id = industry.getId();
 		if (id != null) {
 			company.setIndustryId(id);
@@ -43,7 +40,8 @@ public class SectorsIndustriesCompanies {
 			company.setSectorId(parentSectorId);
 		}
 		company.setSectorDescription(industry.getParentSectorDescription());
-		Set<Company> companies = companiesPerIndustry.get(industry);
+		// industry pages are crawled concurrently
+		Set<Company> companies = companiesPerIndustry.computeIfAbsent(industry, i -> new ConcurrentSkipListSet<>());
 		companies.add(company);
 	}
 
@@ -70,10 +68,6 @@ public class SectorsIndustriesCompanies {
 	}
 	
 	private  <K,T> void addToList(Map<K,Set<T>>map,K key,Set<T> elements){
-		if(!map.containsKey(key)) {
-			map.put(key, new ConcurrentSkipListSet<>(elements));
-		}else {
-			map.get(key).addAll(elements);
-		}
+		map.computeIfAbsent(key, k -> new ConcurrentSkipListSet<>()).addAll(elements);
 	}
 }
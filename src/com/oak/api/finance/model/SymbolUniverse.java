@@ -0,0 +1,312 @@
+package com.oak.api.finance.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.oak.api.finance.model.dto.Company;
+
+/**
+ * The tickers the application works on, resident in memory. Each ticker
+ * gets a compact id on first sight and keeps it; its sector, industry and
+ * exchange are stored once per distinct value and referenced by code, and
+ * whether it is listed (a saved company) or excluded are bits of two sets
+ * indexed by id. Every change moves the version forward, so a stage can
+ * tell whether what it derived from the universe is still current.
+ */
+public class SymbolUniverse {
+
+	public enum Attribute {
+		SECTOR, INDUSTRY, EXCHANGE
+	}
+
+	private static final int NONE = -1;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Map<String, Integer> ids = new HashMap<>();
+	private final Map<String, Integer> valueCodes = new HashMap<>();
+	private final List<String> values = new ArrayList<>();
+	private final BitSet listed = new BitSet();
+	private final BitSet excluded = new BitSet();
+	private final int[][] attributes = new int[Attribute.values().length][];
+	private String[] tickers;
+	private int size;
+	private long version;
+
+	public SymbolUniverse(int capacity) {
+		int initialCapacity = Math.max(capacity, 1);
+		this.tickers = new String[initialCapacity];
+		for (int a = 0; a < attributes.length; a++) {
+			attributes[a] = new int[initialCapacity];
+		}
+	}
+
+	/**
+	 * Lists the company, a null sector, industry or exchange leaving the one
+	 * known before. Returns the id of its ticker.
+	 */
+	public int add(Company company) {
+		int ret;
+		lock.writeLock().lock();
+		try {
+			ret = intern(company.getTicker());
+			boolean changed = !listed.get(ret);
+			listed.set(ret);
+			changed |= set(Attribute.SECTOR, ret, company.getSectorDescription());
+			changed |= set(Attribute.INDUSTRY, ret, company.getIndustryDescription());
+			changed |= set(Attribute.EXCHANGE, ret, company.getExchange());
+			if (changed) {
+				version++;
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+		return ret;
+	}
+
+	public void addAll(Collection<Company> companies) {
+		lock.writeLock().lock();
+		try {
+			companies.forEach(this::add);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Replaces the excluded tickers, which need not be listed.
+	 */
+	public void setExcluded(Collection<String> excludedTickers) {
+		lock.writeLock().lock();
+		try {
+			BitSet exclusions = new BitSet();
+			excludedTickers.forEach(t -> exclusions.set(intern(t)));
+			if (!exclusions.equals(excluded)) {
+				excluded.clear();
+				excluded.or(exclusions);
+				version++;
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * The id of the ticker, -1 if it was never seen.
+	 */
+	public int idOf(String ticker) {
+		lock.readLock().lock();
+		try {
+			Integer id = ids.get(ticker);
+			return id == null ? NONE : id;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public String getTicker(int id) {
+		lock.readLock().lock();
+		try {
+			checkId(id);
+			return tickers[id];
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Null when not known.
+	 */
+	public String get(Attribute attribute, int id) {
+		lock.readLock().lock();
+		try {
+			checkId(id);
+			int code = attributes[attribute.ordinal()][id];
+			return code == NONE ? null : values.get(code);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public boolean isExcluded(String ticker) {
+		lock.readLock().lock();
+		try {
+			Integer id = ids.get(ticker);
+			return id != null && excluded.get(id);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * The listed tickers, excluded ones included, in a set of the caller's.
+	 */
+	public Set<String> getTickers() {
+		lock.readLock().lock();
+		try {
+			return tickersOf(listed);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public Set<String> getExcludedTickers() {
+		lock.readLock().lock();
+		try {
+			return tickersOf(excluded);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * The tickers that are not excluded, listed or not, in one pass.
+	 */
+	public Set<String> withoutExcluded(Collection<String> candidates) {
+		lock.readLock().lock();
+		try {
+			Set<String> ret = new HashSet<>();
+			for (String ticker : candidates) {
+				Integer id = ids.get(ticker);
+				if (id == null || !excluded.get(id)) {
+					ret.add(ticker);
+				}
+			}
+			return ret;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * The ids of the listed, not excluded tickers having the value, to be
+	 * combined with other selections before {@link #tickers(BitSet)}.
+	 */
+	public BitSet select(Attribute attribute, String value) {
+		lock.readLock().lock();
+		try {
+			BitSet ret = new BitSet(size);
+			Integer code = valueCodes.get(value);
+			if (code != null) {
+				int[] column = attributes[attribute.ordinal()];
+				for (int id = listed.nextSetBit(0); id >= 0; id = listed.nextSetBit(id + 1)) {
+					if (column[id] == code) {
+						ret.set(id);
+					}
+				}
+				ret.andNot(excluded);
+			}
+			return ret;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * The ids of the listed, not excluded tickers.
+	 */
+	public BitSet included() {
+		lock.readLock().lock();
+		try {
+			BitSet ret = (BitSet) listed.clone();
+			ret.andNot(excluded);
+			return ret;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public Set<String> tickers(BitSet selection) {
+		lock.readLock().lock();
+		try {
+			return tickersOf(selection);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Tickers seen, listed, excluded or both.
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return size;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public long getVersion() {
+		lock.readLock().lock();
+		try {
+			return version;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private Set<String> tickersOf(BitSet selection) {
+		Set<String> ret = new HashSet<>(selection.cardinality() * 2);
+		for (int id = selection.nextSetBit(0); id >= 0 && id < size; id = selection.nextSetBit(id + 1)) {
+			ret.add(tickers[id]);
+		}
+		return ret;
+	}
+
+	private int intern(String ticker) {
+		Integer ret = ids.get(ticker);
+		if (ret == null) {
+			ret = size;
+			ensureCapacity(size + 1);
+			tickers[ret] = ticker;
+			for (int[] column : attributes) {
+				column[ret] = NONE;
+			}
+			ids.put(ticker, ret);
+			size++;
+			version++;
+		}
+		return ret;
+	}
+
+	private boolean set(Attribute attribute, int id, String value) {
+		boolean ret = false;
+		if (value != null) {
+			Integer code = valueCodes.get(value);
+			if (code == null) {
+				code = values.size();
+				values.add(value);
+				valueCodes.put(value, code);
+			}
+			int[] column = attributes[attribute.ordinal()];
+			ret = column[id] != code;
+			column[id] = code;
+		}
+		return ret;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > tickers.length) {
+			int newCapacity = Math.max(capacity, tickers.length * 2);
+			tickers = Arrays.copyOf(tickers, newCapacity);
+			for (int a = 0; a < attributes.length; a++) {
+				attributes[a] = Arrays.copyOf(attributes[a], newCapacity);
+			}
+		}
+	}
+
+	private void checkId(int id) {
+		if (id < 0 || id >= size) {
+			throw new IndexOutOfBoundsException("id " + id + " of a universe of " + size);
+		}
+	}
+}
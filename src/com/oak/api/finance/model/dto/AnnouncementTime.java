@@ -1,9 +1,8 @@
 package com.oak.api.finance.model.dto;
 
-import java.text.SimpleDateFormat;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Date;
+import java.util.Locale;
 
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
@@ -13,6 +12,8 @@ public enum AnnouncementTime {
 			"Time Not Supplied"), MID_DAY(""), CANT_UNDERSTAND("ERROR");
 
 	private static Logger log = LogManager.getLogger(AnnouncementTime.class);
+	// 02:00 AM
+	private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("h:mm a", Locale.US);
 	private String text;
 
 	private AnnouncementTime(String t) {
@@ -20,10 +21,7 @@ public enum AnnouncementTime {
 	}
 
 	public static AnnouncementTime fromText(String t) {
-		AnnouncementTime ret = null;					// 02:00 am	
-		DateTimeFormatter f =
-				DateTimeFormatter.ofPattern("HH:mm a");
-		SimpleDateFormat format = new SimpleDateFormat("hh:mm a");
+		AnnouncementTime ret = null;
 		for (AnnouncementTime e : values()) {
 			if (e.text.equals(t)) {
 				ret = e;
@@ -34,8 +32,7 @@ public enum AnnouncementTime {
 			if (t.contains("am") || t.contains("pm")) {
 				try {
 					String s = t.substring(0,t.length()-3).toUpperCase();
-					Date datetime = format.parse(s);
-					LocalTime lt = LocalTime.of(datetime.getHours(), datetime.getMinutes());
+					LocalTime lt = LocalTime.parse(s, TIME_FORMAT);
 					if (lt.isBefore(LocalTime.of(8, 0, 0))) {
 						ret = AnnouncementTime.BEFORE_OPEN;
 					} else if (lt.isAfter(LocalTime.of(17, 0, 0))) {
@@ -3,6 +3,8 @@ package com.oak.api.finance.model.dto;
 import java.util.Date;
 
 import javax.persistence.Entity;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
 
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
@@ -14,7 +16,11 @@ import lombok.NoArgsConstructor;
 @EqualsAndHashCode(callSuper=true)
 @NoArgsConstructor
 @Entity
+// one quote per ticker and day, also the index the bulk merge looks them up with
+@Table(name = "quote", uniqueConstraints = @UniqueConstraint(name = Quote.TICKER_DATE_CONSTRAINT, columnNames = {
+		"ticker", "date" }))
 public class Quote extends AbstractQuote{
+	public static final String TICKER_DATE_CONSTRAINT = "quote_ticker_date";
 
 	private Double open;
 	private Double close;
@@ -0,0 +1,29 @@
+package com.oak.api.finance.model.dto;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Date of the latest historical quote saved for a ticker, kept up to date
+ * with every quote insert so the refresh doesn't have to aggregate the
+ * quote table.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "quote_watermark")
+public class QuoteWatermark {
+	@Id
+	private String ticker;
+	@Column(name = "latest_date")
+	private Date latestDate;
+}
@@ -19,6 +19,8 @@ public class Screen0Result {
 	@Id
 	@GeneratedValue(strategy = GenerationType.AUTO)
 	private Long id;
+	@Column(name = "screen_id")
+	private String screenId; // the screen that selected the stock
 	private String ticker;
 	@Column(name = "company_name")
 	private String companyName;
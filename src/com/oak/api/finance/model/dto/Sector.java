@@ -1,5 +1,7 @@
 package com.oak.api.finance.model.dto;
 
+import java.io.Serializable;
+
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
@@ -9,7 +11,9 @@ import lombok.Data;
 
 @Entity
 @Data
-public class Sector implements Comparable<Sector>{
+public class Sector implements Comparable<Sector>, Serializable {
+	private static final long serialVersionUID = 1L;
+
 	@Id
 	@GeneratedValue(strategy = GenerationType.AUTO)
 	private Long id;	
@@ -0,0 +1,33 @@
+package com.oak.api.finance.model.dto;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Hash of the scraped fields of a saved sector, industry or company, with
+ * the id of its row, so a symbol refresh can tell what changed without
+ * reading the sector and company tables.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "symbol_row_hash")
+public class SymbolRowHash {
+	/**
+	 * sector:description or company:ticker
+	 */
+	@Id
+	@Column(name = "row_key")
+	private String rowKey;
+	@Column(name = "entity_id")
+	private Long entityId;
+	@Column(name = "row_hash")
+	private long rowHash;
+}
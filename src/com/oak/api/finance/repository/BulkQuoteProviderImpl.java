@@ -0,0 +1,232 @@
+package com.oak.api.finance.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.Logger;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.google.common.collect.Lists;
+import com.oak.api.finance.model.dto.Quote;
+
+/**
+ * Loads historical quotes without going through hibernate: the rows are
+ * streamed into a temporary staging table with COPY FROM STDIN (or, when
+ * COPY isn't available, multi-row inserts) and moved to the quote table in
+ * one statement that skips any (ticker, date) already there. The skip is an
+ * ON CONFLICT on the unique (ticker, date) constraint of the quote table,
+ * so it costs an index lookup per row and holds against concurrent saves.
+ */
+public class BulkQuoteProviderImpl extends QuoteProviderImpl {
+
+	public enum LoadMode {
+		COPY, MULTI_ROW_INSERT
+	}
+
+	private static final String COLUMNS = "ticker, date, open, close, high, low, adjustment_factor, volume";
+
+	private static final String CREATE_STAGING_SQL = "create temp table if not exists quote_load "
+			+ "(ticker varchar(255), date timestamp, open float8, close float8, high float8, low float8, "
+			+ "adjustment_factor float8, volume int8) on commit delete rows";
+
+	private static final String COPY_SQL = "copy quote_load (" + COLUMNS + ") from stdin with (format csv)";
+
+	private static final String STAGING_INSERT_SQL = "insert into quote_load (" + COLUMNS + ") values ";
+
+	private static final String STAGING_ROW = "(?::varchar, ?::timestamp, ?::float8, ?::float8, ?::float8, "
+			+ "?::float8, ?::float8, ?::int8)";
+
+	private static final String MERGE_SQL = "insert into quote (id, " + COLUMNS + ") "
+			+ "select nextval('hibernate_sequence'), " + COLUMNS + " from quote_load "
+			+ "on conflict (ticker, date) do nothing";
+
+	private static final String CONSTRAINT_EXISTS_SQL = "select count(*) from pg_constraint "
+			+ "where conrelid = 'quote'::regclass and conname = '" + Quote.TICKER_DATE_CONSTRAINT + "'";
+
+	private static final String DELETE_DUPLICATES_SQL = "delete from quote q using quote d "
+			+ "where q.ticker = d.ticker and q.date = d.date and q.id > d.id";
+
+	private static final String ADD_CONSTRAINT_SQL = "alter table quote add constraint "
+			+ Quote.TICKER_DATE_CONSTRAINT + " unique (ticker, date)";
+
+	private static final int COPY_BUFFER_ROWS = 500;
+
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+	private final LoadMode mode;
+	private final int rowsPerInsert;
+	private final Logger log;
+
+	public BulkQuoteProviderImpl(QuoteRepository repository, JdbcTemplate jdbcTemplate,
+			TransactionTemplate transactionTemplate, LoadMode mode, int rowsPerInsert, Logger log) {
+		super(repository);
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = transactionTemplate;
+		this.mode = mode;
+		this.rowsPerInsert = rowsPerInsert;
+		this.log = log;
+	}
+
+	/**
+	 * Adds the unique (ticker, date) constraint the merge relies on to a
+	 * quote table created without it. Hibernate can't add it to a table
+	 * holding duplicates, so the duplicates are deleted first, keeping the
+	 * first saved quote of each ticker and day. Does nothing once the
+	 * constraint is there.
+	 */
+	public void ensureUniqueQuotes() {
+		transactionTemplate.execute(status -> {
+			// no save slips a duplicate in meanwhile
+			jdbcTemplate.execute("lock table quote in share row exclusive mode");
+			if (jdbcTemplate.queryForObject(CONSTRAINT_EXISTS_SQL, Integer.class) == 0) {
+				log.info("adding the unique (ticker, date) constraint to the quote table");
+				int deleted = jdbcTemplate.update(DELETE_DUPLICATES_SQL);
+				jdbcTemplate.execute(ADD_CONSTRAINT_SQL);
+				log.info("quote table made unique on (ticker, date), " + deleted + " duplicated quotes deleted");
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * Returns the quotes that were handed to the database, they don't get
+	 * their ids back. Quotes without a ticker or a date are dropped, and so
+	 * are repeats of the same (ticker, date) within the list.
+	 */
+	@Override
+	public Iterable<Quote> save(List<Quote> q) {
+		List<Quote> ret = dedupe(q);
+		if (!ret.isEmpty()) {
+			long start = System.currentTimeMillis();
+			Integer inserted = transactionTemplate
+					.execute(status -> jdbcTemplate.execute((ConnectionCallback<Integer>) c -> load(c, ret)));
+			log.debug("loaded " + inserted + " quotes out of " + ret.size() + " with " + mode + " in "
+					+ (System.currentTimeMillis() - start) + "ms");
+		}
+		return ret;
+	}
+
+	private int load(Connection connection, List<Quote> quotes) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute(CREATE_STAGING_SQL);
+			if (mode == LoadMode.COPY) {
+				copy(connection, quotes);
+			} else {
+				insertRows(connection, quotes);
+			}
+			int ret = statement.executeUpdate(MERGE_SQL);
+			// the staging table is also emptied on commit, this keeps it
+			// clean when the caller's transaction spans several saves
+			statement.execute("delete from quote_load");
+			return ret;
+		}
+	}
+
+	private void copy(Connection connection, List<Quote> quotes) throws SQLException {
+		CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+		try {
+			StringBuilder buffer = new StringBuilder(COPY_BUFFER_ROWS * 96);
+			int rows = 0;
+			for (Quote quote : quotes) {
+				appendCsv(buffer, quote);
+				if (++rows % COPY_BUFFER_ROWS == 0) {
+					writeToCopy(copyIn, buffer);
+				}
+			}
+			writeToCopy(copyIn, buffer);
+			copyIn.endCopy();
+		} finally {
+			if (copyIn.isActive()) {
+				copyIn.cancelCopy();
+			}
+		}
+	}
+
+	private void writeToCopy(CopyIn copyIn, StringBuilder buffer) throws SQLException {
+		if (buffer.length() > 0) {
+			byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+			copyIn.writeToCopy(bytes, 0, bytes.length);
+			buffer.setLength(0);
+		}
+	}
+
+	private void appendCsv(StringBuilder buffer, Quote quote) {
+		buffer.append('"').append(quote.getTicker().replace("\"", "\"\"")).append('"').append(',');
+		// same local time rendering the driver uses for timestamp parameters
+		buffer.append(new Timestamp(quote.getDate().getTime())).append(',');
+		appendCsv(buffer, quote.getOpen()).append(',');
+		appendCsv(buffer, quote.getClose()).append(',');
+		appendCsv(buffer, quote.getHigh()).append(',');
+		appendCsv(buffer, quote.getLow()).append(',');
+		appendCsv(buffer, quote.getAdjustmentFactor()).append(',');
+		appendCsv(buffer, quote.getVolume()).append('\n');
+	}
+
+	// an unquoted empty field is NULL in csv mode
+	private StringBuilder appendCsv(StringBuilder buffer, Object value) {
+		if (value != null) {
+			buffer.append(value);
+		}
+		return buffer;
+	}
+
+	private void insertRows(Connection connection, List<Quote> quotes) throws SQLException {
+		for (List<Quote> rows : Lists.partition(quotes, rowsPerInsert)) {
+			StringBuilder sql = new StringBuilder(STAGING_INSERT_SQL);
+			sql.append(String.join(", ", Collections.nCopies(rows.size(), STAGING_ROW)));
+			try (PreparedStatement ps = connection.prepareStatement(sql.toString())) {
+				int i = 1;
+				for (Quote quote : rows) {
+					ps.setString(i++, quote.getTicker());
+					ps.setTimestamp(i++, new Timestamp(quote.getDate().getTime()));
+					setDouble(ps, i++, quote.getOpen());
+					setDouble(ps, i++, quote.getClose());
+					setDouble(ps, i++, quote.getHigh());
+					setDouble(ps, i++, quote.getLow());
+					setDouble(ps, i++, quote.getAdjustmentFactor());
+					if (quote.getVolume() == null) {
+						ps.setNull(i++, Types.BIGINT);
+					} else {
+						ps.setLong(i++, quote.getVolume());
+					}
+				}
+				ps.executeUpdate();
+			}
+		}
+	}
+
+	private void setDouble(PreparedStatement ps, int i, Double v) throws SQLException {
+		if (v == null) {
+			ps.setNull(i, Types.DOUBLE);
+		} else {
+			ps.setDouble(i, v);
+		}
+	}
+
+	private List<Quote> dedupe(List<Quote> quotes) {
+		Map<String, Quote> unique = new LinkedHashMap<>(quotes.size() * 2);
+		for (Quote quote : quotes) {
+			Date date = quote.getDate();
+			if (quote.getTicker() != null && date != null) {
+				unique.putIfAbsent(quote.getTicker() + '|' + date.getTime(), quote);
+			}
+		}
+		List<Quote> ret = new ArrayList<>(unique.values());
+		return ret;
+	}
+}
@@ -0,0 +1,379 @@
+package com.oak.api.finance.repository;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.Logger;
+
+import com.oak.api.finance.model.dto.Quote;
+
+/**
+ * Daily quotes kept on local disk, one file per ticker, so that long
+ * histories can be scanned without going to the database. A file is a
+ * header holding the number of quotes followed by fixed width records in
+ * ascending date order: the epoch day, flags, open, high, low, close,
+ * adjustment factor and volume. Reads map the file and hand out a
+ * {@link QuoteSeries} over the mapped records.
+ * <p>
+ * Quotes later than the last stored one are appended. A quote of a day
+ * already stored, or missing before it, is merged in: the file is written
+ * again beside the old one with the quote in its place, replacing the
+ * stored quote of its day, and moved over it. That is what a reloaded
+ * history re-adjusted after a split goes through, and it costs a copy of
+ * the file, so the daily refresh should only bring later quotes.
+ */
+public class MappedQuoteStore {
+	static final int RECORD_SIZE = 56;
+	static final int EPOCH_DAY = 0;
+	static final int FLAGS = 4;
+	static final int OPEN = 8;
+	static final int HIGH = 16;
+	static final int LOW = 24;
+	static final int CLOSE = 32;
+	static final int ADJUSTMENT_FACTOR = 40;
+	static final int VOLUME = 48;
+	static final int HAS_VOLUME = 1;
+
+	private static final int MAGIC = 0x4F414B51;
+	private static final int HEADER_SIZE = 16;
+	private static final int COUNT = 8;
+	private static final String EXTENSION = ".quotes";
+
+	private final File directory;
+	private final Map<String, Object> locks = new ConcurrentHashMap<>();
+	private final Map<String, Long> revisions = new ConcurrentHashMap<>();
+	private final Logger log;
+
+	public MappedQuoteStore(File directory, Logger log) {
+		this.directory = directory;
+		this.log = log;
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			log.error("cannot create the quote store directory " + directory);
+		}
+	}
+
+	/**
+	 * Stores the quotes in the files of their tickers and returns how many
+	 * were written. A quote identical to the one stored for its day is
+	 * skipped, so saving the same quotes twice is harmless.
+	 */
+	public int save(Collection<Quote> quotes) throws IOException {
+		int ret = 0;
+		Map<String, List<Quote>> quotesPerTicker = quotes.stream()
+				.filter(q -> q.getTicker() != null && q.getDate() != null)
+				.collect(Collectors.groupingBy(Quote::getTicker));
+		for (Map.Entry<String, List<Quote>> e : quotesPerTicker.entrySet()) {
+			ret += append(e.getKey(), e.getValue());
+		}
+		return ret;
+	}
+
+	/**
+	 * All the quotes stored for the ticker, an empty series if there are
+	 * none.
+	 */
+	public QuoteSeries read(String ticker) throws IOException {
+		return read(ticker, LocalDate.MIN, LocalDate.MAX);
+	}
+
+	/**
+	 * The quotes of the ticker from from to to, both included.
+	 */
+	public QuoteSeries read(String ticker, LocalDate from, LocalDate to) throws IOException {
+		QuoteSeries ret;
+		File file = file(ticker);
+		if (!file.exists()) {
+			ret = QuoteSeries.empty(ticker);
+		} else {
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				int count = readCount(channel, file);
+				MappedByteBuffer mapped = channel.map(MapMode.READ_ONLY, HEADER_SIZE, (long) count * RECORD_SIZE);
+				mapped.order(ByteOrder.LITTLE_ENDIAN);
+				int first = firstNotBefore(mapped, count, Math.max(from.toEpochDay(), Integer.MIN_VALUE));
+				int end = firstNotBefore(mapped, count, Math.min(to.toEpochDay(), Integer.MAX_VALUE - 1) + 1);
+				mapped.position(first * RECORD_SIZE);
+				mapped.limit(end * RECORD_SIZE);
+				ByteBuffer records = mapped.slice().order(ByteOrder.LITTLE_ENDIAN);
+				ret = new QuoteSeries(ticker, records, end - first);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * How many times the stored history of the ticker was merged into since
+	 * the store was created: quotes read before a change of revision may
+	 * have been replaced, by a re-adjusted history for instance.
+	 */
+	public long getRevision(String ticker) {
+		return revisions.getOrDefault(ticker, 0L);
+	}
+
+	/**
+	 * The tickers having a file in the store.
+	 */
+	public Set<String> getTickers() {
+		Set<String> ret = new TreeSet<>();
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+		if (files != null) {
+			for (File file : files) {
+				String name = file.getName();
+				ret.add(decode(name.substring(0, name.length() - EXTENSION.length())));
+			}
+		}
+		return ret;
+	}
+
+	private int append(String ticker, List<Quote> quotes) throws IOException {
+		int ret = 0;
+		synchronized (locks.computeIfAbsent(ticker, t -> new Object())) {
+			File file = file(ticker);
+			ByteBuffer rewritten = null;
+			int rewrittenCount = 0;
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+					StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				int count;
+				long lastDay;
+				if (channel.size() == 0) {
+					count = 0;
+					lastDay = Long.MIN_VALUE;
+					writeHeader(channel, 0);
+				} else {
+					count = readCount(channel, file);
+					lastDay = count == 0 ? Long.MIN_VALUE : readEpochDay(channel, count - 1);
+				}
+				ByteBuffer records = records(quotes);
+				int added = records.limit() / RECORD_SIZE;
+				if (added > 0 && records.getInt(EPOCH_DAY) > lastDay) {
+					long position = HEADER_SIZE + (long) count * RECORD_SIZE;
+					while (records.hasRemaining()) {
+						position += channel.write(records, position);
+					}
+					// the records are in place before the count makes them visible
+					writeHeader(channel, count + added);
+					ret = added;
+				} else if (added > 0) {
+					ByteBuffer stored = ByteBuffer.allocate(count * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+					readFully(channel, stored, HEADER_SIZE);
+					rewritten = ByteBuffer.allocate((count + added) * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+					ret = merge(stored, records, rewritten);
+					rewrittenCount = rewritten.position() / RECORD_SIZE;
+				}
+				if (ret < quotes.size()) {
+					log.debug((quotes.size() - ret) + " quotes of " + ticker + " already stored");
+				}
+			}
+			if (rewritten != null && ret > 0) {
+				rewrite(file, rewritten, rewrittenCount);
+				revisions.merge(ticker, 1L, Long::sum);
+				log.info("merged " + ret + " quotes into the stored history of " + ticker);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * The records of the quotes in date order, the last quote of a day
+	 * standing for it.
+	 */
+	private ByteBuffer records(List<Quote> quotes) {
+		List<Quote> sorted = new ArrayList<>(quotes);
+		sorted.sort(Comparator.comparing(Quote::getDate));
+		ByteBuffer ret = ByteBuffer.allocate(sorted.size() * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		long lastDay = Long.MIN_VALUE;
+		for (Quote q : sorted) {
+			long day = epochDay(q);
+			if (day == lastDay) {
+				ret.position(ret.position() - RECORD_SIZE);
+			}
+			put(ret, day, q);
+			lastDay = day;
+		}
+		ret.flip();
+		return ret;
+	}
+
+	/**
+	 * Merges the records into the stored ones, both in date order, into
+	 * merged, a record replacing the stored one of its day. Returns how many
+	 * records are new or differ from the stored ones.
+	 */
+	private static int merge(ByteBuffer stored, ByteBuffer records, ByteBuffer merged) {
+		int ret = 0;
+		int s = 0;
+		int r = 0;
+		int storedCount = stored.limit() / RECORD_SIZE;
+		int recordCount = records.limit() / RECORD_SIZE;
+		while (s < storedCount || r < recordCount) {
+			long storedDay = s < storedCount ? stored.getInt(s * RECORD_SIZE + EPOCH_DAY) : Long.MAX_VALUE;
+			long recordDay = r < recordCount ? records.getInt(r * RECORD_SIZE + EPOCH_DAY) : Long.MAX_VALUE;
+			if (storedDay < recordDay) {
+				copy(stored, s++, merged);
+			} else {
+				if (storedDay > recordDay || !sameRecord(stored, s, records, r)) {
+					ret++;
+				}
+				if (storedDay == recordDay) {
+					s++;
+				}
+				copy(records, r++, merged);
+			}
+		}
+		return ret;
+	}
+
+	private static boolean sameRecord(ByteBuffer a, int i, ByteBuffer b, int j) {
+		boolean ret = true;
+		for (int k = 0; k < RECORD_SIZE && ret; k++) {
+			ret = a.get(i * RECORD_SIZE + k) == b.get(j * RECORD_SIZE + k);
+		}
+		return ret;
+	}
+
+	private static void copy(ByteBuffer from, int i, ByteBuffer to) {
+		for (int k = 0; k < RECORD_SIZE; k++) {
+			to.put(from.get(i * RECORD_SIZE + k));
+		}
+	}
+
+	/**
+	 * Readers holding the old file keep reading it, the next ones open the
+	 * new one.
+	 */
+	private void rewrite(File file, ByteBuffer records, int count) throws IOException {
+		File merged = new File(directory, file.getName() + ".merge");
+		try (FileChannel channel = FileChannel.open(merged.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			writeHeader(channel, count);
+			records.flip();
+			long position = HEADER_SIZE;
+			while (records.hasRemaining()) {
+				position += channel.write(records, position);
+			}
+			channel.force(true);
+		}
+		Files.move(merged.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private void put(ByteBuffer records, long day, Quote q) {
+		records.putInt((int) day);
+		records.putInt(q.getVolume() == null ? 0 : HAS_VOLUME);
+		records.putDouble(value(q.getOpen()));
+		records.putDouble(value(q.getHigh()));
+		records.putDouble(value(q.getLow()));
+		records.putDouble(value(q.getClose()));
+		records.putDouble(value(q.getAdjustmentFactor()));
+		records.putLong(q.getVolume() == null ? 0 : q.getVolume());
+	}
+
+	private void writeHeader(FileChannel channel, int count) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putInt(RECORD_SIZE).putLong(count);
+		header.flip();
+		long position = 0;
+		while (header.hasRemaining()) {
+			position += channel.write(header, position);
+		}
+	}
+
+	private int readCount(FileChannel channel, File file) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		readFully(channel, header, 0);
+		if (header.getInt(0) != MAGIC || header.getInt(4) != RECORD_SIZE) {
+			throw new IOException(file + " is not a quote file");
+		}
+		long count = header.getLong(COUNT);
+		// records past the count were being written when the last append stopped
+		long stored = (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+		return (int) Math.min(count, stored);
+	}
+
+	private long readEpochDay(FileChannel channel, int i) throws IOException {
+		ByteBuffer day = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+		readFully(channel, day, HEADER_SIZE + (long) i * RECORD_SIZE + EPOCH_DAY);
+		return day.getInt(0);
+	}
+
+	private void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		long p = position;
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, p);
+			if (read < 0) {
+				throw new IOException("unexpected end of quote file at " + p);
+			}
+			p += read;
+		}
+	}
+
+	/**
+	 * The index of the first record dated day or later, count if there is
+	 * none.
+	 */
+	private static int firstNotBefore(ByteBuffer records, int count, long day) {
+		int low = 0;
+		int high = count;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (records.getInt(mid * RECORD_SIZE + EPOCH_DAY) < day) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private static long epochDay(Quote q) {
+		return Instant.ofEpochMilli(q.getDate().getTime()).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+	}
+
+	private static double value(Double d) {
+		double ret;
+		if (d == null) {
+			ret = Double.NaN;
+		} else {
+			ret = d;
+		}
+		return ret;
+	}
+
+	private File file(String ticker) {
+		try {
+			return new File(directory, URLEncoder.encode(ticker, "UTF-8") + EXTENSION);
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String decode(String name) {
+		try {
+			return URLDecoder.decode(name, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
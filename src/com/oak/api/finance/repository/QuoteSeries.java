@@ -0,0 +1,124 @@
+package com.oak.api.finance.repository;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+import com.oak.api.finance.model.dto.Quote;
+
+/**
+ * The daily quotes of one ticker read from a {@link MappedQuoteStore}, in
+ * ascending date order. The values are read straight from the mapped file,
+ * nothing is copied until {@link #toQuote(int)} is called. A missing price is
+ * NaN.
+ */
+public class QuoteSeries {
+	private final String ticker;
+	private final ByteBuffer records;
+	private final int size;
+
+	QuoteSeries(String ticker, ByteBuffer records, int size) {
+		this.ticker = ticker;
+		this.records = records;
+		this.size = size;
+	}
+
+	public static QuoteSeries empty(String ticker) {
+		return new QuoteSeries(ticker, ByteBuffer.allocate(0), 0);
+	}
+
+	public String getTicker() {
+		return ticker;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public long getEpochDay(int i) {
+		return records.getInt(offset(i) + MappedQuoteStore.EPOCH_DAY);
+	}
+
+	public LocalDate getDate(int i) {
+		return LocalDate.ofEpochDay(getEpochDay(i));
+	}
+
+	public double getOpen(int i) {
+		return records.getDouble(offset(i) + MappedQuoteStore.OPEN);
+	}
+
+	public double getHigh(int i) {
+		return records.getDouble(offset(i) + MappedQuoteStore.HIGH);
+	}
+
+	public double getLow(int i) {
+		return records.getDouble(offset(i) + MappedQuoteStore.LOW);
+	}
+
+	public double getClose(int i) {
+		return records.getDouble(offset(i) + MappedQuoteStore.CLOSE);
+	}
+
+	public double getAdjustmentFactor(int i) {
+		return records.getDouble(offset(i) + MappedQuoteStore.ADJUSTMENT_FACTOR);
+	}
+
+	/**
+	 * The index of the first quote dated day or later, size() if there is
+	 * none.
+	 */
+	public int firstOnOrAfter(LocalDate day) {
+		long epochDay = day.toEpochDay();
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (getEpochDay(mid) < epochDay) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	public boolean hasVolume(int i) {
+		return (records.getInt(offset(i) + MappedQuoteStore.FLAGS) & MappedQuoteStore.HAS_VOLUME) != 0;
+	}
+
+	/**
+	 * 0 when the volume is missing, see {@link #hasVolume(int)}.
+	 */
+	public long getVolume(int i) {
+		return records.getLong(offset(i) + MappedQuoteStore.VOLUME);
+	}
+
+	/**
+	 * The quote of the i-th day as the entity the database holds, without
+	 * an id.
+	 */
+	public Quote toQuote(int i) {
+		Date date = Date.from(getDate(i).atStartOfDay(ZoneId.systemDefault()).toInstant());
+		Quote ret = new Quote(null, ticker, value(getOpen(i)), value(getClose(i)), value(getHigh(i)),
+				value(getLow(i)), value(getAdjustmentFactor(i)), hasVolume(i) ? getVolume(i) : null, date);
+		return ret;
+	}
+
+	private int offset(int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("quote " + i + " of a series of " + size);
+		}
+		return i * MappedQuoteStore.RECORD_SIZE;
+	}
+
+	private static Double value(double d) {
+		Double ret;
+		if (Double.isNaN(d)) {
+			ret = null;
+		} else {
+			ret = d;
+		}
+		return ret;
+	}
+}
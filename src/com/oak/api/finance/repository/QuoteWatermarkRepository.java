@@ -0,0 +1,9 @@
+package com.oak.api.finance.repository;
+
+import org.springframework.data.repository.CrudRepository;
+
+import com.oak.api.finance.model.dto.QuoteWatermark;
+
+public interface QuoteWatermarkRepository extends CrudRepository<QuoteWatermark, String> {
+
+}
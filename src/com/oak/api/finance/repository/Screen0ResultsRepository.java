@@ -1,5 +1,10 @@
 package com.oak.api.finance.repository;
 
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 
@@ -7,4 +12,8 @@ import com.oak.api.finance.model.dto.Screen0Result;
 @RepositoryRestResource(collectionResourceRel = "screen0_result", path = "screen0_results")
 public interface Screen0ResultsRepository extends PagingAndSortingRepository<Screen0Result, Long> {
 
+	@Query("SELECT DISTINCT r.runDate FROM Screen0Result r WHERE r.runDate IS NOT NULL ORDER BY r.runDate")
+	List<Date> findRunDates();
+
+	List<Screen0Result> findByRunDateIn(Collection<Date> runDates);
 }
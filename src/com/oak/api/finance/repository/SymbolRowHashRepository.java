@@ -0,0 +1,9 @@
+package com.oak.api.finance.repository;
+
+import org.springframework.data.repository.CrudRepository;
+
+import com.oak.api.finance.model.dto.SymbolRowHash;
+
+public interface SymbolRowHashRepository extends CrudRepository<SymbolRowHash, String> {
+
+}
@@ -0,0 +1,110 @@
+package com.oak.api.finance.repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.logging.log4j.Logger;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.oak.api.finance.model.dto.Quote;
+import com.oak.api.finance.model.dto.QuoteWatermark;
+
+/**
+ * Wraps a QuoteProvider and maintains the quote_watermark table in the
+ * same transaction as the quote inserts. The latest quote dates are then
+ * read from the watermarks, one row per ticker, instead of running the
+ * max(date) aggregate over the whole quote table. The aggregate is only
+ * used once, to seed an empty watermark table.
+ * <p>
+ * Watermarks are written with one upsert per ticker that keeps the
+ * greatest of the saved and the new date, so concurrent saves of the same
+ * ticker can neither lose an advance nor move a watermark back.
+ */
+public class WatermarkQuoteProviderImpl implements QuoteProvider {
+
+	static final String UPSERT_SQL = "insert into quote_watermark (ticker, latest_date) values (?, ?) "
+			+ "on conflict (ticker) do update "
+			+ "set latest_date = greatest(quote_watermark.latest_date, excluded.latest_date)";
+
+	private final QuoteProvider delegate;
+	private final QuoteWatermarkRepository watermarkRepository;
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+	private final Logger log;
+
+	public WatermarkQuoteProviderImpl(QuoteProvider delegate, QuoteWatermarkRepository watermarkRepository,
+			JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, Logger log) {
+		this.delegate = delegate;
+		this.watermarkRepository = watermarkRepository;
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = transactionTemplate;
+		this.log = log;
+	}
+
+	@Override
+	public Map<String, Date> getLatestQuoteDateByTicker() {
+		Map<String, Date> ret = new HashMap<>();
+		if (watermarkRepository.count() == 0) {
+			ret = seedWatermarks();
+		} else {
+			for (QuoteWatermark w : watermarkRepository.findAll()) {
+				ret.put(w.getTicker(), w.getLatestDate());
+			}
+		}
+		return ret;
+	}
+
+	@Override
+	public Iterable<Quote> save(List<Quote> q) {
+		Iterable<Quote> ret = transactionTemplate.execute(status -> {
+			Iterable<Quote> saved = delegate.save(q);
+			advanceWatermarks(q);
+			return saved;
+		});
+		return ret;
+	}
+
+	private Map<String, Date> seedWatermarks() {
+		log.info("quote watermarks are empty, seeding them from the quote table");
+		Map<String, Date> ret = delegate.getLatestQuoteDateByTicker();
+		// another instance may be seeding or saving meanwhile
+		transactionTemplate.execute(status -> upsert(new TreeMap<>(ret)));
+		log.info("seeded " + ret.size() + " quote watermarks");
+		return ret;
+	}
+
+	private void advanceWatermarks(List<Quote> quotes) {
+		// in ticker order, so concurrent saves lock the rows in the same order
+		Map<String, Date> latest = new TreeMap<>();
+		for (Quote quote : quotes) {
+			if (quote.getTicker() != null && quote.getDate() != null) {
+				latest.merge(quote.getTicker(), quote.getDate(), this::max);
+			}
+		}
+		if (!latest.isEmpty()) {
+			upsert(latest);
+		}
+	}
+
+	/**
+	 * Watermarks only ever move forward.
+	 */
+	private int[] upsert(Map<String, Date> latest) {
+		List<Object[]> args = new ArrayList<>(latest.size());
+		for (Map.Entry<String, Date> e : latest.entrySet()) {
+			args.add(new Object[] { e.getKey(), new Timestamp(e.getValue().getTime()) });
+		}
+		int[] ret = jdbcTemplate.batchUpdate(UPSERT_SQL, args);
+		return ret;
+	}
+
+	private Date max(Date a, Date b) {
+		return a.getTime() >= b.getTime() ? a : b;
+	}
+}
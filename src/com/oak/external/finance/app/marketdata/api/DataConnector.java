@@ -4,17 +4,29 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import com.oak.api.finance.model.Economic;
 import com.oak.api.finance.model.Stock;
 import com.oak.api.finance.model.dto.AbstractQuote;
 
-import io.reactivex.Observable;
+import io.reactivex.Flowable;
 
 public interface DataConnector {
 
 	Map<Stock, Map<Date, Economic>> getEconomics(Set<String> stocks);
 
-	Observable<List<AbstractQuote>> getHistoricalQuotes(Set<String> tickers, Date fromDate);
-	
+	/**
+	 * Streaming variant of {@link #getEconomics(Set)}: the listener receives
+	 * each batch as soon as it is loaded, possibly from several threads at
+	 * once. Returns when all batches have been delivered or given up on.
+	 */
+	void getEconomics(Set<String> stocks, Consumer<Map<Stock, Map<Date, Economic>>> listener);
+
+	/**
+	 * Historical quotes of the tickers from fromDate onwards. The returned
+	 * Flowable is cold and honours backpressure: nothing further is
+	 * downloaded while the subscriber has no outstanding request.
+	 */
+	Flowable<List<AbstractQuote>> getHistoricalQuotes(Set<String> tickers, Date fromDate);
 }
@@ -1,7 +1,23 @@
 package com.oak.external.finance.app.marketdata.api;
 
+import java.util.Collection;
+import java.util.Map;
+
 import com.oak.api.finance.model.FinancialData;
 
 public interface FinancialStatementsProvider {
 	FinancialData getFinancialStatements(String ticker);
+
+	/**
+	 * Same as {@link #getFinancialStatements(String)} for a whole batch of
+	 * tickers, keyed by ticker. Tickers for which nothing could be found are
+	 * left out.
+	 */
+	Map<String, FinancialData> getFinancialStatements(Collection<String> tickers);
+
+	/**
+	 * To be called by anyone saving or deleting statements of the ticker
+	 * outside of this provider, so nothing stale is served afterwards.
+	 */
+	void statementsChanged(String ticker);
 }
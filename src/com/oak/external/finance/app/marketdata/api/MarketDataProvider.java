@@ -3,6 +3,7 @@ package com.oak.external.finance.app.marketdata.api;
 import java.util.Date;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import com.oak.api.finance.model.Economic;
 import com.oak.api.finance.model.Stock;
@@ -12,6 +13,8 @@ public interface MarketDataProvider {
 
 	Map<Stock, Map<Date, Economic>> retrieveMarketData(Set<String> stocks);
 
+	void retrieveMarketData(Set<String> stocks, Consumer<Map<Stock, Map<Date, Economic>>> listener);
+
 	void checkHistoricalQuotes();
 	
 }
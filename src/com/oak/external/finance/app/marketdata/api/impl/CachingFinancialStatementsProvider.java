@@ -0,0 +1,210 @@
+package com.oak.external.finance.app.marketdata.api.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import com.oak.api.finance.model.FinancialData;
+import com.oak.external.finance.app.marketdata.api.FinancialStatementsProvider;
+
+/**
+ * Read-through cache in front of a {@link FinancialStatementsProvider}, so a
+ * ticker analysed several times in a row (earnings refresh, then advanced
+ * analysis) hits the database and the converter only once.
+ * <p>
+ * The first tier is an in-heap LRU of converted {@link FinancialData} with a
+ * time to live. When a spill directory is configured, entries pushed out of
+ * the heap by the size limit are serialized there and read back on the next
+ * miss, as long as they are younger than the same time to live. Blank or
+ * failed results are never cached. Both tiers drop a ticker as soon as its
+ * statements are saved or {@link #statementsChanged(String) changed}.
+ */
+public class CachingFinancialStatementsProvider implements FinancialStatementsProvider {
+
+	private final FinancialStatementsProvider delegate;
+	private final Cache<String, Entry> cache;
+	private final long ttlMillis;
+	private final File spillDirectory;
+	private final Logger log;
+	private final AtomicLong spillHits = new AtomicLong();
+	private final AtomicLong spillWrites = new AtomicLong();
+
+	/**
+	 * @param spillDirectory
+	 *            where evicted entries go, null to keep the heap tier only
+	 */
+	public CachingFinancialStatementsProvider(FinancialStatementsProvider delegate, long ttlMillis, long maximumSize,
+			File spillDirectory, Logger log) {
+		this.delegate = delegate;
+		this.ttlMillis = ttlMillis;
+		this.spillDirectory = spillDirectory;
+		this.log = log;
+		this.cache = CacheBuilder.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+				.recordStats()
+				.removalListener(this::onRemoval)
+				.build();
+		if (spillDirectory != null && !spillDirectory.isDirectory() && !spillDirectory.mkdirs()) {
+			log.error("cannot create the financial statements spill directory " + spillDirectory);
+		}
+	}
+
+	@Override
+	public FinancialData getFinancialStatements(String ticker) {
+		FinancialData ret = getCached(ticker);
+		if (ret == null) {
+			// the delegate may download and save newer statements: whatever was cached is stale
+			statementsChanged(ticker);
+			ret = delegate.getFinancialStatements(ticker);
+			if (!FinancialData.isBlankOrError(ret)) {
+				cache.put(ticker, new Entry(ret, System.currentTimeMillis()));
+			}
+		}
+		return ret;
+	}
+
+	private FinancialData getCached(String ticker) {
+		FinancialData ret = null;
+		Entry entry = cache.getIfPresent(ticker);
+		if (entry == null) {
+			entry = readSpilled(ticker);
+			if (entry != null) {
+				spillHits.incrementAndGet();
+				cache.put(ticker, entry);
+			}
+		}
+		if (entry != null && !entry.isExpired(ttlMillis)) {
+			ret = entry.financialData;
+		}
+		return ret;
+	}
+
+	@Override
+	public Map<String, FinancialData> getFinancialStatements(Collection<String> tickers) {
+		Map<String, FinancialData> ret = new HashMap<>();
+		Set<String> missing = new HashSet<>();
+		for (String ticker : tickers) {
+			FinancialData cached = getCached(ticker);
+			if (cached != null) {
+				ret.put(ticker, cached);
+			} else {
+				missing.add(ticker);
+			}
+		}
+		if (!missing.isEmpty()) {
+			missing.forEach(this::statementsChanged);
+			Map<String, FinancialData> loaded = delegate.getFinancialStatements(missing);
+			for (Map.Entry<String, FinancialData> e : loaded.entrySet()) {
+				if (!FinancialData.isBlankOrError(e.getValue())) {
+					cache.put(e.getKey(), new Entry(e.getValue(), System.currentTimeMillis()));
+				}
+			}
+			ret.putAll(loaded);
+		}
+		return ret;
+	}
+
+	@Override
+	public void statementsChanged(String ticker) {
+		cache.invalidate(ticker);
+		deleteSpilled(ticker);
+		delegate.statementsChanged(ticker);
+	}
+
+	public FinancialStatementsCacheMetrics getMetrics() {
+		CacheStats stats = cache.stats();
+		FinancialStatementsCacheMetrics ret = new FinancialStatementsCacheMetrics(cache.size(), stats.hitCount(),
+				stats.missCount() - spillHits.get(), stats.evictionCount(), spillHits.get(), spillWrites.get());
+		return ret;
+	}
+
+	private void onRemoval(RemovalNotification<String, Entry> notification) {
+		if (spillDirectory != null && notification.getCause() == RemovalCause.SIZE) {
+			spill(notification.getKey(), notification.getValue());
+		}
+	}
+
+	private void spill(String ticker, Entry entry) {
+		if (!entry.isExpired(ttlMillis)) {
+			try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(spillFile(ticker)))) {
+				out.writeObject(entry);
+				spillWrites.incrementAndGet();
+			} catch (IOException e) {
+				log.error("cannot spill financial statements of " + ticker, e);
+			}
+		}
+	}
+
+	private Entry readSpilled(String ticker) {
+		Entry ret = null;
+		if (spillDirectory != null) {
+			File file = spillFile(ticker);
+			if (file.exists()) {
+				try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(file))) {
+					ret = (Entry) in.readObject();
+				} catch (IOException | ClassNotFoundException | ClassCastException e) {
+					log.warn("cannot read spilled financial statements of " + ticker + ": " + e.getMessage());
+				}
+				deleteSpilled(ticker);
+			}
+		}
+		return ret;
+	}
+
+	private void deleteSpilled(String ticker) {
+		if (spillDirectory != null) {
+			File file = spillFile(ticker);
+			if (file.exists() && !file.delete()) {
+				log.warn("cannot delete spilled financial statements " + file);
+			}
+		}
+	}
+
+	private File spillFile(String ticker) {
+		try {
+			return new File(spillDirectory, URLEncoder.encode(ticker, "UTF-8") + ".ser");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Carries its load time across the tiers, so moving between heap and disk
+	 * never extends the life of an entry.
+	 */
+	private static class Entry implements Serializable {
+		private static final long serialVersionUID = 1L;
+		private final FinancialData financialData;
+		private final long loadedMillis;
+
+		private Entry(FinancialData financialData, long loadedMillis) {
+			this.financialData = financialData;
+			this.loadedMillis = loadedMillis;
+		}
+
+		private boolean isExpired(long ttlMillis) {
+			return System.currentTimeMillis() - loadedMillis >= ttlMillis;
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package com.oak.external.finance.app.marketdata.api.impl;
+
+import lombok.Data;
+
+/**
+ * Point in time view of a {@link CachingFinancialStatementsProvider}.
+ */
+@Data
+public class FinancialStatementsCacheMetrics {
+	private final long size;
+	private final long hits;
+	private final long misses;
+	private final long evictions;
+	private final long spillHits;
+	private final long spillWrites;
+
+	public double getHitRate() {
+		double ret = 0;
+		long requests = hits + spillHits + misses;
+		if (requests > 0) {
+			ret = (hits + spillHits) / (double) requests;
+		}
+		return ret;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("financial statements cache: size=%d hits=%d spillHits=%d misses=%d evictions=%d spillWrites=%d hitRate=%.2f",
+				size, hits, spillHits, misses, evictions, spillWrites, getHitRate());
+	}
+}
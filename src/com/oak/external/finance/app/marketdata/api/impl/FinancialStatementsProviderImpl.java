@@ -1,12 +1,18 @@
 package com.oak.external.finance.app.marketdata.api.impl;
 
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.Logger;
@@ -39,10 +45,11 @@ public class FinancialStatementsProviderImpl implements FinancialStatementsProvi
 	private final CashflowStatmentConverter cashflowConverter;
 	private final IncomeStatementConverter incomeStatmentConverter;
 	private final CompanyWithProblemsRepository companyWithProblemsRepository;
+	private final Executor downloadExecutor;
 
 	public FinancialStatementsProviderImpl(FinancialDataDao financialDataDao,
 			BalanceSheetRepository balanceSheetRepository, FinancialStatementsConverter statementsConverter,
-			IncomeStatementRepository incomeStatementRepository, CashFlowStatementRepository cashFlowStatementRepository, CompanyWithProblemsRepository companyWithProblemsRepository, Logger logger) {
+			IncomeStatementRepository incomeStatementRepository, CashFlowStatementRepository cashFlowStatementRepository, CompanyWithProblemsRepository companyWithProblemsRepository, Executor downloadExecutor, Logger logger) {
 		this.financialDataDao = financialDataDao;
 		this.balanceSheetRepository = balanceSheetRepository;
 		this.cashFlowStatementRepository = cashFlowStatementRepository;
@@ -53,6 +60,7 @@ public class FinancialStatementsProviderImpl implements FinancialStatementsProvi
 		this.cashflowConverter = new CashflowStatmentConverter();
 		this.incomeStatmentConverter = new IncomeStatementConverter();
 		this.companyWithProblemsRepository = companyWithProblemsRepository;
+		this.downloadExecutor = downloadExecutor;
 	}
 
 	@Override
@@ -63,14 +71,79 @@ public class FinancialStatementsProviderImpl implements FinancialStatementsProvi
 		List<CashFlowStatementDto> cashFlowStatementsInDb = cashFlowStatementRepository.findByTicker(ticker);
 		List<IncomeStatementDto> incomeStatementsInDb = incomeStatementRepository.findByTicker(ticker);
 
-		boolean oldOrMissingFinancials = true;
+		FinancialData dbFinancials = statementsConverter.getFinancialData(ticker, balanceSheetsInDb,
+				cashFlowStatementsInDb, incomeStatementsInDb);
 		FinancialData financialData;
-		FinancialData dbFinancials = null;
-		// boolean needToCheck = false;
-		// if (needToCheck) {
-		dbFinancials = statementsConverter.getFinancialData(ticker, balanceSheetsInDb, cashFlowStatementsInDb,
-				incomeStatementsInDb);
+		if (isOldOrMissing(ticker, dbFinancials)) {
+			financialData = downloadAndSave(ticker, balanceSheetsInDb, cashFlowStatementsInDb, incomeStatementsInDb);
+		} else {
+			financialData = dbFinancials;
+		}
+
+		return financialData;
+	}
+
+	/**
+	 * One query per statement type for the whole batch, conversion in
+	 * parallel, and a download on the download executor only for the tickers
+	 * whose statements are old or missing. A ticker whose download fails
+	 * keeps the statements read from the database.
+	 */
+	@Override
+	public Map<String, FinancialData> getFinancialStatements(Collection<String> tickers) {
+		logger.info("Getting financial statements for " + tickers.size() + " tickers");
+		Map<String, FinancialData> ret = new ConcurrentHashMap<>();
+		if (!tickers.isEmpty()) {
+			Map<String, List<BalanceSheetDto>> balanceSheetsInDb = byTicker(
+					balanceSheetRepository.findByTickerIn(tickers));
+			Map<String, List<CashFlowStatementDto>> cashFlowStatementsInDb = byTicker(
+					cashFlowStatementRepository.findByTickerIn(tickers));
+			Map<String, List<IncomeStatementDto>> incomeStatementsInDb = byTicker(
+					incomeStatementRepository.findByTickerIn(tickers));
+
+			Map<String, FinancialData> dbFinancials = tickers.parallelStream().distinct()
+					.collect(Collectors.toConcurrentMap(t -> t,
+							t -> statementsConverter.getFinancialData(t,
+									balanceSheetsInDb.getOrDefault(t, Collections.emptyList()),
+									cashFlowStatementsInDb.getOrDefault(t, Collections.emptyList()),
+									incomeStatementsInDb.getOrDefault(t, Collections.emptyList()))));
 
+			List<CompletableFuture<Void>> downloads = new ArrayList<>();
+			for (String ticker : dbFinancials.keySet()) {
+				FinancialData db = dbFinancials.get(ticker);
+				if (isOldOrMissing(ticker, db)) {
+					downloads.add(CompletableFuture.runAsync(() -> {
+						FinancialData downloaded = downloadAndSave(ticker,
+								balanceSheetsInDb.getOrDefault(ticker, Collections.emptyList()),
+								cashFlowStatementsInDb.getOrDefault(ticker, Collections.emptyList()),
+								incomeStatementsInDb.getOrDefault(ticker, Collections.emptyList()));
+						if (downloaded != null) {
+							ret.put(ticker, downloaded);
+						}
+					}, downloadExecutor).exceptionally(e -> {
+						logger.error("Cannot refresh financials for " + ticker + ", keeping the saved ones", e);
+						ret.put(ticker, db);
+						return null;
+					}));
+				} else {
+					ret.put(ticker, db);
+				}
+			}
+			CompletableFuture.allOf(downloads.toArray(new CompletableFuture[downloads.size()])).join();
+			logger.info("Got financial statements for " + ret.size() + " tickers, " + downloads.size()
+					+ " of them downloaded");
+		}
+		return ret;
+	}
+
+	private <T extends AbstractFinancialStatement> Map<String, List<T>> byTicker(List<T> statements) {
+		Map<String, List<T>> ret = statements.stream()
+				.collect(Collectors.groupingBy(AbstractFinancialStatement::getTicker));
+		return ret;
+	}
+
+	private boolean isOldOrMissing(String ticker, FinancialData dbFinancials) {
+		boolean oldOrMissingFinancials = true;
 		if (!dbFinancials.getQuarterlyBalanceSheet().isEmpty()) {
 			Date lastPeriod = dbFinancials.getQuarterlyBalanceSheet().lastKey();
 			ZonedDateTime ninetyDaysAgo = ZonedDateTime.now().plusDays(-90);
@@ -78,78 +151,81 @@ public class FinancialStatementsProviderImpl implements FinancialStatementsProvi
 			logger.info(ticker + ": " + (oldOrMissingFinancials ? "N" : "No n") + "eed to download balance sheet for ["
 					+ ticker + "]. Latest saved is from " + lastPeriod);
 		}
-		// }
-		if (oldOrMissingFinancials) {
-			logger.info("downloading balance sheet for [" + ticker + "]");
-
-			financialData = financialDataDao.getFinancialDataForSymbol(ticker,
-					null /*
-							 * some provider of financial statements data need an
-							 * exchange supplied, some don't
-							 */);
-			if (!FinancialData.isBlankOrError(financialData)) {
-				SortedMap<Date, BalanceSheet> annualBalanceSheet = financialData.getAnnualBalanceSheet();
-				SortedMap<Date, BalanceSheet> quarterlyBalanceSheet = financialData.getQuarterlyBalanceSheet();
-				SortedMap<Date, CashFlowStatement> annualCashflowStatement = financialData.getAnnualCashflowStatement();
-				SortedMap<Date, CashFlowStatement> quarterlyCashflowStatement = financialData
-						.getQuarterlyCashflowStatement();
-				SortedMap<Date, IncomeStatement> annualIncomeStatement = financialData.getAnnualIncomeStatement();
-				SortedMap<Date, IncomeStatement> quarterlyIncomeStatement = financialData.getQuarterlyIncomeStatement();
-
-				Set<BalanceSheetDto> balanceSheets = new HashSet<>();
-				Set<CashFlowStatementDto> cashflowStatements = new HashSet<>();
-				Set<IncomeStatementDto> incomeStatements = new HashSet<>();
-
-				extractFinancialData(annualBalanceSheet, balanceSheets, StatementPeriod.ANNUAL, balanceSheetConverter);
-				extractFinancialData(quarterlyBalanceSheet, balanceSheets, StatementPeriod.QUARTERLY,
-						balanceSheetConverter);
-
-				extractFinancialData(annualCashflowStatement, cashflowStatements, StatementPeriod.ANNUAL,
-						cashflowConverter);
-				extractFinancialData(quarterlyCashflowStatement, cashflowStatements, StatementPeriod.QUARTERLY,
-						cashflowConverter);
-
-				extractFinancialData(annualIncomeStatement, incomeStatements, StatementPeriod.ANNUAL,
-						incomeStatmentConverter);
-				extractFinancialData(quarterlyIncomeStatement, incomeStatements, StatementPeriod.QUARTERLY,
-						incomeStatmentConverter);
-
-				// extract new balance sheets that need to be written to the DB
-				Set<BalanceSheetDto> bsToBeSaved = filterFinancialDataToBeSaved(balanceSheetsInDb, balanceSheets);
-				Set<CashFlowStatementDto> cfToBeSaved = filterFinancialDataToBeSaved(cashFlowStatementsInDb,
-						cashflowStatements);
-				Set<IncomeStatementDto> isToBeSaved = filterFinancialDataToBeSaved(incomeStatementsInDb,
-						incomeStatements);
-
-				////////////////////////////////////////////////////////////////////
-				//// LOGIC TO REMOVE incorrect annual statements saved as
-				//////////////////////////////////////////////////////////////////// quarterly
-				Set<BalanceSheetDto> bsToBeDeleted = filterFinancialDataToBeDeleted(balanceSheetsInDb);
-				Set<CashFlowStatementDto> cfToBeDeleted = filterFinancialDataToBeDeleted(cashFlowStatementsInDb);
-				Set<IncomeStatementDto> isToBeDeleted = filterFinancialDataToBeDeleted(incomeStatementsInDb);
-
-				balanceSheetRepository.delete(bsToBeDeleted);
-				cashFlowStatementRepository.delete(cfToBeDeleted);
-				incomeStatementRepository.delete(isToBeDeleted);
-				/////////////// end ////////////////////////////////////////////
-
-				balanceSheetRepository.save(bsToBeSaved);
-				cashFlowStatementRepository.save(cfToBeSaved);
-				incomeStatementRepository.save(isToBeSaved);
-			}else{
-				logger.error("Cannot get financials for "+ticker);
-				if(financialData.isError()) {
-					companyWithProblemsRepository.save(financialData.getError());
-				}
+		return oldOrMissingFinancials;
+	}
+
+	private FinancialData downloadAndSave(String ticker, List<BalanceSheetDto> balanceSheetsInDb,
+			List<CashFlowStatementDto> cashFlowStatementsInDb, List<IncomeStatementDto> incomeStatementsInDb) {
+		logger.info("downloading balance sheet for [" + ticker + "]");
+
+		FinancialData financialData = financialDataDao.getFinancialDataForSymbol(ticker,
+				null /*
+						 * some provider of financial statements data need an
+						 * exchange supplied, some don't
+						 */);
+		if (!FinancialData.isBlankOrError(financialData)) {
+			SortedMap<Date, BalanceSheet> annualBalanceSheet = financialData.getAnnualBalanceSheet();
+			SortedMap<Date, BalanceSheet> quarterlyBalanceSheet = financialData.getQuarterlyBalanceSheet();
+			SortedMap<Date, CashFlowStatement> annualCashflowStatement = financialData.getAnnualCashflowStatement();
+			SortedMap<Date, CashFlowStatement> quarterlyCashflowStatement = financialData
+					.getQuarterlyCashflowStatement();
+			SortedMap<Date, IncomeStatement> annualIncomeStatement = financialData.getAnnualIncomeStatement();
+			SortedMap<Date, IncomeStatement> quarterlyIncomeStatement = financialData.getQuarterlyIncomeStatement();
+
+			Set<BalanceSheetDto> balanceSheets = new HashSet<>();
+			Set<CashFlowStatementDto> cashflowStatements = new HashSet<>();
+			Set<IncomeStatementDto> incomeStatements = new HashSet<>();
+
+			extractFinancialData(annualBalanceSheet, balanceSheets, StatementPeriod.ANNUAL, balanceSheetConverter);
+			extractFinancialData(quarterlyBalanceSheet, balanceSheets, StatementPeriod.QUARTERLY,
+					balanceSheetConverter);
+
+			extractFinancialData(annualCashflowStatement, cashflowStatements, StatementPeriod.ANNUAL,
+					cashflowConverter);
+			extractFinancialData(quarterlyCashflowStatement, cashflowStatements, StatementPeriod.QUARTERLY,
+					cashflowConverter);
+
+			extractFinancialData(annualIncomeStatement, incomeStatements, StatementPeriod.ANNUAL,
+					incomeStatmentConverter);
+			extractFinancialData(quarterlyIncomeStatement, incomeStatements, StatementPeriod.QUARTERLY,
+					incomeStatmentConverter);
+
+			// extract new balance sheets that need to be written to the DB
+			Set<BalanceSheetDto> bsToBeSaved = filterFinancialDataToBeSaved(balanceSheetsInDb, balanceSheets);
+			Set<CashFlowStatementDto> cfToBeSaved = filterFinancialDataToBeSaved(cashFlowStatementsInDb,
+					cashflowStatements);
+			Set<IncomeStatementDto> isToBeSaved = filterFinancialDataToBeSaved(incomeStatementsInDb,
+					incomeStatements);
+
+			////////////////////////////////////////////////////////////////////
+			//// LOGIC TO REMOVE incorrect annual statements saved as
+			//////////////////////////////////////////////////////////////////// quarterly
+			Set<BalanceSheetDto> bsToBeDeleted = filterFinancialDataToBeDeleted(balanceSheetsInDb);
+			Set<CashFlowStatementDto> cfToBeDeleted = filterFinancialDataToBeDeleted(cashFlowStatementsInDb);
+			Set<IncomeStatementDto> isToBeDeleted = filterFinancialDataToBeDeleted(incomeStatementsInDb);
+
+			balanceSheetRepository.delete(bsToBeDeleted);
+			cashFlowStatementRepository.delete(cfToBeDeleted);
+			incomeStatementRepository.delete(isToBeDeleted);
+			/////////////// end ////////////////////////////////////////////
+
+			balanceSheetRepository.save(bsToBeSaved);
+			cashFlowStatementRepository.save(cfToBeSaved);
+			incomeStatementRepository.save(isToBeSaved);
+		}else{
+			logger.error("Cannot get financials for "+ticker);
+			if(financialData.isError()) {
+				companyWithProblemsRepository.save(financialData.getError());
 			}
-		} else {
-			financialData = dbFinancials;
 		}
-
 		return financialData;
 	}
 
-	
+	@Override
+	public void statementsChanged(String ticker) {
+		// nothing kept between calls, every call reads the repositories
+	}
+
 	private <T extends AbstractFinancialStatement> Set<T> filterFinancialDataToBeDeleted(List<T> statementsInDb) {
 		Set<T>ret = new HashSet<>();
 		Map<Date, List<T>> byDate = statementsInDb.stream().collect(Collectors.groupingBy(AbstractFinancialStatement::getEndDate));
@@ -1,5 +1,6 @@
 package com.oak.external.finance.app.marketdata.api.impl;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
@@ -18,6 +19,7 @@ import java.util.TreeMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.LogManager;
@@ -38,6 +40,7 @@ import com.oak.api.finance.model.dto.Status;
 import com.oak.api.finance.repository.BalanceSheetRepository;
 import com.oak.api.finance.repository.EarningsCalendarRepository;
 import com.oak.api.finance.repository.ErrorQuoteRepository;
+import com.oak.api.finance.repository.MappedQuoteStore;
 import com.oak.api.finance.repository.QuoteProvider;
 import com.oak.api.providers.control.ControlProvider;
 import com.oak.api.providers.control.ControlType;
@@ -45,9 +48,11 @@ import com.oak.external.finance.app.marketdata.api.DataConnector;
 import com.oak.external.finance.app.marketdata.api.EarningsCalendarDao;
 import com.oak.external.finance.app.marketdata.api.FinancialStatementsProvider;
 import com.oak.external.finance.app.marketdata.api.MarketDataProvider;
+import com.oak.finance.app.indicators.IndicatorEngine;
 import com.oak.finance.interest.SymbolsController;
 
-import io.reactivex.Observable;
+import io.reactivex.Flowable;
+import io.reactivex.subscribers.DefaultSubscriber;
 
 public class MarketDataPollingProviderImpl implements MarketDataProvider {
 
@@ -60,13 +65,16 @@ public class MarketDataPollingProviderImpl implements MarketDataProvider {
 	private final SymbolsController symbolsController;
 	private final QuoteProvider quoteProvider;
 	private final ErrorQuoteRepository errorQuoteRepository;
+	private final MappedQuoteStore quoteStore;
+	private final IndicatorEngine indicatorEngine;
 	private final Logger log;
 	private final Executor ex = Executors.newCachedThreadPool();
 
 	public MarketDataPollingProviderImpl(DataConnector dataConnector, EarningsCalendarDao earningsCalendarDao,
 			EarningsCalendarRepository earningsCalendarRepository, BalanceSheetRepository balanceSheetRepository,
 			FinancialStatementsProvider financialsProvider, ControlProvider controlProvider,
-			QuoteProvider quoteProvider, ErrorQuoteRepository  errorQuoteRepository, SymbolsController symbolsController, Logger log) {
+			QuoteProvider quoteProvider, ErrorQuoteRepository  errorQuoteRepository, SymbolsController symbolsController,
+			MappedQuoteStore quoteStore, IndicatorEngine indicatorEngine, Logger log) {
 		this.dataConnector = dataConnector;
 		this.balanceSheetRepository = balanceSheetRepository;
 		this.earningsCalendarRepository = earningsCalendarRepository;
@@ -76,6 +84,8 @@ public class MarketDataPollingProviderImpl implements MarketDataProvider {
 		this.symbolsController = symbolsController;
 		this.quoteProvider = quoteProvider;
 		this.errorQuoteRepository = errorQuoteRepository;
+		this.quoteStore = quoteStore;
+		this.indicatorEngine = indicatorEngine;
 		this.log = log == null ? LogManager.getLogger(MarketDataPollingProviderImpl.class) : log;
 
 		new Thread() {
@@ -151,8 +161,34 @@ public class MarketDataPollingProviderImpl implements MarketDataProvider {
 	private void loadHistoricalQuotes(Date from,Set<String>tickers) {
 		log.info("Starting the collection of historical quotes... ");
 		System.out.println("loadHistoricalQuotes " + from + " " + tickers.size());
-		Observable<List<AbstractQuote>> quotesObservable = dataConnector.getHistoricalQuotes(tickers, from);
-		quotesObservable.subscribe(q -> saveQuotes(q));
+		Flowable<List<AbstractQuote>> quotes = dataConnector.getHistoricalQuotes(tickers, from);
+		// one list at a time: the next one is only requested once the previous is saved
+		quotes.blockingSubscribe(new DefaultSubscriber<List<AbstractQuote>>() {
+			@Override
+			protected void onStart() {
+				request(1);
+			}
+
+			@Override
+			public void onNext(List<AbstractQuote> q) {
+				try {
+					saveQuotes(q);
+				} catch (RuntimeException e) {
+					log.error("error saving historical quotes: " + e.getMessage(), e);
+				}
+				request(1);
+			}
+
+			@Override
+			public void onError(Throwable t) {
+				log.error("historical quotes from " + from + " failed: " + t.getMessage(), t);
+			}
+
+			@Override
+			public void onComplete() {
+				log.info("historical quotes from " + from + " loaded for " + tickers.size() + " tickers");
+			}
+		});
 	}
 	private Iterable<AbstractQuote> saveQuotes(List<AbstractQuote> q) {
 		Iterable<AbstractQuote> ret = null;
@@ -174,10 +210,21 @@ public class MarketDataPollingProviderImpl implements MarketDataProvider {
 			 ret = StreamUtils.createStreamFromIterator(quoteProvider.save(quotes).iterator()).map(
 					 e -> (Quote)e)
 					 .collect(Collectors.toList()) ;
+			storeLocally(quotes);
 		}
 		return ret;
 	}
 	
+	private void storeLocally(List<Quote> quotes) {
+		try {
+			int stored = quoteStore.save(quotes);
+			log.debug("stored " + stored + " quotes in the local quote store");
+			indicatorEngine.onQuotesSaved(quotes);
+		} catch (IOException e) {
+			log.error("cannot store quotes in the local quote store: " + e.getMessage(), e);
+		}
+	}
+
 	private void initEarningsCalendarRefresh() {
 		Control latestEarningCalendar = controlProvider.getLatestControlByType(ControlType.EARNINGS_CALENDAR);
 		Calendar lastEarningsUpdate = Calendar.getInstance();
@@ -295,4 +342,9 @@ public class MarketDataPollingProviderImpl implements MarketDataProvider {
 		return dataConnector.getEconomics(stocks);
 	}
 
+	@Override
+	public void retrieveMarketData(Set<String> stocks, Consumer<Map<Stock, Map<Date, Economic>>> listener) {
+		dataConnector.getEconomics(stocks, listener);
+	}
+
 }
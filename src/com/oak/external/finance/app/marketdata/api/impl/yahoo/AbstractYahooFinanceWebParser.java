@@ -2,13 +2,16 @@ package com.oak.external.finance.app.marketdata.api.impl.yahoo;
 
 import java.io.IOException;
 import java.net.SocketTimeoutException;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
@@ -37,10 +40,10 @@ import com.gargoylesoftware.htmlunit.html.HtmlPage;
 public abstract class AbstractYahooFinanceWebParser<T> {
 	private static String datesText = "Period Ending";
 	private static String spaceBreak = String.valueOf((char) 160);
+	private static final DateTimeFormatter PERIOD_ENDING_FORMAT = DateTimeFormatter.ofPattern("MMM d, yyyy", Locale.US);
 
 	protected final Set<String> values;
 	protected final Logger log;
-	private final SimpleDateFormat f;
 	private final String dateTag;
 
 	public AbstractYahooFinanceWebParser(Logger log, String dateTag) {
@@ -48,7 +51,6 @@ public abstract class AbstractYahooFinanceWebParser<T> {
 		this.values = new HashSet<String>();
 		this.log = log;
 		this.dateTag = dateTag;
-		f = new SimpleDateFormat("MMM dd, yyyy");
 		initializeInterestValues(this.values);
 	}
 
@@ -101,8 +103,9 @@ public abstract class AbstractYahooFinanceWebParser<T> {
 				String dateText = dateTag.text();
 				if (!"Period Ending".equals(dateText)) {
 					try {
-						dates.add(f.parse(dateText));
-					} catch (ParseException e) {
+						LocalDate date = LocalDate.parse(dateText, PERIOD_ENDING_FORMAT);
+						dates.add(Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+					} catch (DateTimeParseException e) {
 						log.error("can't get date from: " + dateText, e);
 						e.printStackTrace();
 					}
@@ -0,0 +1,131 @@
+package com.oak.external.finance.app.marketdata.api.impl.yahoo;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.oak.external.utils.web.CircuitOpenException;
+
+/**
+ * Runs batches of tickers against a remote source on a bounded pool of
+ * workers. Every request, first attempt or retry, takes a permit from a
+ * single token bucket so the pool as a whole never exceeds the configured
+ * request rate. A failing batch is rescheduled with jittered exponential
+ * backoff instead of being retried in place, so it never holds a worker while
+ * it waits. A batch turned away by an open {@link CircuitOpenException
+ * circuit} is rescheduled for when the circuit half opens and keeps its
+ * remaining attempts.
+ */
+public class BatchFetchEngine {
+
+	public interface BatchFetcher<R> {
+		R fetch(String[] batch) throws IOException;
+	}
+
+	private final Logger log;
+	private final ExecutorService workers;
+	private final ScheduledExecutorService retryScheduler;
+	private final RateLimiter rateLimiter;
+	private final int maxAttempts;
+	private final long initialBackoffMillis;
+	private final long maxBackoffMillis;
+
+	public BatchFetchEngine(Logger log, int workerCount, double requestsPerSecond, int maxAttempts,
+			long initialBackoffMillis, long maxBackoffMillis) {
+		this.log = log;
+		this.workers = Executors.newFixedThreadPool(workerCount,
+				new ThreadFactoryBuilder().setNameFormat("batch-fetch-%d").setDaemon(true).build());
+		this.retryScheduler = Executors.newSingleThreadScheduledExecutor(
+				new ThreadFactoryBuilder().setNameFormat("batch-fetch-retry-%d").setDaemon(true).build());
+		this.rateLimiter = RateLimiter.create(requestsPerSecond);
+		this.maxAttempts = maxAttempts;
+		this.initialBackoffMillis = initialBackoffMillis;
+		this.maxBackoffMillis = maxBackoffMillis;
+	}
+
+	/**
+	 * Fetches all the batches and hands each result to the listener as soon
+	 * as its batch completes. The listener is called from the worker threads
+	 * and may be called concurrently. A listener failing is logged apart
+	 * from a batch failing and does not cost the batch an attempt. Returns
+	 * once every batch has either been delivered or exhausted its attempts.
+	 */
+	public <R> void fetchAll(Collection<String[]> batches, BatchFetcher<R> fetcher, Consumer<R> listener) {
+		List<CompletableFuture<Void>> pending = new ArrayList<>(batches.size());
+		for (String[] batch : batches) {
+			CompletableFuture<R> result = new CompletableFuture<>();
+			submit(batch, fetcher, result, 1);
+			pending.add(result.handle((r, e) -> {
+				if (e == null) {
+					deliver(batch, r, listener);
+				} else {
+					log.error("Giving up on batch after " + maxAttempts + " attempts: " + StringUtils.join(batch, ", "),
+							e);
+				}
+				return null;
+			}));
+		}
+		CompletableFuture.allOf(pending.toArray(new CompletableFuture[pending.size()])).join();
+	}
+
+	public void shutdown() {
+		retryScheduler.shutdownNow();
+		workers.shutdownNow();
+	}
+
+	private <R> void deliver(String[] batch, R result, Consumer<R> listener) {
+		try {
+			listener.accept(result);
+		} catch (RuntimeException e) {
+			log.error("Listener failed on fetched batch: " + StringUtils.join(batch, ", "), e);
+		}
+	}
+
+	private <R> void submit(String[] batch, BatchFetcher<R> fetcher, CompletableFuture<R> result, int attempt) {
+		workers.execute(() -> {
+			rateLimiter.acquire();
+			try {
+				result.complete(fetcher.fetch(batch));
+			} catch (CircuitOpenException e) {
+				// the server is throttling, not a failure of this batch: wait for the circuit
+				long delay = Math.max(1, e.getRetryAfterMillis());
+				log.warn("circuit open, rescheduling batch in " + delay + "ms: " + StringUtils.join(batch, ", "));
+				retryScheduler.schedule(() -> submit(batch, fetcher, result, attempt), delay, TimeUnit.MILLISECONDS);
+			} catch (IOException | RuntimeException e) {
+				if (attempt >= maxAttempts) {
+					result.completeExceptionally(e);
+				} else {
+					long delay = backoffMillis(attempt);
+					log.warn("retrying in " + delay + "ms for the time n: " + (attempt + 1) + " loading batch: "
+							+ StringUtils.join(batch, ", "));
+					retryScheduler.schedule(() -> submit(batch, fetcher, result, attempt + 1), delay,
+							TimeUnit.MILLISECONDS);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Exponential backoff capped at maxBackoffMillis, with the actual delay
+	 * drawn uniformly from the upper half of the window so that batches
+	 * failing together don't all come back at the same moment.
+	 */
+	long backoffMillis(int attempt) {
+		long window = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 30));
+		long ret = ThreadLocalRandom.current().nextLong(window / 2, window + 1);
+		return ret;
+	}
+}
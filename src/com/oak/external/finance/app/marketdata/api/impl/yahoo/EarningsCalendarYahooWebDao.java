@@ -1,13 +1,15 @@
 package com.oak.external.finance.app.marketdata.api.impl.yahoo;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.MalformedURLException;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.time.LocalDate;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -26,23 +28,45 @@ import org.jsoup.select.Elements;
 import com.oak.api.finance.model.dto.AnnouncementTime;
 import com.oak.api.finance.model.dto.EarningsCalendar;
 import com.oak.external.finance.app.marketdata.api.EarningsCalendarDao;
+import com.oak.external.utils.web.CircuitBreaker;
+import com.oak.external.utils.web.HttpResponseCache;
+import com.oak.external.utils.web.HttpResponseCache.ConditionalFetch;
 import com.oak.external.utils.web.WebParsingUtils;
 
 public class EarningsCalendarYahooWebDao implements EarningsCalendarDao {
+	private static final DateTimeFormatter CALENDAR_RANGE_FORMAT = DateTimeFormatter.ofPattern("MMM d, yyyy",
+			Locale.US);
+	private static final DateTimeFormatter AS_OF_FORMAT = new DateTimeFormatterBuilder().parseCaseInsensitive()
+			.appendPattern("dd-MMM-yy").toFormatter(Locale.US);
+	private static final ConditionalFetch JSOUP = HttpResponseCache.jsoup(600000);
 	private final Logger log;
 	private final String url; // = "https://biz.yahoo.com/research/earncal/";
 	// private final String url2 =
 	// "http://finance.yahoo.com/calendar/earnings?from=2017-03-19&to=2017-03-25&day=2017-03-20";
 	private final WebParsingUtils webParsingUtils;
-	// private final SimpleDateFormat sdf = new SimpleDateFormat("YYYYMMdd");
 	private final CompletionService<List<EarningsCalendar>> executor;
+	private final CircuitBreaker circuitBreaker;
+	private final HttpResponseCache cache;
 
 	public EarningsCalendarYahooWebDao(Logger log, String url, WebParsingUtils webParsingUtils,
-			CompletionService<List<EarningsCalendar>> executor) {
+			CompletionService<List<EarningsCalendar>> executor, CircuitBreaker circuitBreaker) {
+		this(log, url, webParsingUtils, executor, circuitBreaker, HttpResponseCache.inHeap(log));
+	}
+
+	/**
+	 * @param cache
+	 *            revalidates the calendar pages downloaded before, a page that
+	 *            did not change is not parsed again
+	 */
+	public EarningsCalendarYahooWebDao(Logger log, String url, WebParsingUtils webParsingUtils,
+			CompletionService<List<EarningsCalendar>> executor, CircuitBreaker circuitBreaker,
+			HttpResponseCache cache) {
 		this.log = log;
 		this.url = url;
 		this.webParsingUtils = webParsingUtils;
 		this.executor = executor;
+		this.circuitBreaker = circuitBreaker;
+		this.cache = cache;
 	}
 
 	/*
@@ -54,7 +78,8 @@ public class EarningsCalendarYahooWebDao implements EarningsCalendarDao {
 	@Override
 	public List<EarningsCalendar> getEarningsCalendarByDate(Date lastLoadedEarningsCalendarDate) {
 		LocalDate lastLoadedEarningsCalendarLocalDate = LocalDateTime
-				.ofInstant(lastLoadedEarningsCalendarDate.toInstant(), ZoneOffset.UTC).toLocalDate();
+				.ofInstant(Instant.ofEpochMilli(lastLoadedEarningsCalendarDate.getTime()), ZoneOffset.UTC)
+				.toLocalDate();
 		String link = url + "?day=" + lastLoadedEarningsCalendarLocalDate;
 		List<EarningsCalendar> ret = parseYahoo(link, lastLoadedEarningsCalendarDate);
 		return ret;
@@ -88,13 +113,13 @@ public class EarningsCalendarYahooWebDao implements EarningsCalendarDao {
 
 	private Document downladPage(String link) throws IOException {
 		log.info("Downloading earning data from: "+link);
-		return Jsoup.connect(link).header("Accept-Encoding", "gzip, deflate")
-				.userAgent("Mozilla/5.0 (Windows NT 6.1; WOW64; rv:23.0) Gecko/20100101 Firefox/23.0").maxBodySize(0)
-				.timeout(600000).get();
+		return cache.get(link,
+				(url, etag, lastModified) -> circuitBreaker.execute(() -> JSOUP.fetch(url, etag, lastModified)),
+				(body, charset) -> Jsoup.parse(new ByteArrayInputStream(body), charset, link), Document::clone);
 	}
 
 	private List<EarningsCalendar> newParser(Date lastLoadedEarningsCalendarDate, Document document)
-			throws ParseException, IOException {
+			throws IOException {
 		List<EarningsCalendar> ret = new ArrayList<>();
 		// parse the date first:
 		Elements dateElements = document.getElementsContainingText("Events Calendar for");
@@ -110,14 +135,14 @@ public class EarningsCalendarYahooWebDao implements EarningsCalendarDao {
 
 				String startText = start.text();
 				String endText = end.text();
-				DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM d, yyyy", Locale.US);
-				sd = LocalDate.parse(startText, formatter);
-				ed = LocalDate.parse(endText, formatter);
+				sd = LocalDate.parse(startText, CALENDAR_RANGE_FORMAT);
+				ed = LocalDate.parse(endText, CALENDAR_RANGE_FORMAT);
 				break;
 			}
 		}
 		LocalDate lastLoadedEarningsCalendarLocalDate = LocalDateTime
-				.ofInstant(lastLoadedEarningsCalendarDate.toInstant(), ZoneOffset.UTC).toLocalDate();
+				.ofInstant(Instant.ofEpochMilli(lastLoadedEarningsCalendarDate.getTime()), ZoneOffset.UTC)
+				.toLocalDate();
 		// if(lastLoadedEarningsCalendarLocalDate.isBefore(sd)) {
 		List<Future<List<EarningsCalendar>>> tasks = new ArrayList<>();
 		final LocalDate startDate = sd;
@@ -255,19 +280,18 @@ public class EarningsCalendarYahooWebDao implements EarningsCalendarDao {
 		e.setTime(announcementTime);
 	}
 
-	private List<EarningsCalendar> oldParser(Date announcementDate, Document document) throws ParseException {
+	private List<EarningsCalendar> oldParser(Date announcementDate, Document document) {
 		List<EarningsCalendar> ret = new ArrayList<>();
 		Elements tables = document.select("table");
 
 		Element dateTbl = tables.get(2);
 		Elements ds = dateTbl.select("td");
 		int i = 0;
-		SimpleDateFormat sdf = new SimpleDateFormat("dd-MMM-yy");
 		Date dt = null;
 		for (Element d : ds) {
 			if (i == 2) {
 				String text = d.text().substring(6);
-				dt = sdf.parse(text);
+				dt = Date.from(LocalDate.parse(text, AS_OF_FORMAT).atStartOfDay(ZoneId.systemDefault()).toInstant());
 				break;
 			}
 			i++;
@@ -9,30 +9,34 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 import org.apache.commons.lang3.StringUtils;
-import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.oak.api.finance.model.Economic;
 import com.oak.api.finance.model.Stock;
 import com.oak.api.finance.model.dto.AbstractQuote;
-import com.oak.api.finance.model.dto.Quote;
 import com.oak.external.finance.app.marketdata.api.DataConnector;
 import com.oak.external.finance.app.marketdata.api.yahoo.YahooFinanceWrapper;
 
-import io.reactivex.Observable;
+import io.reactivex.Flowable;
 import yahoofinance.histquotes.Interval;
 
 public class YahooDataConnector implements DataConnector {
+	public static final int BATCH_SIZE = 20;
 	private final Logger log;
 	private final YahooDataConverter converter;
 	private final YahooFinanceWrapper connector;
+	private final BatchFetchEngine fetchEngine;
 
-	public YahooDataConnector(Logger log, YahooDataConverter converter) {
+	public YahooDataConnector(Logger log, YahooDataConverter converter, BatchFetchEngine fetchEngine,
+			YahooFinanceWrapper connector) {
 		this.log = log;
 		this.converter = converter;
-		connector = new YahooFinanceWrapper(LogManager.getLogger(YahooFinanceWrapper.class));
+		this.fetchEngine = fetchEngine;
+		this.connector = connector;
 	}
 
 	@Override
@@ -40,45 +44,31 @@ public class YahooDataConnector implements DataConnector {
 		Map<Stock, Map<Date, Economic>> ret = new HashMap<>();
 
 		if (stocks != null && !stocks.isEmpty()) {
-			ret = getEconomicsLoop(stocks);
+			Map<Stock, Map<Date, Economic>> econMap = new ConcurrentHashMap<>();
+			getEconomics(stocks, econMap::putAll);
+			ret.putAll(econMap);
 		}
 		return ret;
 	}
-	
-	private Map<Stock, Map<Date, Economic>> getEconomicsLoop(Set<String> stocks) {
-		HashMap<Stock, Map<Date, Economic>> ret = new HashMap<Stock, Map<Date, Economic>>();
-		Collection<String[]> batches = batchStocks(stocks, 20);
-		for (String[] batch : batches) {
-			int attempt = 0;
-			IOException e = getEconomicsForBatch(ret, batch);
-			while(e != null) {
-				String batchToStr = StringUtils.join(batch, ", ");
-				if(attempt++ >= 5) {
-					log.error("Giving up after failed to load maximum attemps: " + batchToStr,e);
-					break;
-				}
-				e = getEconomicsForBatch(ret, batch);
-				log.warn("retrying for the time n: " + (attempt + 1 ) + " loading batch: " + batchToStr);
-			}
+
+	@Override
+	public void getEconomics(Set<String> stocks, Consumer<Map<Stock, Map<Date, Economic>>> listener) {
+		if (stocks != null && !stocks.isEmpty()) {
+			Collection<String[]> batches = batchStocks(stocks, BATCH_SIZE);
+			fetchEngine.fetchAll(batches, this::getEconomicsForBatch, listener);
 		}
-		return ret;
 	}
 
-	private IOException getEconomicsForBatch(HashMap<Stock, Map<Date, Economic>> econMap, String[] batch) {
-		IOException ret = null;
+	private Map<Stock, Map<Date, Economic>> getEconomicsForBatch(String[] batch) throws IOException {
 		try {
-			Map<String, yahoofinance.Stock> map = null;
-			map = connector.get(batch);
-			Map<Stock, Map<Date, Economic>> yahooStockToEconomyPerDate = converter.yahooStockToEconomyPerDate(map);
-			econMap.putAll(yahooStockToEconomyPerDate);
+			Map<String, yahoofinance.Stock> map = connector.get(batch);
+			Map<Stock, Map<Date, Economic>> ret = converter.yahooStockToEconomyPerDate(map);
+			return ret;
 		} catch (IOException e) {
 			log.error("error getting price from Yahoo for " + StringUtils.join(batch,", "));
-			ret = e;
+			throw e;
 		}
-		return ret;
 	}
-	
-	
 
 	private Collection<String[]> batchStocks(Set<String> stocks, int i) {
 		Collection<String[]> batches = new ArrayList<String[]>();
@@ -104,12 +94,12 @@ public class YahooDataConnector implements DataConnector {
 	}
 
 	@Override
-	public Observable<List<AbstractQuote>> getHistoricalQuotes(Set<String> tickers, Date fromDate) {
+	public Flowable<List<AbstractQuote>> getHistoricalQuotes(Set<String> tickers, Date fromDate) {
 		String[] ticks = new String[tickers.size()];
 		tickers.toArray(ticks);
 		Calendar cal = Calendar.getInstance();
-		Observable<List<AbstractQuote>> histQuotes = connector.getStream(ticks, cal, Interval.DAILY);
 		cal.setTime(fromDate);
+		Flowable<List<AbstractQuote>> histQuotes = connector.getStream(ticks, cal, Interval.DAILY);
 			
 		return histQuotes;
 	}
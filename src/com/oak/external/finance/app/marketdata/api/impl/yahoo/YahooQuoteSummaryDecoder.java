@@ -0,0 +1,407 @@
+package com.oak.external.finance.app.marketdata.api.impl.yahoo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.oak.api.finance.model.BalanceSheet;
+import com.oak.api.finance.model.CashFlowStatement;
+import com.oak.api.finance.model.FinancialData;
+import com.oak.external.finance.model.economy.IncomeStatement;
+
+/**
+ * Single pass decoder of the quoteSummary response: statements are built
+ * straight from the token stream, period by period, without binding the
+ * response into {@link YahooFinancialJsonDataModel} first. Only the
+ * {@code raw} number of each value and the {@code fmt} of the end date are
+ * read, every other field (earnings, maxAge...) is skipped.
+ * <p>
+ * Holds no state between calls and can be shared by any number of threads.
+ */
+public class YahooQuoteSummaryDecoder {
+
+	private static final DateTimeFormatter END_DATE_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE; // 2014-06-30
+	private static final String END_DATE = "endDate";
+
+	private enum StatementType {
+		BALANCE_SHEET("balanceSheetStatements", BalanceSheetField.values()),
+		CASHFLOW("cashflowStatements", CashflowField.values()),
+		INCOME("incomeStatementHistory", IncomeField.values());
+
+		final String listName;
+		final Map<String, Integer> fieldIndex = new HashMap<>();
+
+		StatementType(String listName, JsonField[] fields) {
+			this.listName = listName;
+			for (JsonField f : fields) {
+				fieldIndex.put(f.jsonName(), f.ordinal());
+			}
+		}
+	}
+
+	private enum Module {
+		balanceSheetHistory(StatementType.BALANCE_SHEET, false),
+		balanceSheetHistoryQuarterly(StatementType.BALANCE_SHEET, true),
+		cashflowStatementHistory(StatementType.CASHFLOW, false),
+		cashflowStatementHistoryQuarterly(StatementType.CASHFLOW, true),
+		incomeStatementHistory(StatementType.INCOME, false),
+		incomeStatementHistoryQuarterly(StatementType.INCOME, true);
+
+		final StatementType type;
+		final boolean quarterly;
+
+		Module(StatementType type, boolean quarterly) {
+			this.type = type;
+			this.quarterly = quarterly;
+		}
+	}
+
+	private interface JsonField {
+		String jsonName();
+
+		int ordinal();
+	}
+
+	private enum BalanceSheetField implements JsonField {
+		CASH("cash"), SHORT_TERM_INVESTMENTS("shortTermInvestments"), NET_RECEIVABLES("netReceivables"),
+		INVENTORY("inventory"), OTHER_CURRENT_ASSETS("otherCurrentAssets"), TOTAL_CURRENT_ASSETS("totalCurrentAssets"),
+		LONG_TERM_INVESTMENTS("longTermInvestments"), PROPERTY_PLANT_EQUIPMENT("propertyPlantEquipment"),
+		GOOD_WILL("goodWill"), INTANGIBLE_ASSETS("intangibleAssets"),
+		ACCUMULATED_AMORTIZATION("accumulatedAmortization"), OTHER_ASSETS("otherAssets"), TOTAL_ASSETS("totalAssets"),
+		DEFERRED_LONG_TERM_ASSET_CHARGES("deferredLongTermAssetCharges"), ACCOUNTS_PAYABLE("accountsPayable"),
+		SHORT_LONG_TERM_DEBT("shortLongTermDebt"), TOTAL_CURRENT_LIABILITIES("totalCurrentLiabilities"),
+		LONG_TERM_DEBT("longTermDebt"), OTHER_LIAB("otherLiab"), TOTAL_LIAB("totalLiab"),
+		DEFERRED_LONG_TERM_LIAB("deferredLongTermLiab"), MINORITY_INTEREST("minorityInterest"),
+		NEGATIVE_GOODWILL("negativeGoodwill"), STOCK_OPTION_WARRANTS("stockOptionWarrants"),
+		REDEEMABLE_PREFERRED_STOCK("redeemablePreferredStock"), COMMON_STOCK("commonStock"),
+		PREFERRED_STOCK("preferredStock"), RETAINED_EARNINGS("retainedEarnings"), TREASURY_STOCK("treasuryStock"),
+		CAPITAL_SURPLUS("capitalSurplus"), OTHER_STOCKHOLDER_EQUITY("otherStockholderEquity");
+
+		private final String jsonName;
+
+		BalanceSheetField(String jsonName) {
+			this.jsonName = jsonName;
+		}
+
+		@Override
+		public String jsonName() {
+			return jsonName;
+		}
+	}
+
+	private enum CashflowField implements JsonField {
+		DEPRECIATION("depreciation"), CHANGE_TO_NETINCOME("changeToNetincome"),
+		CHANGE_TO_ACCOUNT_RECEIVABLES("changeToAccountReceivables"), CHANGE_TO_LIABILITIES("changeToLiabilities"),
+		CHANGE_TO_INVENTORY("changeToInventory"), CHANGE_TO_OPERATING_ACTIVITIES("changeToOperatingActivities"),
+		TOTAL_CASH_FROM_OPERATING_ACTIVITIES("totalCashFromOperatingActivities"),
+		CAPITAL_EXPENDITURES("capitalExpenditures"), INVESTMENTS("investments"),
+		OTHER_CASHFLOWS_FROM_INVESTING_ACTIVITIES("otherCashflowsFromInvestingActivities"),
+		TOTAL_CASHFLOWS_FROM_INVESTING_ACTIVITIES("totalCashflowsFromInvestingActivities"),
+		DIVIDENDS_PAID("dividendsPaid"), SALE_PURCHASE_OF_STOCK("salePurchaseOfStock"),
+		NET_BORROWINGS("netBorrowings"),
+		OTHER_CASHFLOWS_FROM_FINANCING_ACTIVITIES("otherCashflowsFromFinancingActivities"),
+		TOTAL_CASH_FROM_FINANCING_ACTIVITIES("totalCashFromFinancingActivities"), NET_INCOME("netIncome"),
+		EFFECT_OF_EXCHANGE_RATE("effectOfExchangeRate"), CHANGE_IN_CASH("changeInCash");
+
+		private final String jsonName;
+
+		CashflowField(String jsonName) {
+			this.jsonName = jsonName;
+		}
+
+		@Override
+		public String jsonName() {
+			return jsonName;
+		}
+	}
+
+	private enum IncomeField implements JsonField {
+		RESEARCH_DEVELOPMENT("researchDevelopment"), SELLING_GENERAL_ADMINISTRATIVE("sellingGeneralAdministrative"),
+		NON_RECURRING("nonRecurring"), OTHER_OPERATING_EXPENSES("otherOperatingExpenses"),
+		TOTAL_OPERATING_EXPENSES("totalOperatingExpenses"), TOTAL_OTHER_INCOME_EXPENSE_NET("totalOtherIncomeExpenseNet"),
+		EBIT("ebit"), INTEREST_EXPENSE("interestExpense"), INCOME_BEFORE_TAX("incomeBeforeTax"),
+		INCOME_TAX_EXPENSE("incomeTaxExpense"), MINORITY_INTEREST("minorityInterest"),
+		NET_INCOME_FROM_CONTINUING_OPS("netIncomeFromContinuingOps"), DISCONTINUED_OPERATIONS("discontinuedOperations"),
+		EXTRAORDINARY_ITEMS("extraordinaryItems"), EFFECT_OF_ACCOUNTING_CHARGES("effectOfAccountingCharges"),
+		OTHER_ITEMS("otherItems"), NET_INCOME("netIncome"),
+		PREFERRED_STOCK_AND_OTHER_ADJUSTMENTS("preferredStockAndOtherAdjustments"),
+		NET_INCOME_APPLICABLE_TO_COMMON_SHARES("netIncomeApplicableToCommonShares");
+
+		private final String jsonName;
+
+		IncomeField(String jsonName) {
+			this.jsonName = jsonName;
+		}
+
+		@Override
+		public String jsonName() {
+			return jsonName;
+		}
+	}
+
+	private static final Map<String, Module> MODULES = new HashMap<>();
+	static {
+		for (Module m : Module.values()) {
+			MODULES.put(m.name(), m);
+		}
+	}
+
+	private final JsonFactory jsonFactory = new JsonFactory();
+
+	/**
+	 * Decodes a quoteSummary response. Statements missing from the response
+	 * come back as empty maps; a missing value of a statement is 0, as it
+	 * always has been for this source.
+	 */
+	public FinancialData decode(String symbol, InputStream in) throws IOException {
+		Statements statements = new Statements();
+		try (JsonParser parser = jsonFactory.createParser(in)) {
+			expect(parser.nextToken(), JsonToken.START_OBJECT);
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String name = parser.getCurrentName();
+				parser.nextToken();
+				if ("quoteSummary".equals(name)) {
+					readQuoteSummary(symbol, parser, statements);
+				} else {
+					parser.skipChildren();
+				}
+			}
+		}
+		FinancialData ret = new FinancialData(symbol, statements.annualBalanceSheet, statements.quarterlyBalanceSheet,
+				statements.annualCashflowStatement, statements.quarterlyCashflowStatement,
+				statements.annualIncomeStatement, statements.quarterlyIncomeStatement);
+		return ret;
+	}
+
+	private void readQuoteSummary(String symbol, JsonParser parser, Statements statements) throws IOException {
+		expect(parser.getCurrentToken(), JsonToken.START_OBJECT);
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			if ("result".equals(name) && token == JsonToken.START_ARRAY) {
+				while (parser.nextToken() == JsonToken.START_OBJECT) {
+					readResult(symbol, parser, statements);
+				}
+			} else {
+				parser.skipChildren();
+			}
+		}
+	}
+
+	private void readResult(String symbol, JsonParser parser, Statements statements) throws IOException {
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			Module module = MODULES.get(parser.getCurrentName());
+			JsonToken token = parser.nextToken();
+			if (module != null && token == JsonToken.START_OBJECT) {
+				readModule(symbol, module, parser, statements);
+			} else {
+				parser.skipChildren();
+			}
+		}
+	}
+
+	private void readModule(String symbol, Module module, JsonParser parser, Statements statements)
+			throws IOException {
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			if (module.type.listName.equals(name) && token == JsonToken.START_ARRAY) {
+				while (parser.nextToken() == JsonToken.START_OBJECT) {
+					readStatement(symbol, module, parser, statements);
+				}
+			} else {
+				parser.skipChildren();
+			}
+		}
+	}
+
+	private void readStatement(String symbol, Module module, JsonParser parser, Statements statements)
+			throws IOException {
+		Map<String, Integer> fieldIndex = module.type.fieldIndex;
+		double[] values = new double[fieldIndex.size()];
+		Date endDate = null;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			if (token != JsonToken.START_OBJECT) {
+				parser.skipChildren();
+			} else if (END_DATE.equals(name)) {
+				endDate = readEndDate(parser);
+			} else {
+				Integer index = fieldIndex.get(name);
+				if (index != null) {
+					values[index] = readRaw(parser);
+				} else {
+					parser.skipChildren();
+				}
+			}
+		}
+		if (endDate != null) {
+			statements.add(symbol, module, endDate, values);
+		}
+	}
+
+	/**
+	 * {"raw":1234.0,"fmt":"1.23k","longFmt":"1,234"}, or {} when there is no
+	 * value
+	 */
+	private double readRaw(JsonParser parser) throws IOException {
+		double ret = 0;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			if ("raw".equals(name) && token.isNumeric()) {
+				ret = parser.getDoubleValue();
+			} else {
+				parser.skipChildren();
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * {"raw":1404086400,"fmt":"2014-06-30"}, the end date is taken from fmt
+	 * at the start of the day, in the local time zone
+	 */
+	private Date readEndDate(JsonParser parser) throws IOException {
+		Date ret = null;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			if ("fmt".equals(name) && token == JsonToken.VALUE_STRING) {
+				LocalDate date = LocalDate.parse(parser.getText(), END_DATE_FORMAT);
+				ret = Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+			} else {
+				parser.skipChildren();
+			}
+		}
+		return ret;
+	}
+
+	private void expect(JsonToken actual, JsonToken expected) throws IOException {
+		if (actual != expected) {
+			throw new IOException("Unexpected quoteSummary content, expected " + expected + " but got " + actual);
+		}
+	}
+
+	/**
+	 * What has been decoded so far, one map per statement and period.
+	 */
+	private static class Statements {
+		final SortedMap<Date, BalanceSheet> annualBalanceSheet = new TreeMap<>();
+		final SortedMap<Date, BalanceSheet> quarterlyBalanceSheet = new TreeMap<>();
+		final SortedMap<Date, CashFlowStatement> annualCashflowStatement = new TreeMap<>();
+		final SortedMap<Date, CashFlowStatement> quarterlyCashflowStatement = new TreeMap<>();
+		final SortedMap<Date, IncomeStatement> annualIncomeStatement = new TreeMap<>();
+		final SortedMap<Date, IncomeStatement> quarterlyIncomeStatement = new TreeMap<>();
+
+		void add(String symbol, Module module, Date endDate, double[] v) {
+			switch (module.type) {
+			case BALANCE_SHEET:
+				(module.quarterly ? quarterlyBalanceSheet : annualBalanceSheet).put(endDate, balanceSheet(symbol, v));
+				break;
+			case CASHFLOW:
+				(module.quarterly ? quarterlyCashflowStatement : annualCashflowStatement).put(endDate,
+						cashFlowStatement(symbol, v));
+				break;
+			case INCOME:
+				(module.quarterly ? quarterlyIncomeStatement : annualIncomeStatement).put(endDate,
+						incomeStatement(symbol, v));
+				break;
+			}
+		}
+
+		private BalanceSheet balanceSheet(String symbol, double[] v) {
+			return new BalanceSheet(symbol,
+					v[BalanceSheetField.CASH.ordinal()], // cashAndEquivalent
+					v[BalanceSheetField.SHORT_TERM_INVESTMENTS.ordinal()],
+					v[BalanceSheetField.NET_RECEIVABLES.ordinal()],
+					v[BalanceSheetField.INVENTORY.ordinal()],
+					v[BalanceSheetField.OTHER_CURRENT_ASSETS.ordinal()],
+					v[BalanceSheetField.TOTAL_CURRENT_ASSETS.ordinal()],
+					v[BalanceSheetField.LONG_TERM_INVESTMENTS.ordinal()],
+					v[BalanceSheetField.PROPERTY_PLANT_EQUIPMENT.ordinal()],
+					v[BalanceSheetField.GOOD_WILL.ordinal()],
+					v[BalanceSheetField.INTANGIBLE_ASSETS.ordinal()],
+					v[BalanceSheetField.ACCUMULATED_AMORTIZATION.ordinal()],
+					v[BalanceSheetField.OTHER_ASSETS.ordinal()],
+					v[BalanceSheetField.TOTAL_ASSETS.ordinal()],
+					v[BalanceSheetField.DEFERRED_LONG_TERM_ASSET_CHARGES.ordinal()],
+					v[BalanceSheetField.ACCOUNTS_PAYABLE.ordinal()],
+					v[BalanceSheetField.SHORT_LONG_TERM_DEBT.ordinal()],
+					// other current liabilities have always been loaded from accountsPayable
+					v[BalanceSheetField.ACCOUNTS_PAYABLE.ordinal()],
+					v[BalanceSheetField.TOTAL_CURRENT_LIABILITIES.ordinal()],
+					v[BalanceSheetField.LONG_TERM_DEBT.ordinal()],
+					v[BalanceSheetField.OTHER_LIAB.ordinal()],
+					v[BalanceSheetField.TOTAL_LIAB.ordinal()],
+					v[BalanceSheetField.DEFERRED_LONG_TERM_LIAB.ordinal()],
+					v[BalanceSheetField.MINORITY_INTEREST.ordinal()],
+					v[BalanceSheetField.NEGATIVE_GOODWILL.ordinal()],
+					v[BalanceSheetField.STOCK_OPTION_WARRANTS.ordinal()], // miscStocksOptionsWarrants
+					v[BalanceSheetField.REDEEMABLE_PREFERRED_STOCK.ordinal()],
+					v[BalanceSheetField.COMMON_STOCK.ordinal()],
+					v[BalanceSheetField.PREFERRED_STOCK.ordinal()],
+					v[BalanceSheetField.RETAINED_EARNINGS.ordinal()],
+					v[BalanceSheetField.TREASURY_STOCK.ordinal()],
+					v[BalanceSheetField.CAPITAL_SURPLUS.ordinal()],
+					v[BalanceSheetField.OTHER_STOCKHOLDER_EQUITY.ordinal()]);
+		}
+
+		private CashFlowStatement cashFlowStatement(String symbol, double[] v) {
+			return new CashFlowStatement(symbol,
+					v[CashflowField.DEPRECIATION.ordinal()],
+					v[CashflowField.CHANGE_TO_NETINCOME.ordinal()], // adjustmentsToNetIncome
+					v[CashflowField.CHANGE_TO_ACCOUNT_RECEIVABLES.ordinal()],
+					v[CashflowField.CHANGE_TO_LIABILITIES.ordinal()],
+					v[CashflowField.CHANGE_TO_INVENTORY.ordinal()],
+					v[CashflowField.CHANGE_TO_OPERATING_ACTIVITIES.ordinal()],
+					v[CashflowField.TOTAL_CASH_FROM_OPERATING_ACTIVITIES.ordinal()],
+					v[CashflowField.CAPITAL_EXPENDITURES.ordinal()],
+					v[CashflowField.INVESTMENTS.ordinal()],
+					v[CashflowField.OTHER_CASHFLOWS_FROM_INVESTING_ACTIVITIES.ordinal()],
+					v[CashflowField.TOTAL_CASHFLOWS_FROM_INVESTING_ACTIVITIES.ordinal()],
+					v[CashflowField.DIVIDENDS_PAID.ordinal()],
+					v[CashflowField.SALE_PURCHASE_OF_STOCK.ordinal()],
+					v[CashflowField.NET_BORROWINGS.ordinal()],
+					v[CashflowField.OTHER_CASHFLOWS_FROM_FINANCING_ACTIVITIES.ordinal()],
+					v[CashflowField.TOTAL_CASH_FROM_FINANCING_ACTIVITIES.ordinal()],
+					v[CashflowField.NET_INCOME.ordinal()],
+					v[CashflowField.EFFECT_OF_EXCHANGE_RATE.ordinal()],
+					v[CashflowField.CHANGE_IN_CASH.ordinal()]);
+		}
+
+		private IncomeStatement incomeStatement(String symbol, double[] v) {
+			return new IncomeStatement(symbol,
+					v[IncomeField.RESEARCH_DEVELOPMENT.ordinal()],
+					v[IncomeField.SELLING_GENERAL_ADMINISTRATIVE.ordinal()],
+					v[IncomeField.NON_RECURRING.ordinal()],
+					v[IncomeField.OTHER_OPERATING_EXPENSES.ordinal()],
+					v[IncomeField.TOTAL_OPERATING_EXPENSES.ordinal()],
+					v[IncomeField.TOTAL_OTHER_INCOME_EXPENSE_NET.ordinal()],
+					v[IncomeField.EBIT.ordinal()],
+					v[IncomeField.INTEREST_EXPENSE.ordinal()],
+					v[IncomeField.INCOME_BEFORE_TAX.ordinal()],
+					v[IncomeField.INCOME_TAX_EXPENSE.ordinal()],
+					v[IncomeField.MINORITY_INTEREST.ordinal()],
+					v[IncomeField.NET_INCOME_FROM_CONTINUING_OPS.ordinal()],
+					v[IncomeField.DISCONTINUED_OPERATIONS.ordinal()],
+					v[IncomeField.EXTRAORDINARY_ITEMS.ordinal()],
+					v[IncomeField.EFFECT_OF_ACCOUNTING_CHARGES.ordinal()],
+					v[IncomeField.OTHER_ITEMS.ordinal()],
+					v[IncomeField.NET_INCOME.ordinal()],
+					v[IncomeField.PREFERRED_STOCK_AND_OTHER_ADJUSTMENTS.ordinal()],
+					v[IncomeField.NET_INCOME_APPLICABLE_TO_COMMON_SHARES.ordinal()]);
+		}
+	}
+}
@@ -1,15 +1,22 @@
 package com.oak.external.finance.app.marketdata.api.impl.yahoo;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
+import org.apache.commons.lang3.SerializationUtils;
 import org.apache.logging.log4j.Logger;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
@@ -20,6 +27,11 @@ import com.oak.api.finance.model.SectorsIndustriesCompanies;
 import com.oak.api.finance.model.dto.Company;
 import com.oak.api.finance.model.dto.Sector;
 import com.oak.external.finance.app.marketdata.api.SectorsCompaniesYahooWebDao;
+import com.oak.external.utils.web.CircuitBreaker;
+import com.oak.external.utils.web.HostPoliteness;
+import com.oak.external.utils.web.HttpResponseCache;
+import com.oak.external.utils.web.HttpResponseCache.ConditionalFetch;
+import com.oak.external.utils.web.HttpResponseCache.Page;
 import com.oak.external.utils.web.WebParsingUtils;
 
 public class YahooWebDataSectorCompaniesDao implements SectorsCompaniesYahooWebDao{
@@ -27,88 +39,174 @@ public class YahooWebDataSectorCompaniesDao implements SectorsCompaniesYahooWebD
 	private static final String SECTOR = "Sector";
 	private static final String DESCRIPTION = "Description";
 	private static final String MORE_INFO = "More Info";
+	private static final ConditionalFetch JSOUP = HttpResponseCache.jsoup(600000);
 	private final Logger log;
 	private final String url; //= "https://biz.yahoo.com/p/s_conameu.html";
 	private final WebParsingUtils webParsingUtils;
+	private final CircuitBreaker circuitBreaker;
+	private final ExecutorService fetchExecutor;
+	private final HostPoliteness politeness;
+	private final HttpResponseCache cache;
 
 	private List<String> headersExpected = Arrays.asList( SECTOR, "1 Day Price Change %", "Market Cap", "P/E", "ROE %", "Div. Yield %",
 			"Long-Term Debt to Equity", "Price to Book Value", "Net Profit Margin % (mrq)",
 			"Price to Free Cash Flow (mrq)" );
 	
-	public YahooWebDataSectorCompaniesDao(Logger log, String url, WebParsingUtils  webParsingUtils) {
+	/**
+	 * @param fetchExecutor
+	 *            downloads the pages, its size bounds the pages downloaded at
+	 *            once; they are parsed on the common pool meanwhile. Owned by
+	 *            the caller, which shuts it down
+	 * @param politeness
+	 *            limits the connections and the pace per host, shared with
+	 *            any other crawler of the same hosts
+	 */
+	public YahooWebDataSectorCompaniesDao(Logger log, String url, WebParsingUtils webParsingUtils,
+			CircuitBreaker circuitBreaker, ExecutorService fetchExecutor, HostPoliteness politeness) {
+		this(log, url, webParsingUtils, circuitBreaker, fetchExecutor, politeness, HttpResponseCache.inHeap(log));
+	}
+
+	/**
+	 * @param cache
+	 *            revalidates the pages downloaded before, a page that did
+	 *            not change is not parsed again
+	 */
+	public YahooWebDataSectorCompaniesDao(Logger log, String url, WebParsingUtils webParsingUtils,
+			CircuitBreaker circuitBreaker, ExecutorService fetchExecutor, HostPoliteness politeness,
+			HttpResponseCache cache) {
 		this.log = log;
 		this.url = url;
 		this.webParsingUtils = webParsingUtils;
+		this.circuitBreaker = circuitBreaker;
+		this.fetchExecutor = fetchExecutor;
+		this.politeness = politeness;
+		this.cache = cache;
 	}
 	
 	@Override
 	public SectorsIndustriesCompanies getSectorsAndCompanies() {
-		List<String>errors = new ArrayList<>();
+		List<String>errors = Collections.synchronizedList(new ArrayList<>());
 		
 		log.info("Getting Sectors/Descriptions info and companies");
-		SectorsIndustriesCompanies sectorsAndCompanies = parseUrlRecursive(url,errors);
-		log.info("Getting Sectors/Descriptions info and companies .... done!");
+		long start = System.currentTimeMillis();
+		AtomicInteger pages = new AtomicInteger();
+		SectorsIndustriesCompanies sectorsAndCompanies = crawl(url, errors, pages);
+		log.info("Getting Sectors/Descriptions info and companies .... done! " + pages + " pages in "
+				+ (System.currentTimeMillis() - start) + " ms, " + errors.size() + " errors");
 		return sectorsAndCompanies;
 	}
 
-	private SectorsIndustriesCompanies parseUrlRecursive(String url, List<String> errors) {
+	/**
+	 * Walks the sectors page, then the industries page of every sector, then
+	 * the companies page of every industry. Each page is requested as soon as
+	 * its link is parsed, so the whole tree downloads concurrently within the
+	 * limits of the fetch pool and of the politeness, and is assembled as the
+	 * pages come in.
+	 */
+	private SectorsIndustriesCompanies crawl(String url, List<String> errors, AtomicInteger pages) {
 		SectorsIndustriesCompanies ret = new SectorsIndustriesCompanies();
-		Map<Sector,String> urls = parseSectorPage(url, errors,SECTOR); // sectors page has a "Sector" on the header
 		int lastSlash = url.lastIndexOf("/");
 		String root = url.substring(0,lastSlash+1);
-		for(Sector s:urls.keySet()) {
-			String sectorUrl = root + urls.get(s);
-			log.info("Getting industries and companies for sector: " + s.getDescription());
-			Map<Sector,String> industriesUrls = parseSectorPage(sectorUrl, errors,DESCRIPTION); // industries pages have a "Description" instead of "Sector"
-			ret.addIndustriesToSector(s,industriesUrls.keySet());
-			for(Sector industry:industriesUrls.keySet()) {
-				if (industry != null) {
-					String industryUrl = root + industriesUrls.get(industry);
-					Map<Sector, String> companiesUrl = parseSectorPage(industryUrl, errors, DESCRIPTION); // companies pages have a "Description" instead of "Sector"
-
-					for (Sector cmpnyAsSector : companiesUrl.keySet()) {
-						String desc = cmpnyAsSector.getDescription();
-						if (!desc.startsWith("Sector:") && !desc.startsWith("Industry:")) {
-							try {
-//								String companyUrl = companiesUrl.get(cmpnyAsSector);
-								Company company = new Company();
-								int st = desc.lastIndexOf("(");
-								int et = 0;
-								if(st > 0) {
-									et = st - 1;
-								}
-								String name = desc.substring(0, et);
-								String ticker = desc.substring(st+1, desc.length() - 1);
-//								String[] tokens = desc.split("\\(");
-//								String name = tokens[0];
-//								String[] another = tokens[1].split("\\)");
-//								String ticker = another[0];
-								company.setName(name);
-								company.setTicker(ticker);
-								ret.addCompanyToIndustry(industry, company);
-							} catch (Throwable t) {
-								log.error(industryUrl + " : cannot split this: " + desc, t);
-							}
-						}
+		// sectors page has a "Sector" on the header
+		page(url, SECTOR, errors, pages).thenCompose(urls -> allOf(urls.entrySet().stream()
+				.map(s -> crawlSector(root, s.getKey(), root + s.getValue(), ret, errors, pages))))
+				.join();
+		return ret;
+	}
+
+	private CompletableFuture<Void> crawlSector(String root, Sector s, String sectorUrl, SectorsIndustriesCompanies ret,
+			List<String> errors, AtomicInteger pages) {
+		// industries pages have a "Description" instead of "Sector"
+		return page(sectorUrl, DESCRIPTION, errors, pages).thenCompose(industriesUrls -> {
+			log.info("Getting companies of " + industriesUrls.size() + " industries for sector: " + s.getDescription());
+			ret.addIndustriesToSector(s, industriesUrls.keySet());
+			return allOf(industriesUrls.entrySet().stream().map(industry -> {
+				String industryUrl = root + industry.getValue();
+				// companies pages have a "Description" instead of "Sector"
+				return page(industryUrl, DESCRIPTION, errors, pages)
+						.thenAccept(companiesUrl -> addCompanies(industry.getKey(), industryUrl, companiesUrl, ret));
+			}));
+		});
+	}
+
+	private void addCompanies(Sector industry, String industryUrl, Map<Sector, String> companiesUrl,
+			SectorsIndustriesCompanies ret) {
+		for (Sector cmpnyAsSector : companiesUrl.keySet()) {
+			String desc = cmpnyAsSector.getDescription();
+			if (!desc.startsWith("Sector:") && !desc.startsWith("Industry:")) {
+				try {
+					Company company = new Company();
+					int st = desc.lastIndexOf("(");
+					int et = 0;
+					if(st > 0) {
+						et = st - 1;
 					}
+					String name = desc.substring(0, et);
+					String ticker = desc.substring(st+1, desc.length() - 1);
+					company.setName(name);
+					company.setTicker(ticker);
+					ret.addCompanyToIndustry(industry, company);
+				} catch (Throwable t) {
+					log.error(industryUrl + " : cannot split this: " + desc, t);
 				}
 			}
 		}
+	}
+
+	private static CompletableFuture<Void> allOf(Stream<CompletableFuture<Void>> futures) {
+		return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
+	}
+
+	/**
+	 * Downloads the page on the fetch pool and parses it on the common pool,
+	 * unless it is unchanged since the last crawl. A page that cannot be
+	 * downloaded has no links.
+	 */
+	private CompletableFuture<Map<Sector, String>> page(String url, String sectorOrDescription, List<String> errors,
+			AtomicInteger pages) {
+		return CompletableFuture.supplyAsync(() -> download(url), fetchExecutor).thenApplyAsync(page -> {
+			pages.incrementAndGet();
+			Map<Sector, String> ret = new ConcurrentSkipListMap<>();
+			if (page != null) {
+				try {
+					ret = cache.parse(page, (body, charset) -> parseSectorPage(url,
+							Jsoup.parse(new ByteArrayInputStream(body), charset, url), errors, sectorOrDescription),
+							YahooWebDataSectorCompaniesDao::copy);
+				} catch (IOException e) {
+					log.error("Unexpected IO error IOException while parsing list of companies and sectors " + url, e);
+				}
+			}
+			return ret;
+		});
+	}
+
+	/**
+	 * The sectors are saved, and given ids, by the caller.
+	 */
+	private static Map<Sector, String> copy(Map<Sector, String> links) {
+		Map<Sector, String> ret = new ConcurrentSkipListMap<>();
+		links.forEach((sector, url) -> ret.put(SerializationUtils.clone(sector), url));
 		return ret;
 	}
 
+	private Page download(String url) {
+		Page ret = null;
+		try {
+			ret = politeness.execute(url, () -> cache.fetch(url,
+					(u, etag, lastModified) -> circuitBreaker.execute(() -> JSOUP.fetch(u, etag, lastModified))));
+		} catch (MalformedURLException e) {
+			log.error("Unexpected IO error MalformedURLException while getting list of companies and sectors "+url, e);
+		} catch (IOException e1) {
+			log.error("Unexpected IO error IOException while getting list of companies and sectors "+url, e1);
+		} catch (Throwable t) {
+			log.error("Unexpected error while getting list of companies and sectors "+url, t);
+		}
+		return ret;
+	}
 
-	private Map<Sector,String> parseSectorPage(String url, List<String> errors,String sectorOrDescription){
+	private Map<Sector,String> parseSectorPage(String url, Document document, List<String> errors,String sectorOrDescription){
 		Map<Sector,String> urls = new ConcurrentSkipListMap<>();
-		Document document;
 		try {
-			document = Jsoup.connect(url)
-					 	.header("Accept-Encoding", "gzip, deflate")
-					    .userAgent("Mozilla/5.0 (Windows NT 6.1; WOW64; rv:23.0) Gecko/20100101 Firefox/23.0")
-					    .maxBodySize(0)
-					    .timeout(600000)
-					    .get();
-		
 			Element e = document.select("table").get(3);
 			Set<String> headersFound = new HashSet<String>();
 			Elements rows = e.select("tr");
@@ -163,12 +261,8 @@ public class YahooWebDataSectorCompaniesDao implements SectorsCompaniesYahooWebD
 					errors.add("Cannot find expected entry: "+h+", found entries:"+headersFound);
 				}					
 			}
-		} catch (MalformedURLException e) {
-			log.error("Unexpected IO error MalformedURLException while getting list of companies and sectors "+url, e);
-		} catch (IOException e1) {
-			log.error("Unexpected IO error IOException while getting list of companies and sectors "+url, e1);
 		} catch (Throwable t) {
-			log.error("Unexpected error while getting list of companies and sectors "+url, t);
+			log.error("Unexpected error while parsing list of companies and sectors "+url, t);
 		}
 		return urls;
 	}
@@ -10,20 +10,29 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.Logger;
+import org.reactivestreams.Publisher;
 
 import com.google.common.collect.Lists;
 import com.oak.api.finance.model.dto.AbstractQuote;
 import com.oak.api.finance.model.dto.ErrorQuote;
 import com.oak.api.finance.model.dto.Quote;
 import com.oak.api.finance.model.dto.QuoteErrorType;
+import com.oak.external.utils.web.CircuitBreaker;
+import com.oak.external.utils.web.CircuitOpenException;
 
-import io.reactivex.Observable;
-import io.reactivex.ObservableEmitter;
+
+import io.reactivex.Flowable;
+import io.reactivex.exceptions.Exceptions;
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
 import yahoofinance.Stock;
 import yahoofinance.YahooFinance;
 import yahoofinance.histquotes.HistoricalQuote;
@@ -32,17 +41,54 @@ import yahoofinance.quotes.fx.FxQuote;
 
 public class YahooFinanceWrapper {
     
-    public static final String QUOTES_BASE_URL = "http://finance.yahoo.com/d/quotes.csv";
-    public static final String HISTQUOTES_BASE_URL = "http://ichart.yahoo.com/table.csv";
     public static final String QUOTES_CSV_DELIMITER = ",";
     public static final String TIMEZONE = "America/New_York";
     public static final int BATCH_SIZE = 20;
     public static final int HISTORICAL_BATCH_SIZE = 1;
     
+    public static final int DEFAULT_HISTORICAL_CONCURRENCY = 4;
+    
     private final Logger logger;
+    private final Scheduler historicalScheduler;
+    private final int historicalConcurrency;
+    private final CircuitBreaker circuitBreaker;
+    
+    /**
+    * Points the Yahoo Finance library at other servers, a fixture server for
+    * instance; blank urls keep the library defaults. The library reads its
+    * urls once, when it is first used, so this has to run before that.
+    */
+    public static void useBaseUrls(String quotesUrl, String histQuotesUrl, String histQuotes2Url,
+    		String histQuotes2ScrapeUrl, String histQuotes2CrumbUrl, Logger logger) {
+    	Map<String, String> properties = new HashMap<>();
+    	properties.put("yahoofinance.baseurl.quotes", quotesUrl);
+    	properties.put("yahoofinance.baseurl.histquotes", histQuotesUrl);
+    	properties.put("yahoofinance.baseurl.histquotes2", histQuotes2Url);
+    	properties.put("yahoofinance.scrapeurl.histquotes2", histQuotes2ScrapeUrl);
+    	properties.put("yahoofinance.crumburl.histquotes2", histQuotes2CrumbUrl);
+    	for (Map.Entry<String, String> property : properties.entrySet()) {
+    		if (StringUtils.isNotBlank(property.getValue())) {
+    			System.setProperty(property.getKey(), property.getValue());
+    		}
+    	}
+    	if (StringUtils.isNotBlank(quotesUrl) && !quotesUrl.equals(YahooFinance.QUOTES_BASE_URL)) {
+    		logger.warn("Yahoo Finance was used before its urls were set, it still queries "
+    				+ YahooFinance.QUOTES_BASE_URL);
+    	}
+    }
     
-    public YahooFinanceWrapper (Logger logger){
+    /**
+     * @param historicalExecutor
+     *            downloads the historical quotes, owned by the caller which
+     *            shuts it down; it needs <code>historicalConcurrency</code>
+     *            threads for the partitions to download concurrently
+     */
+    public YahooFinanceWrapper (Logger logger, ExecutorService historicalExecutor, int historicalConcurrency,
+    		CircuitBreaker circuitBreaker){
     	this.logger = logger;
+    	this.historicalConcurrency = historicalConcurrency;
+    	this.circuitBreaker = circuitBreaker;
+    	this.historicalScheduler = Schedulers.from(historicalExecutor);
     }
     
     /**
@@ -82,7 +128,7 @@ public class YahooFinanceWrapper {
      * @throws java.io.IOException when there's a connection problem
      */
     public  Map<String, Stock> get(String[] symbols, boolean includeHistorical) throws IOException {
-        Map<String, Stock> ret = batchGet(symbols, b -> YahooFinance.get(b,includeHistorical),null);
+        Map<String, Stock> ret = batchGet(symbols, b -> circuitBreaker.execute(() -> YahooFinance.get(b,includeHistorical)),null);
 		return ret;
     }
     
@@ -107,14 +153,58 @@ public class YahooFinanceWrapper {
         Map<String, Stock> ret = batchGet(symbols, b -> getYahooData(from, interval, b),null);
 		return ret;
     }
-    public Observable<List<AbstractQuote>>getStream(String[]symbols, Calendar from, Interval interval){
+    /**
+     * Streams the historical quotes of the symbols from the given date, in
+     * lists of at most 2000 quotes. Partitions of <code>BATCH_SIZE</code>
+     * symbols are downloaded concurrently, at most 
+     * <code>historicalConcurrency</code> at a time on a dedicated pool, and
+     * no further partition is started while the subscriber has no
+     * outstanding request. Symbols that can't be loaded come through as 
+     * {@link ErrorQuote}s; the stream completes once every partition is done.
+     */
+    public Flowable<List<AbstractQuote>> getStream(String[]symbols, Calendar from, Interval interval){
+    	List<List<String>> partitions = Lists.partition(Lists.newArrayList(symbols), BATCH_SIZE);
+    	Flowable<List<AbstractQuote>> ret = Flowable.fromIterable(partitions)
+    			.flatMap(partition -> Flowable.defer(() -> 
+    					Flowable.fromIterable(getPartition(partition, from, interval)))
+    					.subscribeOn(historicalScheduler)
+    					.retryWhen(this::retryWhenCircuitCloses), historicalConcurrency);
+    	return ret;
+    }
 
-//		java.util.logging.Logger logger = java.util.logging.Logger.getLogger("yahoofinance.YahooFinance");
-//		logger.setLevel(Level.SEVERE);
-    	Observable<List<AbstractQuote>>ret = Observable.create(y -> 
-    		batchGet(symbols, batch -> getYahooData(from, interval, batch),y, BATCH_SIZE)
-    	);
-    	
+    /**
+     * A partition that hit an open circuit is resubscribed once the circuit
+     * is due to half open, on a timer rather than by parking its thread.
+     */
+    private Publisher<?> retryWhenCircuitCloses(Flowable<Throwable> errors) {
+    	return errors.flatMap(e -> {
+    		Flowable<Long> ret;
+    		if (e instanceof CircuitOpenException) {
+    			long delay = Math.max(1, ((CircuitOpenException) e).getRetryAfterMillis());
+    			logger.warn("yahoo is throttling, retrying partition in " + delay + "ms");
+    			ret = Flowable.timer(delay, TimeUnit.MILLISECONDS);
+    		} else {
+    			ret = Flowable.error(e);
+    		}
+    		return ret;
+    	});
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+    	return circuitBreaker;
+    }
+
+    private List<List<AbstractQuote>> getPartition(List<String> partition, Calendar from, Interval interval) {
+    	List<List<AbstractQuote>> ret = new ArrayList<>();
+    	String[] batch = new String[partition.size()];
+    	partition.toArray(batch);
+    	// each partition runs on its own thread, don't share the caller's calendar
+    	Calendar partitionFrom = (Calendar) from.clone();
+    	try {
+    		batchGet(batch, b -> getYahooData(partitionFrom, interval, b), ret::add, batch.length);
+    	} catch (CircuitOpenException e) {
+    		throw Exceptions.propagate(e);
+    	}
     	return ret;
     }
 
@@ -122,29 +212,25 @@ public class YahooFinanceWrapper {
 		logger.info("getYahooData " + tickersBatch[0] + " ... " + tickersBatch.length);
 		Map<String, Stock> ret = null;
 		try {
-			 ret = YahooFinance.get(tickersBatch,from,interval);
+			 ret = circuitBreaker.execute(() -> YahooFinance.get(tickersBatch,from,interval));
+		}catch (CircuitOpenException e) {
+			// Yahoo server is declining, the breaker schedules when to try again
+			logger.error("Yahoo server is declining requests, backing off: " + e.getMessage());
+			throw e;
 		}catch (Exception e) {
 			logger.error("error getting historical data for: " + tickersBatch+" for: "+from,e);
-			if (e.getMessage().contains( "Server returned HTTP response code: 999")){
-				// Yahoo server is declinding, we better back off for 2 hours
-				try {
-					logger.error("Yahoo server is declining request, we will wait two hours before proceeding!!!");
-					Thread.sleep(120*60*1000);
-					logger.error("Resuming after... Yahoo server declined request, (wait of two hours ended !!!)");
-				}catch (InterruptedException ie) {
-				}				
-			}else {
-				
-//				logger.error("Error in getYahooData " +e.getMessage(),e);
-				throw e;
-			}
+			throw e;
 		}
 		logger.info("getYahooData " + tickersBatch[0] + " ... " + tickersBatch.length + " completed");
 		return ret;
 	}
 
+    /**
+     * Failed batches are retried ticker by ticker, except when the circuit is
+     * open: that aborts the whole call so it can be rescheduled.
+     */
     private Map<String,Stock> batchGet(String[] symbols, Applicator<String[], Map<String, Stock>> f,
-			ObservableEmitter<List<AbstractQuote>> emitter, int batchSize) {
+			Consumer<List<AbstractQuote>> emitter, int batchSize) throws CircuitOpenException {
     	logger.info("batchGet() " + symbols[0] + " ..." + symbols.length);
     	Map<String,Stock> ret = new HashMap<>();
     	List<List<String>> partitions = Lists.partition(Lists.newArrayList(symbols), batchSize);
@@ -161,6 +247,8 @@ public class YahooFinanceWrapper {
 	    				ret.putAll(batchResult);
 	    			}
     			}
+    		}catch (CircuitOpenException e) {
+    			throw e;
     		}catch (Exception e) {
     			if(batchList.size()>1) {
     				for(String s:batchList) {
@@ -172,6 +260,8 @@ public class YahooFinanceWrapper {
 	    					if(emitter == null) {
 	    						ret.putAll(partRet);
 	    					}
+    					}catch(CircuitOpenException ex) {
+    						throw ex;
     					}catch(Exception ex) {
     						logger.error("cannot get stock quote history.. ["+s+"]",ex);
     						streamErrorResults(ret, emitter,Arrays.stream(partTicker),ex);
@@ -186,18 +276,18 @@ public class YahooFinanceWrapper {
     	
     	return ret;
 	}
-    private void streamErrorResults(Map<String,Stock>ret, ObservableEmitter<List<AbstractQuote>> emitter,Stream<String> stream,Exception e) {
+    private void streamErrorResults(Map<String,Stock>ret, Consumer<List<AbstractQuote>> emitter,Stream<String> stream,Exception e) {
 		List<AbstractQuote> strm = stream.map(t -> 
     	ErrorQuote.newQuoteInError(t,e,e.getMessage(),QuoteErrorType.HISTORY)).collect(Collectors.toList());
     	if(emitter == null) {
 //			ret.put(t,strm);
     		logger.error("Due to ["+e.getMessage()+"],can't get historical quote for "+stream.collect(Collectors.toList()),e);
 		}else {
-			emitter.onNext(strm);
+			emitter.accept(strm);
 		}
     }
 
-	private void streamResult(ObservableEmitter<List<AbstractQuote>> emitter, Map<String, Stock> batchResult) {
+	private void streamResult(Consumer<List<AbstractQuote>> emitter, Map<String, Stock> batchResult) {
 		logger.info("streamResult");
 		if (emitter != null) {
 			for (Stock ss : batchResult.values()) {
@@ -211,12 +301,12 @@ public class YahooFinanceWrapper {
 										s -> createQuote(s,ss.getSymbol())
 								).collect(Collectors.toList());
 						logger.info("emitter(" + histQs.size() + ")");
-						emitter.onNext(histQs);
+						emitter.accept(histQs);
 					}
 				} catch (IOException e) {
 					logger.error("cannot get stock quote history.. [" + ss.getName() + ", " + ss.getSymbol() + "]", e);
 					ErrorQuote q = ErrorQuote.newQuoteInError(ss.getName(),e,e.getMessage(),QuoteErrorType.HISTORY);
-					emitter.onNext(Lists.newArrayList(q));
+					emitter.accept(Lists.newArrayList(q));
 				}
 			}
 			//emitter.onComplete();
@@ -262,7 +352,7 @@ public class YahooFinanceWrapper {
 	interface Applicator <I,O>{
     	O apply(I a)throws IOException ;
     }
-    private Map<String,Stock> batchGet(String[] symbols,Applicator<String[],Map<String,Stock>> f,ObservableEmitter<List<AbstractQuote>> emitter) {
+    private Map<String,Stock> batchGet(String[] symbols,Applicator<String[],Map<String,Stock>> f,Consumer<List<AbstractQuote>> emitter) throws CircuitOpenException {
     	Map<String, Stock> ret = batchGet(symbols, f,emitter, BATCH_SIZE);
     	return ret;
     }
@@ -286,7 +376,7 @@ public class YahooFinanceWrapper {
      * @throws java.io.IOException when there's a connection problem
      */
     public  Map<String, Stock> get(String[] symbols, Calendar from, Calendar to, Interval interval) throws IOException {
-        Map<String, Stock> ret = batchGet(symbols, b -> YahooFinance.get(b,from,to,interval),null);
+        Map<String, Stock> ret = batchGet(symbols, b -> circuitBreaker.execute(() -> YahooFinance.get(b,from,to,interval)),null);
     	return ret;
     }
     
@@ -1,8 +1,11 @@
 package com.oak.external.finance.model.economy;
 
-public class IncomeStatement {
+import java.io.Serializable;
+
+public class IncomeStatement implements Serializable {
+	private static final long serialVersionUID = 1L;
     
-    class OperatingExpenses{
+    class OperatingExpenses implements Serializable {
 	private final double researchDevelopment;
 	private final double sellingGeneralAndAdministrative;
 	private final double nonRecurring;
@@ -84,7 +87,7 @@ public class IncomeStatement {
 	
     }
 
-    class IncomeFromContinuingOperations{
+    class IncomeFromContinuingOperations implements Serializable {
 	private final double totalOtherIncomeExpensesNet   ;
 	private final double earningsBeforeInterestAndTaxes;
 	private final double interestExpense ;
@@ -200,7 +203,7 @@ public class IncomeStatement {
 	}
 	
     }
-    class NonRecurrentEvents{
+    class NonRecurrentEvents implements Serializable {
 	private final double discontinuedOperations;
 	private final double extraordinaryItems    ;
 	private final double effectOfAccountingChanges;
@@ -1,10 +1,18 @@
 package com.oak.external.spring.config;
 
+import java.io.File;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,13 +21,22 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Scope;
 import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.oak.api.MainController;
 import com.oak.api.MainControllerImpl;
 import com.oak.api.finance.dao.DuplicateCashflowDaoImpl;
 import com.oak.api.finance.dao.DuplicateCashflowsDao;
+import com.oak.api.finance.dao.EconomicsBatchDao;
+import com.oak.api.finance.dao.EconomicsBatchDaoImpl;
+import com.oak.api.finance.model.SymbolUniverse;
 import com.oak.api.finance.model.dto.EarningsCalendar;
 import com.oak.api.finance.repository.BalanceSheetRepository;
+import com.oak.api.finance.repository.BulkQuoteProviderImpl;
+import com.oak.api.finance.repository.BulkQuoteProviderImpl.LoadMode;
 import com.oak.api.finance.repository.CashFlowStatementRepository;
 import com.oak.api.finance.repository.CompanyRepository;
 import com.oak.api.finance.repository.CompanyWithProblemsRepository;
@@ -28,12 +45,17 @@ import com.oak.api.finance.repository.EarningsCalendarRepository;
 import com.oak.api.finance.repository.EconomicRepository;
 import com.oak.api.finance.repository.ErrorQuoteRepository;
 import com.oak.api.finance.repository.ExcludedCompanyRepository;
+import com.oak.api.finance.repository.FilterRepository;
 import com.oak.api.finance.repository.IncomeStatementRepository;
+import com.oak.api.finance.repository.MappedQuoteStore;
 import com.oak.api.finance.repository.QuoteProvider;
 import com.oak.api.finance.repository.QuoteProviderImpl;
 import com.oak.api.finance.repository.QuoteRepository;
+import com.oak.api.finance.repository.QuoteWatermarkRepository;
 import com.oak.api.finance.repository.Screen0ResultsRepository;
 import com.oak.api.finance.repository.SectorRepository;
+import com.oak.api.finance.repository.SymbolRowHashRepository;
+import com.oak.api.finance.repository.WatermarkQuoteProviderImpl;
 import com.oak.api.providers.control.ControlProvider;
 import com.oak.api.providers.control.impl.ControlProviderImpl;
 import com.oak.external.finance.app.marketdata.api.BalanceSheetDao;
@@ -45,9 +67,11 @@ import com.oak.external.finance.app.marketdata.api.FinancialStatementsProvider;
 import com.oak.external.finance.app.marketdata.api.IncomeStatementDao;
 import com.oak.external.finance.app.marketdata.api.MarketDataProvider;
 import com.oak.external.finance.app.marketdata.api.SectorsCompaniesYahooWebDao;
+import com.oak.external.finance.app.marketdata.api.impl.CachingFinancialStatementsProvider;
 import com.oak.external.finance.app.marketdata.api.impl.FinancialStatementsConverter;
 import com.oak.external.finance.app.marketdata.api.impl.FinancialStatementsProviderImpl;
 import com.oak.external.finance.app.marketdata.api.impl.MarketDataPollingProviderImpl;
+import com.oak.external.finance.app.marketdata.api.impl.yahoo.BatchFetchEngine;
 import com.oak.external.finance.app.marketdata.api.impl.yahoo.EarningsCalendarYahooWebDao;
 import com.oak.external.finance.app.marketdata.api.impl.yahoo.YahooDataConnector;
 import com.oak.external.finance.app.marketdata.api.impl.yahoo.YahooDataConverter;
@@ -57,11 +81,18 @@ import com.oak.external.finance.app.marketdata.api.impl.yahoo.YahooWebDataCashFl
 import com.oak.external.finance.app.marketdata.api.impl.yahoo.YahooWebDataIncomeStatementDao;
 import com.oak.external.finance.app.marketdata.api.impl.yahoo.YahooWebDataSectorCompaniesDao;
 import com.oak.external.finance.app.marketdata.api.yahoo.YahooDataConverterImpl;
+import com.oak.external.finance.app.marketdata.api.yahoo.YahooFinanceWrapper;
 import com.oak.external.utils.input.api.StreamProvider;
 import com.oak.external.utils.input.api.impl.FileStreamProvider;
+import com.oak.external.utils.web.CircuitBreaker;
+import com.oak.external.utils.web.HostPoliteness;
+import com.oak.external.utils.web.HttpResponseCache;
+import com.oak.external.utils.web.PooledHttpClient;
 import com.oak.external.utils.web.WebParsingUtils;
+import com.oak.finance.app.backtest.Backtester;
 import com.oak.finance.app.dao.SymbolsDao;
 import com.oak.finance.app.dao.impl.files.SymbolsFileDao;
+import com.oak.finance.app.indicators.IndicatorEngine;
 import com.oak.finance.app.main.controllers.ApplicationController;
 import com.oak.finance.app.main.controllers.ApplicationMainControllerImpl;
 import com.oak.finance.app.main.server.ApplicationServer;
@@ -72,6 +103,11 @@ import com.oak.finance.app.monitor.MarketDataPersistenceController;
 import com.oak.finance.app.monitor.MarketDataPersistenceControllerImpl;
 import com.oak.finance.app.monitor.analysis.FinanceAnalysisController;
 import com.oak.finance.app.monitor.analysis.FinanceFundamentalAnalysisControllerImpl;
+import com.oak.finance.app.screeners.Filter;
+import com.oak.finance.app.screeners.FilterSreener;
+import com.oak.finance.app.screeners.Sreener;
+import com.oak.finance.app.screeners.SreenerRegistry;
+import com.oak.finance.interest.SymbolReconciler;
 import com.oak.finance.interest.SymbolsController;
 import com.oak.finance.interest.SymbolsControllerImpl;
 import com.oak.view.vaadin.main.StockScreenerControlUI;
@@ -84,6 +120,178 @@ public class ApplicationConfig {
 	
 	@Value("${yahoo.earnings.calendar}")
 	private String earningsUrl;
+
+	@Value("${yahoo.quotes.url:}")
+	private String quotesUrl;
+
+	@Value("${yahoo.histquotes.url:}")
+	private String histQuotesUrl;
+
+	@Value("${yahoo.histquotes2.url:}")
+	private String histQuotes2Url;
+
+	@Value("${yahoo.histquotes2.scrapeUrl:}")
+	private String histQuotes2ScrapeUrl;
+
+	@Value("${yahoo.histquotes2.crumbUrl:}")
+	private String histQuotes2CrumbUrl;
+
+	@Value("${yahoo.quoteSummary.url:" + YahooJsonFinancialDataDao.DEFAULT_QUOTE_SUMMARY_URL + "}")
+	private String quoteSummaryUrl;
+
+	@Value("${yahoo.crawler.threads:8}")
+	private int crawlerThreads;
+
+	@Value("${yahoo.crawler.connectionsPerHost:4}")
+	private int crawlerConnectionsPerHost;
+
+	@Value("${yahoo.crawler.requestsPerSecondPerHost:4}")
+	private double crawlerRequestsPerSecondPerHost;
+
+	@Value("${yahoo.fetch.workers:4}")
+	private int fetchWorkers;
+
+	@Value("${yahoo.fetch.requestsPerSecond:5}")
+	private double fetchRequestsPerSecond;
+
+	@Value("${yahoo.fetch.maxAttempts:6}")
+	private int fetchMaxAttempts;
+
+	@Value("${yahoo.fetch.initialBackoffMillis:1000}")
+	private long fetchInitialBackoffMillis;
+
+	@Value("${yahoo.fetch.maxBackoffMillis:60000}")
+	private long fetchMaxBackoffMillis;
+
+	@Value("${yahoo.history.concurrency:4}")
+	private int historyConcurrency;
+
+	@Value("${statements.download.threads:4}")
+	private int statementsDownloadThreads;
+
+	@Value("${statements.cache.ttlMinutes:60}")
+	private long statementsCacheTtlMinutes;
+
+	@Value("${statements.cache.maximumSize:2000}")
+	private long statementsCacheMaximumSize;
+
+	@Value("${statements.cache.spillDirectory:}")
+	private String statementsCacheSpillDirectory;
+
+	@Value("${http.cache.directory:}")
+	private String httpCacheDirectory;
+
+	@Value("${http.cache.maximumMegabytes:512}")
+	private long httpCacheMaximumMegabytes;
+
+	@Value("${http.cache.ttlDays:30}")
+	private long httpCacheTtlDays;
+
+	@Value("${http.cache.parsedEntries:1000}")
+	private long httpCacheParsedEntries;
+
+	@Value("${yahoo.http.maxConnections:8}")
+	private int yahooHttpMaxConnections;
+
+	@Value("${yahoo.http.connectTimeoutMillis:10000}")
+	private int yahooHttpConnectTimeoutMillis;
+
+	@Value("${yahoo.http.socketTimeoutMillis:60000}")
+	private int yahooHttpSocketTimeoutMillis;
+
+	@Value("${yahoo.circuit.initialRate:5}")
+	private double circuitInitialRate;
+
+	@Value("${yahoo.circuit.minRate:0.2}")
+	private double circuitMinRate;
+
+	@Value("${yahoo.circuit.maxRate:20}")
+	private double circuitMaxRate;
+
+	@Value("${yahoo.circuit.rateIncrease:0.01}")
+	private double circuitRateIncrease;
+
+	@Value("${yahoo.circuit.rateDecreaseFactor:0.5}")
+	private double circuitRateDecreaseFactor;
+
+	@Value("${yahoo.circuit.initialOpenMillis:120000}")
+	private long circuitInitialOpenMillis;
+
+	@Value("${yahoo.circuit.maxOpenMillis:7200000}")
+	private long circuitMaxOpenMillis;
+
+	@Value("${monitor.pipeline.fetch.workers:2}")
+	private int pipelineFetchWorkers;
+
+	@Value("${monitor.pipeline.analysis.workers:1}")
+	private int pipelineAnalysisWorkers;
+
+	@Value("${monitor.pipeline.persistence.workers:1}")
+	private int pipelinePersistenceWorkers;
+
+	@Value("${monitor.pipeline.stage.capacity:16}")
+	private int pipelineStageCapacity;
+
+	@Value("${analysis.parallelism:4}")
+	private int analysisParallelism;
+
+	@Value("${analysis.statements.threads:8}")
+	private int analysisStatementsThreads;
+
+	@Value("${screening.currencies:USD,EUR,GBp}")
+	private String[] screeningCurrencies;
+
+	@Value("${screening.maxPe:15}")
+	private double screeningMaxPe;
+
+	@Value("${screening.maxPerCalculated:15}")
+	private double screeningMaxPerCalculated;
+
+	@Value("${screening.maxPeg:1}")
+	private double screeningMaxPeg;
+
+	@Value("${screening.minEpsCurrentYr:0.05}")
+	private double screeningMinEpsCurrentYr;
+
+	@Value("${screening.minEpsNextQtr:0.024}")
+	private double screeningMinEpsNextQtr;
+
+	@Value("${screening.minEpsNextYr:0.01}")
+	private double screeningMinEpsNextYr;
+
+	@Value("${screening.maxBookValueMultiple:25}")
+	private double screeningMaxBookValueMultiple;
+
+	@Value("${screening.maxPerBookValueMultiple:27}")
+	private double screeningMaxPerBookValueMultiple;
+
+	@Value("${symbols.universe.capacity:8192}")
+	private int symbolUniverseCapacity;
+
+	@Value("${persistence.economics.batchSize:500}")
+	private int economicsBatchSize;
+
+	@Value("${persistence.symbols.batchSize:500}")
+	private int symbolsBatchSize;
+
+	/** jpa, copy or multi_row_insert */
+	@Value("${persistence.quotes.loader:jpa}")
+	private String quotesLoader;
+
+	@Value("${persistence.quotes.rowsPerInsert:500}")
+	private int quotesRowsPerInsert;
+
+	@Value("${quotes.store.directory:quotes}")
+	private String quotesStoreDirectory;
+
+	@Value("${indicators.parallelism:4}")
+	private int indicatorsParallelism;
+
+	@Value("${backtest.parallelism:4}")
+	private int backtestParallelism;
+
+	@Value("${backtest.horizons:21,63,126,252}")
+	private int[] backtestHorizons;
 	
 	private long historyBackInMilliSeconds = 7 * 24 * 60 * 60 * 1000;
 	// private String stocksFilename = "/stocks/yahoo.csv";
@@ -139,7 +347,17 @@ public class ApplicationConfig {
 	@Autowired
 	ErrorQuoteRepository errorQuoteRepository;
 	@Autowired
+	QuoteWatermarkRepository quoteWatermarkRepository;
+	@Autowired
+	SymbolRowHashRepository symbolRowHashRepository;
+	@Autowired
+	private FilterRepository filterRepository;
+	@Autowired
 	private Environment environment;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@Autowired
+	private PlatformTransactionManager transactionManager;
 	
 	@Bean
 	ApplicationServer appServer() {
@@ -153,6 +371,10 @@ public class ApplicationConfig {
 	DuplicateCashflowsDao duplicateCashflowsDao() {
 		return new DuplicateCashflowDaoImpl();
 	}
+	@Bean
+	EconomicsBatchDao economicsBatchDao() {
+		return new EconomicsBatchDaoImpl(jdbcTemplate, economicsBatchSize);
+	}
 	
 	@Bean
 	ApplicationController appController() {
@@ -162,7 +384,8 @@ public class ApplicationConfig {
 				screeningResultsRepository, earningsCalendarRepository, 
 				balanceSheetRepository, cashFlowStatementRepository, 
 				incomeStatementRepository, companyRepository, duplicateCashflowsDao(), 
-				financialStatementsProvider(), LogManager.getFormatterLogger(ApplicationMainControllerImpl.class));
+				financialStatementsProvider(), backtester(),
+				LogManager.getFormatterLogger(ApplicationMainControllerImpl.class));
 		log.debug("creating app...done");
 		return applicationServer;
 	}
@@ -174,11 +397,30 @@ public class ApplicationConfig {
 				symbolsDao(), sectorsCompaniesDao(), 
 				controlProvider(), excludedCompanyRepository, 
 				companyRepository, companyWithProblemsRepository, 
-				sectorRepository, screeningResultsRepository, yahooConnector(), LogManager.getFormatterLogger(SymbolsControllerImpl.class));
+				symbolReconciler(), screeningResultsRepository, yahooConnector(), symbolUniverse(),
+				LogManager.getFormatterLogger(SymbolsControllerImpl.class));
 		log.debug("creating stockListProvider...done");
 		return symbolController;
 	}
 
+	@Bean
+	SymbolUniverse symbolUniverse() {
+		log.debug("creating symbolUniverse...");
+		SymbolUniverse symbolUniverse = new SymbolUniverse(symbolUniverseCapacity);
+		log.debug("creating symbolUniverse...done");
+		return symbolUniverse;
+	}
+
+	@Bean
+	SymbolReconciler symbolReconciler() {
+		log.debug("creating symbolReconciler...");
+		SymbolReconciler ret = new SymbolReconciler(sectorRepository, companyRepository,
+				companyWithProblemsRepository, symbolRowHashRepository, new TransactionTemplate(transactionManager),
+				symbolsBatchSize, LogManager.getFormatterLogger(SymbolReconciler.class));
+		log.debug("creating symbolReconciler...done");
+		return ret;
+	}
+
 	@Bean
 	StreamProvider streamProvider() {
 		log.debug("creating streamProvider...");
@@ -203,7 +445,23 @@ public class ApplicationConfig {
 	}
 	@Bean 
 	QuoteProvider quoteProvider() {
-		return new QuoteProviderImpl(quoteRepository);
+		log.debug("creating quoteProvider... loader: " + quotesLoader);
+		QuoteProvider loader;
+		if ("jpa".equalsIgnoreCase(quotesLoader)) {
+			loader = new QuoteProviderImpl(quoteRepository);
+		} else {
+			LoadMode mode = LoadMode.valueOf(quotesLoader.toUpperCase());
+			BulkQuoteProviderImpl bulkLoader = new BulkQuoteProviderImpl(quoteRepository, jdbcTemplate,
+					new TransactionTemplate(transactionManager), mode, quotesRowsPerInsert,
+					LogManager.getFormatterLogger(BulkQuoteProviderImpl.class));
+			bulkLoader.ensureUniqueQuotes();
+			loader = bulkLoader;
+		}
+		QuoteProvider ret = new WatermarkQuoteProviderImpl(loader, quoteWatermarkRepository, jdbcTemplate,
+				new TransactionTemplate(transactionManager),
+				LogManager.getFormatterLogger(WatermarkQuoteProviderImpl.class));
+		log.debug("creating quoteProvider...done");
+		return ret;
 	}
 
 	@Bean
@@ -212,21 +470,74 @@ public class ApplicationConfig {
 		MarketDataProvider marketDataPollingProvider = new MarketDataPollingProviderImpl(yahooConnector(),
 				earningsCalendarDao(), earningsCalendarRepository, balanceSheetRepository,
 				financialStatementsProvider(), controlProvider(),
-				quoteProvider(), errorQuoteRepository, symbolController(), LogManager.getFormatterLogger(MarketDataPollingProviderImpl.class));
+				quoteProvider(), errorQuoteRepository, symbolController(), mappedQuoteStore(), indicatorEngine(),
+				LogManager.getFormatterLogger(MarketDataPollingProviderImpl.class));
 		log.debug("creating marketDataProvider...done");
 		return marketDataPollingProvider;
 	}
 
+	@Bean(destroyMethod = "shutdown")
+	ExecutorService yahooHistoryExecutor() {
+		log.debug("creating yahooHistoryExecutor...");
+		ExecutorService yahooHistoryExecutor = Executors.newFixedThreadPool(historyConcurrency,
+				new ThreadFactoryBuilder().setNameFormat("yahoo-history-%d").setDaemon(true).build());
+		log.debug("creating yahooHistoryExecutor...done");
+		return yahooHistoryExecutor;
+	}
+
 	@Bean
 	DataConnector yahooConnector() {
 		log.debug("creating yahooConnector...");
 		Logger logger = LogManager.getFormatterLogger(YahooDataConnector.class);
+		YahooFinanceWrapper.useBaseUrls(quotesUrl, histQuotesUrl, histQuotes2Url, histQuotes2ScrapeUrl,
+				histQuotes2CrumbUrl, LogManager.getLogger(YahooFinanceWrapper.class));
+		YahooFinanceWrapper yahooFinanceWrapper = new YahooFinanceWrapper(
+				LogManager.getLogger(YahooFinanceWrapper.class), yahooHistoryExecutor(), historyConcurrency,
+				yahooCircuitBreaker());
 		YahooDataConnector yahooDataConnector = new YahooDataConnector(logger,
-				yahooDataConverter());
+				yahooDataConverter(), batchFetchEngine(), yahooFinanceWrapper);
 		log.debug("creating yahooConnector...done");
 		return yahooDataConnector;
 	}
 
+	@Bean
+	MappedQuoteStore mappedQuoteStore() {
+		log.debug("creating mappedQuoteStore...");
+		MappedQuoteStore mappedQuoteStore = new MappedQuoteStore(new File(quotesStoreDirectory),
+				LogManager.getFormatterLogger(MappedQuoteStore.class));
+		log.debug("creating mappedQuoteStore...done");
+		return mappedQuoteStore;
+	}
+
+	@Bean(destroyMethod = "shutdown")
+	PooledHttpClient yahooHttpClient() {
+		log.debug("creating yahooHttpClient...");
+		PooledHttpClient httpClient = new PooledHttpClient(yahooHttpMaxConnections, yahooHttpConnectTimeoutMillis,
+				yahooHttpSocketTimeoutMillis, LogManager.getFormatterLogger(PooledHttpClient.class));
+		log.debug("creating yahooHttpClient...done");
+		return httpClient;
+	}
+
+	@Bean(destroyMethod = "shutdown")
+	CircuitBreaker yahooCircuitBreaker() {
+		log.debug("creating yahooCircuitBreaker...");
+		CircuitBreaker circuitBreaker = new CircuitBreaker("yahoo", circuitInitialRate, circuitMinRate, circuitMaxRate,
+				circuitRateIncrease, circuitRateDecreaseFactor, circuitInitialOpenMillis, circuitMaxOpenMillis,
+				LogManager.getFormatterLogger(CircuitBreaker.class));
+		log.debug("creating yahooCircuitBreaker...done");
+		return circuitBreaker;
+	}
+
+	@Bean(destroyMethod = "shutdown")
+	BatchFetchEngine batchFetchEngine() {
+		log.debug("creating batchFetchEngine...");
+		BatchFetchEngine batchFetchEngine = new BatchFetchEngine(LogManager.getFormatterLogger(BatchFetchEngine.class),
+				fetchWorkers, fetchRequestsPerSecond, fetchMaxAttempts, fetchInitialBackoffMillis,
+				fetchMaxBackoffMillis);
+		log.debug("creating batchFetchEngine...done");
+		return batchFetchEngine;
+	}
+
 	@Bean
 	YahooDataConverter yahooDataConverter() {
 		log.debug("creating yahooDataConverter...");
@@ -244,6 +555,9 @@ public class ApplicationConfig {
 				financeAnalysisController(),
 				marketDataProvider(),
 				marketDataPersistenceController(), 
+				// one fetch batch keeps every engine worker on a full request
+				fetchWorkers * YahooDataConnector.BATCH_SIZE, pipelineFetchWorkers, pipelineAnalysisWorkers,
+				pipelinePersistenceWorkers, pipelineStageCapacity, sreenerRegistry(),
 				LogManager.getFormatterLogger(MarketDataMonitorsControllerImpl.class));
 		log.debug("creating marketDataMonitorsController...done");
 		return marketDataMonitorsController;
@@ -254,7 +568,7 @@ public class ApplicationConfig {
 		MarketDataPersistenceController marketDataPersistanceController = 
 				new MarketDataPersistenceControllerImpl(
 						LogManager.getFormatterLogger(MarketDataPersistenceControllerImpl.class), 
-						economicRepository, companyRepository);
+						economicRepository, companyRepository, economicsBatchDao());
 		log.debug("creating marketDataPersistenceController...done");
 		return marketDataPersistanceController;
 	}
@@ -262,7 +576,7 @@ public class ApplicationConfig {
 	@Bean 
 	FinancialDataDao financialDataDao() {
 		log.debug("creating yahooJsonFinancialDataDao...");
-		YahooJsonFinancialDataDao yahooJsonFinancialDataDao = new YahooJsonFinancialDataDao(LogManager.getFormatterLogger(YahooJsonFinancialDataDao.class));
+		YahooJsonFinancialDataDao yahooJsonFinancialDataDao = new YahooJsonFinancialDataDao(LogManager.getFormatterLogger(YahooJsonFinancialDataDao.class), yahooCircuitBreaker(), yahooHttpClient(), quoteSummaryUrl, httpResponseCache());
 		log.debug("creating yahooJsonFinancialDataDao...done");
 		return yahooJsonFinancialDataDao;
 	}
@@ -291,12 +605,27 @@ public class ApplicationConfig {
 		return yahooWebDataCashFlowStatementDao; 
 	}
 	
+	@Bean(destroyMethod = "shutdown")
+	ExecutorService statementsDownloadExecutor() {
+		log.debug("creating statementsDownloadExecutor...");
+		ExecutorService statementsDownloadExecutor = Executors.newFixedThreadPool(statementsDownloadThreads,
+				new ThreadFactoryBuilder().setNameFormat("statements-download-%d").setDaemon(true).build());
+		log.debug("creating statementsDownloadExecutor...done");
+		return statementsDownloadExecutor;
+	}
+
 	@Bean
 	FinancialStatementsProvider financialStatementsProvider() {
-		log.debug("creating financialStatementsProvider... instance of FinancialStatementsProviderImpl");
+		log.debug("creating financialStatementsProvider... instance of CachingFinancialStatementsProvider");
 		Logger logger = LogManager.getFormatterLogger(FinancialStatementsProviderImpl.class);
-		FinancialStatementsProviderImpl financialStatementsProvider = new FinancialStatementsProviderImpl(
-				financialDataDao(), balanceSheetRepository, statementsConverter(), incomeStatementRepository, cashFlowStatementRepository, companyWithProblemsRepository, logger);
+		FinancialStatementsProviderImpl financialStatementsProviderImpl = new FinancialStatementsProviderImpl(
+				financialDataDao(), balanceSheetRepository, statementsConverter(), incomeStatementRepository, cashFlowStatementRepository, companyWithProblemsRepository, statementsDownloadExecutor(), logger);
+		File spillDirectory = StringUtils.isBlank(statementsCacheSpillDirectory) ? null
+				: new File(statementsCacheSpillDirectory);
+		CachingFinancialStatementsProvider financialStatementsProvider = new CachingFinancialStatementsProvider(
+				financialStatementsProviderImpl, TimeUnit.MINUTES.toMillis(statementsCacheTtlMinutes),
+				statementsCacheMaximumSize, spillDirectory,
+				LogManager.getFormatterLogger(CachingFinancialStatementsProvider.class));
 		log.debug("creating financialStatementsProvider...done ");
 		return financialStatementsProvider;
 	}
@@ -307,26 +636,139 @@ public class ApplicationConfig {
 		return statementsConverter;
 	}
 	
+	@Bean
+	Filter screeningFilter() {
+		log.debug("creating screeningFilter...");
+		Filter filter = new Filter();
+		filter.setAsOf(new Date());
+		filter.setMaxPe(screeningMaxPe);
+		filter.setMaxPerCalculated(screeningMaxPerCalculated);
+		filter.setMaxPeg(screeningMaxPeg);
+		filter.setMinEpsCurrentYr(screeningMinEpsCurrentYr);
+		filter.setMinEpsNextQtr(screeningMinEpsNextQtr);
+		filter.setMinEpsNextYr(screeningMinEpsNextYr);
+		filter.setMaxBookValueMultiple(screeningMaxBookValueMultiple);
+		filter.setMaxPerBookValueMultiple(screeningMaxPerBookValueMultiple);
+		log.debug("creating screeningFilter...done");
+		return filter;
+	}
+
+	@Bean
+	SreenerRegistry sreenerRegistry() {
+		log.debug("creating sreenerRegistry...");
+		Sreener defaultScreen = new FilterSreener(SreenerRegistry.DEFAULT_SCREEN_ID, screeningFilter());
+		SreenerRegistry sreenerRegistry = new SreenerRegistry(defaultScreen, filterRepository,
+				LogManager.getFormatterLogger(SreenerRegistry.class));
+		log.debug("creating sreenerRegistry...done");
+		return sreenerRegistry;
+	}
+
+	@Bean(destroyMethod = "shutdown")
+	ExecutorService indicatorsExecutor() {
+		log.debug("creating indicatorsExecutor...");
+		ExecutorService indicatorsExecutor = Executors.newWorkStealingPool(indicatorsParallelism);
+		log.debug("creating indicatorsExecutor...done");
+		return indicatorsExecutor;
+	}
+
+	@Bean
+	IndicatorEngine indicatorEngine() {
+		log.debug("creating indicatorEngine...");
+		IndicatorEngine indicatorEngine = new IndicatorEngine(mappedQuoteStore(), indicatorsExecutor(),
+				LogManager.getFormatterLogger(IndicatorEngine.class));
+		// catches up with the stored history in the background
+		indicatorEngine.refreshAll();
+		log.debug("creating indicatorEngine...done");
+		return indicatorEngine;
+	}
+
+	@Bean(destroyMethod = "shutdown")
+	ForkJoinPool backtestPool() {
+		log.debug("creating backtestPool...");
+		ForkJoinPool backtestPool = new ForkJoinPool(backtestParallelism);
+		log.debug("creating backtestPool...done");
+		return backtestPool;
+	}
+
+	@Bean
+	Backtester backtester() {
+		log.debug("creating backtester...");
+		Backtester backtester = new Backtester(mappedQuoteStore(), filterRepository, screeningResultsRepository,
+				new HashSet<>(Arrays.asList(screeningCurrencies)), backtestHorizons, backtestPool(),
+				LogManager.getFormatterLogger(Backtester.class));
+		log.debug("creating backtester...done");
+		return backtester;
+	}
+
+	@Bean(destroyMethod = "shutdown")
+	ExecutorService analysisExecutor() {
+		log.debug("creating analysisExecutor...");
+		ExecutorService analysisExecutor = Executors.newWorkStealingPool(analysisParallelism);
+		log.debug("creating analysisExecutor...done");
+		return analysisExecutor;
+	}
+
+	@Bean(destroyMethod = "shutdown")
+	ExecutorService analysisStatementsExecutor() {
+		log.debug("creating analysisStatementsExecutor...");
+		ExecutorService analysisStatementsExecutor = Executors.newFixedThreadPool(analysisStatementsThreads,
+				new ThreadFactoryBuilder().setNameFormat("statements-%d").setDaemon(true).build());
+		log.debug("creating analysisStatementsExecutor...done");
+		return analysisStatementsExecutor;
+	}
+
 	@Bean
 	FinanceAnalysisController financeAnalysisController() {
 		log.debug("creating financeAnalysisController...");
 		Logger logger = LogManager .getFormatterLogger(FinanceFundamentalAnalysisControllerImpl.class);
 		FinanceFundamentalAnalysisControllerImpl financeFundamentalAnalysisController = new FinanceFundamentalAnalysisControllerImpl(
 				financialStatementsProvider(), 
-				targetMinCurrentRatio, targetMinQuickRatio, targetMinAssetToDebtRatio, logger);
+				targetMinCurrentRatio, targetMinQuickRatio, targetMinAssetToDebtRatio,
+				sreenerRegistry(), indicatorEngine(), new HashSet<>(Arrays.asList(screeningCurrencies)),
+				analysisExecutor(), analysisStatementsExecutor(), logger);
 		log.debug("creating financeAnalysisController...done");
 		return financeFundamentalAnalysisController;
 	}
 	
+	@Bean(destroyMethod = "shutdown")
+	ExecutorService sectorCrawlerExecutor() {
+		log.debug("creating sectorCrawlerExecutor...");
+		ExecutorService sectorCrawlerExecutor = Executors.newFixedThreadPool(crawlerThreads,
+				new ThreadFactoryBuilder().setNameFormat("sector-crawler-%d").setDaemon(true).build());
+		log.debug("creating sectorCrawlerExecutor...done");
+		return sectorCrawlerExecutor;
+	}
+
 	@Bean
 	SectorsCompaniesYahooWebDao sectorsCompaniesDao() {
 		log.debug("creating sectorDao...");
 		Logger logger = LogManager.getFormatterLogger(YahooWebDataSectorCompaniesDao.class);
-		SectorsCompaniesYahooWebDao dao = new YahooWebDataSectorCompaniesDao(logger,sectorsUrl, webParsingUtils());
+		SectorsCompaniesYahooWebDao dao = new YahooWebDataSectorCompaniesDao(logger, sectorsUrl, webParsingUtils(),
+				yahooCircuitBreaker(), sectorCrawlerExecutor(), hostPoliteness(), httpResponseCache());
 		log.debug("creating sectorDao...done");
 		return dao;
 	}
 
+	@Bean
+	HttpResponseCache httpResponseCache() {
+		log.debug("creating httpResponseCache...");
+		File directory = StringUtils.isBlank(httpCacheDirectory) ? null : new File(httpCacheDirectory);
+		HttpResponseCache httpResponseCache = new HttpResponseCache(directory, httpCacheMaximumMegabytes * 1024 * 1024,
+				TimeUnit.DAYS.toMillis(httpCacheTtlDays), httpCacheParsedEntries,
+				LogManager.getLogger(HttpResponseCache.class));
+		log.debug("creating httpResponseCache...done");
+		return httpResponseCache;
+	}
+
+	@Bean
+	HostPoliteness hostPoliteness() {
+		log.debug("creating hostPoliteness...");
+		HostPoliteness hostPoliteness = new HostPoliteness(crawlerConnectionsPerHost, crawlerRequestsPerSecondPerHost,
+				LogManager.getLogger(HostPoliteness.class));
+		log.debug("creating hostPoliteness...done");
+		return hostPoliteness;
+	}
+
 	@Bean
 	 WebParsingUtils webParsingUtils() {
 		log.debug("creating webParsingUtils...");
@@ -341,7 +783,8 @@ public class ApplicationConfig {
 		
 		log.debug("creating earningsCalendarDao...Done");
 		CompletionService<List<EarningsCalendar>> executor = new ExecutorCompletionService<>( Executors.newCachedThreadPool());
-		EarningsCalendarDao ret = new EarningsCalendarYahooWebDao(logger, earningsUrl, webParsingUtils(), executor);
+		EarningsCalendarDao ret = new EarningsCalendarYahooWebDao(logger, earningsUrl, webParsingUtils(), executor, yahooCircuitBreaker(),
+				httpResponseCache());
 		return ret;
 	}
 	
@@ -0,0 +1,44 @@
+package com.oak.external.utils.collections;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Splits sets of symbols into the batches the market data sources are
+ * queried with.
+ */
+public final class Batches {
+
+	private Batches() {
+	}
+
+	/**
+	 * The elements of the set in batches of at most size elements, null if
+	 * the set is null.
+	 */
+	public static <T> Collection<Set<T>> batch(Set<T> set, int size) {
+		Collection<Set<T>> ret = null;
+
+		if (set != null) {
+			ret = new ArrayList<Set<T>>();
+			int i = 0;
+			Set<T> batch = new HashSet<T>();
+			for (T e : set) {
+				batch.add(e);
+				if (i >= size - 1) {
+					ret.add(batch);
+					batch = new HashSet<T>();
+					i = 0;
+				} else {
+					i++;
+				}
+			}
+			if (!batch.isEmpty()) {
+				ret.add(batch);
+			}
+		}
+		return ret;
+	}
+}
@@ -0,0 +1,236 @@
+package com.oak.external.utils.web;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.HttpResponseException;
+import org.apache.logging.log4j.Logger;
+import org.jsoup.HttpStatusException;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Throttle shared by every client of a remote service. Requests go through
+ * a rate limiter whose rate adapts to the server: it creeps up a little on
+ * every success and is cut down whenever the server throttles (Yahoo
+ * answers with HTTP 999, others with 429).
+ * <p>
+ * A throttled response also opens the circuit: requests then fail straight
+ * away with a {@link CircuitOpenException} instead of holding their thread.
+ * After the open period a timer moves the circuit to half open, where a
+ * single probe request is let through; if it succeeds the circuit closes,
+ * if it is throttled again the circuit reopens for twice as long.
+ */
+public class CircuitBreaker {
+
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	public interface IOCall<T> {
+		T call() throws IOException;
+	}
+
+	private static final long PROBE_RETRY_MILLIS = 1000;
+
+	private final String name;
+	private final Logger log;
+	private final RateLimiter rateLimiter;
+	private final double minRate;
+	private final double maxRate;
+	private final double rateIncrease;
+	private final double rateDecreaseFactor;
+	private final long initialOpenMillis;
+	private final long maxOpenMillis;
+	private final ScheduledExecutorService scheduler;
+
+	private State state = State.CLOSED;
+	private long openMillis;
+	private long reopenAt;
+	private boolean probeInFlight;
+	private long successes;
+	private long throttles;
+	private long rejections;
+	private long trips;
+
+	public CircuitBreaker(String name, double initialRate, double minRate, double maxRate, double rateIncrease,
+			double rateDecreaseFactor, long initialOpenMillis, long maxOpenMillis, Logger log) {
+		this.name = name;
+		this.log = log;
+		this.rateLimiter = RateLimiter.create(initialRate);
+		this.minRate = minRate;
+		this.maxRate = maxRate;
+		this.rateIncrease = rateIncrease;
+		this.rateDecreaseFactor = rateDecreaseFactor;
+		this.initialOpenMillis = initialOpenMillis;
+		this.maxOpenMillis = maxOpenMillis;
+		this.openMillis = initialOpenMillis;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(
+				new ThreadFactoryBuilder().setNameFormat("circuit-" + name + "-%d").setDaemon(true).build());
+	}
+
+	/**
+	 * 5 requests/s to start with, open for 2 minutes at first and up to the
+	 * two hours Yahoo has been seen to decline requests for.
+	 */
+	public static CircuitBreaker withDefaults(String name, Logger log) {
+		return new CircuitBreaker(name, 5, 0.2, 20, 0.01, 0.5, 2 * 60 * 1000, 120 * 60 * 1000, log);
+	}
+
+	/**
+	 * Runs the call under the breaker. A throttled response is reported as a
+	 * {@link CircuitOpenException} carrying the original error as its cause.
+	 */
+	public <T> T execute(IOCall<T> call) throws IOException {
+		acquire();
+		try {
+			T ret = call.call();
+			onSuccess();
+			return ret;
+		} catch (IOException | RuntimeException e) {
+			if (isThrottled(e)) {
+				onThrottled();
+				throw new CircuitOpenException(name, getRetryAfterMillis(), e);
+			}
+			onFailure();
+			throw e;
+		}
+	}
+
+	/**
+	 * Waits for a permit of the rate limiter, or fails immediately when the
+	 * circuit is open.
+	 */
+	public void acquire() throws CircuitOpenException {
+		synchronized (this) {
+			if (state == State.OPEN) {
+				rejections++;
+				throw new CircuitOpenException(name, getRetryAfterMillis());
+			}
+			if (state == State.HALF_OPEN) {
+				if (probeInFlight) {
+					rejections++;
+					throw new CircuitOpenException(name, PROBE_RETRY_MILLIS);
+				}
+				probeInFlight = true;
+			}
+		}
+		rateLimiter.acquire();
+	}
+
+	public synchronized void onSuccess() {
+		successes++;
+		if (state == State.HALF_OPEN) {
+			state = State.CLOSED;
+			probeInFlight = false;
+			openMillis = initialOpenMillis;
+			log.info("circuit " + name + " closed, resuming at " + rateLimiter.getRate() + " requests/s");
+		}
+		if (state == State.CLOSED) {
+			rateLimiter.setRate(Math.min(maxRate, rateLimiter.getRate() + rateIncrease));
+		}
+	}
+
+	public synchronized void onThrottled() {
+		throttles++;
+		rateLimiter.setRate(Math.max(minRate, rateLimiter.getRate() * rateDecreaseFactor));
+		if (state == State.HALF_OPEN) {
+			openMillis = Math.min(maxOpenMillis, openMillis * 2);
+		}
+		if (state != State.OPEN) {
+			trip();
+		}
+	}
+
+	/**
+	 * Any other failure: says nothing about throttling, only frees the probe
+	 * slot when half open.
+	 */
+	public synchronized void onFailure() {
+		if (state == State.HALF_OPEN) {
+			probeInFlight = false;
+		}
+	}
+
+	public static boolean isThrottled(Throwable e) {
+		boolean ret = false;
+		for (Throwable t = e; t != null && !ret; t = t.getCause()) {
+			if (t instanceof HttpStatusException) {
+				int status = ((HttpStatusException) t).getStatusCode();
+				ret = status == 999 || status == 429;
+			} else if (t instanceof HttpResponseException) {
+				int status = ((HttpResponseException) t).getStatusCode();
+				ret = status == 999 || status == 429;
+			} else if (t.getMessage() != null) {
+				ret = t.getMessage().contains("response code: 999") || t.getMessage().contains("response code: 429");
+			}
+		}
+		return ret;
+	}
+
+	public synchronized State getState() {
+		return state;
+	}
+
+	public synchronized long getRetryAfterMillis() {
+		long ret = 0;
+		if (state == State.OPEN) {
+			ret = Math.max(0, reopenAt - System.currentTimeMillis());
+		}
+		return ret;
+	}
+
+	public double getRate() {
+		return rateLimiter.getRate();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public synchronized long getSuccesses() {
+		return successes;
+	}
+
+	public synchronized long getThrottles() {
+		return throttles;
+	}
+
+	public synchronized long getRejections() {
+		return rejections;
+	}
+
+	public synchronized long getTrips() {
+		return trips;
+	}
+
+	public void shutdown() {
+		scheduler.shutdownNow();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("%s: %s rate=%.2f/s successes=%d throttles=%d rejections=%d trips=%d", name, state,
+				rateLimiter.getRate(), successes, throttles, rejections, trips);
+	}
+
+	private void trip() {
+		state = State.OPEN;
+		probeInFlight = false;
+		trips++;
+		reopenAt = System.currentTimeMillis() + openMillis;
+		log.error("circuit " + name + " opened for " + openMillis + "ms after the server declined requests, rate now "
+				+ rateLimiter.getRate() + " requests/s");
+		scheduler.schedule(this::halfOpen, openMillis, TimeUnit.MILLISECONDS);
+	}
+
+	private synchronized void halfOpen() {
+		if (state == State.OPEN) {
+			state = State.HALF_OPEN;
+			log.warn("circuit " + name + " half open, probing");
+		}
+	}
+}
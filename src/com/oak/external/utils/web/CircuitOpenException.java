@@ -0,0 +1,28 @@
+package com.oak.external.utils.web;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of making a request while a {@link CircuitBreaker} is
+ * open, or when the request itself was throttled. Callers are expected to
+ * reschedule the work after {@link #getRetryAfterMillis()} rather than wait
+ * for it.
+ */
+public class CircuitOpenException extends IOException {
+	private static final long serialVersionUID = 1L;
+
+	private final long retryAfterMillis;
+
+	public CircuitOpenException(String name, long retryAfterMillis) {
+		this(name, retryAfterMillis, null);
+	}
+
+	public CircuitOpenException(String name, long retryAfterMillis, Throwable cause) {
+		super("circuit " + name + " is open, retry in " + retryAfterMillis + "ms", cause);
+		this.retryAfterMillis = retryAfterMillis;
+	}
+
+	public long getRetryAfterMillis() {
+		return retryAfterMillis;
+	}
+}
@@ -0,0 +1,58 @@
+package com.oak.external.utils.web;
+
+/**
+ * The answer to a GET sent with the validators of a cached copy: either
+ * not modified (304) or the page in full, with the validators to send next
+ * time, when the server has any.
+ */
+public class ConditionalResponse {
+	private static final ConditionalResponse NOT_MODIFIED = new ConditionalResponse(true, null, null, null, null);
+
+	private final boolean notModified;
+	private final byte[] body;
+	private final String charset;
+	private final String etag;
+	private final String lastModified;
+
+	/**
+	 * @param charset
+	 *            of the body, null when the server did not tell
+	 * @param etag
+	 *            and lastModified, null when the server sent none
+	 */
+	public ConditionalResponse(byte[] body, String charset, String etag, String lastModified) {
+		this(false, body, charset, etag, lastModified);
+	}
+
+	private ConditionalResponse(boolean notModified, byte[] body, String charset, String etag, String lastModified) {
+		this.notModified = notModified;
+		this.body = body;
+		this.charset = charset;
+		this.etag = etag;
+		this.lastModified = lastModified;
+	}
+
+	public static ConditionalResponse notModified() {
+		return NOT_MODIFIED;
+	}
+
+	public boolean isNotModified() {
+		return notModified;
+	}
+
+	public byte[] getBody() {
+		return body;
+	}
+
+	public String getCharset() {
+		return charset;
+	}
+
+	public String getEtag() {
+		return etag;
+	}
+
+	public String getLastModified() {
+		return lastModified;
+	}
+}
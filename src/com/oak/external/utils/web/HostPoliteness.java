@@ -0,0 +1,89 @@
+package com.oak.external.utils.web;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.oak.external.utils.web.CircuitBreaker.IOCall;
+
+/**
+ * Keeps concurrent crawlers polite to each host they visit: at most a few
+ * connections open to a host at once and a steady pace of requests to it,
+ * however many threads the crawlers run. The limits apply per host name,
+ * so pages of different hosts download side by side. Sits in front of the
+ * {@link CircuitBreaker}, which still paces and throttles Yahoo as a whole.
+ */
+public class HostPoliteness {
+
+	private final int maxConnectionsPerHost;
+	private final double requestsPerSecondPerHost;
+	private final ConcurrentMap<String, Host> hosts = new ConcurrentHashMap<>();
+	private final Logger log;
+
+	public HostPoliteness(int maxConnectionsPerHost, double requestsPerSecondPerHost, Logger log) {
+		this.maxConnectionsPerHost = maxConnectionsPerHost;
+		this.requestsPerSecondPerHost = requestsPerSecondPerHost;
+		this.log = log;
+	}
+
+	/**
+	 * Runs the call once the host of the url has a free connection and the
+	 * pace of the host allows one more request.
+	 */
+	public <T> T execute(String url, IOCall<T> call) throws IOException {
+		Host host = hosts.computeIfAbsent(hostOf(url), Host::new);
+		try {
+			host.connections.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted waiting for a connection to " + host.name, e);
+		}
+		try {
+			host.pace.acquire();
+			T ret = call.call();
+			return ret;
+		} finally {
+			host.connections.release();
+		}
+	}
+
+	public int getMaxConnectionsPerHost() {
+		return maxConnectionsPerHost;
+	}
+
+	public double getRequestsPerSecondPerHost() {
+		return requestsPerSecondPerHost;
+	}
+
+	static String hostOf(String url) {
+		String ret = url;
+		try {
+			String host = URI.create(url).getHost();
+			if (host != null) {
+				ret = host.toLowerCase();
+			}
+		} catch (IllegalArgumentException e) {
+			// still limited, on its own
+		}
+		return ret;
+	}
+
+	private class Host {
+		private final String name;
+		private final Semaphore connections;
+		private final RateLimiter pace;
+
+		Host(String name) {
+			this.name = name;
+			this.connections = new Semaphore(maxConnectionsPerHost, true);
+			this.pace = RateLimiter.create(requestsPerSecondPerHost);
+			log.debug("politeness for " + name + ": " + maxConnectionsPerHost + " connections, "
+					+ requestsPerSecondPerHost + " requests/s");
+		}
+	}
+}
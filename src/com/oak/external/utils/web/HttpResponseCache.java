@@ -0,0 +1,444 @@
+package com.oak.external.utils.web;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+import org.apache.logging.log4j.Logger;
+import org.jsoup.Connection;
+import org.jsoup.HttpStatusException;
+import org.jsoup.Jsoup;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+
+/**
+ * Cache of the pages and documents downloaded from Yahoo, shared by the
+ * scraping DAOs, so a refresh only pays for what changed.
+ * <p>
+ * A cached page is revalidated instead of downloaded again: its ETag and
+ * Last-Modified go with the request and a 304 is answered from disk.
+ * Servers that send neither still return the page in full, but a page
+ * whose content hash did not change is not parsed again: the last parsed
+ * value of every url is kept in a bounded in-heap tier and a copy of it is
+ * handed back as long as the content is the same. The kept value is never
+ * handed out itself, so callers may modify what they get, entities they
+ * go on to save for instance.
+ * <p>
+ * The disk tier is bounded in bytes, least recently used pages go first,
+ * and pages unused for longer than the time to live are dropped. Without a
+ * directory only the in-heap tier is kept and every page is downloaded.
+ */
+public class HttpResponseCache {
+
+	public interface ConditionalFetch {
+		/**
+		 * @param etag
+		 *            and lastModified of the cached copy, null when there is
+		 *            none
+		 */
+		ConditionalResponse fetch(String url, String etag, String lastModified) throws IOException;
+	}
+
+	public interface BodyParser<T> {
+		T parse(byte[] body, String charset) throws IOException;
+	}
+
+	private static final String BODY = ".body";
+	private static final String META = ".meta";
+
+	private final File directory;
+	private final long maximumBytes;
+	private final long ttlMillis;
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+	private final Cache<String, Parsed> parsed;
+	private final AtomicLong bytes = new AtomicLong();
+	private final AtomicLong notModified = new AtomicLong();
+	private final AtomicLong unchanged = new AtomicLong();
+	private final AtomicLong downloaded = new AtomicLong();
+	private final AtomicLong parses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final Logger log;
+
+	/**
+	 * @param directory
+	 *            of the disk tier, null to keep the parsed values only
+	 * @param maximumBytes
+	 *            of the pages on disk
+	 * @param ttlMillis
+	 *            how long a page is kept without being used
+	 * @param maximumParsed
+	 *            parsed values kept in heap
+	 */
+	public HttpResponseCache(File directory, long maximumBytes, long ttlMillis, long maximumParsed, Logger log) {
+		this.directory = directory;
+		this.maximumBytes = maximumBytes;
+		this.ttlMillis = ttlMillis;
+		this.log = log;
+		this.parsed = CacheBuilder.newBuilder()
+				.maximumSize(maximumParsed)
+				.expireAfterAccess(ttlMillis, TimeUnit.MILLISECONDS)
+				.build();
+		if (directory != null) {
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				log.error("cannot create the http cache directory " + directory);
+			}
+			load();
+		}
+	}
+
+	/**
+	 * No disk tier and a small heap tier, what the DAOs use when they are
+	 * not given a cache.
+	 */
+	public static HttpResponseCache inHeap(Logger log) {
+		return new HttpResponseCache(null, 0, TimeUnit.DAYS.toMillis(1), 100, log);
+	}
+
+	/**
+	 * Fetches the url, revalidating the cached copy if there is one, and
+	 * parses the body unless it is the one parsed last time for this url.
+	 * A url is expected to always be parsed the same way.
+	 *
+	 * @param copy
+	 *            deep enough that nothing the caller may modify is shared
+	 *            with the parsed value kept
+	 */
+	public <T> T get(String url, ConditionalFetch fetch, BodyParser<T> parser, UnaryOperator<T> copy)
+			throws IOException {
+		T ret = parse(fetch(url, fetch), parser, copy);
+		return ret;
+	}
+
+	/**
+	 * The first half of {@link #get(String, ConditionalFetch, BodyParser, UnaryOperator)},
+	 * for callers that download and parse on different threads.
+	 */
+	public Page fetch(String url, ConditionalFetch fetch) throws IOException {
+		Entry cached = lookup(url);
+		ConditionalResponse response = cached == null ? fetch.fetch(url, null, null)
+				: fetch.fetch(url, cached.etag, cached.lastModified);
+		Page ret;
+		if (response.isNotModified()) {
+			if (cached == null) {
+				throw new IOException("not modified answered for " + url + " though nothing was cached");
+			}
+			notModified.incrementAndGet();
+			touch(cached);
+			ret = new Page(url, cached.hash, cached.charset, null, fetch);
+		} else {
+			byte[] body = response.getBody();
+			String hash = Hashing.sha1().hashBytes(body).toString();
+			Entry current = new Entry(url, response.getEtag(), response.getLastModified(), hash,
+					response.getCharset(), body.length, System.currentTimeMillis());
+			if (cached != null && hash.equals(cached.hash)) {
+				unchanged.incrementAndGet();
+			} else {
+				downloaded.incrementAndGet();
+			}
+			store(current, cached, body);
+			ret = new Page(url, hash, response.getCharset(), body, fetch);
+		}
+		return ret;
+	}
+
+	/**
+	 * The second half of
+	 * {@link #get(String, ConditionalFetch, BodyParser, UnaryOperator)}.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T parse(Page page, BodyParser<T> parser, UnaryOperator<T> copy) throws IOException {
+		T ret;
+		Parsed last = parsed.getIfPresent(page.url);
+		if (last != null && last.hash.equals(page.hash)) {
+			ret = copy.apply((T) last.value);
+		} else {
+			byte[] body = page.body == null ? readBody(page.url) : page.body;
+			if (body == null) {
+				// the page is gone from disk, download it in full
+				remove(page.url);
+				ret = parse(fetch(page.url, page.fetch), parser, copy);
+			} else {
+				ret = parser.parse(body, page.charset);
+				parses.incrementAndGet();
+				parsed.put(page.url, new Parsed(page.hash, ret));
+				ret = copy.apply(ret);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * GETs with Jsoup, the way the scraping DAOs always have, sending the
+	 * validators. Anything but a 2xx or a 304 is reported as an
+	 * {@link HttpStatusException}, so throttling still reaches the
+	 * {@link CircuitBreaker}.
+	 */
+	public static ConditionalFetch jsoup(int timeoutMillis) {
+		return (url, etag, lastModified) -> {
+			Connection connection = Jsoup.connect(url)
+					.header("Accept-Encoding", "gzip, deflate")
+					.userAgent(PooledHttpClient.USER_AGENT)
+					.maxBodySize(0)
+					.timeout(timeoutMillis)
+					.ignoreHttpErrors(true);
+			if (etag != null) {
+				connection.header("If-None-Match", etag);
+			}
+			if (lastModified != null) {
+				connection.header("If-Modified-Since", lastModified);
+			}
+			Connection.Response response = connection.execute();
+			int status = response.statusCode();
+			ConditionalResponse ret;
+			if (status == 304) {
+				ret = ConditionalResponse.notModified();
+			} else if (status < 200 || status >= 300) {
+				throw new HttpStatusException("HTTP error fetching URL", status, url);
+			} else {
+				ret = new ConditionalResponse(response.bodyAsBytes(), response.charset(), response.header("ETag"),
+						response.header("Last-Modified"));
+			}
+			return ret;
+		};
+	}
+
+	public long getNotModified() {
+		return notModified.get();
+	}
+
+	public long getUnchanged() {
+		return unchanged.get();
+	}
+
+	public long getDownloaded() {
+		return downloaded.get();
+	}
+
+	public long getParses() {
+		return parses.get();
+	}
+
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	public long getBytes() {
+		return bytes.get();
+	}
+
+	private Entry lookup(String url) {
+		Entry ret = entries.get(url);
+		if (ret != null && System.currentTimeMillis() - ret.lastUsedMillis >= ttlMillis) {
+			remove(url);
+			evictions.incrementAndGet();
+			ret = null;
+		}
+		return ret;
+	}
+
+	private void touch(Entry entry) {
+		entry.lastUsedMillis = System.currentTimeMillis();
+		if (directory != null) {
+			bodyFile(entry.url).setLastModified(entry.lastUsedMillis);
+		}
+	}
+
+	private void store(Entry entry, Entry cached, byte[] body) {
+		if (directory != null) {
+			try {
+				if (cached == null || !cached.hash.equals(entry.hash)) {
+					write(bodyFile(entry.url), body);
+				}
+				Properties meta = new Properties();
+				meta.setProperty("url", entry.url);
+				meta.setProperty("hash", entry.hash);
+				if (entry.etag != null) {
+					meta.setProperty("etag", entry.etag);
+				}
+				if (entry.lastModified != null) {
+					meta.setProperty("lastModified", entry.lastModified);
+				}
+				if (entry.charset != null) {
+					meta.setProperty("charset", entry.charset);
+				}
+				File metaFile = metaFile(entry.url);
+				File temporary = new File(directory, metaFile.getName() + ".tmp");
+				try (OutputStream out = new FileOutputStream(temporary)) {
+					meta.store(out, null);
+				}
+				Files.move(temporary.toPath(), metaFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+				Entry replaced = entries.put(entry.url, entry);
+				bytes.addAndGet(entry.size - (replaced == null ? 0 : replaced.size));
+				evict();
+			} catch (IOException e) {
+				log.error("cannot cache " + entry.url + ": " + e.getMessage());
+			}
+		}
+	}
+
+	private void write(File file, byte[] body) throws IOException {
+		File temporary = new File(directory, file.getName() + ".tmp");
+		try (OutputStream out = new FileOutputStream(temporary)) {
+			out.write(body);
+		}
+		// a reader never sees half a page
+		Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private byte[] readBody(String url) {
+		byte[] ret = null;
+		if (directory != null) {
+			try {
+				ret = Files.readAllBytes(bodyFile(url).toPath());
+			} catch (IOException e) {
+				log.warn("cannot read the cached page of " + url + ": " + e.getMessage());
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Drops the least recently used pages until the disk tier fits.
+	 */
+	private synchronized void evict() {
+		if (bytes.get() > maximumBytes) {
+			List<Entry> byUse = new ArrayList<>(entries.values());
+			byUse.sort(Comparator.comparingLong(e -> e.lastUsedMillis));
+			for (int i = 0; i < byUse.size() && bytes.get() > maximumBytes; i++) {
+				remove(byUse.get(i).url);
+				evictions.incrementAndGet();
+			}
+		}
+	}
+
+	private void remove(String url) {
+		Entry removed = entries.remove(url);
+		if (removed != null) {
+			bytes.addAndGet(-removed.size);
+		}
+		if (directory != null) {
+			metaFile(url).delete();
+			bodyFile(url).delete();
+		}
+	}
+
+	/**
+	 * Rebuilds the index from the pages left by earlier runs.
+	 */
+	private void load() {
+		File[] metas = directory.listFiles((dir, name) -> name.endsWith(META));
+		if (metas != null) {
+			for (File metaFile : metas) {
+				Properties meta = new Properties();
+				try (InputStream in = new FileInputStream(metaFile)) {
+					meta.load(in);
+				} catch (IOException e) {
+					log.warn("cannot read cached page " + metaFile + ": " + e.getMessage());
+					continue;
+				}
+				String url = meta.getProperty("url");
+				File bodyFile = url == null ? null : bodyFile(url);
+				if (bodyFile == null || !bodyFile.exists()) {
+					metaFile.delete();
+					continue;
+				}
+				Entry entry = new Entry(url, meta.getProperty("etag"), meta.getProperty("lastModified"),
+						meta.getProperty("hash"), meta.getProperty("charset"), bodyFile.length(),
+						bodyFile.lastModified());
+				entries.put(url, entry);
+				bytes.addAndGet(entry.size);
+			}
+		}
+		evict();
+		log.info("http cache " + directory + " holds " + entries.size() + " pages, " + bytes + " bytes");
+	}
+
+	private File bodyFile(String url) {
+		return new File(directory, name(url) + BODY);
+	}
+
+	private File metaFile(String url) {
+		return new File(directory, name(url) + META);
+	}
+
+	private static String name(String url) {
+		return Hashing.sha1().hashString(url, StandardCharsets.UTF_8).toString();
+	}
+
+	/**
+	 * A fetched page, its body read from disk only if it has to be parsed.
+	 */
+	public static class Page {
+		private final String url;
+		private final String hash;
+		private final String charset;
+		private final byte[] body;
+		private final ConditionalFetch fetch;
+
+		private Page(String url, String hash, String charset, byte[] body, ConditionalFetch fetch) {
+			this.url = url;
+			this.hash = hash;
+			this.charset = charset;
+			this.body = body;
+			this.fetch = fetch;
+		}
+
+		public String getUrl() {
+			return url;
+		}
+
+		public String getHash() {
+			return hash;
+		}
+	}
+
+	private static class Entry {
+		private final String url;
+		private final String etag;
+		private final String lastModified;
+		private final String hash;
+		private final String charset;
+		private final long size;
+		private volatile long lastUsedMillis;
+
+		private Entry(String url, String etag, String lastModified, String hash, String charset, long size,
+				long lastUsedMillis) {
+			this.url = url;
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.hash = hash;
+			this.charset = charset;
+			this.size = size;
+			this.lastUsedMillis = lastUsedMillis;
+		}
+	}
+
+	private static class Parsed {
+		private final String hash;
+		private final Object value;
+
+		private Parsed(String hash, Object value) {
+			this.hash = hash;
+			this.value = value;
+		}
+	}
+}
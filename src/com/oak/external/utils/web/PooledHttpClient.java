@@ -0,0 +1,147 @@
+package com.oak.external.utils.web;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * One HTTP client shared by the downloaders of a service: connections are
+ * pooled and kept alive between requests instead of being opened per
+ * ticker. Bodies are handed to the caller as a stream, already gunzipped,
+ * so they can be decoded without ever being held as a whole string.
+ */
+public class PooledHttpClient {
+
+	public interface ResponseReader<T> {
+		T read(InputStream body) throws IOException;
+	}
+
+	public static final String USER_AGENT = "Mozilla/5.0 (Windows NT 6.1; WOW64; rv:23.0) Gecko/20100101 Firefox/23.0";
+
+	private final PoolingHttpClientConnectionManager connectionManager;
+	private final CloseableHttpClient client;
+	private final Logger log;
+
+	public PooledHttpClient(int maxConnections, int connectTimeoutMillis, int socketTimeoutMillis, Logger log) {
+		this.log = log;
+		this.connectionManager = new PoolingHttpClientConnectionManager(60, TimeUnit.SECONDS);
+		this.connectionManager.setMaxTotal(maxConnections);
+		this.connectionManager.setDefaultMaxPerRoute(maxConnections);
+		RequestConfig requestConfig = RequestConfig.custom()
+				.setConnectTimeout(connectTimeoutMillis)
+				.setConnectionRequestTimeout(socketTimeoutMillis)
+				.setSocketTimeout(socketTimeoutMillis)
+				.build();
+		this.client = HttpClients.custom()
+				.setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(requestConfig)
+				.setUserAgent(USER_AGENT)
+				.evictIdleConnections(30, TimeUnit.SECONDS)
+				.build();
+	}
+
+	/**
+	 * GETs the url and hands the body to the reader. Anything but a 2xx is
+	 * reported as an {@link HttpResponseException} carrying the status code.
+	 * The body is always consumed so the connection goes back to the pool.
+	 */
+	public <T> T get(String url, ResponseReader<T> reader) throws IOException {
+		HttpGet get = new HttpGet(url);
+		try (CloseableHttpResponse response = client.execute(get)) {
+			int status = response.getStatusLine().getStatusCode();
+			HttpEntity entity = response.getEntity();
+			try {
+				if (status < 200 || status >= 300) {
+					throw new HttpResponseException(status,
+							"Server returned HTTP response code: " + status + " for URL: " + url);
+				}
+				if (entity == null) {
+					throw new IOException("empty response from " + url);
+				}
+				try (InputStream body = entity.getContent()) {
+					T ret = reader.read(body);
+					return ret;
+				}
+			} finally {
+				if (entity != null) {
+					// drain what the reader left so the connection can be reused
+					EntityUtils.consumeQuietly(entity);
+				}
+			}
+		}
+	}
+
+	/**
+	 * GETs the url with the validators of a cached copy, for a
+	 * {@link HttpResponseCache}. Errors are reported as by
+	 * {@link #get(String, ResponseReader)}.
+	 */
+	public ConditionalResponse getConditional(String url, String etag, String lastModified) throws IOException {
+		HttpGet get = new HttpGet(url);
+		if (etag != null) {
+			get.setHeader(HttpHeaders.IF_NONE_MATCH, etag);
+		}
+		if (lastModified != null) {
+			get.setHeader(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+		}
+		try (CloseableHttpResponse response = client.execute(get)) {
+			int status = response.getStatusLine().getStatusCode();
+			HttpEntity entity = response.getEntity();
+			try {
+				ConditionalResponse ret;
+				if (status == HttpStatus.SC_NOT_MODIFIED) {
+					ret = ConditionalResponse.notModified();
+				} else if (status < 200 || status >= 300) {
+					throw new HttpResponseException(status,
+							"Server returned HTTP response code: " + status + " for URL: " + url);
+				} else if (entity == null) {
+					throw new IOException("empty response from " + url);
+				} else {
+					Charset charset = ContentType.getOrDefault(entity).getCharset();
+					ret = new ConditionalResponse(EntityUtils.toByteArray(entity),
+							charset == null ? null : charset.name(), header(response, HttpHeaders.ETAG),
+							header(response, HttpHeaders.LAST_MODIFIED));
+				}
+				return ret;
+			} finally {
+				if (entity != null) {
+					EntityUtils.consumeQuietly(entity);
+				}
+			}
+		}
+	}
+
+	private static String header(CloseableHttpResponse response, String name) {
+		Header header = response.getFirstHeader(name);
+		String ret = header == null ? null : header.getValue();
+		return ret;
+	}
+
+	public int getLeasedConnections() {
+		return connectionManager.getTotalStats().getLeased();
+	}
+
+	public void shutdown() {
+		try {
+			client.close();
+		} catch (IOException e) {
+			log.warn("error closing the http client: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package com.oak.external.utils.web.replay;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A recorded response: its status, the headers worth replaying and the
+ * body, already decompressed.
+ */
+public class Fixture {
+	private final int status;
+	private final Map<String, List<String>> headers;
+	private final byte[] body;
+
+	public Fixture(int status, Map<String, List<String>> headers, byte[] body) {
+		this.status = status;
+		this.headers = Collections.unmodifiableMap(new LinkedHashMap<>(headers));
+		this.body = body;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public Map<String, List<String>> getHeaders() {
+		return headers;
+	}
+
+	public byte[] getBody() {
+		return body;
+	}
+}
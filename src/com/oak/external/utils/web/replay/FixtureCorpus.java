@@ -0,0 +1,158 @@
+package com.oak.external.utils.web.replay;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * The responses a {@link FixtureServer} recorded, one file per request in a
+ * directory. A request is identified by its target, the path and query the
+ * server received, less the query parameters that change from one session
+ * to the next (a crumb for instance). A file is readable as is: the
+ * request, the status and the headers on their own lines, a blank line and
+ * the body.
+ */
+public class FixtureCorpus {
+	private static final String EXTENSION = ".fixture";
+
+	private final File directory;
+	private final Set<String> ignoredParameters;
+	private final Map<String, Fixture> loaded = new ConcurrentHashMap<>();
+	private final Logger log;
+
+	/**
+	 * @param ignoredParameters
+	 *            query parameters left out of the request identity
+	 */
+	public FixtureCorpus(File directory, Set<String> ignoredParameters, Logger log) {
+		this.directory = directory;
+		this.ignoredParameters = ignoredParameters;
+		this.log = log;
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			log.error("cannot create the fixture directory " + directory);
+		}
+	}
+
+	/**
+	 * The fixture recorded for the target, null if there is none. Fixtures
+	 * are read from disk once and then served from memory.
+	 */
+	public Fixture find(String target) throws IOException {
+		String key = key(target);
+		Fixture ret = loaded.get(key);
+		if (ret == null) {
+			File file = file(key);
+			if (file.exists()) {
+				ret = read(file);
+				loaded.put(key, ret);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Records the fixture of the target, replacing any earlier one.
+	 */
+	public void save(String target, Fixture fixture) throws IOException {
+		String key = key(target);
+		File file = file(key);
+		File temporary = new File(directory, file.getName() + ".tmp");
+		try (OutputStream out = new FileOutputStream(temporary)) {
+			StringBuilder head = new StringBuilder();
+			head.append("GET ").append(key).append('\n');
+			head.append(fixture.getStatus()).append('\n');
+			for (Map.Entry<String, List<String>> header : fixture.getHeaders().entrySet()) {
+				for (String value : header.getValue()) {
+					head.append(header.getKey()).append(": ").append(value).append('\n');
+				}
+			}
+			head.append('\n');
+			out.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+			out.write(fixture.getBody());
+		}
+		// a replay running at the same time never sees half a file
+		Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		loaded.put(key, fixture);
+		log.debug("recorded " + key + " in " + file.getName());
+	}
+
+	public int size() {
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+		int ret = files == null ? 0 : files.length;
+		return ret;
+	}
+
+	/**
+	 * The target less its ignored query parameters.
+	 */
+	String key(String target) {
+		String ret = target;
+		int question = target.indexOf('?');
+		if (question >= 0 && !ignoredParameters.isEmpty()) {
+			StringBuilder kept = new StringBuilder();
+			for (String parameter : target.substring(question + 1).split("&")) {
+				int equals = parameter.indexOf('=');
+				String name = equals < 0 ? parameter : parameter.substring(0, equals);
+				if (!ignoredParameters.contains(name)) {
+					kept.append(kept.length() == 0 ? "" : "&").append(parameter);
+				}
+			}
+			ret = target.substring(0, question) + (kept.length() == 0 ? "" : "?" + kept);
+		}
+		return ret;
+	}
+
+	private File file(String key) {
+		String name = Hashing.sha1().hashString(key, StandardCharsets.UTF_8).toString();
+		return new File(directory, name + EXTENSION);
+	}
+
+	private Fixture read(File file) throws IOException {
+		byte[] content = Files.readAllBytes(file.toPath());
+		List<String> lines = new ArrayList<>();
+		int position = 0;
+		while (true) {
+			int end = position;
+			while (end < content.length && content[end] != '\n') {
+				end++;
+			}
+			if (end == content.length) {
+				throw new IOException(file + " is not a fixture, its head never ends");
+			}
+			String line = new String(content, position, end - position, StandardCharsets.ISO_8859_1);
+			position = end + 1;
+			if (line.isEmpty()) {
+				break;
+			}
+			lines.add(line);
+		}
+		if (lines.size() < 2) {
+			throw new IOException(file + " is not a fixture, it has no status");
+		}
+		Map<String, List<String>> headers = new LinkedHashMap<>();
+		for (String header : lines.subList(2, lines.size())) {
+			int colon = header.indexOf(": ");
+			headers.computeIfAbsent(header.substring(0, colon), h -> new ArrayList<>())
+					.add(header.substring(colon + 2));
+		}
+		byte[] body = new byte[content.length - position];
+		System.arraycopy(content, position, body, 0, body.length);
+		Fixture ret = new Fixture(Integer.parseInt(lines.get(1)), headers, body);
+		return ret;
+	}
+}
@@ -0,0 +1,317 @@
+package com.oak.external.utils.web.replay;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.oak.external.utils.web.PooledHttpClient;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local stand-in for the Yahoo servers. The host of the live url is the
+ * first segment of the path: a client configured with
+ * http://localhost:8999/query1.finance.yahoo.com/v10/finance/quoteSummary/
+ * instead of https://query1.finance.yahoo.com/v10/finance/quoteSummary/
+ * talks to this server, which either
+ * <ul>
+ * <li>records: forwards the request to the live host and saves the response
+ * in its {@link FixtureCorpus} before passing it on, or</li>
+ * <li>replays: answers from the corpus, with the latency, errors and
+ * concurrency limit of its {@link ReplayPolicy}, and 404 for requests never
+ * recorded.</li>
+ * </ul>
+ * Run it with --mode=record|replay --directory=... and optionally --port,
+ * --scheme (of the live hosts), --latency, --jitter, --throttle, --errors,
+ * --concurrency and --ignore (comma separated query parameters).
+ */
+public class FixtureServer {
+	public static final int THROTTLED = 999;
+
+	// the transport of the original response, not something to replay
+	private static final Set<String> SKIPPED_HEADERS = new HashSet<>(
+			Arrays.asList("transfer-encoding", "content-length", "content-encoding", "connection", "keep-alive"));
+
+	private final HttpServer server;
+	private final HttpHandler handler;
+	private final ExecutorService executor;
+	private final AtomicLong served = new AtomicLong();
+	private final AtomicLong throttled = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final AtomicLong missing = new AtomicLong();
+	private final Logger log;
+
+	private FixtureServer(int port, HttpHandler handler, Logger log) throws IOException {
+		this.log = log;
+		this.handler = handler;
+		this.server = HttpServer.create(new InetSocketAddress("localhost", port), 256);
+		this.executor = Executors.newCachedThreadPool(
+				new ThreadFactoryBuilder().setNameFormat("fixture-server-%d").setDaemon(true).build());
+		server.createContext("/", handler);
+		server.setExecutor(executor);
+	}
+
+	/**
+	 * @param port
+	 *            0 for any free port
+	 */
+	public static FixtureServer replaying(int port, FixtureCorpus corpus, ReplayPolicy policy, Logger log)
+			throws IOException {
+		Replayer replayer = new Replayer(corpus, policy);
+		FixtureServer ret = new FixtureServer(port, replayer, log);
+		replayer.server = ret;
+		return ret;
+	}
+
+	/**
+	 * @param scheme
+	 *            of the live hosts, http or https
+	 */
+	public static FixtureServer recording(int port, FixtureCorpus corpus, String scheme, Logger log)
+			throws IOException {
+		Recorder recorder = new Recorder(corpus, scheme);
+		FixtureServer ret = new FixtureServer(port, recorder, log);
+		recorder.server = ret;
+		return ret;
+	}
+
+	public void start() {
+		server.start();
+		log.info("fixture server listening on " + getBaseUrl());
+	}
+
+	public void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+		if (handler instanceof Closeable) {
+			try {
+				((Closeable) handler).close();
+			} catch (IOException e) {
+				log.warn("error closing the fixture server: " + e.getMessage());
+			}
+		}
+		log.info("fixture server stopped, served " + served + ", throttled " + throttled + ", failed " + failed
+				+ ", missing " + missing);
+	}
+
+	/**
+	 * Where to point the clients, followed by the live host and path.
+	 */
+	public String getBaseUrl() {
+		return "http://localhost:" + server.getAddress().getPort() + "/";
+	}
+
+	public long getServed() {
+		return served.get();
+	}
+
+	public long getThrottled() {
+		return throttled.get();
+	}
+
+	public long getFailed() {
+		return failed.get();
+	}
+
+	public long getMissing() {
+		return missing.get();
+	}
+
+	private void respond(HttpExchange exchange, int status, Map<String, List<String>> headers, byte[] body)
+			throws IOException {
+		exchange.getResponseHeaders().putAll(headers);
+		exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	private void refuse(HttpExchange exchange, int status) throws IOException {
+		respond(exchange, status, new HashMap<>(), new byte[0]);
+	}
+
+	private static String target(HttpExchange exchange) {
+		String query = exchange.getRequestURI().getRawQuery();
+		return exchange.getRequestURI().getRawPath() + (query == null ? "" : "?" + query);
+	}
+
+	private static class Replayer implements HttpHandler {
+		private final FixtureCorpus corpus;
+		private final ReplayPolicy policy;
+		private final Semaphore inFlight;
+		private FixtureServer server;
+
+		Replayer(FixtureCorpus corpus, ReplayPolicy policy) {
+			this.corpus = corpus;
+			this.policy = policy;
+			this.inFlight = new Semaphore(policy.getMaxConcurrency());
+		}
+
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			try {
+				if (!inFlight.tryAcquire()) {
+					server.throttled.incrementAndGet();
+					server.refuse(exchange, THROTTLED);
+				} else {
+					try {
+						replay(exchange);
+					} finally {
+						inFlight.release();
+					}
+				}
+			} finally {
+				exchange.close();
+			}
+		}
+
+		private void replay(HttpExchange exchange) throws IOException {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			long latency = policy.getLatencyMillis()
+					+ (policy.getLatencyJitterMillis() > 0 ? random.nextLong(policy.getLatencyJitterMillis() + 1) : 0);
+			if (latency > 0) {
+				try {
+					TimeUnit.MILLISECONDS.sleep(latency);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			double draw = random.nextDouble();
+			if (draw < policy.getThrottleRate()) {
+				server.throttled.incrementAndGet();
+				server.refuse(exchange, THROTTLED);
+			} else if (draw < policy.getThrottleRate() + policy.getErrorRate()) {
+				server.failed.incrementAndGet();
+				server.refuse(exchange, 500);
+			} else {
+				Fixture fixture = corpus.find(target(exchange));
+				if (fixture == null) {
+					server.missing.incrementAndGet();
+					server.log.warn("no fixture for " + target(exchange));
+					server.refuse(exchange, 404);
+				} else {
+					server.served.incrementAndGet();
+					server.respond(exchange, fixture.getStatus(), fixture.getHeaders(), fixture.getBody());
+				}
+			}
+		}
+	}
+
+	private static class Recorder implements HttpHandler, Closeable {
+		private final FixtureCorpus corpus;
+		private final String scheme;
+		private final CloseableHttpClient client;
+		private FixtureServer server;
+
+		Recorder(FixtureCorpus corpus, String scheme) {
+			this.corpus = corpus;
+			this.scheme = scheme;
+			this.client = HttpClients.custom().setUserAgent(PooledHttpClient.USER_AGENT).build();
+		}
+
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			try {
+				String target = target(exchange);
+				if (!"GET".equals(exchange.getRequestMethod())) {
+					server.refuse(exchange, 405);
+				} else if (target.indexOf('/', 1) < 0) {
+					server.missing.incrementAndGet();
+					server.refuse(exchange, 404);
+				} else {
+					Fixture fixture = fetch(scheme + "://" + target.substring(1));
+					corpus.save(target, fixture);
+					server.served.incrementAndGet();
+					server.respond(exchange, fixture.getStatus(), fixture.getHeaders(), fixture.getBody());
+				}
+			} catch (IOException e) {
+				server.failed.incrementAndGet();
+				server.log.error("cannot record " + target(exchange) + ": " + e.getMessage());
+				server.refuse(exchange, 502);
+			} finally {
+				exchange.close();
+			}
+		}
+
+		private Fixture fetch(String url) throws IOException {
+			try (CloseableHttpResponse response = client.execute(new HttpGet(url))) {
+				Map<String, List<String>> headers = new LinkedHashMap<>();
+				for (Header header : response.getAllHeaders()) {
+					if (!SKIPPED_HEADERS.contains(header.getName().toLowerCase())) {
+						headers.computeIfAbsent(header.getName(), h -> new ArrayList<>()).add(header.getValue());
+					}
+				}
+				HttpEntity entity = response.getEntity();
+				byte[] body = entity == null ? new byte[0] : EntityUtils.toByteArray(entity);
+				Fixture ret = new Fixture(response.getStatusLine().getStatusCode(), headers, body);
+				return ret;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			client.close();
+		}
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		Map<String, String> options = new HashMap<>();
+		for (String arg : args) {
+			int equals = arg.indexOf('=');
+			if (!arg.startsWith("--") || equals < 0) {
+				throw new IllegalArgumentException("options are --name=value, not " + arg);
+			}
+			options.put(arg.substring(2, equals), arg.substring(equals + 1));
+		}
+		Logger log = LogManager.getLogger(FixtureServer.class);
+		Set<String> ignored = new HashSet<>(Arrays.asList(options.getOrDefault("ignore", "crumb").split(",")));
+		FixtureCorpus corpus = new FixtureCorpus(new File(options.getOrDefault("directory", "fixtures")), ignored,
+				LogManager.getLogger(FixtureCorpus.class));
+		int port = Integer.parseInt(options.getOrDefault("port", "8999"));
+		FixtureServer server;
+		if ("record".equals(options.get("mode"))) {
+			server = recording(port, corpus, options.getOrDefault("scheme", "https"), log);
+		} else if ("replay".equals(options.get("mode"))) {
+			ReplayPolicy policy = new ReplayPolicy(Long.parseLong(options.getOrDefault("latency", "0")),
+					Long.parseLong(options.getOrDefault("jitter", "0")),
+					Double.parseDouble(options.getOrDefault("throttle", "0")),
+					Double.parseDouble(options.getOrDefault("errors", "0")),
+					Integer.parseInt(options.getOrDefault("concurrency", String.valueOf(Integer.MAX_VALUE))));
+			log.info("replaying " + corpus.size() + " fixtures with " + policy);
+			server = replaying(port, corpus, policy, log);
+		} else {
+			throw new IllegalArgumentException("--mode=record or --mode=replay");
+		}
+		Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+		server.start();
+		Thread.currentThread().join();
+	}
+}
@@ -0,0 +1,69 @@
+package com.oak.external.utils.web.replay;
+
+/**
+ * How a replaying {@link FixtureServer} misbehaves: every response waits
+ * for the latency plus up to the jitter, a share of the requests is
+ * throttled with HTTP 999 the way Yahoo does, another share fails with
+ * HTTP 500, and requests beyond the concurrency limit are throttled
+ * straight away.
+ */
+public class ReplayPolicy {
+	private final long latencyMillis;
+	private final long latencyJitterMillis;
+	private final double throttleRate;
+	private final double errorRate;
+	private final int maxConcurrency;
+
+	/**
+	 * @param throttleRate
+	 *            and errorRate, between 0 and 1
+	 * @param maxConcurrency
+	 *            requests served at once
+	 */
+	public ReplayPolicy(long latencyMillis, long latencyJitterMillis, double throttleRate, double errorRate,
+			int maxConcurrency) {
+		if (throttleRate < 0 || errorRate < 0 || throttleRate + errorRate > 1) {
+			throw new IllegalArgumentException(
+					"throttle rate " + throttleRate + " and error rate " + errorRate + " are not shares of requests");
+		}
+		this.latencyMillis = latencyMillis;
+		this.latencyJitterMillis = latencyJitterMillis;
+		this.throttleRate = throttleRate;
+		this.errorRate = errorRate;
+		this.maxConcurrency = maxConcurrency;
+	}
+
+	/**
+	 * Every recorded response, at once, to any number of clients.
+	 */
+	public static ReplayPolicy faithful() {
+		return new ReplayPolicy(0, 0, 0, 0, Integer.MAX_VALUE);
+	}
+
+	public long getLatencyMillis() {
+		return latencyMillis;
+	}
+
+	public long getLatencyJitterMillis() {
+		return latencyJitterMillis;
+	}
+
+	public double getThrottleRate() {
+		return throttleRate;
+	}
+
+	public double getErrorRate() {
+		return errorRate;
+	}
+
+	public int getMaxConcurrency() {
+		return maxConcurrency;
+	}
+
+	@Override
+	public String toString() {
+		return "ReplayPolicy [latencyMillis=" + latencyMillis + ", latencyJitterMillis=" + latencyJitterMillis
+				+ ", throttleRate=" + throttleRate + ", errorRate=" + errorRate + ", maxConcurrency="
+				+ maxConcurrency + "]";
+	}
+}
@@ -0,0 +1,78 @@
+package com.oak.finance.app.backtest;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import com.oak.finance.app.screeners.Filter;
+
+/**
+ * A stock a filter selected on a run date, with its returns over each
+ * horizon of the backtest. A return is NaN when the quote history does not
+ * reach that far.
+ */
+public class BacktestResult {
+	private final Filter filter;
+	private final LocalDate runDate;
+	private final String ticker;
+	private final LocalDate entryDate;
+	private final double entryPrice;
+	private final int[] horizons;
+	private final double[] forwardReturns;
+
+	public BacktestResult(Filter filter, LocalDate runDate, String ticker, LocalDate entryDate, double entryPrice,
+			int[] horizons, double[] forwardReturns) {
+		this.filter = filter;
+		this.runDate = runDate;
+		this.ticker = ticker;
+		this.entryDate = entryDate;
+		this.entryPrice = entryPrice;
+		this.horizons = horizons;
+		this.forwardReturns = forwardReturns;
+	}
+
+	public Filter getFilter() {
+		return filter;
+	}
+
+	public LocalDate getRunDate() {
+		return runDate;
+	}
+
+	public String getTicker() {
+		return ticker;
+	}
+
+	/**
+	 * The first trading day on or after the run date, null when the ticker
+	 * has no quote from then on.
+	 */
+	public LocalDate getEntryDate() {
+		return entryDate;
+	}
+
+	public double getEntryPrice() {
+		return entryPrice;
+	}
+
+	/**
+	 * The horizons in trading days, in the order of the returns.
+	 */
+	public int[] getHorizons() {
+		return horizons;
+	}
+
+	/**
+	 * The return over the horizon at index, as a fraction of the entry
+	 * price.
+	 */
+	public double getForwardReturn(int index) {
+		return forwardReturns[index];
+	}
+
+	@Override
+	public String toString() {
+		return "BacktestResult [runDate=" + runDate + ", ticker=" + ticker + ", entryDate=" + entryDate
+				+ ", entryPrice=" + entryPrice + ", horizons=" + Arrays.toString(horizons) + ", forwardReturns="
+				+ Arrays.toString(forwardReturns) + "]";
+	}
+}
@@ -0,0 +1,105 @@
+package com.oak.finance.app.backtest;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import com.oak.finance.app.screeners.Filter;
+
+/**
+ * A sink of the {@link Backtester} keeping, per filter and horizon, only
+ * the number of selections priced, the sum of their returns and how many
+ * were positive. Safe to feed from several threads.
+ */
+public class BacktestSummary implements Consumer<BacktestResult> {
+	private final int[] horizonDays;
+	private final int horizons;
+	private final Map<Filter, Stats[]> stats = new ConcurrentHashMap<>();
+
+	/**
+	 * @param horizonDays
+	 *            the horizons of the backtest, in trading days
+	 */
+	public BacktestSummary(int[] horizonDays) {
+		this.horizonDays = horizonDays.clone();
+		this.horizons = horizonDays.length;
+	}
+
+	@Override
+	public void accept(BacktestResult result) {
+		Stats[] filterStats = stats.computeIfAbsent(result.getFilter(), f -> newStats());
+		for (int h = 0; h < horizons; h++) {
+			double r = result.getForwardReturn(h);
+			if (!Double.isNaN(r)) {
+				filterStats[h].count.increment();
+				filterStats[h].sum.add(r);
+				if (r > 0) {
+					filterStats[h].positive.increment();
+				}
+			}
+		}
+	}
+
+	/**
+	 * How many selections of the filter could be priced at the horizon.
+	 */
+	public long getCount(Filter filter, int horizon) {
+		Stats[] filterStats = stats.get(filter);
+		return filterStats == null ? 0 : filterStats[horizon].count.sum();
+	}
+
+	/**
+	 * The mean return of the filter's selections at the horizon, NaN when
+	 * none could be priced.
+	 */
+	public double getMeanReturn(Filter filter, int horizon) {
+		long count = getCount(filter, horizon);
+		return count == 0 ? Double.NaN : stats.get(filter)[horizon].sum.sum() / count;
+	}
+
+	/**
+	 * The fraction of the filter's selections with a positive return at the
+	 * horizon, NaN when none could be priced.
+	 */
+	public double getHitRate(Filter filter, int horizon) {
+		long count = getCount(filter, horizon);
+		return count == 0 ? Double.NaN : (double) stats.get(filter)[horizon].positive.sum() / count;
+	}
+
+	public Set<Filter> getFilters() {
+		return Collections.unmodifiableSet(stats.keySet());
+	}
+
+	/**
+	 * One line per filter and horizon.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder ret = new StringBuilder();
+		for (Filter filter : stats.keySet()) {
+			for (int h = 0; h < horizons; h++) {
+				ret.append(String.format("%s %d days: %d selections, mean return %.4f, hit rate %.4f%n", filter,
+						horizonDays[h], getCount(filter, h), getMeanReturn(filter, h), getHitRate(filter, h)));
+			}
+		}
+		return ret.toString();
+	}
+
+	private Stats[] newStats() {
+		Stats[] ret = new Stats[horizons];
+		for (int h = 0; h < horizons; h++) {
+			ret[h] = new Stats();
+		}
+		return ret;
+	}
+
+	private static class Stats {
+		final LongAdder count = new LongAdder();
+		final DoubleAdder sum = new DoubleAdder();
+		final LongAdder positive = new LongAdder();
+	}
+}
@@ -0,0 +1,208 @@
+package com.oak.finance.app.backtest;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.collect.Lists;
+
+import com.oak.api.finance.repository.FilterRepository;
+import com.oak.api.finance.repository.MappedQuoteStore;
+import com.oak.api.finance.repository.QuoteSeries;
+import com.oak.api.finance.repository.Screen0ResultsRepository;
+import com.oak.finance.app.screeners.CompiledFilter;
+import com.oak.finance.app.screeners.Filter;
+import com.oak.finance.app.screeners.ScreeningColumns;
+
+/**
+ * Replays filters over point in time snapshots and measures how the stocks
+ * they selected did afterwards, from the quotes of the
+ * {@link MappedQuoteStore}. Run dates are split among the workers of a fork
+ * join pool, and every selected stock is handed to the sink as soon as its
+ * returns are known, possibly from several threads at once, so nothing but
+ * the quote series of the universe is held in memory.
+ * <p>
+ * The stored snapshots only hold what screen0 selected (see
+ * {@link PointInTimeSnapshot#fromScreenResults}), so a replayed filter can
+ * only pick among past screen0 picks: its returns are those of a subset of
+ * them, not of the filter over the whole market of the day.
+ */
+public class Backtester {
+	private static final int RUN_DAYS_PER_WORKER = 4;
+
+	private final MappedQuoteStore quoteStore;
+	private final FilterRepository filterRepository;
+	private final Screen0ResultsRepository resultsRepository;
+	private final Set<String> acceptedCurrencies;
+	private final int[] horizons;
+	private final ForkJoinPool pool;
+	private final Logger log;
+
+	/**
+	 * @param filterRepository
+	 *            and resultsRepository, only needed to
+	 *            {@link #runStoredScreens(Consumer) replay what is stored}
+	 * @param horizons
+	 *            trading days after the entry the returns are measured at
+	 */
+	public Backtester(MappedQuoteStore quoteStore, FilterRepository filterRepository,
+			Screen0ResultsRepository resultsRepository, Set<String> acceptedCurrencies, int[] horizons,
+			ForkJoinPool pool, Logger log) {
+		this.quoteStore = quoteStore;
+		this.filterRepository = filterRepository;
+		this.resultsRepository = resultsRepository;
+		this.acceptedCurrencies = acceptedCurrencies;
+		this.horizons = horizons.clone();
+		this.pool = pool;
+		this.log = log;
+	}
+
+	/**
+	 * Replays every stored filter over the days screen results were recorded
+	 * on. The results are read a page of run days at a time, enough days to
+	 * keep every worker of the pool busy, so only the snapshots of a page
+	 * are in memory at once.
+	 */
+	public void runStoredScreens(Consumer<BacktestResult> sink) {
+		List<Filter> filters = new ArrayList<>();
+		filterRepository.findAll().forEach(filters::add);
+		List<CompiledFilter> compiled = compile(filters);
+		Map<LocalDate, List<Date>> runDatesPerDay = new TreeMap<>();
+		for (Date runDate : resultsRepository.findRunDates()) {
+			runDatesPerDay.computeIfAbsent(PointInTimeSnapshot.day(runDate), d -> new ArrayList<>()).add(runDate);
+		}
+		log.info("backtesting " + filters.size() + " stored filters over " + runDatesPerDay.size() + " run days");
+		Map<String, QuoteSeries> series = new ConcurrentHashMap<>();
+		List<List<Date>> days = new ArrayList<>(runDatesPerDay.values());
+		for (List<List<Date>> page : Lists.partition(days, pool.getParallelism() * RUN_DAYS_PER_WORKER)) {
+			List<Date> runDates = new ArrayList<>();
+			page.forEach(runDates::addAll);
+			List<PointInTimeSnapshot> snapshots = PointInTimeSnapshot
+					.fromScreenResults(resultsRepository.findByRunDateIn(runDates), acceptedCurrencies);
+			pool.invoke(new RunDates(compiled, snapshots, 0, snapshots.size(), series, sink));
+		}
+		log.info("backtest done, " + series.size() + " tickers priced");
+	}
+
+	/**
+	 * In trading days.
+	 */
+	public int[] getHorizons() {
+		return horizons.clone();
+	}
+
+	/**
+	 * Returns once every filter has been replayed over every snapshot.
+	 */
+	public void run(List<Filter> filters, List<PointInTimeSnapshot> snapshots, Consumer<BacktestResult> sink) {
+		log.info("backtesting " + filters.size() + " filters over " + snapshots.size() + " run dates");
+		List<CompiledFilter> compiled = compile(filters);
+		Map<String, QuoteSeries> series = new ConcurrentHashMap<>();
+		pool.invoke(new RunDates(compiled, snapshots, 0, snapshots.size(), series, sink));
+		log.info("backtest done, " + series.size() + " tickers priced");
+	}
+
+	private static List<CompiledFilter> compile(List<Filter> filters) {
+		List<CompiledFilter> ret = new ArrayList<>(filters.size());
+		for (Filter filter : filters) {
+			ret.add(CompiledFilter.compile(filter));
+		}
+		return ret;
+	}
+
+	private void runDate(List<CompiledFilter> filters, PointInTimeSnapshot snapshot, Map<String, QuoteSeries> series,
+			Consumer<BacktestResult> sink) {
+		ScreeningColumns columns = snapshot.getColumns();
+		int[] passing = new int[columns.size()];
+		for (CompiledFilter filter : filters) {
+			int count = filter.screen(columns, passing);
+			for (int p = 0; p < count; p++) {
+				String ticker = snapshot.getTickers().get(passing[p]);
+				sink.accept(forwardReturns(filter.getFilter(), snapshot, ticker, quotes(ticker, series)));
+			}
+		}
+	}
+
+	private BacktestResult forwardReturns(Filter filter, PointInTimeSnapshot snapshot, String ticker,
+			QuoteSeries quotes) {
+		double[] returns = new double[horizons.length];
+		int entry = quotes.firstOnOrAfter(snapshot.getRunDate());
+		double entryPrice = Double.NaN;
+		if (entry < quotes.size()) {
+			entryPrice = adjustedClose(quotes, entry);
+		}
+		for (int h = 0; h < horizons.length; h++) {
+			int exit = entry + horizons[h];
+			if (exit < quotes.size()) {
+				returns[h] = adjustedClose(quotes, exit) / entryPrice - 1;
+			} else {
+				returns[h] = Double.NaN;
+			}
+		}
+		BacktestResult ret = new BacktestResult(filter, snapshot.getRunDate(), ticker,
+				entry < quotes.size() ? quotes.getDate(entry) : null, entryPrice, horizons, returns);
+		return ret;
+	}
+
+	private QuoteSeries quotes(String ticker, Map<String, QuoteSeries> series) {
+		return series.computeIfAbsent(ticker, t -> {
+			try {
+				return quoteStore.read(t);
+			} catch (IOException e) {
+				log.error("cannot read the quotes of " + t + ": " + e.getMessage());
+				return QuoteSeries.empty(t);
+			}
+		});
+	}
+
+	private static double adjustedClose(QuoteSeries quotes, int i) {
+		double factor = quotes.getAdjustmentFactor(i);
+		double ret = quotes.getClose(i) * (Double.isNaN(factor) || factor <= 0 ? 1 : factor);
+		return ret;
+	}
+
+	/**
+	 * Halves its run dates until one is left to replay.
+	 */
+	private class RunDates extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final List<CompiledFilter> filters;
+		private final List<PointInTimeSnapshot> snapshots;
+		private final int from;
+		private final int to;
+		private final Map<String, QuoteSeries> series;
+		private final Consumer<BacktestResult> sink;
+
+		RunDates(List<CompiledFilter> filters, List<PointInTimeSnapshot> snapshots, int from, int to,
+				Map<String, QuoteSeries> series, Consumer<BacktestResult> sink) {
+			this.filters = filters;
+			this.snapshots = snapshots;
+			this.from = from;
+			this.to = to;
+			this.series = series;
+			this.sink = sink;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				runDate(filters, snapshots.get(from), series, sink);
+			} else if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new RunDates(filters, snapshots, from, middle, series, sink),
+						new RunDates(filters, snapshots, middle, to, series, sink));
+			}
+		}
+	}
+}
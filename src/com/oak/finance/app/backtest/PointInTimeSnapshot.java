@@ -0,0 +1,101 @@
+package com.oak.finance.app.backtest;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.oak.api.finance.model.Economic;
+import com.oak.api.finance.model.Stock;
+import com.oak.api.finance.model.dto.Screen0Result;
+import com.oak.finance.app.screeners.ScreeningColumns;
+
+/**
+ * The ratios of a universe of stocks as they were known on one run date,
+ * laid out for the screens. tickers.get(i) is the stock of row i of the
+ * columns.
+ */
+public class PointInTimeSnapshot {
+	private final LocalDate runDate;
+	private final List<String> tickers;
+	private final ScreeningColumns columns;
+
+	public PointInTimeSnapshot(LocalDate runDate, List<String> tickers, ScreeningColumns columns) {
+		this.runDate = runDate;
+		this.tickers = tickers;
+		this.columns = columns;
+	}
+
+	public LocalDate getRunDate() {
+		return runDate;
+	}
+
+	public List<String> getTickers() {
+		return tickers;
+	}
+
+	public ScreeningColumns getColumns() {
+		return columns;
+	}
+
+	/**
+	 * One snapshot per day the screen results were recorded, in date order.
+	 * A ticker recorded several times on a day, by several screens, is kept
+	 * once.
+	 * <p>
+	 * These are not the universe of the day: screen0_result only holds the
+	 * stocks that passed screen0, the others were never stored. A filter
+	 * replayed over them selects among screen0's picks, which biases its
+	 * backtest towards whatever screen0 favoured; a true point in time
+	 * universe needs the ratios of every stock saved on every run.
+	 */
+	public static List<PointInTimeSnapshot> fromScreenResults(Iterable<Screen0Result> results,
+			Set<String> acceptedCurrencies) {
+		Map<LocalDate, Map<String, Screen0Result>> resultsPerDay = new TreeMap<>();
+		for (Screen0Result r : results) {
+			if (r.getRunDate() != null && r.getTicker() != null) {
+				LocalDate day = day(r.getRunDate());
+				resultsPerDay.computeIfAbsent(day, d -> new TreeMap<>()).putIfAbsent(r.getTicker(), r);
+			}
+		}
+		List<PointInTimeSnapshot> ret = new ArrayList<>(resultsPerDay.size());
+		for (Map.Entry<LocalDate, Map<String, Screen0Result>> e : resultsPerDay.entrySet()) {
+			List<String> tickers = new ArrayList<>(e.getValue().size());
+			List<Stock> stocks = new ArrayList<>(e.getValue().size());
+			List<Economic> economics = new ArrayList<>(e.getValue().size());
+			for (Screen0Result r : e.getValue().values()) {
+				tickers.add(r.getTicker());
+				stocks.add(new Stock(r.getCompanyName(), r.getTicker(), r.getTicker(), r.getCompanyName(),
+						r.getExchangeCode(), r.getCurrency()));
+				economics.add(toEconomic(r));
+			}
+			ScreeningColumns columns = ScreeningColumns.of(stocks, economics, acceptedCurrencies);
+			ret.add(new PointInTimeSnapshot(e.getKey(), Collections.unmodifiableList(tickers), columns));
+		}
+		return ret;
+	}
+
+	static LocalDate day(Date runDate) {
+		return Instant.ofEpochMilli(runDate.getTime()).atZone(ZoneId.systemDefault()).toLocalDate();
+	}
+
+	/**
+	 * The screened ratios of the result, the price it was recorded at
+	 * standing for the ask.
+	 */
+	private static Economic toEconomic(Screen0Result r) {
+		Double ask = r.getPrice() == null ? r.getPriceBid() : r.getPrice();
+		Economic ret = new Economic(r.getRunDate(), r.getPriceBid(), null, ask, null, null, null, null, null, null,
+				null, null, null, null, null, null, null, null, null, null, null, null, null, null, r.getTicker(),
+				null, null, null, null, r.getEps(), r.getBookValuePerShare(), null, r.getEpsEstThisYear(),
+				r.getEpsEstNextQuarter(), r.getEpsEstNextYear(), r.getMarketCap(), r.getTargetPrice(), r.getPer(),
+				r.getPeg(), null, null, null, null, null, null, null, r.getDividendYield(), null, null, null);
+		return ret;
+	}
+}
@@ -17,7 +17,7 @@ public interface SymbolsDao {
 
 	Set<String> getSymbols();
 
-	void saveGoodValueStock(Stock stock, Map<Date, Economic> economics);
+	void saveGoodValueStock(String screenId, Stock stock, Map<Date, Economic> economics);
 
 	Set<String> getInterestingSymbols();
 
@@ -4,12 +4,10 @@ import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.time.LocalDate;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.time.temporal.TemporalAccessor;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
@@ -29,6 +27,7 @@ import com.oak.api.finance.model.dto.Screen0Result;
 import com.oak.external.utils.input.api.StreamProvider;
 import com.oak.external.utils.web.WebParsingUtils;
 import com.oak.finance.app.dao.SymbolsDao;
+import com.oak.finance.app.screeners.SreenerRegistry;
 
 public class SymbolsFileDao implements SymbolsDao {
 
@@ -90,6 +89,8 @@ public class SymbolsFileDao implements SymbolsDao {
 			ret.setMarketCap(parseDouble(t[13]));
 			ret.setDividendYield(parseDouble(t[14]));
 			ret.setTargetPrice(parseDouble(t[15]));
+			// results written before there were several screens all come from screen0
+			ret.setScreenId(t.length > 16 && !t[16].isEmpty() ? t[16] : SreenerRegistry.DEFAULT_SCREEN_ID);
 		} catch (Exception e) {
 			logger.error("error", e);
 		}
@@ -101,27 +102,33 @@ public class SymbolsFileDao implements SymbolsDao {
 		return d;
 	}
 
-	//03/06/2016 21:03
-	private SimpleDateFormat f = new SimpleDateFormat("dd/MM/yyyy hh:mm"); 
-	private DateTimeFormatter format = DateTimeFormatter.ofPattern("dd/MM/yyyy hh:mm");
+	//03/06/2016 21:03, older files have two digit years: 03/06/16 21:03
+	private static final DateTimeFormatter RUN_DATE_READ_FORMAT = DateTimeFormatter.ofPattern("d/M/y H:mm");
+	private static final DateTimeFormatter RUN_DATE_WRITE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
 	private java.sql.Date parseDate(String t) {
-		java.sql.Date valueOf; 
-	
-			try {
-				Date parse = f.parse(t);
-				if(parse.getYear() < 1) {
-					parse.setYear(2000+parse.getYear());
-				}
-				valueOf = new java.sql.Date(parse.getTime());
-			} catch (Exception e1) {
-				String message = "Cannot parse date from "+t;
-				logger.error(message,e1);
-				throw new RuntimeException(message,e1);
+		java.sql.Date valueOf;
+		try {
+			LocalDateTime parse = LocalDateTime.parse(t.trim(), RUN_DATE_READ_FORMAT);
+			if (parse.getYear() < 100) {
+				parse = parse.plusYears(2000);
 			}
-		
+			valueOf = new java.sql.Date(parse.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+		} catch (Exception e1) {
+			String message = "Cannot parse date from " + t;
+			logger.error(message, e1);
+			throw new RuntimeException(message, e1);
+		}
 		return valueOf;
 	}
 
+	private String formatDate(Date date) {
+		// java.sql.Date does not support toInstant()
+		LocalDateTime dateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(date.getTime()), ZoneId.systemDefault());
+		String ret = RUN_DATE_WRITE_FORMAT.format(dateTime);
+		return ret;
+	}
+
 	private List<String> readLines(String filename) {
 		List<String> lines = new ArrayList<>();
 		InputStream inputStream = null;
@@ -255,10 +262,9 @@ public class SymbolsFileDao implements SymbolsDao {
 
 			// Note that write() does not automatically
 			// append a newline character.
-			DateFormat df = new SimpleDateFormat();
 			for (String s : existingStocksWithoutPrices.keySet()) {
 				Date date = existingStocksWithoutPrices.get(s);
-				String dateString = df.format(date);
+				String dateString = formatDate(date);
 				String line = new StringBuilder(s).append(",").append(dateString).toString();
 				bufferedWriter.write(line);
 				bufferedWriter.newLine();
@@ -272,7 +278,7 @@ public class SymbolsFileDao implements SymbolsDao {
 	}
 
 	@Override
-	public void saveGoodValueStock(Stock stock, Map<Date, Economic> economics) {
+	public void saveGoodValueStock(String screenId, Stock stock, Map<Date, Economic> economics) {
 		try {
 			// Assume default encoding.
 			FileWriter fileWriter = new FileWriter(goodValueStocksFileName, true);
@@ -282,19 +288,18 @@ public class SymbolsFileDao implements SymbolsDao {
 
 			// Note that write() does not automatically
 			// append a newline character.
-			DateFormat df = new SimpleDateFormat();
 			for (Date date : economics.keySet()) {
 				Economic e = economics.get(date);
 				StringBuilder lineBuilder = new StringBuilder(removeCommas(stock.getSymbol())).append(",")
 						.append(removeCommas(stock.getName())).append(",")
 						.append(removeCommas(stock.getStockExchange())).append(",")
-						.append(removeCommas(stock.getCurrency())).append(",").append(df.format(date)).append(",")
+						.append(removeCommas(stock.getCurrency())).append(",").append(formatDate(date)).append(",")
 						.append(e.getBid()).append(",").append(e.getBookValuePerShare()).append(",")
 						.append(e.getPerCalculated()).append(",").append(e.getEps()).append(",").append(e.getPe())
 						.append(",").append(e.getPeg()).append(",").append(e.getEpsEstimateCurrentYear()).append(",")
 						.append(e.getEpsEstimateNextQuarter()).append(",").append(e.getEpsEstimateNextYear())
 						.append(",").append(e.getMarketCap()).append(",").append(e.getAnnualDividendYieldPercent())
-						.append(",").append(e.getOneYearTargetPrice()).append(",")
+						.append(",").append(e.getOneYearTargetPrice()).append(",").append(screenId)
 
 				;
 
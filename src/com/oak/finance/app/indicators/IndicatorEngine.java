@@ -0,0 +1,119 @@
+package com.oak.finance.app.indicators;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.Logger;
+
+import com.oak.api.finance.model.dto.Quote;
+import com.oak.api.finance.repository.MappedQuoteStore;
+import com.oak.api.finance.repository.QuoteSeries;
+
+/**
+ * Keeps the technical indicators of every ticker of the
+ * {@link MappedQuoteStore} up to date. Each ticker has its own rolling state,
+ * and refreshing it only folds in the quotes stored since its last refresh,
+ * so the history is read once in the life of the engine. Prices are folded
+ * in adjusted by the factor stored with them; when the store merges quotes
+ * into a history already folded in, a reload re-adjusted after a split for
+ * instance, the state of the ticker is recomputed from the whole history so
+ * the split does not show as a drawdown. Tickers are refreshed in parallel
+ * on the executor.
+ */
+public class IndicatorEngine {
+	private final MappedQuoteStore quoteStore;
+	private final Executor executor;
+	private final Logger log;
+	private final Map<String, IndicatorState> states = new ConcurrentHashMap<>();
+	private final Map<String, Indicators> latest = new ConcurrentHashMap<>();
+
+	public IndicatorEngine(MappedQuoteStore quoteStore, Executor executor, Logger log) {
+		this.quoteStore = quoteStore;
+		this.executor = executor;
+		this.log = log;
+	}
+
+	/**
+	 * Refreshes every ticker of the store.
+	 */
+	public CompletableFuture<Void> refreshAll() {
+		return refresh(quoteStore.getTickers());
+	}
+
+	/**
+	 * Folds the quotes stored since the last refresh into the indicators of
+	 * the tickers. The future completes when all of them are up to date.
+	 */
+	public CompletableFuture<Void> refresh(Collection<String> tickers) {
+		List<CompletableFuture<Void>> refreshes = new ArrayList<>(tickers.size());
+		for (String ticker : tickers) {
+			refreshes.add(CompletableFuture.runAsync(() -> refresh(ticker), executor));
+		}
+		return CompletableFuture.allOf(refreshes.toArray(new CompletableFuture[refreshes.size()]));
+	}
+
+	/**
+	 * Refreshes the tickers of newly saved quotes.
+	 */
+	public CompletableFuture<Void> onQuotesSaved(Collection<Quote> quotes) {
+		return refresh(quotes.stream().map(Quote::getTicker).filter(t -> t != null).collect(Collectors.toSet()));
+	}
+
+	/**
+	 * The indicators as of the latest refresh, null when the ticker has
+	 * none.
+	 */
+	public Indicators get(String ticker) {
+		return ticker == null ? null : latest.get(ticker);
+	}
+
+	public Collection<Indicators> getAll() {
+		return latest.values();
+	}
+
+	/**
+	 * The top tickers of the universe by the comparator, best first.
+	 */
+	public List<Indicators> rank(Comparator<Indicators> best, int top) {
+		List<Indicators> ret = latest.values().stream().sorted(best).limit(top).collect(Collectors.toList());
+		return ret;
+	}
+
+	private void refresh(String ticker) {
+		IndicatorState state = states.computeIfAbsent(ticker, IndicatorState::new);
+		synchronized (state) {
+			try {
+				long revision = quoteStore.getRevision(ticker);
+				if (revision != state.getRevision()) {
+					if (state.getEpochDay() != Long.MIN_VALUE) {
+						log.info("the stored history of " + ticker + " changed, recomputing its indicators");
+					}
+					state.reset(revision);
+				}
+				long last = state.getEpochDay();
+				LocalDate from = last == Long.MIN_VALUE ? LocalDate.MIN : LocalDate.ofEpochDay(last + 1);
+				QuoteSeries series = quoteStore.read(ticker, from, LocalDate.MAX);
+				int added = 0;
+				for (int i = 0; i < series.size(); i++) {
+					boolean isAdded = state.add(series.getEpochDay(i), series.getHigh(i), series.getLow(i),
+							series.getClose(i), series.getAdjustmentFactor(i));
+					added += isAdded ? 1 : 0;
+				}
+				if (added > 0) {
+					latest.put(ticker, state.current());
+				}
+			} catch (IOException | RuntimeException e) {
+				log.error("cannot refresh the indicators of " + ticker + ": " + e.getMessage(), e);
+			}
+		}
+	}
+}
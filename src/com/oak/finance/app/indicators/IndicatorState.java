@@ -0,0 +1,261 @@
+package com.oak.finance.app.indicators;
+
+/**
+ * The rolling state the indicators of one ticker are computed from. Every
+ * daily quote is folded in with a constant amount of work: windowed sums for
+ * the moving averages and volatility, Wilder smoothing for RSI and ATR and
+ * monotonic queues for the 52 week extremes. Not thread safe, the engine
+ * serializes the updates of a ticker.
+ */
+class IndicatorState {
+	static final int TRADING_DAYS_PER_YEAR = 252;
+	private static final int RSI_DAYS = 14;
+	private static final int ATR_DAYS = 14;
+	private static final int VOLATILITY_DAYS = 20;
+
+	private final String ticker;
+	private final RollingSum sma50 = new RollingSum(50);
+	private final RollingSum sma200 = new RollingSum(200);
+	private final RollingSum logReturns = new RollingSum(VOLATILITY_DAYS);
+	private final RollingSum squaredLogReturns = new RollingSum(VOLATILITY_DAYS);
+	private final RollingExtreme high52Weeks = new RollingExtreme(TRADING_DAYS_PER_YEAR, true);
+	private final RollingExtreme low52Weeks = new RollingExtreme(TRADING_DAYS_PER_YEAR, false);
+	private long revision;
+	private long epochDay = Long.MIN_VALUE;
+	private int days;
+	private double close = Double.NaN;
+	private double ema12 = Double.NaN;
+	private double ema26 = Double.NaN;
+	private double averageGain;
+	private double averageLoss;
+	private double averageTrueRange;
+	private double peak = Double.NaN;
+	private double maxDrawdown;
+
+	IndicatorState(String ticker) {
+		this.ticker = ticker;
+	}
+
+	long getEpochDay() {
+		return epochDay;
+	}
+
+	/**
+	 * The revision of the stored history the state was folded from.
+	 */
+	long getRevision() {
+		return revision;
+	}
+
+	/**
+	 * Forgets every quote folded in, for the history to be folded in again.
+	 */
+	void reset(long revision) {
+		this.revision = revision;
+		sma50.clear();
+		sma200.clear();
+		logReturns.clear();
+		squaredLogReturns.clear();
+		high52Weeks.clear();
+		low52Weeks.clear();
+		epochDay = Long.MIN_VALUE;
+		days = 0;
+		close = Double.NaN;
+		ema12 = Double.NaN;
+		ema26 = Double.NaN;
+		averageGain = 0;
+		averageLoss = 0;
+		averageTrueRange = 0;
+		peak = Double.NaN;
+		maxDrawdown = 0;
+	}
+
+	/**
+	 * Folds in the quote of the day, ignored when it is not later than the
+	 * last one or has no close. A missing high or low is taken to be the
+	 * close.
+	 */
+	boolean add(long day, double high, double low, double close, double adjustmentFactor) {
+		boolean ret = day > epochDay && !Double.isNaN(close);
+		if (ret) {
+			double factor = Double.isNaN(adjustmentFactor) || adjustmentFactor <= 0 ? 1 : adjustmentFactor;
+			double c = close * factor;
+			double h = Double.isNaN(high) ? c : high * factor;
+			double l = Double.isNaN(low) ? c : low * factor;
+			double previous = this.close;
+			days++;
+			epochDay = day;
+			this.close = c;
+			sma50.add(c);
+			sma200.add(c);
+			ema12 = ema(ema12, c, 12);
+			ema26 = ema(ema26, c, 26);
+			high52Weeks.add(days, h);
+			low52Weeks.add(days, l);
+			if (days > 1) {
+				double change = c - previous;
+				averageGain = wilder(averageGain, Math.max(change, 0), RSI_DAYS);
+				averageLoss = wilder(averageLoss, Math.max(-change, 0), RSI_DAYS);
+				double trueRange = Math.max(h - l, Math.max(Math.abs(h - previous), Math.abs(l - previous)));
+				averageTrueRange = wilder(averageTrueRange, trueRange, ATR_DAYS);
+				if (previous > 0 && c > 0) {
+					double logReturn = Math.log(c / previous);
+					logReturns.add(logReturn);
+					squaredLogReturns.add(logReturn * logReturn);
+				}
+			}
+			peak = Double.isNaN(peak) ? c : Math.max(peak, c);
+			maxDrawdown = Math.max(maxDrawdown, drawdown());
+		}
+		return ret;
+	}
+
+	Indicators current() {
+		// the first change is on the second day
+		int changes = days - 1;
+		double rsi = Double.NaN;
+		if (changes >= RSI_DAYS) {
+			rsi = averageLoss == 0 ? 100 : 100 - 100 / (1 + averageGain / averageLoss);
+		}
+		Indicators ret = new Indicators(ticker, epochDay, days, close, sma50.average(), sma200.average(),
+				days >= 12 ? ema12 : Double.NaN, days >= 26 ? ema26 : Double.NaN, rsi,
+				changes >= ATR_DAYS ? averageTrueRange : Double.NaN, days > 0 ? drawdown() : Double.NaN,
+				days > 0 ? maxDrawdown : Double.NaN, high52Weeks.get(), low52Weeks.get(), volatility());
+		return ret;
+	}
+
+	private double drawdown() {
+		return peak > 0 ? (peak - close) / peak : 0;
+	}
+
+	private double volatility() {
+		double ret = Double.NaN;
+		int n = logReturns.count();
+		if (n == VOLATILITY_DAYS) {
+			double mean = logReturns.sum() / n;
+			double variance = Math.max(0, (squaredLogReturns.sum() - n * mean * mean) / (n - 1));
+			ret = Math.sqrt(variance * TRADING_DAYS_PER_YEAR);
+		}
+		return ret;
+	}
+
+	/**
+	 * Seeds with the first value, a simple average would need the window in
+	 * memory.
+	 */
+	private static double ema(double previous, double value, int days) {
+		double ret;
+		if (Double.isNaN(previous)) {
+			ret = value;
+		} else {
+			double alpha = 2.0 / (days + 1);
+			ret = previous + alpha * (value - previous);
+		}
+		return ret;
+	}
+
+	private double wilder(double average, double value, int period) {
+		int changes = days - 1;
+		double ret;
+		if (changes <= period) {
+			// a plain average over the first period
+			ret = average + (value - average) / changes;
+		} else {
+			ret = (average * (period - 1) + value) / period;
+		}
+		return ret;
+	}
+
+	/**
+	 * Sum of the last n values, kept in a ring.
+	 */
+	static class RollingSum {
+		private final double[] values;
+		private int next;
+		private int count;
+		private double sum;
+
+		RollingSum(int size) {
+			this.values = new double[size];
+		}
+
+		void add(double value) {
+			if (count == values.length) {
+				sum -= values[next];
+			} else {
+				count++;
+			}
+			values[next] = value;
+			sum += value;
+			next = (next + 1) % values.length;
+		}
+
+		void clear() {
+			next = 0;
+			count = 0;
+			sum = 0;
+		}
+
+		int count() {
+			return count;
+		}
+
+		double sum() {
+			return sum;
+		}
+
+		/**
+		 * NaN until the window is full.
+		 */
+		double average() {
+			return count == values.length ? sum / count : Double.NaN;
+		}
+	}
+
+	/**
+	 * Highest (or lowest) of the last n values: a queue of the values that
+	 * can still become the extreme, each entering and leaving once.
+	 */
+	static class RollingExtreme {
+		private final int size;
+		private final boolean highest;
+		private final long[] positions;
+		private final double[] values;
+		private int head;
+		private int length;
+
+		RollingExtreme(int size, boolean highest) {
+			this.size = size;
+			this.highest = highest;
+			this.positions = new long[size];
+			this.values = new double[size];
+		}
+
+		void add(long position, double value) {
+			while (length > 0 && positions[head] <= position - size) {
+				head = (head + 1) % size;
+				length--;
+			}
+			while (length > 0 && !dominates(values[(head + length - 1) % size], value)) {
+				length--;
+			}
+			int tail = (head + length) % size;
+			positions[tail] = position;
+			values[tail] = value;
+			length++;
+		}
+
+		void clear() {
+			head = 0;
+			length = 0;
+		}
+
+		double get() {
+			return length == 0 ? Double.NaN : values[head];
+		}
+
+		private boolean dominates(double kept, double value) {
+			return highest ? kept > value : kept < value;
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package com.oak.finance.app.indicators;
+
+import java.time.LocalDate;
+
+/**
+ * The technical indicators of a ticker as of its latest daily quote, prices
+ * being adjusted by the quotes' adjustment factors. An indicator is NaN
+ * until enough days have been seen to compute it.
+ */
+public class Indicators {
+	private final String ticker;
+	private final long epochDay;
+	private final int days;
+	private final double close;
+	private final double sma50;
+	private final double sma200;
+	private final double ema12;
+	private final double ema26;
+	private final double rsi14;
+	private final double atr14;
+	private final double drawdown;
+	private final double maxDrawdown;
+	private final double high52Weeks;
+	private final double low52Weeks;
+	private final double volatility20;
+
+	public Indicators(String ticker, long epochDay, int days, double close, double sma50, double sma200, double ema12,
+			double ema26, double rsi14, double atr14, double drawdown, double maxDrawdown, double high52Weeks,
+			double low52Weeks, double volatility20) {
+		this.ticker = ticker;
+		this.epochDay = epochDay;
+		this.days = days;
+		this.close = close;
+		this.sma50 = sma50;
+		this.sma200 = sma200;
+		this.ema12 = ema12;
+		this.ema26 = ema26;
+		this.rsi14 = rsi14;
+		this.atr14 = atr14;
+		this.drawdown = drawdown;
+		this.maxDrawdown = maxDrawdown;
+		this.high52Weeks = high52Weeks;
+		this.low52Weeks = low52Weeks;
+		this.volatility20 = volatility20;
+	}
+
+	public String getTicker() {
+		return ticker;
+	}
+
+	public LocalDate getDate() {
+		return LocalDate.ofEpochDay(epochDay);
+	}
+
+	public long getEpochDay() {
+		return epochDay;
+	}
+
+	/**
+	 * How many daily quotes the indicators were computed from.
+	 */
+	public int getDays() {
+		return days;
+	}
+
+	public double getClose() {
+		return close;
+	}
+
+	public double getSma50() {
+		return sma50;
+	}
+
+	public double getSma200() {
+		return sma200;
+	}
+
+	public double getEma12() {
+		return ema12;
+	}
+
+	public double getEma26() {
+		return ema26;
+	}
+
+	/**
+	 * Wilder's relative strength index over 14 days, from 0 to 100.
+	 */
+	public double getRsi14() {
+		return rsi14;
+	}
+
+	/**
+	 * Wilder's average true range over 14 days.
+	 */
+	public double getAtr14() {
+		return atr14;
+	}
+
+	/**
+	 * How far the close is below the highest close seen, as a fraction of
+	 * that high.
+	 */
+	public double getDrawdown() {
+		return drawdown;
+	}
+
+	public double getMaxDrawdown() {
+		return maxDrawdown;
+	}
+
+	public double getHigh52Weeks() {
+		return high52Weeks;
+	}
+
+	public double getLow52Weeks() {
+		return low52Weeks;
+	}
+
+	/**
+	 * Annualized standard deviation of the last 20 daily log returns.
+	 */
+	public double getVolatility20() {
+		return volatility20;
+	}
+
+	@Override
+	public String toString() {
+		return "Indicators [ticker=" + ticker + ", date=" + getDate() + ", close=" + close + ", sma50=" + sma50
+				+ ", sma200=" + sma200 + ", rsi14=" + rsi14 + ", atr14=" + atr14 + ", drawdown=" + drawdown
+				+ ", high52Weeks=" + high52Weeks + ", low52Weeks=" + low52Weeks + ", volatility20=" + volatility20
+				+ "]";
+	}
+}
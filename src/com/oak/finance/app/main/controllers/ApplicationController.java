@@ -1,6 +1,7 @@
 package com.oak.finance.app.main.controllers;
 
 import com.oak.api.MainController.DuplicatCashflowListener;
+import com.oak.finance.app.backtest.BacktestSummary;
 
 public interface ApplicationController {
 	void launchAnalysis();
@@ -12,4 +13,9 @@ public interface ApplicationController {
 	void startUp();
 
 	void loadHistoricalQuotes();
+
+	/**
+	 * Replays the stored filters over the stored screen results.
+	 */
+	BacktestSummary backtestStoredScreens();
 }
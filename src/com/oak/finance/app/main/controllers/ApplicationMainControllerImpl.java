@@ -1,7 +1,5 @@
 package com.oak.finance.app.main.controllers;
 
-import static java.util.stream.Collectors.toSet;
-
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
@@ -34,6 +32,8 @@ import com.oak.api.finance.repository.IncomeStatementRepository;
 import com.oak.api.finance.repository.Screen0ResultsRepository;
 import com.oak.api.finance.utils.repository.ReconcilingRepository;
 import com.oak.external.finance.app.marketdata.api.FinancialStatementsProvider;
+import com.oak.finance.app.backtest.BacktestSummary;
+import com.oak.finance.app.backtest.Backtester;
 import com.oak.finance.app.monitor.MarketDataMonitorsController;
 import com.oak.finance.interest.SymbolsController;
 
@@ -49,6 +49,7 @@ public class ApplicationMainControllerImpl implements ApplicationController {
 	private final CompanyRepository companyRepository;
 	private final DuplicateCashflowsDao duplicateCashflowDao;
 	private final FinancialStatementsProvider financialStatementsProvider;
+	private final Backtester backtester;
 
 
 	public ApplicationMainControllerImpl(SymbolsController symbolController,
@@ -57,7 +58,7 @@ public class ApplicationMainControllerImpl implements ApplicationController {
 			BalanceSheetRepository bsRep, CashFlowStatementRepository cfRep,
 			IncomeStatementRepository incomeStatementRep, CompanyRepository companyRepository,
 			DuplicateCashflowsDao duplicateCashflowDao, FinancialStatementsProvider financialStatementsProvider, 
-			Logger log) {
+			Backtester backtester, Logger log) {
 		this.symbolsController = symbolController;
 		this.marketDataMonitorsController = marketDataMonitorsController;
 		this.screeningResultsRepository = screeningResultsRepository;
@@ -68,6 +69,7 @@ public class ApplicationMainControllerImpl implements ApplicationController {
 		this.companyRepository = companyRepository;
 		this.duplicateCashflowDao = duplicateCashflowDao;
 		this.financialStatementsProvider = financialStatementsProvider;
+		this.backtester = backtester;
 		this.log = log;
 		log.info("ApplicationServerImpl starting ....");
 	}
@@ -76,6 +78,8 @@ public class ApplicationMainControllerImpl implements ApplicationController {
 	public void launchAnalysis() {
 		log.info(ApplicationMainControllerImpl.class.getCanonicalName() + " starting up analysis");
 
+		// exclusions edited since the last run apply to this one
+		symbolsController.reloadExclusions();
 		Set<String> tickers = symbolsController.getSymbols();
 		startDifferentReconciliations(tickers);
 
@@ -88,12 +92,17 @@ public class ApplicationMainControllerImpl implements ApplicationController {
 	public void loadHistoricalQuotes() {
 		marketDataMonitorsController.loadHistoricalQuotes();
 	}
+	@Override
+	public BacktestSummary backtestStoredScreens() {
+		BacktestSummary ret = new BacktestSummary(backtester.getHorizons());
+		backtester.runStoredScreens(ret);
+		log.info("backtest of the stored filters:%n%s", ret);
+		return ret;
+	}
 	private Set<String> excludeTickers(Set<String> tickers) {
-		Set<String> excludedSymbols = symbolsController.getExcludedSymbols();
-		log.debug(excludedSymbols.size() + " symbols are excluded.");
-		tickers.removeAll(excludedSymbols);
-		Set<String> collect = tickers.stream().filter(t -> !excludedSymbols.contains(t)).collect(toSet());
-		log.debug("getting prices for " + tickers.size() + " symbol" + (tickers.size() > 0 ? "s" : ""));
+		Set<String> collect = symbolsController.getUniverse().withoutExcluded(tickers);
+		log.debug((tickers.size() - collect.size()) + " symbols are excluded.");
+		log.debug("getting prices for " + collect.size() + " symbol" + (collect.size() > 0 ? "s" : ""));
 		return collect;
 	}
 
@@ -265,6 +274,7 @@ public class ApplicationMainControllerImpl implements ApplicationController {
 		if (cf != null && dbCfs != null) {
 			List<CashFlowStatementDto> toDelete = whichShouldWeDelete(cf, dbCfs);
 			cfRep.delete(toDelete);
+			financialStatementsProvider.statementsChanged(ticker);
 		}
 	}
 
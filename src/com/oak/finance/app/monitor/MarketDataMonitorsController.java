@@ -1,10 +1,18 @@
 package com.oak.finance.app.monitor;
 
+import java.util.List;
 import java.util.Set;
 
+import com.oak.finance.app.monitor.pipeline.StageMetrics;
+
 public interface MarketDataMonitorsController {
 
 	void startStocksAnalysis(Set<String> symbolList, Set<String> interestingSymbols);
 
 	void loadHistoricalQuotes();
+
+	/**
+	 * Throughput and queue depth of each stage of the current, or last, run.
+	 */
+	List<StageMetrics> getPipelineMetrics();
 }
@@ -1,19 +1,18 @@
 package com.oak.finance.app.monitor;
 
-import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
-import java.util.TimeZone;
 import java.util.TreeSet;
-import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.Logger;
 
@@ -21,102 +20,165 @@ import com.oak.api.finance.model.Economic;
 import com.oak.api.finance.model.FinancialAnalysis;
 import com.oak.api.finance.model.Stock;
 import com.oak.external.finance.app.marketdata.api.MarketDataProvider;
+import com.oak.external.utils.collections.Batches;
 import com.oak.finance.app.monitor.analysis.FinanceAnalysisController;
 import com.oak.finance.app.monitor.analysis.FinanceAnalysisController.FinanceAnalysisCallback;
+import com.oak.finance.app.monitor.pipeline.PipelineStage;
+import com.oak.finance.app.monitor.pipeline.StageMetrics;
+import com.oak.finance.app.screeners.SreenerRegistry;
 import com.oak.finance.interest.SymbolsController;
 
 public class MarketDataMonitorsControllerImpl implements MarketDataMonitorsController {
+	private static final long HANDOVER_TIMEOUT_MINUTES = 10;
 
-	/**
-	 * When market data readers report blank prices, the stocks get added to
-	 * this queue the purpose is to make a list of persistently empty stocks to
-	 * remove them from the list
-	 */
-	private final LinkedBlockingQueue<String> newStocksWithoutPrices;
-	private final LinkedBlockingQueue<Map<Stock, Map<Date, Economic>>> marketDataForAnalysisQueue;
-	private final LinkedBlockingQueue<Map<Stock, Map<Date, Economic>>> marketDataForPersistingQueue;
-	private boolean stop = false;
 	private final Logger logger;
 	private final FinanceAnalysisController analysisController;
 	private final SymbolsController symbolsProvider;
 	private final MarketDataProvider marketDataProvider;
-	private final Executor executor;
+	private final ExecutorService executor;
 	private final StocksCallback callback;
+	private final SreenerRegistry screens;
 	private final MarketDataPersistenceController marketDataPersistenceController;
-	private final Map<Stock, Map<Date, Economic>> endMarker;
+	private final int fetchBatchSize;
+	private final int fetchWorkers;
+	private final int analysisWorkers;
+	private final int persistenceWorkers;
+	private final int stageCapacity;
+	private volatile List<PipelineStage<?>> stages = Collections.emptyList();
 
 	public MarketDataMonitorsControllerImpl(SymbolsController symbolsController,
 			FinanceAnalysisController analysisController, MarketDataProvider marketDataProvider,
-			MarketDataPersistenceController marketDataPersistenceController, Logger logger) {
+			MarketDataPersistenceController marketDataPersistenceController, int fetchBatchSize, int fetchWorkers,
+			int analysisWorkers,
+			int persistenceWorkers, int stageCapacity, SreenerRegistry screens, Logger logger) {
 		logger.debug("creating MarketDataMonitorsControllerImpl");
-		this.newStocksWithoutPrices = new LinkedBlockingQueue<String>();
-		this.marketDataForAnalysisQueue = new LinkedBlockingQueue<Map<Stock, Map<Date, Economic>>>();
-		this.marketDataForPersistingQueue = new LinkedBlockingQueue<Map<Stock, Map<Date, Economic>>>();
 		this.logger = logger;
 		this.executor = Executors.newCachedThreadPool();
 		this.analysisController = analysisController;
 		this.symbolsProvider = symbolsController;
 		this.marketDataProvider = marketDataProvider;
 		this.marketDataPersistenceController = marketDataPersistenceController;
+		this.fetchBatchSize = fetchBatchSize;
+		this.fetchWorkers = fetchWorkers;
+		this.analysisWorkers = analysisWorkers;
+		this.persistenceWorkers = persistenceWorkers;
+		this.stageCapacity = stageCapacity;
+		this.screens = screens;
 		this.callback = new StocksCallback();
-		logger.debug("starting the wait loop");
-		endMarker = createEndMarker();
 	}
 
-	public void saveGoodValueStock(Stock stock, Map<Date, Economic> economics) {
-		symbolsProvider.saveGoodValueStock(stock, economics);
+	public void saveGoodValueStock(String screenId, Stock stock, Map<Date, Economic> economics) {
+		symbolsProvider.saveGoodValueStock(screenId, stock, economics);
 	}
 
 	private void saveSymbolsWithoutPrice(Map<String, Date> existingStocksWithoutPrices) {
 		symbolsProvider.saveSymbolsWithoutPrice(existingStocksWithoutPrices);
 	}
 
+	/**
+	 * Runs fetch -> (analysis, persistence) as bounded stages. Each fetched
+	 * batch is handed to both downstream stages; when either of them is full
+	 * the fetch workers block, and so does the feeding of new symbols. A
+	 * fetch batch is sized to keep every worker of the market data provider
+	 * busy, its rate limiter being what paces the requests.
+	 * <p>
+	 * A downstream stage that stops accepting, aborted, out of workers or
+	 * full for longer than the handover timeout, aborts the fetch stage: the
+	 * symbols not fetched yet are dropped rather than waited on forever.
+	 */
 	@Override
 	public void startStocksAnalysis(final Set<String> symbolList, final Set<String> interestingSymbols) {
-		Runnable marketDataCollectionRunnable = new Runnable() {
-			@Override
-			public void run() {
-				marketDataCollectionThread(symbolList);
-			}
-		};
-		Thread marketDataCollectionThread = new Thread(marketDataCollectionRunnable, "DataCollectionThread");
-		Thread stocksAnalysisThread = new Thread("StocksAnalysisThread") {
-			public void run() {
-				stockProcessorThread(interestingSymbols, new EconomicAnalyzer(),marketDataForAnalysisQueue);
+		// a run screens with the filters saved when it starts
+		screens.reload();
+		EconomicProcessor analyzer = new EconomicAnalyzer();
+		EconomicProcessor persistence = new EconomicPersistence();
+		PipelineStage<Map<Stock, Map<Date, Economic>>> analysisStage = new PipelineStage<>("StocksAnalysis",
+				stageCapacity, analysisWorkers, m -> analyzer.onEconomicData(interestingSymbols, m), logger);
+		PipelineStage<Map<Stock, Map<Date, Economic>>> persistenceStage = new PipelineStage<>("EconomicsPersistence",
+				stageCapacity, persistenceWorkers, m -> persistence.onEconomicData(interestingSymbols, m), logger);
+		PipelineStage<Set<String>> fetchStage = new PipelineStage<>("DataCollection", stageCapacity, fetchWorkers,
+				batch -> marketDataProvider.retrieveMarketData(batch,
+						batchResult -> fanOut(batchResult, analysisStage, persistenceStage)),
+				logger);
+		List<PipelineStage<?>> downstream = Arrays.asList(analysisStage, persistenceStage);
+		stages = Arrays.asList(fetchStage, analysisStage, persistenceStage);
+		analysisStage.start(executor);
+		persistenceStage.start(executor);
+		fetchStage.start(executor);
+		try {
+			for (Set<String> batch : Batches.batch(symbolList, fetchBatchSize)) {
+				PipelineStage<?> failed = firstNotAccepting(downstream);
+				if (failed != null) {
+					fetchStage.abort(new IllegalStateException("stage " + failed.getName() + " stopped accepting",
+							failed.getFailure()));
+					break;
+				}
+				fetchStage.put(batch);
 			}
-		};
-		Thread economicsPersistenceThread = new Thread("EconomicsPersistenceThread") {
-			@Override
-			public void run() {
-				stockProcessorThread(interestingSymbols, new EconomicPersistence(),marketDataForPersistingQueue);
+			if (fetchStage.isAccepting()) {
+				fetchStage.close();
 			}
-		};
-		executor.execute(marketDataCollectionThread);
-		executor.execute(stocksAnalysisThread);
-		executor.execute(economicsPersistenceThread);
-		try {
-			economicsPersistenceThread.join();
+			fetchStage.awaitCompletion();
+			analysisStage.close();
+			persistenceStage.close();
+			analysisStage.awaitCompletion();
+			logger.info(analyzer.getEndOfProcessingMessage());
+			persistenceStage.awaitCompletion();
+			logger.info(persistence.getEndOfProcessingMessage());
 		} catch (InterruptedException e) {
-			logger.error("Interrupted "+e.getMessage(),e);
+			logger.error("Interrupted " + e.getMessage(), e);
+			Thread.currentThread().interrupt();
+		} finally {
+			for (StageMetrics m : getPipelineMetrics()) {
+				logger.info(m);
+			}
+		}
+	}
+
+	@Override
+	public List<StageMetrics> getPipelineMetrics() {
+		List<StageMetrics> ret = stages.stream().map(PipelineStage::getMetrics).collect(Collectors.toList());
+		return ret;
+	}
+
+	private static PipelineStage<?> firstNotAccepting(List<PipelineStage<?>> stages) {
+		PipelineStage<?> ret = null;
+		for (PipelineStage<?> stage : stages) {
+			if (ret == null && !stage.isAccepting()) {
+				ret = stage;
+			}
+		}
+		return ret;
+	}
+
+	private void fanOut(Map<Stock, Map<Date, Economic>> batchResult,
+			PipelineStage<Map<Stock, Map<Date, Economic>>> analysisStage,
+			PipelineStage<Map<Stock, Map<Date, Economic>>> persistenceStage) {
+		if (batchResult != null && !batchResult.isEmpty()) {
+			handOver(batchResult, analysisStage);
+			handOver(batchResult, persistenceStage);
 		}
 	}
 
-	private void stockProcessorThread(Set<String> alwaysWatch, EconomicProcessor processor, LinkedBlockingQueue<Map<Stock, Map<Date, Economic>>> marketDataQueue) {
+	/**
+	 * Throws when the stage does not take the batch, so the fetch stage
+	 * counts it as failed instead of blocking on it.
+	 */
+	private void handOver(Map<Stock, Map<Date, Economic>> batchResult,
+			PipelineStage<Map<Stock, Map<Date, Economic>>> stage) {
 		try {
-			boolean stop = false;
-			while (!stop) {
-				Map<Stock, Map<Date, Economic>> marketData = marketDataQueue.take();
-				if (endMarker.equals(marketData)) {
-					stop = true;
-					logger.info(processor.getEndOfProcessingMessage());
-				} else {
-					processor.onEconomicData(alwaysWatch, marketData);
-				}
+			if (!stage.offer(batchResult, HANDOVER_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+				IllegalStateException e = new IllegalStateException(
+						"stage " + stage.getName() + " took nothing for " + HANDOVER_TIMEOUT_MINUTES + " minutes");
+				stage.abort(e);
+				throw e;
 			}
 		} catch (InterruptedException e) {
-			logger.error("Stock Analysis thread was interrupted", e);
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while handing over market data", e);
 		}
 	}
+
 	interface EconomicProcessor{
 		void onEconomicData(Set<String> alwaysWatch, Map<Stock, Map<Date, Economic>> marketData);
 		String getEndOfProcessingMessage();
@@ -142,71 +204,30 @@ public class MarketDataMonitorsControllerImpl implements MarketDataMonitorsContr
 		}
 	}
 
+	/**
+	 * The batch is analysed as a whole so the financial statements of its
+	 * attractive stocks are loaded together; it is done once the last stock
+	 * has been analysed.
+	 */
 	private void analyzeEconomics(Set<String> alwaysWatch, Map<Stock, Map<Date, Economic>> marketData) {
-		for (Stock s : marketData.keySet()) {
-			Map<Date, Economic> economics = marketData.get(s);
-			analysisController.onEconomicsUpdate(callback, s, economics, alwaysWatch);
-		}
+		analysisController.onEconomicsUpdateAsync(callback, marketData, alwaysWatch).exceptionally(e -> {
+			logger.error("analysis failed for a batch of " + marketData.size() + " stocks: " + e.getMessage(), e);
+			return null;
+		}).join();
 	}
 	@Override
 	public void loadHistoricalQuotes() {
 		marketDataProvider.checkHistoricalQuotes();
 	}
-	
-	private void marketDataCollectionThread(Set<String> symbolList) {
-		Collection<Set<String>> batches = batch(symbolList, 10);
-		for (Set<String> batch : batches) {
-			Map<Stock, Map<Date, Economic>> batchResult = marketDataProvider.retrieveMarketData(batch);
-			marketDataForAnalysisQueue.add(batchResult);
-			marketDataForPersistingQueue.add(batchResult);
-		}
-		marketDataForAnalysisQueue.add(endMarker);
-		marketDataForPersistingQueue.add(endMarker);
-	}
-
-	private Map<Stock, Map<Date, Economic>> createEndMarker() {
-		Map<Stock, Map<Date, Economic>> endMarker = new HashMap<Stock, Map<Date, Economic>>();
-		Stock stopStock = new Stock("STOP", "STOP", "STOP", "STOP", "STOP", "STOP");
-		HashMap<Date, Economic> stopMap = new HashMap<Date, Economic>();
-		Date beginning = Calendar.getInstance().getTime();
-		beginning.setTime(0);
-		Economic stopEconomic = new Economic(beginning, 0.0, 0L, 0.0, 0L, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0,
-				0.0, 0.0, 0.0, "STOP", 0L, "STOP", 0.0, 0.0, 0.0, 0.0, "STOP", TimeZone.getDefault(), 0L, 0.0, 0.0, 0.0,
-				0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0L, 0L, 0L, 0.0, 0.0,
-				Calendar.getInstance(), Calendar.getInstance());
-		stopMap.put(beginning, stopEconomic);
-		endMarker.put(stopStock, stopMap);
-		return endMarker;
-	}
-
-	private <T> Collection<Set<T>> batch(Set<T> set, int size) {
-		Collection<Set<T>> ret = null;
-
-		if (set != null) {
-			ret = new ArrayList<Set<T>>();
-			int i = 0;
-			Set<T> batch = new HashSet<T>();
-			for (T e : set) {
-				batch.add(e);
-				if (i >= size - 1) {
-					ret.add(batch);
-					batch = new HashSet<T>();
-					i = 0;
-				} else {
-					i++;
-				}
-			}
-			if (!batch.isEmpty()) {
-				ret.add(batch);
-			}
-		}
-		return ret;
-	}
 
+	/**
+	 * Analysis runs on several threads, the callbacks are serialised here so
+	 * the symbol stores don't have to be thread safe.
+	 */
 	private class StocksCallback implements FinanceAnalysisCallback {
 
 		@Override
-		public void onPriceMissing(Stock stock, Map<Date, Economic> economics) {
+		public synchronized void onPriceMissing(Stock stock, Map<Date, Economic> economics) {
 			SortedSet<Date> dates = new TreeSet<Date>(economics.keySet());
 			HashMap<String, Date> s = new HashMap<String, Date>();
 			s.put(stock.getSymbol(), dates.last());
@@ -214,20 +235,20 @@ public class MarketDataMonitorsControllerImpl implements MarketDataMonitorsContr
 		}
 
 		@Override
-		public void onBuy(Stock stock, Map<Date, Economic> economics, FinancialAnalysis financialAnalysis) {
-			saveGoodValueStock(stock, economics);
+		public synchronized void onBuy(Stock stock, Map<Date, Economic> economics, FinancialAnalysis financialAnalysis) {
+			saveGoodValueStock(financialAnalysis.getScreenId(), stock, economics);
 		}
 
 		@Override
-		public void onSell(Stock stock, Map<Date, Economic> economics) {
+		public synchronized void onSell(Stock stock, Map<Date, Economic> economics) {
 			// TODO Auto-generated method stub
 
 		}
 
 		@Override
-		public void onWatchList(Stock stock, Map<Date, Economic> economics, FinancialAnalysis stockAnalysis) {
+		public synchronized void onWatchList(Stock stock, Map<Date, Economic> economics, FinancialAnalysis stockAnalysis) {
 
-			saveGoodValueStock(stock, economics);
+			saveGoodValueStock(stockAnalysis.getScreenId(), stock, economics);
 		}
 
 	}
@@ -1,13 +1,16 @@
 package com.oak.finance.app.monitor;
 
+import java.util.Collections;
 import java.util.Date;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.Logger;
 
+import com.oak.api.finance.dao.EconomicsBatchDao;
 import com.oak.api.finance.model.Economic;
 import com.oak.api.finance.model.Stock;
 import com.oak.api.finance.model.dto.Company;
@@ -20,48 +23,70 @@ public class MarketDataPersistenceControllerImpl implements MarketDataPersistenc
 	private final Logger logger;
 	private final EconomicRepository economicRepository;
 	private final CompanyRepository companyRepository;
+	private final EconomicsBatchDao economicsBatchDao;
+	private final AtomicLong totalInserted = new AtomicLong();
+	private final AtomicLong totalSkipped = new AtomicLong();
 	
-	public MarketDataPersistenceControllerImpl(Logger logger, EconomicRepository economicRepository, CompanyRepository companyRepository) {
+	public MarketDataPersistenceControllerImpl(Logger logger, EconomicRepository economicRepository,
+			CompanyRepository companyRepository, EconomicsBatchDao economicsBatchDao) {
 		this.logger = logger;
 		this.economicRepository = economicRepository;
 		this.companyRepository = companyRepository;
+		this.economicsBatchDao = economicsBatchDao;
 	}
 
+	/**
+	 * One query loads the (ticker, price date) pairs already saved for the
+	 * whole batch, the remaining rows go out in JDBC batches.
+	 */
 	@Override
 	public void persist(Map<Stock, Map<Date, Economic>> marketData) {
+		long start = System.currentTimeMillis();
 		Set<EconomicDto> economics = marketData.entrySet().stream()
 			.map(e -> convertToSet(e.getKey(),e.getValue()))
 			.flatMap(e -> e.stream())
+			.filter(e -> e.getTicker() != null && e.getPriceDate() != null)
 			.collect(Collectors.toSet());
+		if (economics.isEmpty()) {
+			return;
+		}
+		Set<String> tickers = economics.stream().map(EconomicDto::getTicker).collect(Collectors.toSet());
+		Date from = economics.stream().map(EconomicDto::getPriceDate).min(Date::compareTo).get();
+		Date to = economics.stream().map(EconomicDto::getPriceDate).max(Date::compareTo).get();
+		Map<String, Set<Date>> existing = economicsBatchDao.findExistingPriceDates(tickers, from, to);
 		
 		// we don't want to save the economy data that's already there.. 
-		Set<EconomicDto> economiesToSave = economics.stream()
-				.filter(e -> economicRepository.findByPriceDateAndTicker(e.getPriceDate(), e.getTicker()).isEmpty())
+		Map<Boolean, List<EconomicDto>> alreadySaved = economics.stream()
+				.collect(Collectors.partitioningBy(e -> existing
+						.getOrDefault(e.getTicker(), Collections.emptySet())
+						.contains(new Date(e.getPriceDate().getTime()))));
+		List<EconomicDto> economyExisting = alreadySaved.get(true);
+		List<EconomicDto> economiesToSave = alreadySaved.get(false).stream()
 				.filter(e -> {
 					Date date = new Date(e.getPriceDate().getTime() + 24 * 60 * 60 * 1000);
 					boolean fishyDate = e.getPriceDate().after(date);
 					return !fishyDate;
 				})
-				.collect(Collectors.toSet());
-		Set<EconomicDto> economyExisting = economics.stream()
-				.filter(e -> !economicRepository.findByPriceDateAndTicker(e.getPriceDate(), e.getTicker()).isEmpty())
-				.collect(Collectors.toSet());
+				.collect(Collectors.toList());
 		
 		if(!economyExisting.isEmpty()) {
 			logger.debug("Skipping already saved economics "+economyExisting.size());
 		}
+		int inserted = 0;
 		if(!economiesToSave.isEmpty()) {
-			Set<String> economies = new HashSet<String>();
 			logger.debug("Saving economics: "+economiesToSave.size());
-			for (EconomicDto e : economiesToSave) {
-				economies.add(e.getTicker());
-			}
 			try {
-				economicRepository.save(economiesToSave);
+				inserted = economicsBatchDao.insert(economiesToSave);
 			}catch(Throwable t) {
-				logger.error("error occured saving economies, "+economies+" : "+t.getMessage(),t);
+				logger.error("error occured saving economies, "+tickers+" : "+t.getMessage(),t);
 			}
 		}
+		long elapsed = Math.max(1, System.currentTimeMillis() - start);
+		long insertedSoFar = totalInserted.addAndGet(inserted);
+		long skippedSoFar = totalSkipped.addAndGet(economyExisting.size());
+		logger.info(String.format("economics batch: inserted %d (%.1f rows/s), skipped %d (%.1f rows/s) in %dms; "
+				+ "total inserted %d, skipped %d", inserted, inserted * 1000.0 / elapsed, economyExisting.size(),
+				economyExisting.size() * 1000.0 / elapsed, elapsed, insertedSoFar, skippedSoFar));
 	}
 
 	private Set<EconomicDto> convertToSet(Stock key, Map<Date, Economic> values) {
@@ -3,12 +3,18 @@ package com.oak.finance.app.monitor.analysis;
 import java.util.Date;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import com.oak.api.finance.model.Economic;
 import com.oak.api.finance.model.FinancialAnalysis;
 import com.oak.api.finance.model.Stock;
 
 public interface FinanceAnalysisController {
+    /**
+     * When used through {@link FinanceAnalysisController#onEconomicsUpdateAsync}
+     * the callback is invoked from the analysis threads and must be thread
+     * safe.
+     */
     public interface FinanceAnalysisCallback {
 	void onPriceMissing(Stock stock, Map<Date, Economic> economics);
 
@@ -22,4 +28,14 @@ public interface FinanceAnalysisController {
 
     void onEconomicsUpdate(FinanceAnalysisCallback callback, Stock stock,
 	    Map<Date, Economic> economics, Set<String> alwaysWatch);
+
+    CompletableFuture<Void> onEconomicsUpdateAsync(FinanceAnalysisCallback callback, Stock stock,
+	    Map<Date, Economic> economics, Set<String> alwaysWatch);
+
+    /**
+     * Analyses a whole batch of stocks, loading the financial statements of
+     * every stock that passes the ratio checks in one go.
+     */
+    CompletableFuture<Void> onEconomicsUpdateAsync(FinanceAnalysisCallback callback,
+	    Map<Stock, Map<Date, Economic>> marketData, Set<String> alwaysWatch);
 }
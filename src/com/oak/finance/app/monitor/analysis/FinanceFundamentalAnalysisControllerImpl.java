@@ -1,15 +1,18 @@
 package com.oak.finance.app.monitor.analysis;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.Logger;
-import org.mockito.internal.util.collections.Sets;
 
 import com.oak.api.finance.model.BalanceSheet;
 import com.oak.api.finance.model.Economic;
@@ -22,6 +25,10 @@ import com.oak.api.finance.model.FinancialComment;
 import com.oak.api.finance.model.FinancialComment.CommentType;
 import com.oak.api.finance.model.FinancialData;
 import com.oak.api.finance.model.Stock;
+import com.oak.finance.app.indicators.IndicatorEngine;
+import com.oak.finance.app.screeners.ScreeningColumns;
+import com.oak.finance.app.screeners.Sreener;
+import com.oak.finance.app.screeners.SreenerRegistry;
 
 public class FinanceFundamentalAnalysisControllerImpl implements FinanceAnalysisController {
 	private final Logger log;
@@ -29,14 +36,25 @@ public class FinanceFundamentalAnalysisControllerImpl implements FinanceAnalysis
 	private final double targetMinCurrentRatio;
 	private final double targetMinQuickRatio;
 	private final double targetMinAssetToDebtRatio;
+	private final SreenerRegistry screens;
+	private final IndicatorEngine indicators;
+	private final Set<String> acceptedCurrencies;
+	private final Executor analysisExecutor;
+	private final Executor statementsExecutor;
 
 	public FinanceFundamentalAnalysisControllerImpl(FinancialStatementsProvider financialStatementsProvider, double targetMinCurrentRatio,
-			double targetMinQuickRatio, double targetMinAssetToDebtRatio, Logger log) {
+			double targetMinQuickRatio, double targetMinAssetToDebtRatio, SreenerRegistry screens,
+			IndicatorEngine indicators, Set<String> acceptedCurrencies, Executor analysisExecutor, Executor statementsExecutor, Logger log) {
 		this.financialStatementsProvider = financialStatementsProvider;
 		this.log = log;
 		this.targetMinCurrentRatio = targetMinCurrentRatio;
 		this.targetMinQuickRatio = targetMinQuickRatio;
 		this.targetMinAssetToDebtRatio = targetMinAssetToDebtRatio;
+		this.screens = screens;
+		this.indicators = indicators;
+		this.acceptedCurrencies = acceptedCurrencies;
+		this.analysisExecutor = analysisExecutor;
+		this.statementsExecutor = statementsExecutor;
 	}
 
 	@Override
@@ -45,145 +63,360 @@ public class FinanceFundamentalAnalysisControllerImpl implements FinanceAnalysis
 
 		for (Date d : economics.keySet()) {
 			Economic e = economics.get(d);
-			Double eps = e.getEps();
-			Double ask = e.getAsk();
-			Double bid = e.getBid();
-			Double per = 0d;
-			per = eps > 0 ? safeDivide(ask, eps) : 0;
-
-			if (bid == null || ask == null) {
+			if (isPriceMissing(e)) {
 				log.debug("No price for: " + stock);
 				callback.onPriceMissing(stock, economics);
 			} else {
-				FinancialAnalysis stockAnalysis = getStockAnalysis(e, stock);
-				if (stockAnalysis.getAcceptance().equals(Acceptance.STRONG_BUY)) {
-
-					SortedMap<Date, Double> assetToDebtRatios = stockAnalysis.getAssetToDebtRatiosAnnual();
-					if (!assetToDebtRatios.isEmpty()) {
-						Date latestDate = assetToDebtRatios.lastKey();
-						Double assetToDebt = assetToDebtRatios.get(latestDate);
-						log.debug("Stock to watch, Strong Buy!! " + stock.getSymbol() + ", per = " + per
-								+ ", Debt ratio on " + latestDate + ": " + assetToDebt);
-
-						callback.onBuy(stock, economics, stockAnalysis);
-					} else {
-						log.debug("Stock is strong buy " + stock.getSymbol() + ", per = " + per
-								+ ", but no debt ratios available");
-					}
-				} else if (stockAnalysis.getAcceptance().equals(Acceptance.BUY)) {
-					log.debug("Stock to watch " + stock + ", per = " + per);
-
-					callback.onBuy(stock, economics, stockAnalysis);
-				} else if (per != null && per > 60) {
-					e.setPerCalculated(per);
-					callback.onSell(stock, economics);
-				} else if (alwaysWatch.contains(stock.getSymbol())) {
-					callback.onWatchList(stock, economics, stockAnalysis);
+				List<FinancialAnalysis> stockAnalyses = getStockAnalyses(e, stock);
+				onStockAnalyses(callback, stock, economics, e, stockAnalyses, alwaysWatch);
+			}
+		}
+
+	}
+
+	/**
+	 * The ratio checks run on the analysis executor; when they pass, the
+	 * financial statements are loaded on the statements executor and the
+	 * balance sheet analysis continues back on the analysis executor, so
+	 * slow statement downloads never hold an analysis thread.
+	 */
+	@Override
+	public CompletableFuture<Void> onEconomicsUpdateAsync(FinanceAnalysisCallback callback, Stock stock,
+			Map<Date, Economic> economics, Set<String> alwaysWatch) {
+		List<CompletableFuture<Void>> analyses = new ArrayList<>(economics.size());
+		for (Date d : economics.keySet()) {
+			Economic e = economics.get(d);
+			CompletableFuture<Void> analysis;
+			if (isPriceMissing(e)) {
+				analysis = CompletableFuture.runAsync(() -> {
+					log.debug("No price for: " + stock);
+					callback.onPriceMissing(stock, economics);
+				}, analysisExecutor);
+			} else {
+				analysis = CompletableFuture.supplyAsync(() -> screenRatios(e, stock), analysisExecutor)
+						.thenCompose(screenings -> analyseStatementsAsync(stock, e, screenings))
+						.thenAccept(stockAnalyses -> onStockAnalyses(callback, stock, economics, e, stockAnalyses,
+								alwaysWatch));
+			}
+			analyses.add(analysis);
+		}
+		CompletableFuture<Void> ret = CompletableFuture
+				.allOf(analyses.toArray(new CompletableFuture[analyses.size()]));
+		return ret;
+	}
+
+	/**
+	 * Runs every registered screen over the same columns of the batch on the
+	 * analysis executor, then loads the statements of the stocks any screen
+	 * found attractive with a single batch call on the statements executor.
+	 * The balance sheet ratios of a stock are computed once and shared by the
+	 * screens it passed. A failure is logged and only loses the stock it
+	 * happened on.
+	 */
+	@Override
+	public CompletableFuture<Void> onEconomicsUpdateAsync(FinanceAnalysisCallback callback,
+			Map<Stock, Map<Date, Economic>> marketData, Set<String> alwaysWatch) {
+		List<CompletableFuture<Void>> priceMissing = new ArrayList<>();
+		List<Stock> stocks = new ArrayList<>();
+		List<Map<Date, Economic>> stockEconomics = new ArrayList<>();
+		List<Economic> priced = new ArrayList<>();
+		for (Stock stock : marketData.keySet()) {
+			Map<Date, Economic> economics = marketData.get(stock);
+			for (Date d : economics.keySet()) {
+				Economic e = economics.get(d);
+				if (isPriceMissing(e)) {
+					priceMissing.add(CompletableFuture.runAsync(() -> {
+						log.debug("No price for: " + stock);
+						callback.onPriceMissing(stock, economics);
+					}, analysisExecutor));
+				} else {
+					stocks.add(stock);
+					stockEconomics.add(economics);
+					priced.add(e);
 				}
 			}
-			// log.debug("finished processing "+symbol+", bid: "+bid+",
-			// eps:"+eps+", per:"+per);
 		}
+		CompletableFuture<Void> analyses = CompletableFuture
+				.supplyAsync(() -> screenBatch(stocks, stockEconomics, priced), analysisExecutor)
+				.thenCompose(screened -> analyseScreened(callback, screened, alwaysWatch));
+		priceMissing.add(analyses);
+		CompletableFuture<Void> ret = CompletableFuture
+				.allOf(priceMissing.toArray(new CompletableFuture[priceMissing.size()]));
+		return ret;
+	}
 
+	private List<Screened> screenBatch(List<Stock> stocks, List<Map<Date, Economic>> stockEconomics,
+			List<Economic> priced) {
+		ScreeningColumns columns = ScreeningColumns.of(stocks, priced, acceptedCurrencies);
+		for (int i = 0; i < columns.size(); i++) {
+			columns.setIndicators(i, indicators.get(stocks.get(i).getSymbol()));
+		}
+		List<List<Screening>> screenings = screenColumns(columns);
+		List<Screened> ret = new ArrayList<>(columns.size());
+		for (int i = 0; i < columns.size(); i++) {
+			ret.add(new Screened(stocks.get(i), stockEconomics.get(i), priced.get(i), screenings.get(i)));
+		}
+		return ret;
 	}
 
-	private FinancialAnalysis getStockAnalysis(Economic e, Stock stock) {
-		// log.debug("analysing "+stock);
-		FinancialAnalysis ret = null;
-		List<FinancialComment> comments = new LinkedList<FinancialComment>();
-		Set<String> currencies = Sets.newSet("USD", "EUR", "GBp");
-		boolean isGoodCurrency = currencies.contains(stock.getCurrency());
-		boolean isAttractiveRatios = false;
-		if (isGoodCurrency) {
-			boolean isPegAttractive = false;
-			boolean isEstimateEpsAttractive = false;
-			boolean isBookToValueAttractive = false;
-			Double pe = e.getPe();
-			Double eps = e.getEps();
-			Double ask = e.getAsk();
-			Double peg = e.getPeg();
-			Double per = 0d;
-			per = eps > 0 ? safeDivide(ask, eps) : 0;
-			boolean isPeAttractive = peCheck(comments, pe, per);
-			Double epsEstimateCurrentYear = e.getEpsEstimateCurrentYear();
-			Double epsEstimateNextQuarter = e.getEpsEstimateNextQuarter();
-			Double epsEstimateNextYear = e.getEpsEstimateNextYear();
-			double epsPercentCurrentYear = safeDivide(epsEstimateCurrentYear, ask);
-			double epsPercentNextQuarter = safeDivide(epsEstimateNextQuarter, ask);
-			double epsPercentNextYear = safeDivide(epsEstimateNextYear, ask);
-			Double bookValuePerShare = e.getBookValuePerShare();
-			double bookValueMultiple = safeDivide(ask, bookValuePerShare);
-
-			isEstimateEpsAttractive = checkEps(comments, isEstimateEpsAttractive, epsPercentCurrentYear,
-					epsPercentNextQuarter, epsPercentNextYear);
-			isBookToValueAttractive = checkBookToValue(comments, pe, per, bookValuePerShare, bookValueMultiple);
-			isPegAttractive = checkPeg(comments, isPegAttractive, peg);
-
-			isAttractiveRatios = isPeAttractive && isPegAttractive 
-					// can be removed because many non-US companies don't have future estimates
-					// but there will be too many results
-					 && isEstimateEpsAttractive  
-					&& isBookToValueAttractive;
+	/**
+	 * The screenings of every stock of the columns, one per registered screen
+	 * and in the order of the registry.
+	 */
+	private List<List<Screening>> screenColumns(ScreeningColumns columns) {
+		List<Sreener> registered = screens.getScreens();
+		int size = columns.size();
+		List<List<Screening>> ret = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			ret.add(new ArrayList<>(registered.size()));
+		}
+		int[] passing = new int[size];
+		for (Sreener screen : registered) {
+			boolean[] attractive = new boolean[size];
+			int count = screen.screen(columns, passing);
+			for (int j = 0; j < count; j++) {
+				attractive[passing[j]] = true;
+			}
+			for (int i = 0; i < size; i++) {
+				ret.get(i).add(toScreening(screen, columns, i, attractive[i]));
+			}
+		}
+		return ret;
+	}
+
+	private CompletableFuture<Void> analyseScreened(FinanceAnalysisCallback callback, List<Screened> screened,
+			Set<String> alwaysWatch) {
+		Set<String> attractive = screened.stream().filter(s -> isAttractive(s.screenings))
+				.map(s -> s.stock.getSymbol()).collect(Collectors.toSet());
+		CompletableFuture<Void> ret = CompletableFuture
+				.supplyAsync(() -> financialStatementsProvider.getFinancialStatements(attractive), statementsExecutor)
+				.exceptionally(t -> {
+					// the stocks are still analysed, the attractive ones without statements
+					log.error("Cannot load the statements of " + attractive.size() + " attractive stocks: "
+							+ t.getMessage(), t);
+					return Collections.emptyMap();
+				})
+				.thenCompose(statements -> {
+					List<CompletableFuture<Void>> analyses = new ArrayList<>(screened.size());
+					for (Screened s : screened) {
+						FinancialData financialData = isAttractive(s.screenings) ? statements.get(s.stock.getSymbol())
+								: null;
+						analyses.add(CompletableFuture.runAsync(() -> {
+							List<FinancialAnalysis> stockAnalyses = advancedAnalysis(s.stock, s.e, s.screenings,
+									financialData);
+							onStockAnalyses(callback, s.stock, s.economics, s.e, stockAnalyses, alwaysWatch);
+						}, analysisExecutor).exceptionally(t -> {
+							log.error("analysis failed for " + s.stock.getSymbol() + ": " + t.getMessage(), t);
+							return null;
+						}));
+					}
+					return CompletableFuture.allOf(analyses.toArray(new CompletableFuture[analyses.size()]));
+				});
+		return ret;
+	}
+
+	private CompletableFuture<List<FinancialAnalysis>> analyseStatementsAsync(Stock stock, Economic e,
+			List<Screening> screenings) {
+		CompletableFuture<List<FinancialAnalysis>> ret;
+		if (isAttractive(screenings)) {
+			ret = CompletableFuture.supplyAsync(() -> getFinancialStatements(stock), statementsExecutor)
+					.thenApplyAsync(financialData -> advancedAnalysis(stock, e, screenings, financialData),
+							analysisExecutor);
 		} else {
-			String msg = "Currency is not interesting: " + stock.getCurrency() + ", " + stock.getName() + ", "
-					+ stock.getDescription();
-			comments.add(new FinancialComment(msg, FinancialComment.CommentType.Currency));
+			ret = CompletableFuture.completedFuture(advancedAnalysis(stock, e, screenings, null));
 		}
+		return ret;
+	}
 
-		ret = advancedAnalysis(stock, e, comments, isAttractiveRatios);
+	private boolean isPriceMissing(Economic e) {
+		return e.getBid() == null || e.getAsk() == null;
+	}
+
+	/**
+	 * Every screen that bought the stock reports it under its own id; a
+	 * stock no screen bought is considered for selling or the watch list
+	 * only once.
+	 */
+	private void onStockAnalyses(FinanceAnalysisCallback callback, Stock stock, Map<Date, Economic> economics,
+			Economic e, List<FinancialAnalysis> stockAnalyses, Set<String> alwaysWatch) {
+		Double eps = e.getEps();
+		Double ask = e.getAsk();
+		Double per = 0d;
+		per = eps != null && eps > 0 ? safeDivide(ask, eps) : 0;
+		boolean bought = false;
+		for (FinancialAnalysis stockAnalysis : stockAnalyses) {
+			bought |= onStockAnalysis(callback, stock, economics, per, stockAnalysis);
+		}
+		if (!bought) {
+			if (per != null && per > 60) {
+				e.setPerCalculated(per);
+				callback.onSell(stock, economics);
+			} else if (alwaysWatch.contains(stock.getSymbol()) && !stockAnalyses.isEmpty()) {
+				callback.onWatchList(stock, economics, stockAnalyses.get(0));
+			}
+		}
+	}
+
+	private boolean onStockAnalysis(FinanceAnalysisCallback callback, Stock stock, Map<Date, Economic> economics,
+			Double per, FinancialAnalysis stockAnalysis) {
+		boolean ret = true;
+		if (stockAnalysis.getAcceptance().equals(Acceptance.STRONG_BUY)) {
+
+			SortedMap<Date, Double> assetToDebtRatios = stockAnalysis.getAssetToDebtRatiosAnnual();
+			if (!assetToDebtRatios.isEmpty()) {
+				Date latestDate = assetToDebtRatios.lastKey();
+				Double assetToDebt = assetToDebtRatios.get(latestDate);
+				log.debug("Stock to watch, Strong Buy!! " + stock.getSymbol() + " on " + stockAnalysis.getScreenId()
+						+ ", per = " + per + ", Debt ratio on " + latestDate + ": " + assetToDebt);
+
+				callback.onBuy(stock, economics, stockAnalysis);
+			} else {
+				log.debug("Stock is strong buy " + stock.getSymbol() + " on " + stockAnalysis.getScreenId()
+						+ ", per = " + per + ", but no debt ratios available");
+			}
+		} else if (stockAnalysis.getAcceptance().equals(Acceptance.BUY)) {
+			log.debug("Stock to watch " + stock + " on " + stockAnalysis.getScreenId() + ", per = " + per);
+
+			callback.onBuy(stock, economics, stockAnalysis);
+		} else {
+			ret = false;
+		}
+		return ret;
+	}
+
+	private List<FinancialAnalysis> getStockAnalyses(Economic e, Stock stock) {
+		List<Screening> screenings = screenRatios(e, stock);
+		FinancialData financialData = null;
+		if (isAttractive(screenings)) {
+			financialData = getFinancialStatements(stock);
+		}
+		List<FinancialAnalysis> ret = advancedAnalysis(stock, e, screenings, financialData);
+		return ret;
+	}
+
+	private static class Screened {
+		final Stock stock;
+		final Map<Date, Economic> economics;
+		final Economic e;
+		final List<Screening> screenings;
+
+		Screened(Stock stock, Map<Date, Economic> economics, Economic e, List<Screening> screenings) {
+			this.stock = stock;
+			this.economics = economics;
+			this.e = e;
+			this.screenings = screenings;
+		}
+	}
+
+	private static class Screening {
+		final String screenId;
+		final List<FinancialComment> comments;
+		final boolean attractive;
+
+		Screening(String screenId, List<FinancialComment> comments, boolean attractive) {
+			this.screenId = screenId;
+			this.comments = comments;
+			this.attractive = attractive;
+		}
+	}
+
+	private boolean isAttractive(List<Screening> screenings) {
+		boolean ret = false;
+		for (Screening s : screenings) {
+			ret |= s.attractive;
+		}
+		return ret;
+	}
+
+	private List<Screening> screenRatios(Economic e, Stock stock) {
+		ScreeningColumns columns = ScreeningColumns.of(Collections.singletonList(stock),
+				Collections.singletonList(e), acceptedCurrencies);
+		columns.setIndicators(0, indicators.get(stock.getSymbol()));
+		List<Screening> ret = screenColumns(columns).get(0);
+		return ret;
+	}
+
+	/**
+	 * Comments are only written for the stocks that passed the screen, the
+	 * others get an empty list that the analysis can still add to.
+	 */
+	private Screening toScreening(Sreener screen, ScreeningColumns columns, int i, boolean attractive) {
+		List<FinancialComment> comments;
+		if (attractive) {
+			comments = screen.explain(columns, i);
+		} else {
+			comments = new ArrayList<>(1);
+		}
+		Screening ret = new Screening(screen.getScreenId(), comments, attractive);
+		return ret;
+	}
+
+	/**
+	 * The balance sheet ratio stage: one analysis per screening, the ratios
+	 * being computed once for all the screens the stock passed.
+	 */
+	private List<FinancialAnalysis> advancedAnalysis(Stock stock, Economic e, List<Screening> screenings,
+			FinancialData financialData) {
+		List<FinancialAnalysis> ret = new ArrayList<>(screenings.size());
+		BalanceSheetRatios ratios = null;
+		if (financialData != null && isAttractive(screenings)) {
+			ratios = new BalanceSheetRatios(financialData, stock);
+		}
+		for (Screening screening : screenings) {
+			ret.add(advancedAnalysis(stock, e, screening, ratios));
+		}
 		return ret;
 	}
 
-	private FinancialAnalysis advancedAnalysis(Stock stock, Economic e, List<FinancialComment> comments,
-			boolean isAttractiveRatios) {
+	private FinancialAnalysis advancedAnalysis(Stock stock, Economic e, Screening screening,
+			BalanceSheetRatios ratios) {
 		FinancialAnalysis ret;
+		List<FinancialComment> comments = screening.comments;
 
-		if (isAttractiveRatios) {
-			log.debug("getting balance sheet for " + stock.getSymbol());
-			String exchange = stock.getStockExchange();
-			
-			// the commented out code below is the old yahoo financial statements format
-			// SortedMap<Date, BalanceSheet> annualBalanceSheetForSymbol =
-			// balanceSheetDao
-			// .getBalanceSheetForSymbol(stock.getSymbol(), exchange, true);
-			// SortedMap<Date, BalanceSheet> quarterlyBalanceSheetForSymbol =
-			// balanceSheetDao
-			// .getBalanceSheetForSymbol(stock.getSymbol(), exchange, false);
-
-			String symbol = stock.getSymbol();
-			FinancialData financialData = getFinancialStatements(exchange, symbol);
-			if (financialData != null) {
-				SortedMap<Date, BalanceSheet> annualBalanceSheet = financialData.getAnnualBalanceSheet();
-				SortedMap<Date, BalanceSheet> quarterlyBalanceSheet = financialData.getQuarterlyBalanceSheet();
-				SortedMap<Date, Double> currentRatiosQutr = new TreeMap<Date, Double>();
-				SortedMap<Date, Double> quickRatiosQutr = new TreeMap<Date, Double>();
-				SortedMap<Date, Double> assetToDebtRatiosQutr = new TreeMap<Date, Double>();
-
-				calculateRatiosFromBalanceSheets(quarterlyBalanceSheet, currentRatiosQutr, quickRatiosQutr,
-						assetToDebtRatiosQutr);
-
-				SortedMap<Date, Double> currentRatiosAnnual = new TreeMap<Date, Double>();
-				SortedMap<Date, Double> quickRatiosAnnual = new TreeMap<Date, Double>();
-				SortedMap<Date, Double> assetToDebtRatiosAnnual = new TreeMap<Date, Double>();
-				calculateRatiosFromBalanceSheets(annualBalanceSheet, currentRatiosAnnual, quickRatiosAnnual,
-						assetToDebtRatiosAnnual);
-				Acceptance acceptanceResult = analyseRatios(currentRatiosQutr, quickRatiosQutr, assetToDebtRatiosQutr,
-						currentRatiosAnnual, quickRatiosAnnual, assetToDebtRatiosAnnual, stock);
-				ret = new FinancialAnalysis(stock, e, comments, acceptanceResult, currentRatiosQutr, quickRatiosQutr,
-						assetToDebtRatiosQutr, currentRatiosAnnual, quickRatiosAnnual, assetToDebtRatiosAnnual);
+		if (screening.attractive) {
+			if (ratios != null) {
+				ret = new FinancialAnalysis(screening.screenId, stock, e, comments, ratios.acceptance,
+						ratios.currentRatiosQutr, ratios.quickRatiosQutr, ratios.assetToDebtRatiosQutr,
+						ratios.currentRatiosAnnual, ratios.quickRatiosAnnual, ratios.assetToDebtRatiosAnnual);
 			} else {
 				comments.add(new FinancialComment("No financial data available", CommentType.MissingData));
-				ret = new FinancialAnalysis(stock, e, comments, Acceptance.HOLD, null, null, null, null, null, null);
+				ret = new FinancialAnalysis(screening.screenId, stock, e, comments, Acceptance.HOLD, null, null, null,
+						null, null, null);
 			}
 		} else {
-			ret = new FinancialAnalysis(stock, e, comments, Acceptance.HOLD, null, null, null, null, null, null);
+			ret = new FinancialAnalysis(screening.screenId, stock, e, comments, Acceptance.HOLD, null, null, null,
+					null, null, null);
 		}
 
 		return ret;
 	}
 
-	private FinancialData getFinancialStatements(String exchange, String symbol) {
-		FinancialData financialData = financialStatementsProvider.getFinancialStatements(symbol);
+	private class BalanceSheetRatios {
+		final SortedMap<Date, Double> currentRatiosQutr = new TreeMap<Date, Double>();
+		final SortedMap<Date, Double> quickRatiosQutr = new TreeMap<Date, Double>();
+		final SortedMap<Date, Double> assetToDebtRatiosQutr = new TreeMap<Date, Double>();
+		final SortedMap<Date, Double> currentRatiosAnnual = new TreeMap<Date, Double>();
+		final SortedMap<Date, Double> quickRatiosAnnual = new TreeMap<Date, Double>();
+		final SortedMap<Date, Double> assetToDebtRatiosAnnual = new TreeMap<Date, Double>();
+		final Acceptance acceptance;
+
+		BalanceSheetRatios(FinancialData financialData, Stock stock) {
+			SortedMap<Date, BalanceSheet> annualBalanceSheet = financialData.getAnnualBalanceSheet();
+			SortedMap<Date, BalanceSheet> quarterlyBalanceSheet = financialData.getQuarterlyBalanceSheet();
+			calculateRatiosFromBalanceSheets(quarterlyBalanceSheet, currentRatiosQutr, quickRatiosQutr,
+					assetToDebtRatiosQutr);
+			calculateRatiosFromBalanceSheets(annualBalanceSheet, currentRatiosAnnual, quickRatiosAnnual,
+					assetToDebtRatiosAnnual);
+			this.acceptance = analyseRatios(currentRatiosQutr, quickRatiosQutr, assetToDebtRatiosQutr,
+					currentRatiosAnnual, quickRatiosAnnual, assetToDebtRatiosAnnual, stock);
+		}
+	}
+
+	private FinancialData getFinancialStatements(Stock stock) {
+		log.debug("getting balance sheet for " + stock.getSymbol());
+		// the old yahoo financial statements format used to be loaded here through
+		// balanceSheetDao.getBalanceSheetForSymbol(symbol, exchange, annual)
+		FinancialData financialData = financialStatementsProvider.getFinancialStatements(stock.getSymbol());
 		return financialData;
 	}
 
@@ -281,64 +514,6 @@ public class FinanceFundamentalAnalysisControllerImpl implements FinanceAnalysis
 		}
 	}
 
-	private boolean peCheck(List<FinancialComment> comments, Double pe, Double per) {
-		boolean isPeAttractive = false;
-		if (pe != null && pe > 0 && pe < 15) {
-			String msg = "pe=" + pe + ", pe calculated by yahoo";
-			comments.add(new FinancialComment(msg, FinancialComment.CommentType.PastEarnings));
-			isPeAttractive = true;
-		} else if (per != null && per > 0 && per < 15) {
-			String msg = "per=" + per + ", per calculated from eps and ask price";
-			comments.add(new FinancialComment(msg, FinancialComment.CommentType.PastEarnings));
-			isPeAttractive = true;
-		}
-		return isPeAttractive;
-	}
-
-	private boolean checkPeg(List<FinancialComment> comments, boolean isPegAttractive, Double peg) {
-		if (peg != null && peg < 1) {
-			String msg = "Peg = " + peg;
-			comments.add(new FinancialComment(msg, FinancialComment.CommentType.Peg));
-			isPegAttractive = true;
-		}
-		return isPegAttractive;
-	}
-
-	private boolean checkBookToValue(List<FinancialComment> comments, Double pe, Double per, Double bookValuePerShare,
-			double bookValueMultiple) {
-		boolean isBookToValueAttractive = false;
-		if (pe > 0 && bookValueMultiple > 0 && bookValueMultiple * pe < 25) {
-			String msg = "book value/share= " + bookValuePerShare + ", gives a multiple of = " + bookValueMultiple
-					+ ", pe*bv=" + bookValueMultiple * pe;
-			comments.add(new FinancialComment(msg, FinancialComment.CommentType.BookValue));
-			isBookToValueAttractive = true;
-		} else if (per > 0 && bookValueMultiple > 0 && bookValueMultiple * pe < 27) {
-			String msg = "book value/share= " + bookValuePerShare + ", gives a multiple of = " + bookValueMultiple
-					+ ", per*bv=" + bookValueMultiple * pe;
-			comments.add(new FinancialComment(msg, FinancialComment.CommentType.BookValue));
-			isBookToValueAttractive = true;
-		}
-		return isBookToValueAttractive;
-	}
-
-	private boolean checkEps(List<FinancialComment> comments, boolean isEstimateEpsAttractive,
-			double epsPercentCurrentYear, double epsPercentNextQuarter, double epsPercentNextYear) {
-
-		if (epsPercentCurrentYear > 0.05 && epsPercentNextQuarter > 0.024 && epsPercentNextYear > 0.01) {
-			String msg = "earnings to price, current year=" + epsPercentCurrentYear
-					+ ", per calculated from epsEstimateCurrentYear and ask price";
-			comments.add(new FinancialComment(msg, FinancialComment.CommentType.FutureEarnings));
-			String msg1 = "earnings to price, next quarter=" + epsPercentNextQuarter
-					+ ", per calculated from epsEstimateNextQuarter and ask price";
-			comments.add(new FinancialComment(msg1, FinancialComment.CommentType.FutureEarnings));
-			String msg2 = "earnings to price, next year=" + epsPercentNextQuarter
-					+ ", per calculated from epsEstimateNextQuarter and ask price";
-			comments.add(new FinancialComment(msg2, FinancialComment.CommentType.FutureEarnings));
-			isEstimateEpsAttractive = true;
-		}
-		return isEstimateEpsAttractive;
-	}
-
 	private double safeDouble(Double b) {
 		double ret;
 		if (b == null) {
@@ -0,0 +1,169 @@
+package com.oak.finance.app.monitor.pipeline;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A step of the market data pipeline: a bounded buffer drained by a fixed
+ * number of workers. {@link #put(Object)} blocks while the buffer is full,
+ * which is what pushes back on the stage feeding it; {@link #offer(Object,
+ * long, TimeUnit)} gives up after a timeout. Neither waits on a stage that
+ * can no longer drain its buffer: once it is closed, aborted or has lost
+ * all its workers they throw an IllegalStateException.
+ * <p>
+ * Completion is signalled by {@link #close()}: once the owner has put its
+ * last item it closes the stage, the workers drain what is left and exit,
+ * and {@link #awaitCompletion()} returns. {@link #abort(Throwable)} stops
+ * the workers without draining.
+ */
+public class PipelineStage<T> {
+	private static final long POLL_MILLIS = 100;
+
+	private final String name;
+	private final int capacity;
+	private final int workers;
+	private final BlockingQueue<T> queue;
+	private final Consumer<T> processor;
+	private final Logger log;
+	private final CountDownLatch finished;
+	private final AtomicLong processed = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private volatile boolean closed = false;
+	private volatile Throwable failure;
+	private volatile long startMillis;
+	private volatile long endMillis;
+
+	public PipelineStage(String name, int capacity, int workers, Consumer<T> processor, Logger log) {
+		this.name = name;
+		this.capacity = capacity;
+		this.workers = workers;
+		this.queue = new ArrayBlockingQueue<T>(capacity);
+		this.processor = processor;
+		this.log = log;
+		this.finished = new CountDownLatch(workers);
+	}
+
+	public void start(Executor executor) {
+		startMillis = System.currentTimeMillis();
+		for (int i = 0; i < workers; i++) {
+			executor.execute(this::work);
+		}
+	}
+
+	public void put(T item) throws InterruptedException {
+		while (!offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+			// full, and still draining
+		}
+	}
+
+	/**
+	 * False if the buffer stayed full for the whole timeout.
+	 */
+	public boolean offer(T item, long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		boolean ret = false;
+		long left = deadline - System.nanoTime();
+		do {
+			checkAccepting();
+			ret = queue.offer(item, Math.min(Math.max(left, 0), TimeUnit.MILLISECONDS.toNanos(POLL_MILLIS)),
+					TimeUnit.NANOSECONDS);
+			left = deadline - System.nanoTime();
+		} while (!ret && left > 0);
+		return ret;
+	}
+
+	/**
+	 * Whether an item put now can still be processed.
+	 */
+	public boolean isAccepting() {
+		return !closed && failure == null && !isCompleted();
+	}
+
+	/**
+	 * Must only be called once every {@link #put(Object)} has returned.
+	 */
+	public void close() {
+		closed = true;
+	}
+
+	/**
+	 * Stops the stage without processing what is left in its buffer, the
+	 * cause being rethrown to whoever puts to it next.
+	 */
+	public void abort(Throwable cause) {
+		failure = cause;
+		closed = true;
+		int dropped = queue.size();
+		queue.clear();
+		log.error("stage " + name + " aborted, dropping " + dropped + " items: " + cause.getMessage(), cause);
+	}
+
+	public Throwable getFailure() {
+		return failure;
+	}
+
+	public void awaitCompletion() throws InterruptedException {
+		finished.await();
+	}
+
+	public boolean isCompleted() {
+		return finished.getCount() == 0;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public StageMetrics getMetrics() {
+		long end = isCompleted() ? endMillis : System.currentTimeMillis();
+		StageMetrics ret = new StageMetrics(name, workers, capacity, queue.size(), processed.get(), failed.get(),
+				end - startMillis);
+		return ret;
+	}
+
+	private void work() {
+		try {
+			while (failure == null && (!closed || !queue.isEmpty())) {
+				T item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+				if (item != null) {
+					process(item);
+				}
+			}
+		} catch (InterruptedException e) {
+			log.error(name + " worker was interrupted", e);
+			Thread.currentThread().interrupt();
+		} finally {
+			endMillis = System.currentTimeMillis();
+			finished.countDown();
+		}
+	}
+
+	private void checkAccepting() {
+		if (failure != null) {
+			throw new IllegalStateException("stage " + name + " was aborted", failure);
+		}
+		if (closed) {
+			throw new IllegalStateException("stage " + name + " is closed");
+		}
+		if (isCompleted()) {
+			throw new IllegalStateException("stage " + name + " has no worker left");
+		}
+	}
+
+	private void process(T item) {
+		try {
+			processor.accept(item);
+			processed.incrementAndGet();
+		} catch (RuntimeException e) {
+			failed.incrementAndGet();
+			log.error(name + " failed to process an item: " + e.getMessage(), e);
+		}
+	}
+}
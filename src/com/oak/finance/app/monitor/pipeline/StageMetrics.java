@@ -0,0 +1,31 @@
+package com.oak.finance.app.monitor.pipeline;
+
+import lombok.Data;
+
+/**
+ * Point in time view of a {@link PipelineStage}.
+ */
+@Data
+public class StageMetrics {
+	private final String name;
+	private final int workers;
+	private final int capacity;
+	private final int queueDepth;
+	private final long processed;
+	private final long failed;
+	private final long elapsedMillis;
+
+	public double getThroughputPerSecond() {
+		double ret = 0;
+		if (elapsedMillis > 0) {
+			ret = processed * 1000.0 / elapsedMillis;
+		}
+		return ret;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: processed=%d failed=%d queue=%d/%d workers=%d throughput=%.2f/s", name, processed,
+				failed, queueDepth, capacity, workers, getThroughputPerSecond());
+	}
+}
@@ -0,0 +1,193 @@
+package com.oak.finance.app.screeners;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.oak.api.finance.model.FinancialComment;
+import com.oak.api.finance.model.FinancialComment.CommentType;
+
+/**
+ * A {@link Filter} turned into primitive bounds and evaluated over
+ * {@link ScreeningColumns}. The screening loop only compares doubles, with
+ * non short-circuit operators so it runs without branches over the whole
+ * universe; comments are only built afterwards, for the stocks that passed.
+ * A bound left null in the filter is not checked.
+ */
+public class CompiledFilter {
+	private final Filter filter;
+	private final boolean checkPe;
+	private final double maxPe;
+	private final double maxPerCalculated;
+	private final boolean checkFwdPe;
+	private final double maxFwdPe;
+	private final boolean checkPeg;
+	private final double maxPeg;
+	private final boolean checkEpsTtm;
+	private final double minEpsTtm;
+	private final boolean checkEpsCurrentYr;
+	private final double minEpsCurrentYr;
+	private final boolean checkEpsNextQtr;
+	private final double minEpsNextQtr;
+	private final boolean checkEpsNextYr;
+	private final double minEpsNextYr;
+	private final boolean checkBookValueMultiple;
+	private final double maxBookValueMultiple;
+	private final double maxPerBookValueMultiple;
+	private final boolean checkRsi;
+	private final double maxRsi;
+	private final boolean checkDrawdown;
+	private final double maxDrawdown;
+
+	private CompiledFilter(Filter filter) {
+		this.filter = filter;
+		this.checkPe = filter.getMaxPe() != null || filter.getMaxPerCalculated() != null;
+		this.maxPe = bound(filter.getMaxPe(), Double.NEGATIVE_INFINITY);
+		this.maxPerCalculated = bound(filter.getMaxPerCalculated(), Double.NEGATIVE_INFINITY);
+		this.checkFwdPe = filter.getMaxFwdPe() != null;
+		this.maxFwdPe = bound(filter.getMaxFwdPe(), Double.POSITIVE_INFINITY);
+		this.checkPeg = filter.getMaxPeg() != null;
+		this.maxPeg = bound(filter.getMaxPeg(), Double.POSITIVE_INFINITY);
+		this.checkEpsTtm = filter.getMinEpsTtm() != null;
+		this.minEpsTtm = bound(filter.getMinEpsTtm(), Double.NEGATIVE_INFINITY);
+		this.checkEpsCurrentYr = filter.getMinEpsCurrentYr() != null;
+		this.minEpsCurrentYr = bound(filter.getMinEpsCurrentYr(), Double.NEGATIVE_INFINITY);
+		this.checkEpsNextQtr = filter.getMinEpsNextQtr() != null;
+		this.minEpsNextQtr = bound(filter.getMinEpsNextQtr(), Double.NEGATIVE_INFINITY);
+		this.checkEpsNextYr = filter.getMinEpsNextYr() != null;
+		this.minEpsNextYr = bound(filter.getMinEpsNextYr(), Double.NEGATIVE_INFINITY);
+		this.checkBookValueMultiple = filter.getMaxBookValueMultiple() != null
+				|| filter.getMaxPerBookValueMultiple() != null;
+		this.maxBookValueMultiple = bound(filter.getMaxBookValueMultiple(), Double.NEGATIVE_INFINITY);
+		this.maxPerBookValueMultiple = bound(filter.getMaxPerBookValueMultiple(), Double.NEGATIVE_INFINITY);
+		this.checkRsi = filter.getMaxRsi() != null;
+		this.maxRsi = bound(filter.getMaxRsi(), Double.POSITIVE_INFINITY);
+		this.checkDrawdown = filter.getMaxDrawdown() != null;
+		this.maxDrawdown = bound(filter.getMaxDrawdown(), Double.POSITIVE_INFINITY);
+	}
+
+	public static CompiledFilter compile(Filter filter) {
+		CompiledFilter ret = new CompiledFilter(filter);
+		return ret;
+	}
+
+	public Filter getFilter() {
+		return filter;
+	}
+
+	/**
+	 * Writes the index of every stock passing the filter into passing, in
+	 * order, and returns how many there are. passing must be at least
+	 * columns.size() long.
+	 */
+	public int screen(ScreeningColumns columns, int[] passing) {
+		int ret = 0;
+		int size = columns.size();
+		for (int i = 0; i < size; i++) {
+			passing[ret] = i;
+			ret += test(columns, i) ? 1 : 0;
+		}
+		return ret;
+	}
+
+	public int[] screen(ScreeningColumns columns) {
+		int[] passing = new int[columns.size()];
+		int count = screen(columns, passing);
+		int[] ret = new int[count];
+		System.arraycopy(passing, 0, ret, 0, count);
+		return ret;
+	}
+
+	public boolean test(ScreeningColumns c, int i) {
+		boolean ret = c.acceptedCurrency[i] & (!checkPe | isPeAttractive(c, i))
+				& (!checkFwdPe | c.fwdPe[i] < maxFwdPe) & (!checkPeg | c.peg[i] < maxPeg)
+				& (!checkEpsTtm | c.eps[i] > minEpsTtm)
+				& (!checkEpsCurrentYr | c.epsYieldCurrentYear[i] > minEpsCurrentYr)
+				& (!checkEpsNextQtr | c.epsYieldNextQuarter[i] > minEpsNextQtr)
+				& (!checkEpsNextYr | c.epsYieldNextYear[i] > minEpsNextYr)
+				& (!checkBookValueMultiple | isBookValueAttractive(c, i))
+				& (!checkRsi | c.rsi[i] < maxRsi) & (!checkDrawdown | c.drawdown[i] < maxDrawdown);
+		return ret;
+	}
+
+	/**
+	 * The comments explaining why the stock at i passed, only meant to be
+	 * called for the stocks {@link #test} accepted.
+	 */
+	public List<FinancialComment> explain(ScreeningColumns c, int i) {
+		List<FinancialComment> ret = new ArrayList<>();
+		double pe = c.pe[i];
+		double per = c.perCalculated[i];
+		if (checkPe) {
+			if (isPeRatioAttractive(pe)) {
+				String msg = "pe=" + pe + ", pe calculated by yahoo";
+				ret.add(new FinancialComment(msg, CommentType.PastEarnings));
+			} else {
+				String msg = "per=" + per + ", per calculated from eps and ask price";
+				ret.add(new FinancialComment(msg, CommentType.PastEarnings));
+			}
+		}
+		if (checkEpsCurrentYr | checkEpsNextQtr | checkEpsNextYr) {
+			String msg = "earnings to price, current year=" + c.epsYieldCurrentYear[i]
+					+ ", per calculated from epsEstimateCurrentYear and ask price";
+			ret.add(new FinancialComment(msg, CommentType.FutureEarnings));
+			String msg1 = "earnings to price, next quarter=" + c.epsYieldNextQuarter[i]
+					+ ", per calculated from epsEstimateNextQuarter and ask price";
+			ret.add(new FinancialComment(msg1, CommentType.FutureEarnings));
+			String msg2 = "earnings to price, next year=" + c.epsYieldNextYear[i]
+					+ ", per calculated from epsEstimateNextYear and ask price";
+			ret.add(new FinancialComment(msg2, CommentType.FutureEarnings));
+		}
+		if (checkBookValueMultiple) {
+			double bookValueMultiple = c.bookValueMultiple[i];
+			if (isPeBookValueAttractive(pe, bookValueMultiple)) {
+				String msg = "book value/share= " + c.bookValuePerShare[i] + ", gives a multiple of = "
+						+ bookValueMultiple + ", pe*bv=" + bookValueMultiple * pe;
+				ret.add(new FinancialComment(msg, CommentType.BookValue));
+			} else {
+				String msg = "book value/share= " + c.bookValuePerShare[i] + ", gives a multiple of = "
+						+ bookValueMultiple + ", per*bv=" + bookValueMultiple * per;
+				ret.add(new FinancialComment(msg, CommentType.BookValue));
+			}
+		}
+		if (checkPeg) {
+			String msg = "Peg = " + c.peg[i];
+			ret.add(new FinancialComment(msg, CommentType.Peg));
+		}
+		if (checkRsi | checkDrawdown) {
+			String msg = "rsi(14)=" + c.rsi[i] + ", drawdown from the highest close=" + c.drawdown[i]
+					+ ", price/sma(200)=" + c.priceToSma200[i] + ", volatility(20)=" + c.volatility[i];
+			ret.add(new FinancialComment(msg, CommentType.Technical));
+		}
+		return ret;
+	}
+
+	private boolean isPeAttractive(ScreeningColumns c, int i) {
+		double per = c.perCalculated[i];
+		return isPeRatioAttractive(c.pe[i]) | (per > 0 & per < maxPerCalculated);
+	}
+
+	private boolean isPeRatioAttractive(double pe) {
+		return pe > 0 & pe < maxPe;
+	}
+
+	private boolean isBookValueAttractive(ScreeningColumns c, int i) {
+		double bookValueMultiple = c.bookValueMultiple[i];
+		double per = c.perCalculated[i];
+		return isPeBookValueAttractive(c.pe[i], bookValueMultiple)
+				| (per > 0 & bookValueMultiple > 0 & bookValueMultiple * per < maxPerBookValueMultiple);
+	}
+
+	private boolean isPeBookValueAttractive(double pe, double bookValueMultiple) {
+		return pe > 0 & bookValueMultiple > 0 & bookValueMultiple * pe < maxBookValueMultiple;
+	}
+
+	private static double bound(Double value, double unchecked) {
+		double ret;
+		if (value == null) {
+			ret = unchecked;
+		} else {
+			ret = value;
+		}
+		return ret;
+	}
+}
@@ -27,7 +27,10 @@ public class Filter implements Comparable<Filter>{
 	private Double minEpsCurrentYr;
 	private Double minEpsNextYr;
 	private Double minEpsNextQtr;
-	private Double maxBookValueMultiple;//*pe, or *per, per > 0 and pe>0 and < 25, <27
+	private Double maxBookValueMultiple;//*pe, pe>0 and < 25
+	private Double maxPerBookValueMultiple;//*per when pe doesn't pass, per > 0 and < 27
+	private Double maxRsi;//14 days relative strength, 0 to 100
+	private Double maxDrawdown;//fraction below the highest close
 
 	@Override
 	public int compareTo(Filter o) {
@@ -48,6 +51,12 @@ public class Filter implements Comparable<Filter>{
 			i = minEpsNextQtr.compareTo(o.minEpsNextQtr);
 		if (i == 0)
 			i = maxBookValueMultiple.compareTo(o.maxBookValueMultiple);
+		if (i == 0)
+			i = maxPerBookValueMultiple.compareTo(o.maxPerBookValueMultiple);
+		if (i == 0)
+			i = maxRsi.compareTo(o.maxRsi);
+		if (i == 0)
+			i = maxDrawdown.compareTo(o.maxDrawdown);
 
 		return i;
 	}
@@ -0,0 +1,47 @@
+package com.oak.finance.app.screeners;
+
+import java.util.List;
+
+import com.oak.api.finance.model.FinancialComment;
+
+/**
+ * A screen made of a {@link Filter}, compiled once when the screen is built.
+ */
+public class FilterSreener implements Sreener {
+	private final String screenId;
+	private final CompiledFilter filter;
+
+	public FilterSreener(String screenId, Filter filter) {
+		this.screenId = screenId;
+		this.filter = CompiledFilter.compile(filter);
+	}
+
+	@Override
+	public String getScreenId() {
+		return screenId;
+	}
+
+	public Filter getFilter() {
+		return filter.getFilter();
+	}
+
+	@Override
+	public boolean test(ScreeningColumns columns, int i) {
+		return filter.test(columns, i);
+	}
+
+	@Override
+	public int screen(ScreeningColumns columns, int[] passing) {
+		return filter.screen(columns, passing);
+	}
+
+	@Override
+	public List<FinancialComment> explain(ScreeningColumns columns, int i) {
+		return filter.explain(columns, i);
+	}
+
+	@Override
+	public String toString() {
+		return "FilterSreener [screenId=" + screenId + ", filter=" + filter.getFilter() + "]";
+	}
+}
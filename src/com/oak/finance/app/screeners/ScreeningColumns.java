@@ -0,0 +1,130 @@
+package com.oak.finance.app.screeners;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import com.oak.api.finance.model.Economic;
+import com.oak.api.finance.model.Stock;
+import com.oak.finance.app.indicators.Indicators;
+
+/**
+ * The ratios a {@link CompiledFilter} looks at, one primitive array per ratio
+ * and one slot per stock of the screened universe, technical indicators
+ * included when they are known. A missing value is NaN, which fails every
+ * bound it is compared to.
+ */
+public class ScreeningColumns {
+	private final int size;
+	final double[] pe;
+	final double[] perCalculated;
+	final double[] fwdPe;
+	final double[] peg;
+	final double[] eps;
+	final double[] epsYieldCurrentYear;
+	final double[] epsYieldNextQuarter;
+	final double[] epsYieldNextYear;
+	final double[] bookValuePerShare;
+	final double[] bookValueMultiple;
+	final boolean[] acceptedCurrency;
+	final double[] rsi;
+	final double[] drawdown;
+	final double[] priceToSma200;
+	final double[] volatility;
+
+	public ScreeningColumns(int size) {
+		this.size = size;
+		this.pe = new double[size];
+		this.perCalculated = new double[size];
+		this.fwdPe = new double[size];
+		this.peg = new double[size];
+		this.eps = new double[size];
+		this.epsYieldCurrentYear = new double[size];
+		this.epsYieldNextQuarter = new double[size];
+		this.epsYieldNextYear = new double[size];
+		this.bookValuePerShare = new double[size];
+		this.bookValueMultiple = new double[size];
+		this.acceptedCurrency = new boolean[size];
+		this.rsi = missing(size);
+		this.drawdown = missing(size);
+		this.priceToSma200 = missing(size);
+		this.volatility = missing(size);
+	}
+
+	/**
+	 * Lays out the economics of the stocks side by side, stocks.get(i) being
+	 * the stock of economics.get(i).
+	 */
+	public static ScreeningColumns of(List<Stock> stocks, List<Economic> economics, Set<String> acceptedCurrencies) {
+		ScreeningColumns ret = new ScreeningColumns(economics.size());
+		for (int i = 0; i < ret.size; i++) {
+			ret.set(i, stocks.get(i), economics.get(i), acceptedCurrencies);
+		}
+		return ret;
+	}
+
+	public void set(int i, Stock stock, Economic e, Set<String> acceptedCurrencies) {
+		set(i, acceptedCurrencies.contains(stock.getCurrency()), value(e.getAsk()), value(e.getEps()),
+				value(e.getPe()), value(e.getPeg()), value(e.getEpsEstimateCurrentYear()),
+				value(e.getEpsEstimateNextQuarter()), value(e.getEpsEstimateNextYear()),
+				value(e.getBookValuePerShare()));
+	}
+
+	/**
+	 * The technical indicators of the stock at i, left missing when null.
+	 */
+	public void setIndicators(int i, Indicators indicators) {
+		if (indicators != null) {
+			this.rsi[i] = indicators.getRsi14();
+			this.drawdown[i] = indicators.getDrawdown();
+			this.priceToSma200[i] = divide(indicators.getClose(), indicators.getSma200());
+			this.volatility[i] = indicators.getVolatility20();
+		}
+	}
+
+	private void set(int i, boolean acceptedCurrency, double ask, double eps, double pe, double peg,
+			double epsEstimateCurrentYear, double epsEstimateNextQuarter, double epsEstimateNextYear,
+			double bookValuePerShare) {
+		this.acceptedCurrency[i] = acceptedCurrency;
+		this.pe[i] = pe;
+		this.perCalculated[i] = eps > 0 ? divide(ask, eps) : Double.NaN;
+		this.fwdPe[i] = epsEstimateNextYear > 0 ? divide(ask, epsEstimateNextYear) : Double.NaN;
+		this.peg[i] = peg;
+		this.eps[i] = eps;
+		this.epsYieldCurrentYear[i] = divide(epsEstimateCurrentYear, ask);
+		this.epsYieldNextQuarter[i] = divide(epsEstimateNextQuarter, ask);
+		this.epsYieldNextYear[i] = divide(epsEstimateNextYear, ask);
+		this.bookValuePerShare[i] = bookValuePerShare;
+		this.bookValueMultiple[i] = divide(ask, bookValuePerShare);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	private static double value(Double d) {
+		double ret;
+		if (d == null) {
+			ret = Double.NaN;
+		} else {
+			ret = d;
+		}
+		return ret;
+	}
+
+	private static double[] missing(int size) {
+		double[] ret = new double[size];
+		Arrays.fill(ret, Double.NaN);
+		return ret;
+	}
+
+	private static double divide(double a, double b) {
+		double ret;
+		if (b == 0) {
+			ret = Double.NaN;
+		} else {
+			ret = a / b;
+		}
+		return ret;
+	}
+}
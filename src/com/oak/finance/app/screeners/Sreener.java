@@ -1,5 +1,26 @@
 package com.oak.finance.app.screeners;
 
+import java.util.List;
+
+import com.oak.api.finance.model.FinancialComment;
+
+/**
+ * One named screen: the ratio bounds a stock has to pass before its balance
+ * sheets are analysed. Every registered screen looks at the same
+ * {@link ScreeningColumns} of a batch, see {@link SreenerRegistry}.
+ */
 public interface Sreener {
+	/** tags the results of the screen */
+	String getScreenId();
+
+	boolean test(ScreeningColumns columns, int i);
+
+	/**
+	 * Writes the index of every stock passing the screen into passing and
+	 * returns how many there are.
+	 */
+	int screen(ScreeningColumns columns, int[] passing);
 
+	/** why the stock at i passed, only called for the stocks that did */
+	List<FinancialComment> explain(ScreeningColumns columns, int i);
 }
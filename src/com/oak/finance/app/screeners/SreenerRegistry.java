@@ -0,0 +1,82 @@
+package com.oak.finance.app.screeners;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.Logger;
+
+import com.oak.api.finance.repository.FilterRepository;
+
+/**
+ * The screens run on every analysis batch: the default screen configured in
+ * the properties, the filters saved in the {@link FilterRepository} and any
+ * screen registered in code. Readers get a snapshot, so screens can be
+ * registered or reloaded while a batch is being analysed.
+ */
+public class SreenerRegistry {
+	public static final String DEFAULT_SCREEN_ID = "screen0";
+	private static final String FILTER_SCREEN_PREFIX = "filter-";
+
+	private final FilterRepository filterRepository;
+	private final Logger log;
+	private volatile Map<String, Sreener> screens;
+
+	/**
+	 * @param filterRepository
+	 *            null when the saved filters are not screened
+	 */
+	public SreenerRegistry(Sreener defaultScreen, FilterRepository filterRepository, Logger log) {
+		this.filterRepository = filterRepository;
+		this.log = log;
+		Map<String, Sreener> initial = new LinkedHashMap<>();
+		initial.put(defaultScreen.getScreenId(), defaultScreen);
+		this.screens = Collections.unmodifiableMap(initial);
+	}
+
+	public List<Sreener> getScreens() {
+		List<Sreener> ret = new ArrayList<>(screens.values());
+		return ret;
+	}
+
+	public synchronized void register(Sreener screen) {
+		Map<String, Sreener> updated = new LinkedHashMap<>(screens);
+		updated.put(screen.getScreenId(), screen);
+		screens = Collections.unmodifiableMap(updated);
+		log.info("registered screen " + screen.getScreenId());
+	}
+
+	public synchronized void unregister(String screenId) {
+		Map<String, Sreener> updated = new LinkedHashMap<>(screens);
+		updated.remove(screenId);
+		screens = Collections.unmodifiableMap(updated);
+	}
+
+	/**
+	 * Replaces the screens of the saved filters with the filters currently in
+	 * the repository; the other screens are kept. When the repository can't
+	 * be read the previous screens stay in place.
+	 */
+	public synchronized void reload() {
+		if (filterRepository != null) {
+			try {
+				Map<String, Sreener> updated = new LinkedHashMap<>();
+				for (Sreener s : screens.values()) {
+					if (!s.getScreenId().startsWith(FILTER_SCREEN_PREFIX)) {
+						updated.put(s.getScreenId(), s);
+					}
+				}
+				for (Filter filter : filterRepository.findAll()) {
+					String screenId = FILTER_SCREEN_PREFIX + filter.getId();
+					updated.put(screenId, new FilterSreener(screenId, filter));
+				}
+				screens = Collections.unmodifiableMap(updated);
+				log.info("screening with " + updated.keySet());
+			} catch (RuntimeException e) {
+				log.error("cannot load the saved filters, keeping " + screens.keySet() + ": " + e.getMessage(), e);
+			}
+		}
+	}
+}
@@ -0,0 +1,270 @@
+package com.oak.finance.interest;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import org.apache.logging.log4j.Logger;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.oak.api.finance.model.SectorsIndustriesCompanies;
+import com.oak.api.finance.model.dto.Company;
+import com.oak.api.finance.model.dto.CompanyWithProblems;
+import com.oak.api.finance.model.dto.ErrorType;
+import com.oak.api.finance.model.dto.Sector;
+import com.oak.api.finance.model.dto.SymbolRowHash;
+import com.oak.api.finance.repository.CompanyRepository;
+import com.oak.api.finance.repository.CompanyWithProblemsRepository;
+import com.oak.api.finance.repository.SectorRepository;
+import com.oak.api.finance.repository.SymbolRowHashRepository;
+
+/**
+ * Saves a scraped sector, industry and company tree by difference. Every
+ * row is hashed on the fields the scraper sets and looked up by its
+ * natural key (the description of a sector or industry, the ticker of a
+ * company) in the symbol_row_hash index of the rows saved before. Only new
+ * and changed rows are written, in batches, each batch in one transaction
+ * with its index rows, so a refresh costs what changed rather than the
+ * size of the universe. The sector and company tables are only read whole
+ * once, to build an empty index.
+ */
+public class SymbolReconciler {
+	private static final String SECTOR = "sector:";
+	private static final String COMPANY = "company:";
+
+	private final SectorRepository sectorRepository;
+	private final CompanyRepository companyRepository;
+	private final CompanyWithProblemsRepository companyWithProblemsRepository;
+	private final SymbolRowHashRepository hashRepository;
+	private final TransactionTemplate transactionTemplate;
+	private final int batchSize;
+	private final Logger log;
+
+	public SymbolReconciler(SectorRepository sectorRepository, CompanyRepository companyRepository,
+			CompanyWithProblemsRepository companyWithProblemsRepository, SymbolRowHashRepository hashRepository,
+			TransactionTemplate transactionTemplate, int batchSize, Logger log) {
+		this.sectorRepository = sectorRepository;
+		this.companyRepository = companyRepository;
+		this.companyWithProblemsRepository = companyWithProblemsRepository;
+		this.hashRepository = hashRepository;
+		this.transactionTemplate = transactionTemplate;
+		this.batchSize = batchSize;
+		this.log = log;
+	}
+
+	public SymbolReconciliation reconcile(SectorsIndustriesCompanies scraped) {
+		Map<String, SymbolRowHash> index = loadIndex();
+
+		// sectors first, industries and companies refer to their ids
+		Changes<Sector> sectors = diff(scraped.sectors(), SymbolReconciler::key, SymbolReconciler::hash,
+				Sector::setId, new HashSet<>(), index);
+		save(sectors.changed(), sectorRepository, SymbolReconciler::key, SymbolReconciler::hash, Sector::getId, index);
+
+		Set<Sector> scrapedIndustries = scraped.industries();
+		scrapedIndustries.forEach(i -> i.setParentSectorId(idOf(SECTOR + i.getParentSectorDescription(), index)));
+		// a description scraped as a sector and as an industry (Conglomerates) is saved once, as the sector
+		Changes<Sector> industries = diff(scrapedIndustries, SymbolReconciler::key, SymbolReconciler::hash,
+				Sector::setId, sectors.keys, index);
+		save(industries.changed(), sectorRepository, SymbolReconciler::key, SymbolReconciler::hash, Sector::getId,
+				index);
+
+		Changes<Company> companies = diff(scraped.companies(), SymbolReconciler::key, SymbolReconciler::hash,
+				Company::setId, new HashSet<>(), index);
+		keepUnscrapedFields(companies.updated);
+		for (Company c : companies.changed()) {
+			c.setSectorId(idOf(SECTOR + c.getSectorDescription(), index));
+			c.setIndustryId(idOf(SECTOR + c.getIndustryDescription(), index));
+		}
+		save(companies.changed(), companyRepository, SymbolReconciler::key, SymbolReconciler::hash, Company::getId,
+				index);
+
+		SymbolReconciliation ret = new SymbolReconciliation(sectors.inserted.size() + industries.inserted.size(),
+				sectors.updated.size() + industries.updated.size(), sectors.unchanged + industries.unchanged,
+				companies.inserted.size(), companies.updated.size(), companies.unchanged);
+		return ret;
+	}
+
+	/**
+	 * Rebuilds the index from the sector and company tables, for an empty
+	 * index or one out of step with tables changed behind its back. A
+	 * ticker saved more than once is reported as a duplicate and indexed
+	 * with its first row.
+	 */
+	public void rebuildIndex() {
+		log.info("building the symbol index from the sector and company tables");
+		Map<String, SymbolRowHash> index = new HashMap<>();
+		for (Sector s : sectorRepository.findAll()) {
+			SymbolRowHash previous = index.putIfAbsent(key(s), new SymbolRowHash(key(s), s.getId(), hash(s)));
+			if (previous != null) {
+				log.warn("Sector desc duplicated " + s.getDescription() + ", keeping " + previous.getEntityId());
+			}
+		}
+		Set<CompanyWithProblems> duplicates = new HashSet<>();
+		for (Company c : companyRepository.findAll()) {
+			SymbolRowHash previous = index.putIfAbsent(key(c), new SymbolRowHash(key(c), c.getId(), hash(c)));
+			if (previous != null) {
+				duplicates.add(convertCompanyToDuplicate(c));
+			}
+		}
+		companyWithProblemsRepository.save(duplicates);
+		transactionTemplate.execute(status -> {
+			hashRepository.deleteAll();
+			for (List<SymbolRowHash> batch : Lists.partition(new ArrayList<>(index.values()), batchSize)) {
+				hashRepository.save(batch);
+			}
+			return null;
+		});
+		log.info("symbol index built: " + index.size() + " rows, " + duplicates.size() + " duplicated tickers");
+	}
+
+	private Map<String, SymbolRowHash> loadIndex() {
+		if (hashRepository.count() == 0) {
+			rebuildIndex();
+		}
+		Map<String, SymbolRowHash> ret = new HashMap<>();
+		for (SymbolRowHash h : hashRepository.findAll()) {
+			ret.put(h.getRowKey(), h);
+		}
+		return ret;
+	}
+
+	private <T> Changes<T> diff(Collection<T> scraped, Function<T, String> keyOf, ToLongFunction<T> hashOf,
+			BiConsumer<T, Long> setId, Set<String> skipped, Map<String, SymbolRowHash> index) {
+		Changes<T> ret = new Changes<>();
+		for (T row : scraped) {
+			String key = keyOf.apply(row);
+			if (skipped.contains(key) || !ret.keys.add(key)) {
+				log.debug("scraped twice, saved once: " + key);
+				ret.unchanged++;
+			} else {
+				SymbolRowHash saved = index.get(key);
+				if (saved == null) {
+					ret.inserted.add(row);
+				} else if (saved.getRowHash() != hashOf.applyAsLong(row)) {
+					setId.accept(row, saved.getEntityId());
+					ret.updated.add(row);
+				} else {
+					setId.accept(row, saved.getEntityId());
+					ret.unchanged++;
+				}
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * The exchange and description of a company are not scraped, updates
+	 * keep the saved ones.
+	 */
+	private void keepUnscrapedFields(List<Company> updated) {
+		for (List<Company> batch : Lists.partition(updated, batchSize)) {
+			Map<Long, Company> existing = new HashMap<>();
+			Set<Long> ids = new HashSet<>();
+			batch.forEach(c -> ids.add(c.getId()));
+			for (Company c : companyRepository.findAll(ids)) {
+				existing.put(c.getId(), c);
+			}
+			for (Company c : batch) {
+				Company saved = existing.get(c.getId());
+				if (saved != null) {
+					c.setExchange(saved.getExchange());
+					c.setDescription(saved.getDescription());
+				}
+			}
+		}
+	}
+
+	private <T> void save(List<T> rows, CrudRepository<T, Long> repository, Function<T, String> keyOf,
+			ToLongFunction<T> hashOf, Function<T, Long> idOf, Map<String, SymbolRowHash> index) {
+		for (List<T> batch : Lists.partition(rows, batchSize)) {
+			List<SymbolRowHash> hashes = transactionTemplate.execute(status -> {
+				List<SymbolRowHash> saved = new ArrayList<>();
+				for (T row : repository.save(batch)) {
+					saved.add(new SymbolRowHash(keyOf.apply(row), idOf.apply(row), hashOf.applyAsLong(row)));
+				}
+				hashRepository.save(saved);
+				return saved;
+			});
+			hashes.forEach(h -> index.put(h.getRowKey(), h));
+		}
+	}
+
+	private static Long idOf(String key, Map<String, SymbolRowHash> index) {
+		SymbolRowHash h = index.get(key);
+		Long ret = h == null ? null : h.getEntityId();
+		return ret;
+	}
+
+	private CompanyWithProblems convertCompanyToDuplicate(Company c) {
+		CompanyWithProblems cp = new CompanyWithProblems();
+		cp.setErrorDate(java.sql.Date.valueOf(LocalDate.now()));
+		cp.setTicker(c.getTicker());
+		cp.setErrorType(ErrorType.DUPLICATE);
+		return cp;
+	}
+
+	static String key(Sector s) {
+		return SECTOR + s.getDescription();
+	}
+
+	static String key(Company c) {
+		return COMPANY + c.getTicker();
+	}
+
+	/**
+	 * Of the fields the scraper sets, the ids being derived from them.
+	 */
+	static long hash(Sector s) {
+		Hasher h = Hashing.murmur3_128().newHasher();
+		put(h, s.getDescription());
+		put(h, s.getParentSectorDescription());
+		h.putDouble(s.getOneDayPriceChangePercent()).putDouble(s.getMarketCap()).putDouble(s.getPeRatio())
+				.putDouble(s.getRoePercent()).putDouble(s.getDividendYield()).putDouble(s.getLongTermDebtToEquity())
+				.putDouble(s.getPriceToBookValue()).putDouble(s.getNetProfitMarginPercent())
+				.putDouble(s.getPriceToFreeCashFlow());
+		return h.hash().asLong();
+	}
+
+	static long hash(Company c) {
+		Hasher h = Hashing.murmur3_128().newHasher();
+		put(h, c.getTicker());
+		put(h, c.getName());
+		put(h, c.getSectorDescription());
+		put(h, c.getIndustryDescription());
+		return h.hash().asLong();
+	}
+
+	private static void put(Hasher h, String value) {
+		h.putBoolean(value != null);
+		if (value != null) {
+			h.putString(value, StandardCharsets.UTF_8);
+		}
+		h.putChar('\u0000');
+	}
+
+	private static class Changes<T> {
+		private final Set<String> keys = new HashSet<>();
+		private final List<T> inserted = new ArrayList<>();
+		private final List<T> updated = new ArrayList<>();
+		private int unchanged;
+
+		private List<T> changed() {
+			List<T> ret = new ArrayList<>(inserted);
+			ret.addAll(updated);
+			return ret;
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package com.oak.finance.interest;
+
+/**
+ * What a {@link SymbolReconciler} wrote: industries are counted with the
+ * sectors, both being sector rows.
+ */
+public class SymbolReconciliation {
+	private final int sectorsInserted;
+	private final int sectorsUpdated;
+	private final int sectorsUnchanged;
+	private final int companiesInserted;
+	private final int companiesUpdated;
+	private final int companiesUnchanged;
+
+	SymbolReconciliation(int sectorsInserted, int sectorsUpdated, int sectorsUnchanged, int companiesInserted,
+			int companiesUpdated, int companiesUnchanged) {
+		this.sectorsInserted = sectorsInserted;
+		this.sectorsUpdated = sectorsUpdated;
+		this.sectorsUnchanged = sectorsUnchanged;
+		this.companiesInserted = companiesInserted;
+		this.companiesUpdated = companiesUpdated;
+		this.companiesUnchanged = companiesUnchanged;
+	}
+
+	public int getSectorsInserted() {
+		return sectorsInserted;
+	}
+
+	public int getSectorsUpdated() {
+		return sectorsUpdated;
+	}
+
+	public int getSectorsUnchanged() {
+		return sectorsUnchanged;
+	}
+
+	public int getCompaniesInserted() {
+		return companiesInserted;
+	}
+
+	public int getCompaniesUpdated() {
+		return companiesUpdated;
+	}
+
+	public int getCompaniesUnchanged() {
+		return companiesUnchanged;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"sectors and industries: %d inserted, %d updated, %d unchanged; companies: %d inserted, %d updated, %d unchanged",
+				sectorsInserted, sectorsUpdated, sectorsUnchanged, companiesInserted, companiesUpdated,
+				companiesUnchanged);
+	}
+}
@@ -12,6 +12,7 @@ import org.apache.commons.lang3.tuple.Pair;
 
 import com.oak.api.finance.model.Economic;
 import com.oak.api.finance.model.Stock;
+import com.oak.api.finance.model.SymbolUniverse;
 import com.oak.api.finance.model.dto.Company;
 import com.oak.api.finance.model.dto.Control;
 import com.oak.api.finance.model.dto.Screen0Result;
@@ -28,9 +29,26 @@ public interface SymbolsController {
 
 	Set<String> getExcludedSymbols();
 
+	/**
+	 * The saved tickers and exclusions. The companies are read from the DB
+	 * once and kept up to date by the refreshes and saves of this
+	 * controller, the exclusions by {@link #reloadExclusions()}.
+	 */
+	SymbolUniverse getUniverse();
+
+	/**
+	 * Reads the excluded companies again, for edits made to the table
+	 * while the application runs. Called at the start of every analysis.
+	 */
+	void reloadExclusions();
+
 	void saveSymbolsWithoutPrice(Map<String,Date> existingStocksWithoutPrices);
 
-	void saveGoodValueStock(Stock stock, Map<Date, Economic> economics);
+	/**
+	 * @param screenId
+	 *            the screen the stock passed, stored with the result
+	 */
+	void saveGoodValueStock(String screenId, Stock stock, Map<Date, Economic> economics);
 
 	Set<String> getInterestingSymbols();
 
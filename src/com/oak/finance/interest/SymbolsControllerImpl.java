@@ -2,12 +2,9 @@ package com.oak.finance.interest;
 
 import static java.util.stream.Collectors.toSet;
 
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.GregorianCalendar;
@@ -18,10 +15,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
-import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
@@ -32,28 +26,23 @@ import org.springframework.data.util.StreamUtils;
 import com.oak.api.finance.model.Economic;
 import com.oak.api.finance.model.SectorsIndustriesCompanies;
 import com.oak.api.finance.model.Stock;
+import com.oak.api.finance.model.SymbolUniverse;
 import com.oak.api.finance.model.dto.Company;
 import com.oak.api.finance.model.dto.CompanyWithProblems;
 import com.oak.api.finance.model.dto.Control;
-import com.oak.api.finance.model.dto.ErrorType;
 import com.oak.api.finance.model.dto.Screen0Result;
-import com.oak.api.finance.model.dto.Sector;
 import com.oak.api.finance.model.dto.Status;
 import com.oak.api.finance.repository.CompanyRepository;
 import com.oak.api.finance.repository.CompanyWithProblemsRepository;
 import com.oak.api.finance.repository.ExcludedCompanyRepository;
 import com.oak.api.finance.repository.Screen0ResultsRepository;
-import com.oak.api.finance.repository.SectorRepository;
 import com.oak.api.providers.control.ControlProvider;
 import com.oak.api.providers.control.ControlType;
 import com.oak.external.finance.app.marketdata.api.DataConnector;
 import com.oak.external.finance.app.marketdata.api.SectorsCompaniesYahooWebDao;
+import com.oak.external.utils.collections.Batches;
 import com.oak.finance.app.dao.SymbolsDao;
 
-import de.danielbechler.diff.ObjectDifferBuilder;
-import de.danielbechler.diff.node.DiffNode;
-import de.danielbechler.diff.node.Visit;
-
 public class SymbolsControllerImpl implements SymbolsController {
 
 	private final SymbolsDao symbolsTextFileDao;
@@ -61,27 +50,29 @@ public class SymbolsControllerImpl implements SymbolsController {
 	private final ControlProvider controlProvider;
 	private final CompanyRepository companyRepository;
 	private final CompanyWithProblemsRepository companyWithErrorsRepository;
-	private final SectorRepository sectorRepository;
+	private final SymbolReconciler symbolReconciler;
 	private final Logger log;
 	private final Screen0ResultsRepository screeningResultsRepository;
 	private final DataConnector dataConnector;
-	private final CompanyRepository newCompRep;
 	private final ExcludedCompanyRepository excludedCompanyRepository;
+	private final SymbolUniverse universe;
+	private volatile boolean universeLoaded;
 
 	public SymbolsControllerImpl(SymbolsDao symbolsDao, SectorsCompaniesYahooWebDao sectorCompaniesDao,
 			ControlProvider controlProvider, ExcludedCompanyRepository excludedCompanyRepository,
 			CompanyRepository companyRepository, CompanyWithProblemsRepository companyWithErrorsRepository,
-			SectorRepository sectorRepository, Screen0ResultsRepository screeningResultsRepository, DataConnector dataConnector, Logger log) {
+			SymbolReconciler symbolReconciler, Screen0ResultsRepository screeningResultsRepository, DataConnector dataConnector,
+			SymbolUniverse universe, Logger log) {
 		this.symbolsTextFileDao = symbolsDao;
 		this.sectorCompaniesDao = sectorCompaniesDao;
 		this.controlProvider = controlProvider;
 		this.companyRepository = companyRepository;
 		this.excludedCompanyRepository = excludedCompanyRepository;
 		this.companyWithErrorsRepository = companyWithErrorsRepository;
-		this.sectorRepository = sectorRepository;
+		this.symbolReconciler = symbolReconciler;
 		this.screeningResultsRepository = screeningResultsRepository;
 		this.dataConnector = dataConnector;
-		this.newCompRep = companyRepository;
+		this.universe = universe;
 		Logger mylog;
 		if (log == null) {
 			mylog = LogManager.getLogger(this.getClass());
@@ -209,7 +200,7 @@ public class SymbolsControllerImpl implements SymbolsController {
 		Set<Company> newCompanies = StreamUtils.createStreamFromIterator(companies.iterator())
 				.map(c -> cloneCompanyAndAssignExchange(c, companyExchMap)).collect(Collectors.toSet());
 
-		newCompRep.save(newCompanies);
+		saveNewCompanies(newCompanies);
 	}
 
 	private Company cloneCompanyAndAssignExchange(Company c, Map<String, String> companyExchMap) {
@@ -228,32 +219,8 @@ public class SymbolsControllerImpl implements SymbolsController {
 
 	}
 
-	private <T> Collection<Set<T>> batch(Set<T> set, int size) {
-		Collection<Set<T>> ret = null;
-
-		if (set != null) {
-			ret = new ArrayList<Set<T>>();
-			int i = 0;
-			Set<T> batch = new HashSet<T>();
-			for (T e : set) {
-				batch.add(e);
-				if (i >= size - 1) {
-					ret.add(batch);
-					batch = new HashSet<T>();
-					i = 0;
-				} else {
-					i++;
-				}
-			}
-			if (!batch.isEmpty()) {
-				ret.add(batch);
-			}
-		}
-		return ret;
-	}
-
 	private Map<Pair<String, String>, Map<Date, Double>> getMarketData(Set<String> symbolList) {
-		Collection<Set<String>> batches = batch(symbolList, 10);
+		Collection<Set<String>> batches = Batches.batch(symbolList, 10);
 		Map<Pair<String, String>, Map<Date, Double>> pricePerDatePerSock = new HashMap<>();
 		for (Set<String> batch : batches) {
 			Map<Stock, Map<Date, Economic>> batchResult = dataConnector.getEconomics(batch);
@@ -283,13 +250,53 @@ public class SymbolsControllerImpl implements SymbolsController {
 		if(refreshSymbolsIfNeeded.getLeft()) {
 			symbols = refreshSymbolsIfNeeded.getRight();
 		} else {
-			Iterable<Company> companies = companyRepository.findAll();
-			symbols = StreamUtils.createStreamFromIterator(companies.iterator()).map(a -> a.getTicker())
-					.collect(Collectors.toSet());
+			symbols = getUniverse().getTickers();
 		}
 		return symbols;
 	}
 
+	@Override
+	public SymbolUniverse getUniverse() {
+		if (!universeLoaded) {
+			loadUniverse();
+		}
+		return universe;
+	}
+
+	@Override
+	public void reloadExclusions() {
+		if (!universeLoaded) {
+			loadUniverse();
+		} else {
+			long version = universe.getVersion();
+			loadExclusions();
+			if (universe.getVersion() != version) {
+				log.info("excluded companies changed: " + universe.getExcludedTickers().size() + " excluded");
+			}
+		}
+	}
+
+	/**
+	 * The only full read of the company table, the universe being kept up
+	 * to date with the companies this controller saves afterwards. Every
+	 * company write of this controller goes through
+	 * {@link #saveNewCompanies(Set)} or the refresh, which add to it.
+	 */
+	private synchronized void loadUniverse() {
+		if (!universeLoaded) {
+			log.info("loading the symbol universe");
+			companyRepository.findAll().forEach(universe::add);
+			loadExclusions();
+			universeLoaded = true;
+			log.info("symbol universe loaded: " + universe.size() + " tickers, version " + universe.getVersion());
+		}
+	}
+
+	private void loadExclusions() {
+		universe.setExcluded(StreamUtils.createStreamFromIterator(excludedCompanyRepository.findAll().iterator())
+				.map(e -> e.getTicker()).collect(toSet()));
+	}
+
 	@Override
 	public Pair<Boolean,Set<String>> refreshSymbolsIfNeeded() {
 		boolean symbolsReloadNeeded = true;
@@ -339,33 +346,10 @@ public class SymbolsControllerImpl implements SymbolsController {
 		Control c = new Control();
 		Set<String> firms;
 		try {
-			Set<Sector> allRefreshedSectors = sectorsAndCompanies.sectors();
-			Set<Sector> allRefreshedIndustries = sectorsAndCompanies.industries();
-			Iterable<Sector> savedSectorsAndIndustries = sectorRepository.findAll();
-			Set<Sector> unsavedSectors = findUnsavedSectors(allRefreshedSectors.stream(), savedSectorsAndIndustries);
-
-			log.info("saving sectors " + unsavedSectors.size());
-			sectorRepository.save(unsavedSectors);
-			savedSectorsAndIndustries = sectorRepository.findAll();
-			wireSectorsAndIndustries(savedSectorsAndIndustries, allRefreshedSectors);
-			Set<Sector> unsavedIndustries = findUnsavedSectors(allRefreshedIndustries.stream(),
-					savedSectorsAndIndustries);
-
-			log.info("saving industries: " + unsavedIndustries.size());
-			sectorRepository.save(unsavedIndustries);
-			Iterable<Sector> allSavedSectorsAndIndustries = sectorRepository.findAll();
-
-			Map<String, List<Sector>> industriesByDescription = StreamUtils
-					.createStreamFromIterator(allSavedSectorsAndIndustries.iterator())
-					.collect(Collectors.groupingBy(Sector::getDescription));
-
 			Set<Company> companies = sectorsAndCompanies.companies();
-			Iterable<Company> savedCompanies = companyRepository.findAll();
-			Set<Company> companiesToSave = findUnsavedCompanies(companies, savedCompanies);
-			companies.stream().forEach(f -> setIndustryAndSectorId(f, industriesByDescription));
-			log.info("saving companies " + companiesToSave.size());
-			companyRepository.save(companiesToSave);
-			log.info("done refreshing sectors, industries and companies " + companiesToSave.size());
+			SymbolReconciliation saved = symbolReconciler.reconcile(sectorsAndCompanies);
+			getUniverse().addAll(companies);
+			log.info("done refreshing sectors, industries and companies: " + saved);
 			
 			Iterable<CompanyWithProblems> companiesWithError = companyWithErrorsRepository.findAll();
 			Set<String> errorTickers = StreamUtils.createStreamFromIterator(
@@ -390,156 +374,9 @@ public class SymbolsControllerImpl implements SymbolsController {
 		return ret;
 	}
 
-	private Set<Company> findUnsavedCompanies(Set<Company> companies, Iterable<Company> savedCompanies) {
-		Set<Company> ret = new HashSet<>();
-		Map<String, Long> grouped = StreamUtils.createStreamFromIterator(savedCompanies.iterator())
-				.collect(Collectors.groupingBy(c -> c.getTicker(), Collectors.counting()));
-
-		Set<String> duplicatedTickers = new HashSet<String>();
-		for (String ticker : grouped.keySet()) {
-			if (grouped.get(ticker) > 1) {
-				duplicatedTickers.add(ticker);
-			}
-		}
-		Set<CompanyWithProblems> problematicCompanies = companies.stream()
-				.filter(c -> duplicatedTickers.contains(c.getTicker())).map(c -> convertCompanyToDuplicate(c))
-				.collect(Collectors.toSet());
-		companyWithErrorsRepository.save(problematicCompanies);
-		Set<String> duplicateTickers = problematicCompanies.stream().map(c -> c.getTicker())
-				.collect(Collectors.toSet());
-		Set<Company> savedCompaniesSet = StreamUtils.createStreamFromIterator(savedCompanies.iterator())
-				.filter(c -> !duplicateTickers.contains(c.getTicker())).collect(Collectors.toSet());
-		// if (!problematicCompanies.isEmpty()) {
-		// Set<Company> toRemove = companies.stream().filter(c ->
-		// duplicatedTickers.contains(c.getTicker()))
-		// .collect(Collectors.toSet());
-		//
-		// companies.removeAll(toRemove);
-		// savedCompaniesSet.removeAll(toRemove);
-		// }
-
-		Map<String, Company> companiesByTicker = savedCompaniesSet.stream()
-				.collect(Collectors.toMap(Company::getTicker, Function.identity()));
-
-		companies.forEach(n -> {
-			// check if it exists already
-			if (companiesByTicker.containsKey(n.getTicker())) {
-				// already exist - check relevant data
-				Company existing = companiesByTicker.get(n.getTicker());
-				if (!existing.equals(n)) {
-					n.setId(existing.getId());
-					n.setExchange(existing.getExchange());
-					ret.add(n);
-				}
-			} else {
-				ret.add(n);
-			}
-		});
-
-		return ret;
-	}
-
-	private CompanyWithProblems convertCompanyToDuplicate(Company c) {
-		CompanyWithProblems cp = new CompanyWithProblems();
-		cp.setErrorDate(java.sql.Date.valueOf(LocalDate.now()));
-		cp.setTicker(c.getTicker());
-		cp.setErrorType(ErrorType.DUPLICATE);
-		return cp;
-	}
-
-	private Set<Sector> findUnsavedSectors(Stream<Sector> sectors, Iterable<Sector> allSectorsAndIndustries) {
-		Set<Sector> ret = new HashSet<>();
-		Map<String, List<Sector>> sectorsByDescription = StreamSupport.stream(allSectorsAndIndustries.spliterator(), false)
-				.collect(Collectors.groupingBy(Sector::getDescription));
-
-		sectors.forEach(n -> {
-			// check if it exists already
-			if (sectorsByDescription.containsKey(n.getDescription())) {
-				// already exist - check relevant data
-				List<Sector> sectorsForDesc = sectorsByDescription.get(n.getDescription());
-				if(sectorsForDesc.size()>1) {
-					log.warn("Sector desc duplicated "+sectorsForDesc);
-				}	
-				Sector existing = sectorsForDesc.iterator().next();
-				if (!existing.equals(n)) {
-					n.setId(existing.getId());
-					if (!existing.equals(n) &&
-					// something about Conglomerates make them weird
-					!existing.getDescription().equals("Conglomerates")) {
-						ret.add(n);
-						diff(n, existing);
-					}
-				}
-			} else {
-				ret.add(n);
-			}
-		});
-		return ret;
-	}
-
-	private void diff(Sector working, Sector base) {
-		DiffNode diff = ObjectDifferBuilder.buildDefault().compare(base, working);
-		diff.visit(new DiffNode.Visitor() {
-			public void node(DiffNode node, Visit visit) {
-				final Object baseValue = node.canonicalGet(base);
-				final Object workingValue = node.canonicalGet(working);
-				final String message = node.getPath() + " changed from " + baseValue + " to " + workingValue;
-				System.out.println(message);
-			}
-		});
-
-	}
-
-	private void setIndustryAndSectorId(Company c, Map<String, List<Sector>> industriesByDescription) {
-		List<Sector> sectors = industriesByDescription.get(c.getSectorDescription());
-		List<Sector> industries = industriesByDescription.get(c.getIndustryDescription());
-		if(sectors.size()>1) {
-			log.warn("sectors with same desc: "+sectors);
-		}
-		if(industries.size()>1) {
-			log.warn("industries with same desc: "+industries);
-		}
-		Sector sector = sectors.iterator().next();
-		Sector industry = industries.iterator().next();
-		if (sector != null && sector.getId() != null) {
-			c.setSectorId(sector.getId());
-		}
-		if (industry != null && industry.getId() != null) {
-			c.setIndustryId(industry.getId());
-		}
-	}
-
-	private Collection<Sector> wireSectorsAndIndustries(Iterable<Sector> allSectorsAndIndustries,
-			Collection<Sector> newSectors) {
-		Map<String, List<Sector>> sectors = StreamUtils.createStreamFromIterator(allSectorsAndIndustries.iterator())
-				.collect(Collectors.groupingBy(Sector::getDescription));
-
-		newSectors.stream().filter(s -> s.getParentSectorDescription() != null)
-				.forEach(s -> setIndustrySectorId(s, sectors));
-		return newSectors;
-	}
-
-	private void setIndustrySectorId(Sector s, Map<String, List<Sector>> allSectorsAndIndustries) {
-		List<Sector> sectors = allSectorsAndIndustries.get(s.getParentSectorDescription());
-		if(sectors.size()>1) {
-			log.warn("Found multiple sectors for desc: "+s.getParentSectorDescription()+" : "+sectors);
-		}
-		Sector sector = sectors.iterator().next();
-		try {
-			if (sector.getId() != null) {
-				s.setParentSectorId(sector.getId());
-			}
-		} catch (Throwable t) {
-			log.error("Some error happened when getting sector for " + s.getDescription() + " s: " + s, t);
-		}
-	}
-
 	@Override
 	public Set<String> getExcludedSymbols() {
-		Set<String> excludedCompanies = StreamUtils.createStreamFromIterator(
-				excludedCompanyRepository.findAll().iterator())
-		.map(e ->e.getTicker())
-		.collect(toSet());
+		Set<String> excludedCompanies = getUniverse().getExcludedTickers();
 //		Set<String> savedStocksWithoutPrices = symbolsTextFileDao.getSavedSymbolsWithoutPrices();
 		return excludedCompanies;
 	}
@@ -556,16 +393,16 @@ public class SymbolsControllerImpl implements SymbolsController {
 	}
 
 	@Override
-	public void saveGoodValueStock(Stock stock, Map<Date, Economic> economics) {
+	public void saveGoodValueStock(String screenId, Stock stock, Map<Date, Economic> economics) {
 		// to do // replace this with
-		symbolsTextFileDao.saveGoodValueStock(stock, economics);
+		symbolsTextFileDao.saveGoodValueStock(screenId, stock, economics);
 		Screen0Result res = convertToScreen0Result(stock, economics);
+		res.setScreenId(screenId);
 		log.info("Saving to db "+res);
 		screeningResultsRepository.save(res);
 	}
 
 	private Screen0Result convertToScreen0Result(Stock stock, Map<Date, Economic> economics) {
-		DateFormat df = new SimpleDateFormat();
 		Screen0Result res = new Screen0Result();
 		for (Date date : economics.keySet()) {
 			Economic e = economics.get(date);
@@ -600,6 +437,7 @@ public class SymbolsControllerImpl implements SymbolsController {
 	@Override
 	public void saveNewCompanies(Set<Company> companies) {
 		companyRepository.save(companies);
+		getUniverse().addAll(companies);
 	}
 
 }
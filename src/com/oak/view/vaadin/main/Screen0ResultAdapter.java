@@ -23,6 +23,9 @@ public class Screen0ResultAdapter {
 	public Date getRunDate() {
 		return res.getRunDate();
 	}
+	public String getScreenId() {
+		return res.getScreenId();
+	}
 	public String getTicker() {
 		return res.getTicker();
 	}
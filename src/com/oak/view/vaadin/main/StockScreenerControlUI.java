@@ -9,6 +9,7 @@ import com.google.gwt.thirdparty.guava.common.collect.Sets;
 import com.oak.api.MainController;
 import com.oak.api.MainController.TickersData;
 import com.oak.api.finance.model.dto.Control;
+import com.oak.finance.app.backtest.BacktestSummary;
 import com.vaadin.annotations.Theme;
 import com.vaadin.data.util.BeanItemContainer;
 import com.vaadin.server.Sizeable;
@@ -30,12 +31,16 @@ import com.vaadin.ui.themes.ValoTheme;
 @Theme("valo")
 public class StockScreenerControlUI extends UI {
 	private static final long serialVersionUID = 1L;
+	// properties of Screen0ResultAdapter
+	static final String[] SCREEN0_COLUMNS = { "runDate", "screenId", "ticker", "priceBid", "targetPrice", "per",
+			"eps", "marketCap", "peg", "companyName", "currency", "bookValuePerShare", "perCalculated" };
 	
 	private final MainController mainController;
 	private final Grid controlGrid = new Grid();
 	private final Grid screen0Grid = new Grid();
 	private final Button processBtn = new Button("Start Processing");
 	private final Button loadHistoricalQuotesBtn = new Button("Historical Quote Refresh");
+	private final Button backtestBtn = new Button("Backtest Filters");
 	private final Button mainBtn = new Button("Main");
 	private final Button filtersBtn = new Button("Filters");
 	private Label topLbl = new Label();
@@ -62,6 +67,11 @@ public class StockScreenerControlUI extends UI {
 			Notification.show("Collecting historical Quotes");
 			mainController.loadHistoricalQuotes();
 		});
+		backtestBtn.addClickListener(e -> {
+			Notification.show("Backtesting the stored filters");
+			BacktestSummary summary = mainController.backtestStoredScreens();
+			Notification.show("Backtest done", summary.toString(), Notification.Type.TRAY_NOTIFICATION);
+		});
 //		initContent0();
 //		initContent1();
 		initContent2();
@@ -91,7 +101,7 @@ public class StockScreenerControlUI extends UI {
 		filtersBtn.addStyleName(ValoTheme.BUTTON_PRIMARY);
 		leftMenu.setVisible(false);
 		
-		topMenu.addComponents(envLbl,processBtn,loadHistoricalQuotesBtn);
+		topMenu.addComponents(envLbl,processBtn,loadHistoricalQuotesBtn,backtestBtn);
 		leftMenu.setWidth(buttonSize,Unit.PIXELS);
 		
 		middle.setFirstComponent(leftMenu);
@@ -186,7 +196,7 @@ public class StockScreenerControlUI extends UI {
 	}
 
 	private void initScreen0Grid() {
-		screen0Grid.setColumns("runDate", "ticker", "priceBid","targetPrice", "per","eps","marketCap","peg","companyName", "currency",  "bookValuePerShare", "perCalculated");
+		screen0Grid.setColumns((Object[]) SCREEN0_COLUMNS);
 		screen0Grid.setWidth("100%");
 		Set<String>floatColumns = Sets.newHashSet("priceBid","targetPrice", "per","eps","marketCap","peg", "currency",  "bookValuePerShare", "perCalculated");
 		screen0Grid.setContainerDataSource(new BeanItemContainer<>(Screen0ResultAdapter.class,adapter.adapt(mainController.getResults())));
@@ -0,0 +1,210 @@
+package com.oak.api.finance.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+
+import javax.persistence.EntityManager;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
+import org.springframework.boot.orm.jpa.hibernate.SpringPhysicalNamingStrategy;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.Database;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import com.oak.api.finance.model.dto.EconomicDto;
+import com.oak.api.finance.repository.EconomicRepository;
+
+/**
+ * Writes economics with the batch DAO into a schema hibernate created from
+ * the entities, the way spring boot maps them, and reads them back through
+ * EconomicRepository. Runs against the Postgres given by -Dquotes.test.url
+ * (with -Dquotes.test.user and -Dquotes.test.password), in a scratch schema
+ * dropped afterwards. Skipped when no url is given.
+ */
+public class EconomicsBatchDaoImplTest {
+	private static final String SCHEMA = "economics_batch_test";
+
+	private SingleConnectionDataSource dataSource;
+	private JdbcTemplate jdbcTemplate;
+	private LocalContainerEntityManagerFactoryBean entityManagerFactory;
+	private EntityManager entityManager;
+	private EconomicRepository economicRepository;
+	private EconomicsBatchDaoImpl underTest;
+
+	@Before
+	public void setUp() {
+		String url = System.getProperty("quotes.test.url");
+		Assume.assumeTrue("no -Dquotes.test.url", url != null);
+		dataSource = new SingleConnectionDataSource(url, System.getProperty("quotes.test.user"),
+				System.getProperty("quotes.test.password"), true);
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("drop schema if exists " + SCHEMA + " cascade");
+		jdbcTemplate.execute("create schema " + SCHEMA);
+		jdbcTemplate.execute("set search_path to " + SCHEMA);
+
+		HibernateJpaVendorAdapter vendorAdapter = new HibernateJpaVendorAdapter();
+		vendorAdapter.setDatabase(Database.POSTGRESQL);
+		Map<String, Object> properties = new HashMap<>();
+		properties.put("hibernate.hbm2ddl.auto", "create");
+		properties.put("hibernate.default_schema", SCHEMA);
+		// what spring boot configures for the application
+		properties.put("hibernate.id.new_generator_mappings", "false");
+		properties.put("hibernate.physical_naming_strategy", SpringPhysicalNamingStrategy.class.getName());
+		properties.put("hibernate.implicit_naming_strategy", SpringImplicitNamingStrategy.class.getName());
+		entityManagerFactory = new LocalContainerEntityManagerFactoryBean();
+		entityManagerFactory.setDataSource(dataSource);
+		entityManagerFactory.setJpaVendorAdapter(vendorAdapter);
+		entityManagerFactory.setPackagesToScan(EconomicDto.class.getPackage().getName());
+		entityManagerFactory.setJpaPropertyMap(properties);
+		entityManagerFactory.afterPropertiesSet();
+		entityManager = entityManagerFactory.getObject().createEntityManager();
+		economicRepository = new JpaRepositoryFactory(entityManager).getRepository(EconomicRepository.class);
+
+		underTest = new EconomicsBatchDaoImpl(jdbcTemplate, 2);
+	}
+
+	@After
+	public void tearDown() {
+		if (dataSource != null) {
+			if (entityManagerFactory != null) {
+				entityManager.close();
+				entityManagerFactory.destroy();
+			}
+			jdbcTemplate.execute("drop schema if exists " + SCHEMA + " cascade");
+			dataSource.destroy();
+		}
+	}
+
+	@Test
+	public void testInsertedEconomicReadsBackThroughJpa() throws Exception {
+		EconomicDto expected = populated("AAPL", day(1));
+
+		assertEquals(1, underTest.insert(Collections.singletonList(expected)));
+
+		List<EconomicDto> saved = economicRepository.findByPriceDateAndTicker(new Date(day(1)), "AAPL");
+		assertEquals(1, saved.size());
+		EconomicDto actual = saved.get(0);
+		assertNotNull(actual.getId());
+		for (Field field : EconomicDto.class.getDeclaredFields()) {
+			if (!Modifier.isStatic(field.getModifiers()) && !field.getName().equals("id")) {
+				field.setAccessible(true);
+				assertEquals(field.getName(), comparable(field.get(expected)), comparable(field.get(actual)));
+			}
+		}
+	}
+
+	@Test
+	public void testIdsDoNotCollideWithJpaSaves() {
+		saveThroughJpa(populated("AAPL", day(1)));
+		underTest.insert(Arrays.asList(populated("AAPL", day(2)), populated("MSFT", day(2))));
+		saveThroughJpa(populated("MSFT", day(3)));
+
+		assertEquals(4, jdbcTemplate.queryForObject("select count(distinct id) from economy", Integer.class)
+				.intValue());
+	}
+
+	@Test
+	public void testExistingLookupFindsOnlyStoredPriceDates() {
+		underTest.insert(Arrays.asList(populated("AAPL", day(1)), populated("AAPL", day(5)),
+				populated("IBM", day(1))));
+
+		Map<String, Set<Date>> existing = underTest.findExistingPriceDates(Arrays.asList("AAPL", "MSFT"),
+				new Date(day(1)), new Date(day(2)));
+
+		// what the persistence controller asks before inserting, so the stored day is skipped
+		assertEquals(Collections.singleton("AAPL"), existing.keySet());
+		assertTrue(existing.get("AAPL").contains(new Date(day(1))));
+		assertEquals(1, existing.get("AAPL").size());
+	}
+
+	// no transaction manager around the repository here
+	private void saveThroughJpa(EconomicDto economic) {
+		entityManager.getTransaction().begin();
+		economicRepository.save(economic);
+		entityManager.getTransaction().commit();
+	}
+
+	/**
+	 * Every attribute set, each to a different value so columns bound out of
+	 * order don't go unnoticed.
+	 */
+	private static EconomicDto populated(String ticker, long priceDate) {
+		EconomicDto ret = new EconomicDto();
+		int i = 0;
+		for (Field field : EconomicDto.class.getDeclaredFields()) {
+			if (Modifier.isStatic(field.getModifiers()) || field.getName().equals("id")) {
+				continue;
+			}
+			i++;
+			field.setAccessible(true);
+			Class<?> type = field.getType();
+			Object value;
+			if (type == Double.class) {
+				value = i + 0.25;
+			} else if (type == Long.class) {
+				value = 1000L + i;
+			} else if (type == String.class) {
+				value = field.getName();
+			} else if (type == Date.class) {
+				value = new Date(day(i));
+			} else if (type == Calendar.class) {
+				Calendar calendar = new GregorianCalendar();
+				calendar.setTimeInMillis(day(i) + 1234);
+				value = calendar;
+			} else if (type == TimeZone.class) {
+				value = TimeZone.getTimeZone("America/New_York");
+			} else {
+				throw new IllegalStateException("no test value for " + field);
+			}
+			try {
+				field.set(ret, value);
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		ret.setTicker(ticker);
+		ret.setPriceDate(new Date(priceDate));
+		return ret;
+	}
+
+	/**
+	 * Hibernate hands back Timestamps, its own Calendars and TimeZones, so
+	 * those compare by instant or id.
+	 */
+	private static Object comparable(Object value) {
+		Object ret = value;
+		if (value instanceof Date) {
+			ret = ((Date) value).getTime();
+		} else if (value instanceof Calendar) {
+			ret = ((Calendar) value).getTimeInMillis();
+		} else if (value instanceof TimeZone) {
+			ret = ((TimeZone) value).getID();
+		}
+		return ret;
+	}
+
+	private static long day(int day) {
+		return 1_500_000_000_000L + day * 86_400_000L;
+	}
+}
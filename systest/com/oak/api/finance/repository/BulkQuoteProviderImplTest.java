@@ -0,0 +1,220 @@
+package com.oak.api.finance.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.logging.log4j.LogManager;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.google.common.base.Strings;
+import com.oak.api.finance.model.dto.Quote;
+import com.oak.api.finance.repository.BulkQuoteProviderImpl.LoadMode;
+
+/**
+ * Runs both bulk loaders against the Postgres given by -Dquotes.test.url
+ * (with -Dquotes.test.user and -Dquotes.test.password), in a scratch schema
+ * dropped afterwards. Skipped when no url is given.
+ */
+public class BulkQuoteProviderImplTest {
+	private static final String SCHEMA = "bulk_quote_test";
+
+	private final ExecutorService otherSession = Executors.newSingleThreadExecutor();
+	private SingleConnectionDataSource dataSource;
+	private JdbcTemplate jdbcTemplate;
+	private TransactionTemplate transactionTemplate;
+
+	@Before
+	public void setUp() {
+		String url = System.getProperty("quotes.test.url");
+		Assume.assumeTrue("no -Dquotes.test.url", url != null);
+		dataSource = connect();
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		jdbcTemplate.execute("drop schema if exists " + SCHEMA + " cascade");
+		jdbcTemplate.execute("create schema " + SCHEMA);
+		jdbcTemplate.execute("set search_path to " + SCHEMA);
+		jdbcTemplate.execute("create sequence hibernate_sequence");
+		// as an older Hibernate left it, without the unique (ticker, date)
+		jdbcTemplate.execute("create table quote (id int8 primary key, ticker varchar(255), date timestamp, "
+				+ "open float8, close float8, high float8, low float8, adjustment_factor float8, volume int8)");
+		provider(LoadMode.COPY).ensureUniqueQuotes();
+	}
+
+	@After
+	public void tearDown() {
+		otherSession.shutdownNow();
+		if (dataSource != null) {
+			jdbcTemplate.execute("drop schema if exists " + SCHEMA + " cascade");
+			dataSource.destroy();
+		}
+	}
+
+	@Test
+	public void testCopyMergesWithoutDuplicates() {
+		testMergesWithoutDuplicates(LoadMode.COPY);
+	}
+
+	@Test
+	public void testMultiRowInsertMergesWithoutDuplicates() {
+		testMergesWithoutDuplicates(LoadMode.MULTI_ROW_INSERT);
+	}
+
+	@Test
+	public void testCopyRollsBackWithTheCallersTransaction() {
+		BulkQuoteProviderImpl underTest = provider(LoadMode.COPY);
+		try {
+			transactionTemplate.execute(status -> {
+				underTest.save(Arrays.asList(quote("AAPL", 1, 10.0)));
+				throw new IllegalStateException("caller failed");
+			});
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals(0, count("quote"));
+		}
+	}
+
+	@Test
+	public void testCopyFailureLoadsNothing() {
+		BulkQuoteProviderImpl underTest = provider(LoadMode.COPY);
+		// too long for the staging column
+		List<Quote> quotes = Arrays.asList(quote("AAPL", 1, 10.0), quote(Strings.repeat("X", 300), 1, 10.0));
+		try {
+			underTest.save(quotes);
+			fail();
+		} catch (RuntimeException e) {
+			assertEquals(0, count("quote"));
+		}
+		underTest.save(Collections.singletonList(quote("AAPL", 1, 10.0)));
+		assertEquals(1, count("quote"));
+	}
+
+	@Test
+	public void testEnsureUniqueQuotesDeletesDuplicatesOnce() {
+		BulkQuoteProviderImpl underTest = provider(LoadMode.COPY);
+		jdbcTemplate.execute("alter table quote drop constraint " + Quote.TICKER_DATE_CONSTRAINT);
+		insert(1, "AAPL", 1, 10.0);
+		insert(2, "AAPL", 1, 99.0);
+		insert(3, "AAPL", 2, 11.0);
+		insert(4, "MSFT", 1, 20.0);
+		insert(5, "AAPL", 1, 98.0);
+
+		underTest.ensureUniqueQuotes();
+		underTest.ensureUniqueQuotes();
+
+		assertEquals(3, count("quote"));
+		// the first saved is kept
+		assertEquals(Double.valueOf(10.0), jdbcTemplate.queryForObject(
+				"select close from quote where ticker = 'AAPL' and date = ?", Double.class, new Date(day(1))));
+		assertEquals(1, jdbcTemplate.queryForObject(
+				"select count(*) from pg_constraint where conrelid = 'quote'::regclass and conname = ?",
+				Integer.class, Quote.TICKER_DATE_CONSTRAINT).intValue());
+	}
+
+	@Test
+	public void testOverlappingSavesDoNotDuplicate() throws Exception {
+		BulkQuoteProviderImpl first = provider(LoadMode.COPY);
+		SingleConnectionDataSource otherDataSource = connect();
+		try {
+			JdbcTemplate otherJdbcTemplate = new JdbcTemplate(otherDataSource);
+			otherJdbcTemplate.execute("set search_path to " + SCHEMA);
+			BulkQuoteProviderImpl second = new BulkQuoteProviderImpl(mock(QuoteRepository.class), otherJdbcTemplate,
+					new TransactionTemplate(new DataSourceTransactionManager(otherDataSource)),
+					LoadMode.MULTI_ROW_INSERT, 2, LogManager.getLogger(BulkQuoteProviderImpl.class));
+			AtomicReference<Future<?>> secondSave = new AtomicReference<>();
+			transactionTemplate.execute(status -> {
+				first.save(Arrays.asList(quote("AAPL", 1, 10.0), quote("AAPL", 2, 11.0), quote("AAPL", 3, 12.0)));
+				secondSave.set(otherSession.submit(() -> second
+						.save(Arrays.asList(quote("AAPL", 2, 21.0), quote("AAPL", 3, 22.0), quote("AAPL", 4, 23.0)))));
+				try {
+					TimeUnit.MILLISECONDS.sleep(500);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				// waits on the uncommitted days 2 and 3 rather than inserting them again
+				assertFalse(secondSave.get().isDone());
+				return null;
+			});
+			secondSave.get().get(10, TimeUnit.SECONDS);
+		} finally {
+			otherDataSource.destroy();
+		}
+
+		assertEquals(4, count("quote"));
+		assertEquals(Double.valueOf(11.0), jdbcTemplate.queryForObject(
+				"select close from quote where ticker = 'AAPL' and date = ?", Double.class, new Date(day(2))));
+		assertEquals(Double.valueOf(23.0), jdbcTemplate.queryForObject(
+				"select close from quote where ticker = 'AAPL' and date = ?", Double.class, new Date(day(4))));
+	}
+
+	private void testMergesWithoutDuplicates(LoadMode mode) {
+		BulkQuoteProviderImpl underTest = provider(mode);
+		underTest.save(Arrays.asList(quote("AAPL", 1, 10.0), quote("AAPL", 2, null), quote("MSFT", 1, 20.0),
+				quote("AAPL", 1, 99.0)));
+		underTest.save(Arrays.asList(quote("AAPL", 2, 11.0), quote("AAPL", 3, 12.0), quote("A\"B,C", 1, 1.0)));
+
+		assertEquals(5, count("quote"));
+		assertEquals(Double.valueOf(10.0), jdbcTemplate.queryForObject(
+				"select close from quote where ticker = 'AAPL' and date = ?", Double.class, new Date(day(1))));
+		assertEquals(null, jdbcTemplate.queryForObject(
+				"select close from quote where ticker = 'AAPL' and date = ?", Double.class, new Date(day(2))));
+		assertEquals(1, jdbcTemplate.queryForObject("select count(*) from quote where ticker = 'A\"B,C'",
+				Integer.class).intValue());
+		// the staging table is left empty
+		assertEquals(0, count("quote_load"));
+	}
+
+	private static SingleConnectionDataSource connect() {
+		return new SingleConnectionDataSource(System.getProperty("quotes.test.url"),
+				System.getProperty("quotes.test.user"), System.getProperty("quotes.test.password"), true);
+	}
+
+	private void insert(long id, String ticker, int day, double close) {
+		jdbcTemplate.update("insert into quote (id, ticker, date, close) values (?, ?, ?, ?)", id, ticker,
+				new Date(day(day)), close);
+	}
+
+	private BulkQuoteProviderImpl provider(LoadMode mode) {
+		return new BulkQuoteProviderImpl(mock(QuoteRepository.class), jdbcTemplate, transactionTemplate, mode, 2,
+				LogManager.getLogger(BulkQuoteProviderImpl.class));
+	}
+
+	private int count(String table) {
+		return jdbcTemplate.queryForObject("select count(*) from " + table, Integer.class);
+	}
+
+	private static Quote quote(String ticker, int day, Double close) {
+		Quote ret = new Quote();
+		ret.setTicker(ticker);
+		ret.setDate(new Date(day(day)));
+		ret.setOpen(close);
+		ret.setClose(close);
+		ret.setHigh(close);
+		ret.setLow(close);
+		ret.setAdjustmentFactor(1.0);
+		ret.setVolume(1000L);
+		return ret;
+	}
+
+	private static long day(int day) {
+		return 1_500_000_000_000L + day * 86_400_000L;
+	}
+}
@@ -1,15 +1,33 @@
 package com.oak.external.finance.app.marketdata.api.impl.yahoo;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.After;
 import org.junit.Test;
 
+import com.oak.external.utils.web.CircuitBreaker;
+import com.oak.external.utils.web.HostPoliteness;
 import com.oak.external.utils.web.WebParsingUtils;
 
 public class YahooWebDataSectorCompaniesDaoTest {
 	private String url = "https://biz.yahoo.com/p/s_conameu.html";
+	private final Logger log = LogManager.getFormatterLogger(YahooWebDataSectorCompaniesDao.class);
+	private final CircuitBreaker circuitBreaker = CircuitBreaker.withDefaults("yahoo", log);
+	private final ExecutorService fetchExecutor = Executors.newFixedThreadPool(8);
+
+	@After
+	public void tearDown() {
+		fetchExecutor.shutdown();
+		circuitBreaker.shutdown();
+	}
+
 	@Test
 	public void testGetSectors() {
-		YahooWebDataSectorCompaniesDao dao = new YahooWebDataSectorCompaniesDao(LogManager.getFormatterLogger(YahooWebDataSectorCompaniesDao.class), url, new WebParsingUtils());
+		YahooWebDataSectorCompaniesDao dao = new YahooWebDataSectorCompaniesDao(log, url, new WebParsingUtils(),
+				circuitBreaker, fetchExecutor, new HostPoliteness(4, 4, log));
 		dao.getSectorsAndCompanies();
 	}
 
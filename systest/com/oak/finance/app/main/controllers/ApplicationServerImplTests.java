@@ -24,6 +24,7 @@ import com.oak.api.finance.repository.Screen0ResultsRepository;
 import com.oak.external.finance.app.marketdata.api.FinancialDataDao;
 import com.oak.external.finance.app.marketdata.api.FinancialStatementsProvider;
 import com.oak.external.finance.app.marketdata.api.MarketDataProvider;
+import com.oak.finance.app.backtest.Backtester;
 import com.oak.finance.app.monitor.MarketDataMonitorsController;
 import com.oak.finance.interest.SymbolsController;
 
@@ -58,6 +59,8 @@ public class ApplicationServerImplTests {
 	DuplicateCashflowsDao duplicateCashlfowDao;
 	@Mock
 	FinancialStatementsProvider financialStatementsProvider;
+	@Mock
+	Backtester backtester;
 	
 	@Before
 	public void setUp() throws Exception {		
@@ -73,6 +76,6 @@ public class ApplicationServerImplTests {
 		undertest = new ApplicationMainControllerImpl(stockListProvider, marketDataMonitorsFactory, 
 				screeningResultsRepository, earningsCalendarRepository, balanceSheetRepository, 
 				cashFlowStatementRepository, incomeStatementRepository, companyRepository, duplicateCashlfowDao,
-				financialStatementsProvider, log);
+				financialStatementsProvider, backtester, log);
 	}
 }
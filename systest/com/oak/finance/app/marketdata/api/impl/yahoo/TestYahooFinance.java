@@ -18,6 +18,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -26,8 +27,9 @@ import org.junit.Test;
 import com.oak.api.finance.model.dto.AbstractQuote;
 import com.oak.api.finance.model.dto.Quote;
 import com.oak.external.finance.app.marketdata.api.yahoo.YahooFinanceWrapper;
+import com.oak.external.utils.web.CircuitBreaker;
 
-import io.reactivex.Observable;
+import io.reactivex.Flowable;
 import io.reactivex.functions.Consumer;
 import yahoofinance.Stock;
 import yahoofinance.histquotes.HistoricalQuote;
@@ -38,7 +40,10 @@ import yahoofinance.quotes.stock.StockStats;
 
 public class TestYahooFinance {
 	private static Logger log = LogManager.getLogger(TestYahooFinance.class);
-	private YahooFinanceWrapper yahooFinance = new YahooFinanceWrapper(LogManager.getLogger(YahooFinanceWrapper.class));
+	private YahooFinanceWrapper yahooFinance = new YahooFinanceWrapper(LogManager.getLogger(YahooFinanceWrapper.class),
+			Executors.newFixedThreadPool(YahooFinanceWrapper.DEFAULT_HISTORICAL_CONCURRENCY),
+			YahooFinanceWrapper.DEFAULT_HISTORICAL_CONCURRENCY,
+			CircuitBreaker.withDefaults("yahoo", LogManager.getLogger(CircuitBreaker.class)));
 
 	@Test
 	public void testGetSingleStock() {
@@ -192,7 +197,7 @@ public class TestYahooFinance {
 		Calendar from = Calendar.getInstance();
 		from.setTime(date);
 		
-		Observable<List<AbstractQuote>> observable = yahooFinance.getStream(syms,from,Interval.DAILY);
+		Flowable<List<AbstractQuote>> observable = yahooFinance.getStream(syms,from,Interval.DAILY);
 		Cons cons = new Cons() ;
 		observable.subscribe(cons);
 		try {
@@ -0,0 +1,93 @@
+package com.oak.api.finance.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+import com.oak.api.finance.model.SymbolUniverse.Attribute;
+import com.oak.api.finance.model.dto.Company;
+
+public class SymbolUniverseTest {
+
+	@Test
+	public void testATickerKeepsItsIdAndItsAttributes() {
+		SymbolUniverse underTest = new SymbolUniverse(1);
+		int aapl = underTest.add(company("AAPL", "Technology", "Computers", "NMS"));
+		int msft = underTest.add(company("MSFT", "Technology", "Software", "NMS"));
+
+		// a refresh that does not know the exchange
+		assertEquals(aapl, underTest.add(company("AAPL", "Technology", "Consumer Electronics", null)));
+
+		assertEquals(aapl, underTest.idOf("AAPL"));
+		assertEquals(msft, underTest.idOf("MSFT"));
+		assertEquals(-1, underTest.idOf("IBM"));
+		assertEquals("AAPL", underTest.getTicker(aapl));
+		assertEquals("Consumer Electronics", underTest.get(Attribute.INDUSTRY, aapl));
+		assertEquals("NMS", underTest.get(Attribute.EXCHANGE, aapl));
+		assertEquals(new HashSet<>(Arrays.asList("AAPL", "MSFT")), underTest.getTickers());
+	}
+
+	@Test
+	public void testExcludedTickersAreFilteredOut() {
+		SymbolUniverse underTest = new SymbolUniverse(4);
+		underTest.addAll(Arrays.asList(company("AAPL", "Technology", "Computers", "NMS"),
+				company("XOM", "Energy", "Oil", "NYQ"), company("MSFT", "Technology", "Software", "NMS")));
+		underTest.setExcluded(Arrays.asList("MSFT", "DELISTED"));
+
+		assertTrue(underTest.isExcluded("MSFT"));
+		assertTrue(underTest.isExcluded("DELISTED"));
+		assertFalse(underTest.isExcluded("AAPL"));
+		assertFalse(underTest.getTickers().contains("DELISTED"));
+		assertEquals(new HashSet<>(Arrays.asList("AAPL", "GOOG")),
+				underTest.withoutExcluded(Arrays.asList("AAPL", "MSFT", "DELISTED", "GOOG")));
+
+		BitSet technology = underTest.select(Attribute.SECTOR, "Technology");
+		assertEquals(Collections.singleton("AAPL"), underTest.tickers(technology));
+		BitSet nyse = underTest.select(Attribute.EXCHANGE, "NYQ");
+		nyse.and(underTest.included());
+		assertEquals(Collections.singleton("XOM"), underTest.tickers(nyse));
+		assertTrue(underTest.select(Attribute.SECTOR, "Utilities").isEmpty());
+	}
+
+	@Test
+	public void testOnlyChangesMoveTheVersion() {
+		SymbolUniverse underTest = new SymbolUniverse(4);
+		underTest.add(company("AAPL", "Technology", "Computers", "NMS"));
+		underTest.setExcluded(Collections.singleton("MSFT"));
+		long version = underTest.getVersion();
+
+		underTest.add(company("AAPL", "Technology", "Computers", "NMS"));
+		underTest.setExcluded(Collections.singleton("MSFT"));
+		assertEquals(version, underTest.getVersion());
+
+		underTest.add(company("AAPL", "Technology", "Computers", "NYQ"));
+		assertTrue(underTest.getVersion() > version);
+	}
+
+	@Test
+	public void testUnknownAttributeIsNull() {
+		SymbolUniverse underTest = new SymbolUniverse(4);
+		underTest.setExcluded(Collections.singleton("MSFT"));
+
+		assertNull(underTest.get(Attribute.SECTOR, underTest.idOf("MSFT")));
+		assertTrue(underTest.getTickers().isEmpty());
+		assertEquals(1, underTest.size());
+	}
+
+	private static Company company(String ticker, String sector, String industry, String exchange) {
+		Company ret = new Company();
+		ret.setTicker(ticker);
+		ret.setSectorDescription(sector);
+		ret.setIndustryDescription(industry);
+		ret.setExchange(exchange);
+		return ret;
+	}
+}
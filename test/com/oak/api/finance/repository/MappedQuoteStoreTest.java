@@ -0,0 +1,132 @@
+package com.oak.api.finance.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.oak.api.finance.model.dto.Quote;
+
+public class MappedQuoteStoreTest {
+
+	private static final LocalDate FIRST_DAY = LocalDate.of(1962, 1, 2);
+
+	private File directory;
+	private MappedQuoteStore underTest;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("quote-store").toFile();
+		underTest = new MappedQuoteStore(directory, LogManager.getLogger(MappedQuoteStore.class));
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(directory);
+	}
+
+	@Test
+	public void testDecadesOfQuotesReadBackInDateOrder() throws IOException {
+		List<Quote> quotes = new ArrayList<>();
+		for (int i = 20000; i >= 0; i--) {
+			quotes.add(quote("IBM", FIRST_DAY.plusDays(i), i));
+		}
+		assertEquals(20001, underTest.save(quotes));
+
+		QuoteSeries series = underTest.read("IBM");
+		assertEquals(20001, series.size());
+		for (int i = 0; i < series.size(); i += 1000) {
+			assertEquals(FIRST_DAY.plusDays(i), series.getDate(i));
+			assertEquals(i + 0.5, series.getClose(i), 0);
+			assertEquals(i * 100L, series.getVolume(i));
+		}
+		assertEquals(quote("IBM", FIRST_DAY.plusDays(7), 7), series.toQuote(7));
+	}
+
+	@Test
+	public void testRangeReadsIncludeBothEnds() throws IOException {
+		List<Quote> quotes = new ArrayList<>();
+		for (int i = 0; i < 30; i += 2) {
+			quotes.add(quote("MSFT", FIRST_DAY.plusDays(i), i));
+		}
+		underTest.save(quotes);
+
+		QuoteSeries series = underTest.read("MSFT", FIRST_DAY.plusDays(4), FIRST_DAY.plusDays(9));
+		assertEquals(3, series.size());
+		assertEquals(FIRST_DAY.plusDays(4), series.getDate(0));
+		assertEquals(FIRST_DAY.plusDays(8), series.getDate(2));
+		assertEquals(0, underTest.read("MSFT", FIRST_DAY.plusDays(100), FIRST_DAY.plusDays(200)).size());
+		assertEquals(0, underTest.read("UNKNOWN").size());
+	}
+
+	@Test
+	public void testQuotesAlreadyStoredAreNotAppendedAgain() throws IOException {
+		underTest.save(Arrays.asList(quote("AAPL", FIRST_DAY, 0), quote("AAPL", FIRST_DAY.plusDays(1), 1)));
+		int stored = underTest.save(Arrays.asList(quote("AAPL", FIRST_DAY.plusDays(1), 1),
+				quote("AAPL", FIRST_DAY.plusDays(2), 2), quote("GOOG", FIRST_DAY, 0)));
+
+		assertEquals(2, stored);
+		assertEquals(3, underTest.read("AAPL").size());
+		assertEquals(new TreeSet<>(Arrays.asList("AAPL", "GOOG")), underTest.getTickers());
+		assertEquals(3, new MappedQuoteStore(directory, LogManager.getLogger(MappedQuoteStore.class))
+				.read("AAPL").size());
+	}
+
+	@Test
+	public void testEarlierQuotesAreMergedIntoTheHistory() throws IOException {
+		underTest.save(Arrays.asList(quote("AAPL", FIRST_DAY, 0), quote("AAPL", FIRST_DAY.plusDays(2), 2),
+				quote("AAPL", FIRST_DAY.plusDays(4), 4)));
+		QuoteSeries before = underTest.read("AAPL");
+		// a reloaded history, adjusted after a split
+		Quote adjusted = new Quote(null, "AAPL", 2.1, 2.5, 3.0, 2.0, 0.5, 200L, date(FIRST_DAY.plusDays(2)));
+		int stored = underTest.save(
+				Arrays.asList(quote("AAPL", FIRST_DAY.plusDays(1), 1), adjusted, quote("AAPL", FIRST_DAY.plusDays(4), 4)));
+
+		assertEquals(2, stored);
+		QuoteSeries series = underTest.read("AAPL");
+		assertEquals(4, series.size());
+		assertEquals(FIRST_DAY.plusDays(1), series.getDate(1));
+		assertEquals(adjusted, series.toQuote(2));
+		assertEquals(quote("AAPL", FIRST_DAY.plusDays(4), 4), series.toQuote(3));
+		assertEquals(1.0, before.getAdjustmentFactor(1), 0);
+		assertEquals(0, underTest.save(Arrays.asList(adjusted)));
+		assertEquals(new TreeSet<>(Arrays.asList("AAPL")), underTest.getTickers());
+	}
+
+	@Test
+	public void testMissingValuesStayMissing() throws IOException {
+		Quote quote = new Quote(null, "BRK.A", null, 10.0, null, null, null, null, date(FIRST_DAY));
+		underTest.save(Arrays.asList(quote));
+
+		QuoteSeries series = underTest.read("BRK.A");
+		assertTrue(Double.isNaN(series.getOpen(0)));
+		assertFalse(series.hasVolume(0));
+		assertNull(series.toQuote(0).getVolume());
+		assertEquals(quote, series.toQuote(0));
+	}
+
+	private Quote quote(String ticker, LocalDate day, int i) {
+		return new Quote(null, ticker, i + 0.1, i + 0.5, i + 1.0, (double) i, 1.0, i * 100L, date(day));
+	}
+
+	private Date date(LocalDate day) {
+		return Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant());
+	}
+}
@@ -0,0 +1,98 @@
+package com.oak.api.finance.repository;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.Logger;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.oak.api.finance.model.dto.Quote;
+import com.oak.api.finance.model.dto.QuoteWatermark;
+
+@RunWith(MockitoJUnitRunner.class)
+public class WatermarkQuoteProviderImplTest {
+
+	@Mock
+	private Logger log;
+	@Mock
+	private QuoteProvider delegate;
+	@Mock
+	private QuoteWatermarkRepository watermarkRepository;
+	@Mock
+	private JdbcTemplate jdbcTemplate;
+	@Mock
+	private PlatformTransactionManager transactionManager;
+
+	private WatermarkQuoteProviderImpl underTest;
+
+	@Before
+	public void setUp() {
+		underTest = new WatermarkQuoteProviderImpl(delegate, watermarkRepository, jdbcTemplate,
+				new TransactionTemplate(transactionManager), log);
+	}
+
+	@Test
+	public void testLatestDatesComeFromWatermarks() {
+		when(watermarkRepository.count()).thenReturn(1L);
+		when(watermarkRepository.findAll()).thenReturn(Arrays.asList(new QuoteWatermark("AAPL", new Date(10))));
+		Map<String, Date> latest = underTest.getLatestQuoteDateByTicker();
+		assertEquals(new Date(10), latest.get("AAPL"));
+		verify(delegate, never()).getLatestQuoteDateByTicker();
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testEmptyWatermarksAreSeededFromQuotes() {
+		when(watermarkRepository.count()).thenReturn(0L);
+		when(delegate.getLatestQuoteDateByTicker()).thenReturn(Collections.singletonMap("MSFT", new Date(20)));
+		Map<String, Date> latest = underTest.getLatestQuoteDateByTicker();
+		assertEquals(new Date(20), latest.get("MSFT"));
+		ArgumentCaptor<List> upserted = ArgumentCaptor.forClass(List.class);
+		verify(jdbcTemplate).batchUpdate(anyString(), upserted.capture());
+		assertArrayEquals(new Object[] { "MSFT", new Timestamp(20) }, ((List<Object[]>) upserted.getValue()).get(0));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testSaveUpsertsTheLatestDateOfEachTicker() {
+		List<Quote> quotes = Arrays.asList(quote("MSFT", 90), quote("AAPL", 50), quote("AAPL", 200),
+				quote("IBM", 30), quote(null, 40));
+		underTest.save(quotes);
+		verify(delegate).save(quotes);
+		ArgumentCaptor<List> upserted = ArgumentCaptor.forClass(List.class);
+		// the database keeps the greatest of the saved and the new date
+		verify(jdbcTemplate).batchUpdate(eq(WatermarkQuoteProviderImpl.UPSERT_SQL), upserted.capture());
+		List<Object[]> rows = (List<Object[]>) upserted.getValue();
+		assertEquals(3, rows.size());
+		// in ticker order
+		assertArrayEquals(new Object[] { "AAPL", new Timestamp(200) }, rows.get(0));
+		assertArrayEquals(new Object[] { "IBM", new Timestamp(30) }, rows.get(1));
+		assertArrayEquals(new Object[] { "MSFT", new Timestamp(90) }, rows.get(2));
+		verify(watermarkRepository, never()).save(anyListOf(QuoteWatermark.class));
+	}
+
+	private Quote quote(String ticker, long date) {
+		return new Quote(null, ticker, 1.0, 1.0, 1.0, 1.0, 1.0, 1L, new Date(date));
+	}
+}
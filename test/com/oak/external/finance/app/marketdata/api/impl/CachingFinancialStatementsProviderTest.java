@@ -0,0 +1,149 @@
+package com.oak.external.finance.app.marketdata.api.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.junit.After;
+import org.junit.Test;
+
+import com.oak.api.finance.model.BalanceSheet;
+import com.oak.api.finance.model.FinancialData;
+import com.oak.external.finance.app.marketdata.api.FinancialStatementsProvider;
+
+public class CachingFinancialStatementsProviderTest {
+
+	private final CountingProvider delegate = new CountingProvider();
+	private File spillDirectory;
+
+	@After
+	public void tearDown() throws IOException {
+		if (spillDirectory != null) {
+			FileUtils.deleteDirectory(spillDirectory);
+		}
+	}
+
+	@Test
+	public void testSecondReadIsServedFromTheHeap() {
+		CachingFinancialStatementsProvider underTest = newProvider(TimeUnit.HOURS.toMillis(1), 10, null);
+		FinancialData first = underTest.getFinancialStatements("AAPL");
+		FinancialData second = underTest.getFinancialStatements("AAPL");
+		assertSame(first, second);
+		assertEquals(1, delegate.calls("AAPL"));
+		assertEquals(1, underTest.getMetrics().getHits());
+		assertEquals(1, underTest.getMetrics().getMisses());
+	}
+
+	@Test
+	public void testBatchLoadsOnlyWhatIsNotCached() {
+		CachingFinancialStatementsProvider underTest = newProvider(TimeUnit.HOURS.toMillis(1), 10, null);
+		underTest.getFinancialStatements("AAPL");
+		Map<String, FinancialData> batch = underTest.getFinancialStatements(Arrays.asList("AAPL", "MSFT"));
+		assertEquals(2, batch.size());
+		assertEquals(1, delegate.calls("AAPL"));
+		assertEquals(1, delegate.calls("MSFT"));
+	}
+
+	@Test
+	public void testStatementsChangedInvalidates() {
+		CachingFinancialStatementsProvider underTest = newProvider(TimeUnit.HOURS.toMillis(1), 10, null);
+		underTest.getFinancialStatements("AAPL");
+		underTest.statementsChanged("AAPL");
+		underTest.getFinancialStatements("AAPL");
+		assertEquals(2, delegate.calls("AAPL"));
+	}
+
+	@Test
+	public void testExpiredEntriesAreReloaded() throws InterruptedException {
+		CachingFinancialStatementsProvider underTest = newProvider(20, 10, null);
+		underTest.getFinancialStatements("AAPL");
+		Thread.sleep(50);
+		underTest.getFinancialStatements("AAPL");
+		assertEquals(2, delegate.calls("AAPL"));
+	}
+
+	@Test
+	public void testBlankResultsAreNotCached() {
+		CachingFinancialStatementsProvider underTest = newProvider(TimeUnit.HOURS.toMillis(1), 10, null);
+		underTest.getFinancialStatements("BLANK");
+		underTest.getFinancialStatements("BLANK");
+		assertEquals(2, delegate.calls("BLANK"));
+	}
+
+	@Test
+	public void testEvictedEntriesSpillToDisk() throws IOException {
+		spillDirectory = Files.createTempDirectory("statements-cache").toFile();
+		CachingFinancialStatementsProvider underTest = newProvider(TimeUnit.HOURS.toMillis(1), 1, spillDirectory);
+		underTest.getFinancialStatements("AAPL");
+		underTest.getFinancialStatements("MSFT");
+		FinancialData spilled = underTest.getFinancialStatements("AAPL");
+		assertEquals(1, delegate.calls("AAPL"));
+		assertEquals("AAPL", spilled.getSymbol());
+		assertEquals(1, spilled.getQuarterlyBalanceSheet().size());
+		FinancialStatementsCacheMetrics metrics = underTest.getMetrics();
+		assertEquals(1, metrics.getSpillHits());
+		assertTrue(metrics.getSpillWrites() >= 1);
+		assertTrue(metrics.getEvictions() >= 1);
+	}
+
+	private CachingFinancialStatementsProvider newProvider(long ttlMillis, long maximumSize, File spillDirectory) {
+		return new CachingFinancialStatementsProvider(delegate, ttlMillis, maximumSize, spillDirectory,
+				LogManager.getLogger(CachingFinancialStatementsProvider.class));
+	}
+
+	private static class CountingProvider implements FinancialStatementsProvider {
+		private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+
+		@Override
+		public FinancialData getFinancialStatements(String ticker) {
+			calls.computeIfAbsent(ticker, t -> new AtomicInteger()).incrementAndGet();
+			FinancialData ret;
+			if ("BLANK".equals(ticker)) {
+				ret = FinancialData.blankFinanicalData(ticker);
+			} else {
+				SortedMap<Date, BalanceSheet> quarterly = new TreeMap<>();
+				quarterly.put(new Date(0), balanceSheet(ticker));
+				ret = new FinancialData(ticker, new TreeMap<>(), quarterly, new TreeMap<>(), new TreeMap<>(),
+						new TreeMap<>(), new TreeMap<>());
+			}
+			return ret;
+		}
+
+		@Override
+		public Map<String, FinancialData> getFinancialStatements(Collection<String> tickers) {
+			Map<String, FinancialData> ret = new HashMap<>();
+			tickers.forEach(t -> ret.put(t, getFinancialStatements(t)));
+			return ret;
+		}
+
+		@Override
+		public void statementsChanged(String ticker) {
+		}
+
+		int calls(String ticker) {
+			AtomicInteger ret = calls.get(ticker);
+			return ret == null ? 0 : ret.get();
+		}
+
+		private BalanceSheet balanceSheet(String ticker) {
+			return new BalanceSheet(ticker, 1.0, 1, 1.0, 1, 1.0, 1, 1.0, 1, 1.0, 1, 1.0, 1, 1.0, 1, 1.0, 1, 1.0, 1,
+					1.0, 1, 1.0, 1, 1.0, 1, 1.0, 1, 1.0, 1, 1.0, 1, 1.0, 1);
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package com.oak.external.finance.app.marketdata.api.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+
+import org.apache.logging.log4j.Logger;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.oak.api.finance.model.BalanceSheet;
+import com.oak.api.finance.model.FinancialData;
+import com.oak.api.finance.model.dto.BalanceSheetDto;
+import com.oak.api.finance.model.dto.CashFlowStatementDto;
+import com.oak.api.finance.model.dto.IncomeStatementDto;
+import com.oak.api.finance.repository.BalanceSheetRepository;
+import com.oak.api.finance.repository.CashFlowStatementRepository;
+import com.oak.api.finance.repository.CompanyWithProblemsRepository;
+import com.oak.api.finance.repository.IncomeStatementRepository;
+import com.oak.external.finance.app.marketdata.api.FinancialDataDao;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FinancialStatementsProviderImplTest {
+
+	@Mock
+	private FinancialDataDao financialDataDao;
+	@Mock
+	private BalanceSheetRepository balanceSheetRepository;
+	@Mock
+	private FinancialStatementsConverter statementsConverter;
+	@Mock
+	private IncomeStatementRepository incomeStatementRepository;
+	@Mock
+	private CashFlowStatementRepository cashFlowStatementRepository;
+	@Mock
+	private CompanyWithProblemsRepository companyWithProblemsRepository;
+	@Mock
+	private BalanceSheet balanceSheet;
+	@Mock
+	private Logger logger;
+
+	private final Executor sameThread = Runnable::run;
+	private FinancialData fresh;
+	private FinancialData stale;
+	private FinancialData missing;
+	private FinancialStatementsProviderImpl underTest;
+
+	@Before
+	public void setUp() {
+		fresh = saved("FRESH", 10);
+		stale = saved("STALE", 200);
+		missing = FinancialData.blankFinanicalData("MISSING");
+		when(statementsConverter.getFinancialData(eq("FRESH"), anyListOf(BalanceSheetDto.class),
+				anyListOf(CashFlowStatementDto.class), anyListOf(IncomeStatementDto.class))).thenReturn(fresh);
+		when(statementsConverter.getFinancialData(eq("STALE"), anyListOf(BalanceSheetDto.class),
+				anyListOf(CashFlowStatementDto.class), anyListOf(IncomeStatementDto.class))).thenReturn(stale);
+		when(statementsConverter.getFinancialData(eq("MISSING"), anyListOf(BalanceSheetDto.class),
+				anyListOf(CashFlowStatementDto.class), anyListOf(IncomeStatementDto.class))).thenReturn(missing);
+		underTest = new FinancialStatementsProviderImpl(financialDataDao, balanceSheetRepository,
+				statementsConverter, incomeStatementRepository, cashFlowStatementRepository,
+				companyWithProblemsRepository, sameThread, logger);
+	}
+
+	@Test
+	public void testOneQueryPerTypeAndOnlyStaleOrMissingAreDownloaded() {
+		FinancialData downloaded = FinancialData.blankFinanicalData("STALE");
+		when(financialDataDao.getFinancialDataForSymbol("STALE", null)).thenReturn(downloaded);
+		when(financialDataDao.getFinancialDataForSymbol("MISSING", null))
+				.thenReturn(FinancialData.blankFinanicalData("MISSING"));
+
+		Map<String, FinancialData> result = underTest
+				.getFinancialStatements(Arrays.asList("FRESH", "STALE", "MISSING"));
+
+		assertEquals(3, result.size());
+		assertSame(fresh, result.get("FRESH"));
+		assertSame(downloaded, result.get("STALE"));
+		verify(balanceSheetRepository, times(1)).findByTickerIn(anyCollectionOf(String.class));
+		verify(cashFlowStatementRepository, times(1)).findByTickerIn(anyCollectionOf(String.class));
+		verify(incomeStatementRepository, times(1)).findByTickerIn(anyCollectionOf(String.class));
+		verify(balanceSheetRepository, never()).findByTicker(anyString());
+		verify(financialDataDao, never()).getFinancialDataForSymbol("FRESH", null);
+		verify(financialDataDao).getFinancialDataForSymbol("STALE", null);
+		verify(financialDataDao).getFinancialDataForSymbol("MISSING", null);
+	}
+
+	@Test
+	public void testAFailedDownloadKeepsTheSavedStatements() {
+		when(financialDataDao.getFinancialDataForSymbol("STALE", null))
+				.thenThrow(new IllegalStateException("circuit open"));
+		when(financialDataDao.getFinancialDataForSymbol("MISSING", null))
+				.thenThrow(new IllegalStateException("circuit open"));
+
+		Map<String, FinancialData> result = underTest
+				.getFinancialStatements(Arrays.asList("FRESH", "STALE", "MISSING"));
+
+		assertSame(fresh, result.get("FRESH"));
+		assertSame(stale, result.get("STALE"));
+		// nothing saved either, what the database had
+		assertSame(missing, result.get("MISSING"));
+	}
+
+	/**
+	 * With a quarterly balance sheet the given number of days old.
+	 */
+	private FinancialData saved(String ticker, int daysOld) {
+		SortedMap<Date, BalanceSheet> quarterly = new TreeMap<>();
+		quarterly.put(Date.from(ZonedDateTime.now().minusDays(daysOld).toInstant()), balanceSheet);
+		FinancialData ret = new FinancialData(ticker, new TreeMap<>(), quarterly, new TreeMap<>(), new TreeMap<>(),
+				new TreeMap<>(), new TreeMap<>());
+		return ret;
+	}
+}
@@ -0,0 +1,117 @@
+package com.oak.external.finance.app.marketdata.api.impl.yahoo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.After;
+import org.junit.Test;
+
+public class BatchFetchEngineTest {
+
+	private BatchFetchEngine underTest = new BatchFetchEngine(LogManager.getLogger(BatchFetchEngine.class), 4, 1000.0,
+			3, 1, 10);
+
+	@After
+	public void tearDown() {
+		underTest.shutdown();
+	}
+
+	@Test
+	public void testFetchAllDeliversEveryBatch() {
+		Collection<String[]> batches = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			batches.add(new String[] { "T" + i });
+		}
+		Map<String, String> delivered = new ConcurrentHashMap<>();
+		underTest.fetchAll(batches, b -> b[0], t -> delivered.put(t, t));
+		assertEquals(50, delivered.size());
+	}
+
+	@Test
+	public void testFetchAllRetriesThenGivesUp() {
+		AtomicInteger flakyCalls = new AtomicInteger();
+		AtomicInteger deadCalls = new AtomicInteger();
+		List<String> delivered = new ArrayList<>();
+		Collection<String[]> batches = new ArrayList<>();
+		batches.add(new String[] { "FLAKY" });
+		batches.add(new String[] { "DEAD" });
+		underTest.fetchAll(batches, b -> {
+			if ("FLAKY".equals(b[0]) && flakyCalls.incrementAndGet() < 3) {
+				throw new IOException("flaky");
+			}
+			if ("DEAD".equals(b[0])) {
+				deadCalls.incrementAndGet();
+				throw new IOException("dead");
+			}
+			return b[0];
+		}, t -> {
+			synchronized (delivered) {
+				delivered.add(t);
+			}
+		});
+		assertEquals(1, delivered.size());
+		assertEquals("FLAKY", delivered.get(0));
+		assertEquals(3, flakyCalls.get());
+		assertEquals(3, deadCalls.get());
+	}
+
+	@Test
+	public void testListenerFailureIsNotRetriedNorReportedAsAFetchFailure() {
+		Logger log = mock(Logger.class);
+		BatchFetchEngine engine = new BatchFetchEngine(log, 2, 1000.0, 3, 1, 10);
+		try {
+			AtomicInteger calls = new AtomicInteger();
+			List<String> delivered = new ArrayList<>();
+			Collection<String[]> batches = new ArrayList<>();
+			batches.add(new String[] { "BAD" });
+			batches.add(new String[] { "GOOD" });
+			engine.fetchAll(batches, b -> {
+				calls.incrementAndGet();
+				return b[0];
+			}, t -> {
+				if ("BAD".equals(t)) {
+					throw new IllegalStateException("downstream full");
+				}
+				synchronized (delivered) {
+					delivered.add(t);
+				}
+			});
+			assertEquals(2, calls.get());
+			assertEquals(1, delivered.size());
+			verify(log).error(startsWith("Listener failed on fetched batch: BAD"), any(IllegalStateException.class));
+			verify(log, never()).error(startsWith("Giving up"), any(Throwable.class));
+		} finally {
+			engine.shutdown();
+		}
+	}
+
+	@Test
+	public void testBackoffIsCappedAndJittered() {
+		BatchFetchEngine engine = new BatchFetchEngine(LogManager.getLogger(BatchFetchEngine.class), 1, 1.0, 10,
+				100, 1000);
+		try {
+			for (int attempt = 1; attempt < 10; attempt++) {
+				long window = Math.min(1000, 100L << (attempt - 1));
+				long delay = engine.backoffMillis(attempt);
+				assertTrue(delay >= window / 2 && delay <= window);
+			}
+		} finally {
+			engine.shutdown();
+		}
+	}
+}
@@ -19,13 +19,15 @@ import org.junit.Test;
 
 import com.oak.api.finance.model.dto.EarningsCalendar;
 import com.oak.external.finance.app.marketdata.api.EarningsCalendarDao;
+import com.oak.external.utils.web.CircuitBreaker;
 import com.oak.external.utils.web.WebParsingUtils;
 
 
 public class EarningsCalendarYahooWebDaoTests {
 	String url = "http://finance.yahoo.com/calendar/earnings";
 	CompletionService<List<EarningsCalendar>> executor = new ExecutorCompletionService<>( Executors.newCachedThreadPool());
-	EarningsCalendarDao underTest = new EarningsCalendarYahooWebDao(LogManager.getLogger(EarningsCalendarYahooWebDao.class), url, new WebParsingUtils(), executor);
+	EarningsCalendarDao underTest = new EarningsCalendarYahooWebDao(LogManager.getLogger(EarningsCalendarYahooWebDao.class), url, new WebParsingUtils(), executor,
+			CircuitBreaker.withDefaults("yahoo", LogManager.getLogger(CircuitBreaker.class)));
 	
 	
 	@Test
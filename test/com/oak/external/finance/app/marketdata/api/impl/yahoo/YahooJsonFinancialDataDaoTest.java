@@ -5,11 +5,13 @@ import org.apache.logging.log4j.LogManager;
 import org.junit.Test;
 
 import com.oak.api.finance.model.FinancialData;
+import com.oak.external.utils.web.CircuitBreaker;
 import com.oak.finance.app.monitor.analysis.FinanceFundamentalAnalysisControllerImpl;
 
 public class YahooJsonFinancialDataDaoTest {
 
-	YahooJsonFinancialDataDao underTest = new YahooJsonFinancialDataDao(LogManager.getFormatterLogger(FinanceFundamentalAnalysisControllerImpl.class));
+	YahooJsonFinancialDataDao underTest = new YahooJsonFinancialDataDao(LogManager.getFormatterLogger(FinanceFundamentalAnalysisControllerImpl.class),
+			CircuitBreaker.withDefaults("yahoo", LogManager.getLogger(CircuitBreaker.class)));
 	@Test
 	public void testGetBalanceSheetForSymbol() {
 		
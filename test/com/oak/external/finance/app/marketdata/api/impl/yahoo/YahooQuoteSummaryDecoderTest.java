@@ -0,0 +1,120 @@
+package com.oak.external.finance.app.marketdata.api.impl.yahoo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.Test;
+
+import com.oak.api.finance.model.BalanceSheet;
+import com.oak.api.finance.model.CashFlowStatement;
+import com.oak.api.finance.model.FinancialData;
+
+public class YahooQuoteSummaryDecoderTest {
+
+	private static final String JSON = "{\"quoteSummary\":{\"result\":[{"
+			+ "\"balanceSheetHistory\":{\"balanceSheetStatements\":["
+			+ "{\"maxAge\":1,\"endDate\":{\"raw\":1404086400,\"fmt\":\"2014-06-30\"},"
+			+ "\"cash\":{\"raw\":100.0,\"fmt\":\"100\",\"longFmt\":\"100\"},\"totalAssets\":{\"raw\":500},"
+			+ "\"inventory\":{},\"unknownField\":{\"raw\":7}},"
+			+ "{\"endDate\":{\"raw\":1372550400,\"fmt\":\"2013-06-30\"},\"cash\":{\"raw\":90}}],\"maxAge\":86400},"
+			+ "\"balanceSheetHistoryQuarterly\":{\"balanceSheetStatements\":["
+			+ "{\"endDate\":{\"fmt\":\"2014-09-30\"},\"cash\":{\"raw\":110}}]},"
+			+ "\"cashflowStatementHistory\":{\"cashflowStatements\":["
+			+ "{\"endDate\":{\"fmt\":\"2014-06-30\"},\"netIncome\":{\"raw\":42},\"changeInCash\":{\"raw\":-3}}]},"
+			+ "\"incomeStatementHistoryQuarterly\":{\"incomeStatementHistory\":["
+			+ "{\"endDate\":{\"fmt\":\"2014-09-30\"},\"ebit\":{\"raw\":12.5},\"totalRevenue\":{\"raw\":1000}}]},"
+			+ "\"earnings\":{\"earningsChart\":{\"quarterly\":[{\"date\":\"2Q2014\",\"actual\":{\"raw\":1}}]}}"
+			+ "}],\"error\":null}}";
+
+	private final YahooQuoteSummaryDecoder underTest = new YahooQuoteSummaryDecoder();
+
+	@Test
+	public void testDecodesEveryStatementAndPeriod() throws IOException {
+		FinancialData data = decode("AAPL");
+		assertEquals("AAPL", data.getSymbol());
+		assertEquals(2, data.getAnnualBalanceSheet().size());
+		assertEquals(1, data.getQuarterlyBalanceSheet().size());
+		assertEquals(1, data.getAnnualCashflowStatement().size());
+		assertTrue(data.getQuarterlyCashflowStatement().isEmpty());
+		assertTrue(data.getAnnualIncomeStatement().isEmpty());
+		assertEquals(1, data.getQuarterlyIncomeStatement().size());
+		assertEquals(date(2013, 6, 30), data.getAnnualBalanceSheet().firstKey());
+		assertEquals(date(2014, 6, 30), data.getAnnualBalanceSheet().lastKey());
+		assertEquals(date(2014, 9, 30), data.getQuarterlyIncomeStatement().firstKey());
+	}
+
+	@Test
+	public void testDecodedDataIsCopiedWholeForTheResponseCache() throws IOException {
+		FinancialData data = decode("AAPL");
+
+		FinancialData copy = SerializationUtils.clone(data);
+
+		assertEquals(data.getAnnualBalanceSheet().keySet(), copy.getAnnualBalanceSheet().keySet());
+		assertEquals(data.getQuarterlyIncomeStatement().keySet(), copy.getQuarterlyIncomeStatement().keySet());
+		assertNotSame(data.getAnnualBalanceSheet().lastKey(), copy.getAnnualBalanceSheet().lastKey());
+		assertNotSame(data.getAnnualBalanceSheet().get(date(2014, 6, 30)),
+				copy.getAnnualBalanceSheet().get(date(2014, 6, 30)));
+	}
+
+	@Test
+	public void testValuesComeFromRawAndMissingOnesAreZero() throws IOException {
+		FinancialData data = decode("AAPL");
+		BalanceSheet balanceSheet = data.getAnnualBalanceSheet().get(date(2014, 6, 30));
+		assertEquals(100.0, balanceSheet.getCashAndEquivalent(), 0);
+		assertEquals(500.0, balanceSheet.getTotalAssets(), 0);
+		assertEquals(0.0, balanceSheet.getInventory(), 0);
+		CashFlowStatement cashflow = data.getAnnualCashflowStatement().get(date(2014, 6, 30));
+		assertEquals(42.0, cashflow.getNetIncome(), 0);
+		assertEquals(0.0, cashflow.getDepreciation(), 0);
+	}
+
+	@Test
+	public void testEmptyResultGivesBlankData() throws IOException {
+		String json = "{\"quoteSummary\":{\"result\":null,\"error\":{\"code\":\"Not Found\"}}}";
+		FinancialData data = underTest.decode("NONE",
+				new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+		assertTrue(FinancialData.isBlankOrError(data));
+	}
+
+	@Test
+	public void testOneDecoderSharedByManyThreads() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<FinancialData>> results = new ArrayList<>();
+			for (int i = 0; i < 200; i++) {
+				String symbol = "T" + i;
+				results.add(executor.submit(() -> decode(symbol)));
+			}
+			for (int i = 0; i < results.size(); i++) {
+				FinancialData data = results.get(i).get();
+				assertEquals("T" + i, data.getSymbol());
+				assertEquals(date(2014, 6, 30), data.getAnnualBalanceSheet().lastKey());
+				assertEquals(date(2014, 9, 30), data.getQuarterlyBalanceSheet().firstKey());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private FinancialData decode(String symbol) throws IOException {
+		return underTest.decode(symbol, new ByteArrayInputStream(JSON.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private Date date(int year, int month, int day) {
+		return Date.from(LocalDate.of(year, month, day).atStartOfDay(ZoneId.systemDefault()).toInstant());
+	}
+}
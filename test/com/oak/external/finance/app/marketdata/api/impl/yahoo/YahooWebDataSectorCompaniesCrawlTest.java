@@ -0,0 +1,194 @@
+package com.oak.external.finance.app.marketdata.api.impl.yahoo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.oak.api.finance.model.SectorsIndustriesCompanies;
+import com.oak.api.finance.model.dto.Company;
+import com.oak.api.finance.model.dto.Sector;
+import com.oak.external.utils.web.CircuitBreaker;
+import com.oak.external.utils.web.HostPoliteness;
+import com.oak.external.utils.web.HttpResponseCache;
+import com.oak.external.utils.web.WebParsingUtils;
+import com.sun.net.httpserver.HttpServer;
+
+public class YahooWebDataSectorCompaniesCrawlTest {
+
+	private static final int SECTORS = 3;
+	private static final int INDUSTRIES_PER_SECTOR = 3;
+	private static final int COMPANIES_PER_INDUSTRY = 2;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private HttpServer server;
+	private String url;
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+	private final Set<String> missingPages = new HashSet<>();
+	private final ExecutorService fetchExecutor = Executors.newFixedThreadPool(8);
+	private final CircuitBreaker circuitBreaker = new CircuitBreaker("test", 1000, 10, 2000, 1, 0.5, 50, 200,
+			LogManager.getLogger(CircuitBreaker.class));
+
+	@Before
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/p/", exchange -> {
+			maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+			try {
+				Thread.sleep(30);
+				String name = exchange.getRequestURI().getPath().substring("/p/".length());
+				if (missingPages.contains(name)) {
+					exchange.sendResponseHeaders(404, -1);
+				} else {
+					byte[] body = page(name).getBytes(StandardCharsets.UTF_8);
+					exchange.getResponseHeaders().add("Content-Type", "text/html");
+					exchange.sendResponseHeaders(200, body.length);
+					try (OutputStream out = exchange.getResponseBody()) {
+						out.write(body);
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				inFlight.decrementAndGet();
+				exchange.close();
+			}
+		});
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+		url = "http://localhost:" + server.getAddress().getPort() + "/p/s_conameu.html";
+	}
+
+	@After
+	public void tearDown() {
+		fetchExecutor.shutdownNow();
+		circuitBreaker.shutdown();
+		server.stop(0);
+	}
+
+	@Test
+	public void testTheWholeTreeIsCrawledWithinThePolitenessLimit() {
+		SectorsIndustriesCompanies result = dao(2).getSectorsAndCompanies();
+
+		assertEquals(SECTORS, result.sectors().size());
+		assertEquals(SECTORS * INDUSTRIES_PER_SECTOR, result.industries().size());
+		Set<Company> companies = result.companies();
+		assertEquals(SECTORS * INDUSTRIES_PER_SECTOR * COMPANIES_PER_INDUSTRY, companies.size());
+		Company company = companies.stream().filter(c -> "C120".equals(c.getTicker())).findFirst().get();
+		assertEquals("Company 1 2 0", company.getName());
+		assertEquals("Industry 1 2", company.getIndustryDescription());
+		assertEquals("Sector 1", company.getSectorDescription());
+		for (Sector industry : result.industries()) {
+			assertTrue(industry.getParentSectorDescription().startsWith("Sector "));
+		}
+		assertEquals(2, maxInFlight.get());
+	}
+
+	@Test
+	public void testAPageThatCannotBeDownloadedLeavesItsBranchEmpty() {
+		missingPages.add("11conameu.html");
+		missingPages.add("2conameu.html");
+
+		SectorsIndustriesCompanies result = dao(4).getSectorsAndCompanies();
+
+		assertEquals(SECTORS, result.sectors().size());
+		assertEquals((SECTORS - 1) * INDUSTRIES_PER_SECTOR, result.industries().size());
+		assertEquals(((SECTORS - 1) * INDUSTRIES_PER_SECTOR - 1) * COMPANIES_PER_INDUSTRY, result.companies().size());
+	}
+
+	@Test
+	public void testUnchangedPagesAreNotParsedAgain() throws IOException {
+		HttpResponseCache cache = new HttpResponseCache(folder.newFolder("cache"), 1024 * 1024,
+				TimeUnit.DAYS.toMillis(1), 100, LogManager.getLogger(HttpResponseCache.class));
+		int pages = 1 + SECTORS + SECTORS * INDUSTRIES_PER_SECTOR;
+
+		SectorsIndustriesCompanies first = dao(4, cache).getSectorsAndCompanies();
+		// as saving them does
+		first.sectors().forEach(sector -> sector.setId(1L));
+		first.industries().forEach(industry -> industry.setParentSectorId(1L));
+		SectorsIndustriesCompanies result = dao(4, cache).getSectorsAndCompanies();
+
+		assertEquals(SECTORS * INDUSTRIES_PER_SECTOR * COMPANIES_PER_INDUSTRY, result.companies().size());
+		assertTrue(result.sectors().stream().allMatch(sector -> sector.getId() == null));
+		assertTrue(result.industries().stream().allMatch(industry -> industry.getParentSectorId() == null));
+		assertEquals(pages, cache.getParses());
+		assertEquals(pages, cache.getUnchanged());
+	}
+
+	private YahooWebDataSectorCompaniesDao dao(int connectionsPerHost) {
+		return dao(connectionsPerHost, HttpResponseCache.inHeap(LogManager.getLogger(HttpResponseCache.class)));
+	}
+
+	private YahooWebDataSectorCompaniesDao dao(int connectionsPerHost, HttpResponseCache cache) {
+		return new YahooWebDataSectorCompaniesDao(LogManager.getFormatterLogger(YahooWebDataSectorCompaniesDao.class),
+				url, new WebParsingUtils(), circuitBreaker, fetchExecutor,
+				new HostPoliteness(connectionsPerHost, 1000, LogManager.getLogger(HostPoliteness.class)), cache);
+	}
+
+	/**
+	 * s_conameu.html lists the sectors, {s}conameu.html the industries of
+	 * sector s and {s}{i}conameu.html the companies of industry i, the
+	 * biz.yahoo.com way: the data is in the fourth table.
+	 */
+	private static String page(String name) {
+		StringBuilder rows = new StringBuilder();
+		String first;
+		if ("s_conameu.html".equals(name)) {
+			first = "Sector";
+			for (int s = 0; s < SECTORS; s++) {
+				rows.append(row("Sector " + s, s + "conameu.html"));
+			}
+		} else {
+			first = "Description";
+			String path = name.substring(0, name.indexOf("conameu.html"));
+			if (path.length() == 1) {
+				for (int i = 0; i < INDUSTRIES_PER_SECTOR; i++) {
+					rows.append(row("Industry " + path + " " + i, path + i + "conameu.html"));
+				}
+			} else {
+				rows.append(row("Industry: Industry " + path.charAt(0) + " " + path.charAt(1), "industry.html"));
+				for (int c = 0; c < COMPANIES_PER_INDUSTRY; c++) {
+					rows.append(row("Company " + path.charAt(0) + " " + path.charAt(1) + " " + c + " (C" + path + c + ")",
+							"http://finance.yahoo.com/q?s=C" + path + c));
+				}
+			}
+		}
+		StringBuilder ret = new StringBuilder("<html><body><table></table><table></table><table></table><table><tr>");
+		for (String header : new String[] { first, "1 Day Price Change %", "Market Cap", "P/E", "ROE %",
+				"Div. Yield %", "Long-Term Debt to Equity", "Price to Book Value", "Net Profit Margin % (mrq)",
+				"Price to Free Cash Flow (mrq)" }) {
+			ret.append("<th>").append(header).append("</th>");
+		}
+		ret.append("</tr>").append(rows).append("</table></body></html>");
+		return ret.toString();
+	}
+
+	private static String row(String description, String link) {
+		StringBuilder ret = new StringBuilder("<tr><td><a href=\"").append(link).append("\">").append(description)
+				.append("</a></td>");
+		for (String value : new String[] { "0.5", "1.2B", "15.1", "12.0", "2.1", "0.4", "1.8", "9.5", "NA" }) {
+			ret.append("<td>").append(value).append("</td>");
+		}
+		ret.append("</tr>");
+		return ret.toString();
+	}
+}
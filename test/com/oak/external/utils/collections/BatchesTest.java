@@ -0,0 +1,42 @@
+package com.oak.external.utils.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class BatchesTest {
+
+	@Test
+	public void testTheLastBatchHoldsWhatIsLeft() {
+		Set<Integer> set = new HashSet<>();
+		for (int i = 0; i < 25; i++) {
+			set.add(i);
+		}
+
+		Collection<Set<Integer>> batches = Batches.batch(set, 10);
+
+		List<Integer> sizes = new ArrayList<>();
+		Set<Integer> all = new HashSet<>();
+		for (Set<Integer> batch : batches) {
+			sizes.add(batch.size());
+			all.addAll(batch);
+		}
+		assertEquals(3, batches.size());
+		assertEquals(25, sizes.stream().mapToInt(Integer::intValue).sum());
+		assertEquals(5, sizes.stream().mapToInt(Integer::intValue).min().getAsInt());
+		assertEquals(set, all);
+	}
+
+	@Test
+	public void testNoSetNoBatches() {
+		assertNull(Batches.batch(null, 10));
+		assertEquals(0, Batches.batch(new HashSet<String>(), 10).size());
+	}
+}
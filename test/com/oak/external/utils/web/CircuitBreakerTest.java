@@ -0,0 +1,89 @@
+package com.oak.external.utils.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+
+import org.apache.logging.log4j.LogManager;
+import org.jsoup.HttpStatusException;
+import org.junit.After;
+import org.junit.Test;
+
+import com.oak.external.utils.web.CircuitBreaker.State;
+
+public class CircuitBreakerTest {
+
+	private CircuitBreaker underTest = new CircuitBreaker("test", 1000, 10, 2000, 1, 0.5, 50, 200,
+			LogManager.getLogger(CircuitBreaker.class));
+
+	@After
+	public void tearDown() {
+		underTest.shutdown();
+	}
+
+	@Test
+	public void testThrottledResponseOpensTheCircuit() throws IOException {
+		assertEquals("ok", underTest.execute(() -> "ok"));
+		try {
+			underTest.execute(() -> {
+				throw new HttpStatusException("declined", 999, "http://yahoo");
+			});
+			fail("a throttled response must open the circuit");
+		} catch (CircuitOpenException e) {
+			assertTrue(e.getRetryAfterMillis() > 0);
+			assertTrue(e.getCause() instanceof HttpStatusException);
+		}
+		assertEquals(State.OPEN, underTest.getState());
+		assertEquals(1, underTest.getTrips());
+		assertTrue(underTest.getRate() < 1000);
+	}
+
+	@Test
+	public void testOpenCircuitRejectsWithoutCalling() throws IOException {
+		trip();
+		try {
+			underTest.execute(() -> {
+				fail("the call must not be made while the circuit is open");
+				return null;
+			});
+			fail("an open circuit must reject");
+		} catch (CircuitOpenException e) {
+			assertEquals(1, underTest.getRejections());
+		}
+	}
+
+	@Test
+	public void testHalfOpenProbeClosesTheCircuit() throws Exception {
+		trip();
+		Thread.sleep(150);
+		assertEquals(State.HALF_OPEN, underTest.getState());
+		assertEquals("probe", underTest.execute(() -> "probe"));
+		assertEquals(State.CLOSED, underTest.getState());
+	}
+
+	@Test
+	public void testOtherFailuresDoNotOpenTheCircuit() {
+		try {
+			underTest.execute(() -> {
+				throw new HttpStatusException("missing", 404, "http://yahoo");
+			});
+			fail("the error must be rethrown");
+		} catch (CircuitOpenException e) {
+			fail("a 404 is not throttling");
+		} catch (IOException e) {
+			assertEquals(State.CLOSED, underTest.getState());
+		}
+	}
+
+	private void trip() {
+		try {
+			underTest.execute(() -> {
+				throw new IOException("Server returned HTTP response code: 999 for URL: http://yahoo");
+			});
+		} catch (IOException e) {
+			assertTrue(e instanceof CircuitOpenException);
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package com.oak.external.utils.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.junit.Test;
+
+public class HostPolitenessTest {
+
+	private HostPoliteness underTest = new HostPoliteness(2, 1000, LogManager.getLogger(HostPoliteness.class));
+
+	@Test
+	public void testConnectionsAreLimitedPerHost() throws Exception {
+		AtomicInteger yahoo = new AtomicInteger();
+		AtomicInteger maxYahoo = new AtomicInteger();
+		AtomicInteger other = new AtomicInteger();
+		AtomicInteger maxOther = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(12);
+		try {
+			List<Future<String>> results = new ArrayList<>();
+			for (int i = 0; i < 12; i++) {
+				boolean toYahoo = i % 2 == 0;
+				String url = toYahoo ? "https://biz.yahoo.com/p/" + i + "conameu.html" : "http://example.com/" + i;
+				results.add(executor.submit(() -> underTest.execute(url,
+						() -> visit(toYahoo ? yahoo : other, toYahoo ? maxYahoo : maxOther))));
+			}
+			for (Future<String> result : results) {
+				assertEquals("visited", result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(2, maxYahoo.get());
+		assertEquals(2, maxOther.get());
+	}
+
+	@Test
+	public void testRequestsToAHostArePaced() throws Exception {
+		HostPoliteness paced = new HostPoliteness(10, 20, LogManager.getLogger(HostPoliteness.class));
+		long start = System.nanoTime();
+		for (int i = 0; i < 6; i++) {
+			paced.execute("https://biz.yahoo.com/p/" + i + "conameu.html", () -> "visited");
+		}
+		long elapsedMillis = (System.nanoTime() - start) / 1000000;
+		assertTrue("6 requests at 20/s took " + elapsedMillis + " ms", elapsedMillis >= 200);
+	}
+
+	@Test
+	public void testHostIsTheLowerCaseHostName() {
+		assertEquals("biz.yahoo.com", HostPoliteness.hostOf("https://BIZ.yahoo.com:443/p/s_conameu.html"));
+		assertEquals("not a url", HostPoliteness.hostOf("not a url"));
+	}
+
+	private static String visit(AtomicInteger inFlight, AtomicInteger maxInFlight) {
+		maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+		try {
+			Thread.sleep(50);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		inFlight.decrementAndGet();
+		return "visited";
+	}
+}
@@ -0,0 +1,167 @@
+package com.oak.external.utils.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import com.oak.external.utils.web.HttpResponseCache.BodyParser;
+import com.oak.external.utils.web.HttpResponseCache.ConditionalFetch;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class HttpResponseCacheTest {
+
+	private static final ConditionalFetch JSOUP = HttpResponseCache.jsoup(5000);
+	private static final BodyParser<Document> HTML = (body, charset) -> Jsoup
+			.parse(new String(body, charset == null ? "UTF-8" : charset));
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private HttpServer server;
+	private String base;
+	private volatile String page = "<html><body><p>first</p></body></html>";
+	private final AtomicInteger bodiesSent = new AtomicInteger();
+
+	@Before
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/etag", exchange -> {
+			String etag = "\"" + page.hashCode() + "\"";
+			exchange.getResponseHeaders().add("ETag", etag);
+			if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+				exchange.sendResponseHeaders(304, -1);
+				exchange.close();
+			} else {
+				send(exchange, page);
+			}
+		});
+		server.createContext("/plain", exchange -> send(exchange, page));
+		server.createContext("/sized", exchange -> send(exchange, exchange.getRequestURI().getQuery() + page));
+		server.start();
+		base = "http://localhost:" + server.getAddress().getPort();
+	}
+
+	@After
+	public void tearDown() {
+		server.stop(0);
+	}
+
+	@Test
+	public void testUnchangedPageIsRevalidatedAndNotParsedAgain() throws IOException {
+		HttpResponseCache underTest = cache(folder.newFolder("cache"), 1024 * 1024);
+
+		Document first = underTest.get(base + "/etag", JSOUP, HTML, Document::clone);
+		Document second = underTest.get(base + "/etag", JSOUP, HTML, Document::clone);
+
+		assertEquals("first", first.select("p").text());
+		assertNotSame(first, second);
+		assertEquals(first.html(), second.html());
+		assertEquals(1, bodiesSent.get());
+		assertEquals(1, underTest.getNotModified());
+		assertEquals(1, underTest.getParses());
+
+		page = "<html><body><p>second</p></body></html>";
+		assertEquals("second", underTest.get(base + "/etag", JSOUP, HTML, Document::clone).select("p").text());
+		assertEquals(2, underTest.getParses());
+	}
+
+	@Test
+	public void testChangesToAValueDoNotReachTheNextCaller() throws IOException {
+		HttpResponseCache underTest = cache(folder.newFolder("cache"), 1024 * 1024);
+
+		underTest.get(base + "/etag", JSOUP, HTML, Document::clone).select("p").first().text("modified");
+
+		assertEquals("first", underTest.get(base + "/etag", JSOUP, HTML, Document::clone).select("p").text());
+		underTest.get(base + "/etag", JSOUP, HTML, Document::clone).select("p").first().text("modified again");
+		assertEquals("first", underTest.get(base + "/etag", JSOUP, HTML, Document::clone).select("p").text());
+		assertEquals(1, underTest.getParses());
+	}
+
+	@Test
+	public void testPageWithoutValidatorsIsComparedByContent() throws IOException {
+		HttpResponseCache underTest = cache(folder.newFolder("cache"), 1024 * 1024);
+
+		Document first = underTest.get(base + "/plain", JSOUP, HTML, Document::clone);
+		assertEquals(first.html(), underTest.get(base + "/plain", JSOUP, HTML, Document::clone).html());
+		assertEquals(1, underTest.getUnchanged());
+		assertEquals(1, underTest.getParses());
+
+		page = "<html><body><p>second</p></body></html>";
+		assertEquals("second", underTest.get(base + "/plain", JSOUP, HTML, Document::clone).select("p").text());
+		assertEquals(2, underTest.getDownloaded());
+		assertEquals(2, underTest.getParses());
+	}
+
+	@Test
+	public void testCachedPagesOutliveTheCache() throws IOException {
+		File directory = folder.newFolder("cache");
+		cache(directory, 1024 * 1024).get(base + "/etag", JSOUP, HTML, Document::clone);
+
+		HttpResponseCache underTest = cache(directory, 1024 * 1024);
+		assertEquals("first", underTest.get(base + "/etag", JSOUP, HTML, Document::clone).select("p").text());
+		assertEquals(1, bodiesSent.get());
+		assertEquals(1, underTest.getNotModified());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedPagesAreEvictedPastTheSize() throws Exception {
+		int size = ("a" + page).length();
+		HttpResponseCache underTest = cache(folder.newFolder("cache"), 2 * size);
+		underTest.get(base + "/sized?a", JSOUP, HTML, Document::clone);
+		Thread.sleep(20);
+		underTest.get(base + "/sized?b", JSOUP, HTML, Document::clone);
+		Thread.sleep(20);
+		underTest.get(base + "/sized?a", JSOUP, HTML, Document::clone);
+		Thread.sleep(20);
+		underTest.get(base + "/sized?c", JSOUP, HTML, Document::clone);
+
+		assertEquals(1, underTest.getEvictions());
+		assertTrue(underTest.getBytes() <= 2 * size);
+		// b went, a is still there
+		underTest.get(base + "/sized?a", JSOUP, HTML, Document::clone);
+		assertEquals(2, underTest.getUnchanged());
+	}
+
+	@Test
+	public void testWithoutDirectoryTheParsedValueIsStillReused() throws IOException {
+		HttpResponseCache underTest = HttpResponseCache.inHeap(LogManager.getLogger(HttpResponseCache.class));
+
+		Document first = underTest.get(base + "/etag", JSOUP, HTML, Document::clone);
+		assertEquals(first.html(), underTest.get(base + "/etag", JSOUP, HTML, Document::clone).html());
+		assertEquals(2, bodiesSent.get());
+		assertEquals(1, underTest.getParses());
+	}
+
+	private HttpResponseCache cache(File directory, long maximumBytes) {
+		return new HttpResponseCache(directory, maximumBytes, TimeUnit.DAYS.toMillis(1), 100,
+				LogManager.getLogger(HttpResponseCache.class));
+	}
+
+	private void send(HttpExchange exchange, String content) throws IOException {
+		bodiesSent.incrementAndGet();
+		byte[] body = content.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "text/html; charset=UTF-8");
+		exchange.sendResponseHeaders(200, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+}
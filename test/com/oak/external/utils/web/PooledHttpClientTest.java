@@ -0,0 +1,119 @@
+package com.oak.external.utils.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.client.HttpResponseException;
+import org.apache.logging.log4j.LogManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+public class PooledHttpClientTest {
+
+	private HttpServer server;
+	private String base;
+	private PooledHttpClient underTest = new PooledHttpClient(4, 1000, 5000,
+			LogManager.getLogger(PooledHttpClient.class));
+
+	@Before
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/gzip", exchange -> {
+			exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+			exchange.sendResponseHeaders(200, 0);
+			try (OutputStream out = new GZIPOutputStream(exchange.getResponseBody())) {
+				out.write("{\"ticker\":\"AAPL\"}".getBytes(StandardCharsets.UTF_8));
+			}
+		});
+		server.createContext("/throttled", exchange -> {
+			exchange.sendResponseHeaders(999, -1);
+			exchange.close();
+		});
+		server.createContext("/modified", exchange -> {
+			exchange.getResponseHeaders().add("Last-Modified", "Wed, 21 Oct 2015 07:28:00 GMT");
+			if (exchange.getRequestHeaders().containsKey("If-Modified-Since")) {
+				exchange.sendResponseHeaders(304, -1);
+			} else {
+				exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+				byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+				exchange.sendResponseHeaders(200, body.length);
+				exchange.getResponseBody().write(body);
+			}
+			exchange.close();
+		});
+		server.setExecutor(Executors.newFixedThreadPool(4));
+		server.start();
+		base = "http://localhost:" + server.getAddress().getPort();
+	}
+
+	@After
+	public void tearDown() {
+		underTest.shutdown();
+		server.stop(0);
+	}
+
+	@Test
+	public void testGzipBodyIsStreamedDecoded() throws Exception {
+		String body = underTest.get(base + "/gzip", in -> IOUtils.toString(in, StandardCharsets.UTF_8));
+		assertEquals("{\"ticker\":\"AAPL\"}", body);
+		assertEquals(0, underTest.getLeasedConnections());
+	}
+
+	@Test
+	public void testErrorStatusIsReportedAndConnectionReleased() throws Exception {
+		try {
+			underTest.get(base + "/throttled", in -> "unexpected");
+			fail("a 999 must be reported");
+		} catch (HttpResponseException e) {
+			assertEquals(999, e.getStatusCode());
+			assertTrue(CircuitBreaker.isThrottled(e));
+		}
+		assertEquals(0, underTest.getLeasedConnections());
+	}
+
+	@Test
+	public void testConditionalGetReportsNotModified() throws Exception {
+		ConditionalResponse first = underTest.getConditional(base + "/modified", null, null);
+		assertEquals("{}", new String(first.getBody(), StandardCharsets.UTF_8));
+		assertEquals("UTF-8", first.getCharset());
+		assertEquals("Wed, 21 Oct 2015 07:28:00 GMT", first.getLastModified());
+
+		ConditionalResponse second = underTest.getConditional(base + "/modified", null, first.getLastModified());
+		assertTrue(second.isNotModified());
+		assertEquals(0, underTest.getLeasedConnections());
+	}
+
+	@Test
+	public void testConcurrentRequestsShareThePool() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<String>> results = new ArrayList<>();
+			for (int i = 0; i < 40; i++) {
+				results.add(executor.submit(
+						() -> underTest.get(base + "/gzip", in -> IOUtils.toString(in, StandardCharsets.UTF_8))));
+			}
+			for (Future<String> f : results) {
+				assertEquals("{\"ticker\":\"AAPL\"}", f.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(0, underTest.getLeasedConnections());
+	}
+}
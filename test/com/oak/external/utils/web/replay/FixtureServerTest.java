@@ -0,0 +1,200 @@
+package com.oak.external.utils.web.replay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.oak.api.finance.model.FinancialData;
+import com.oak.external.finance.app.marketdata.api.impl.yahoo.YahooJsonFinancialDataDao;
+import com.oak.external.utils.web.CircuitBreaker;
+import com.oak.external.utils.web.PooledHttpClient;
+import com.sun.net.httpserver.HttpServer;
+
+public class FixtureServerTest {
+
+	private static final String QUOTE_SUMMARY = "{\"quoteSummary\":{\"result\":[{"
+			+ "\"balanceSheetHistory\":{\"balanceSheetStatements\":["
+			+ "{\"endDate\":{\"raw\":1404086400,\"fmt\":\"2014-06-30\"},\"cash\":{\"raw\":100.0},\"totalAssets\":{\"raw\":500}},"
+			+ "{\"endDate\":{\"raw\":1372550400,\"fmt\":\"2013-06-30\"},\"cash\":{\"raw\":90}}]}"
+			+ "}],\"error\":null}}";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private HttpServer upstream;
+	private String upstreamHost;
+	private final AtomicInteger upstreamCalls = new AtomicInteger();
+	private FixtureCorpus corpus;
+	private final List<FixtureServer> servers = new ArrayList<>();
+
+	@Before
+	public void setUp() throws IOException {
+		upstream = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		upstream.createContext("/v10/finance/quoteSummary/", exchange -> {
+			upstreamCalls.incrementAndGet();
+			byte[] body = QUOTE_SUMMARY.getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().add("Content-Type", "application/json");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		upstream.start();
+		upstreamHost = "localhost:" + upstream.getAddress().getPort();
+		corpus = new FixtureCorpus(folder.newFolder("fixtures"), Collections.singleton("crumb"),
+				LogManager.getLogger(FixtureCorpus.class));
+	}
+
+	@After
+	public void tearDown() {
+		servers.forEach(FixtureServer::stop);
+		upstream.stop(0);
+	}
+
+	@Test
+	public void testRecordedResponsesAreReplayedWithoutTheLiveHost() throws IOException {
+		FixtureServer recorder = start(FixtureServer.recording(0, corpus, "http", log()));
+		String path = upstreamHost + "/v10/finance/quoteSummary/AAPL?modules=balanceSheetHistory";
+		assertEquals(QUOTE_SUMMARY, body(recorder.getBaseUrl() + path));
+		assertEquals(1, corpus.size());
+		upstream.stop(0);
+
+		FixtureServer replayer = start(FixtureServer.replaying(0, corpus, ReplayPolicy.faithful(), log()));
+		HttpURLConnection connection = open(replayer.getBaseUrl() + path);
+		assertEquals(200, connection.getResponseCode());
+		assertEquals("application/json", connection.getHeaderField("Content-Type"));
+		assertEquals(QUOTE_SUMMARY, read(connection.getInputStream()));
+		assertEquals(1, upstreamCalls.get());
+		assertEquals(1, replayer.getServed());
+	}
+
+	@Test
+	public void testIgnoredParametersAreLeftOutOfTheRequestIdentity() throws IOException {
+		FixtureServer recorder = start(FixtureServer.recording(0, corpus, "http", log()));
+		body(recorder.getBaseUrl() + upstreamHost + "/v10/finance/quoteSummary/KO?crumb=first&modules=earnings");
+
+		FixtureServer replayer = start(FixtureServer.replaying(0, corpus, ReplayPolicy.faithful(), log()));
+		assertEquals(QUOTE_SUMMARY, body(
+				replayer.getBaseUrl() + upstreamHost + "/v10/finance/quoteSummary/KO?crumb=second&modules=earnings"));
+		assertEquals(404, status(
+				replayer.getBaseUrl() + upstreamHost + "/v10/finance/quoteSummary/KO?crumb=second&modules=other"));
+		assertEquals(1, replayer.getMissing());
+	}
+
+	@Test
+	public void testThrottledShareIsAnsweredWith999() throws IOException {
+		corpus.save("/yahoo/quote", new Fixture(200, Collections.emptyMap(), new byte[] { 1 }));
+		FixtureServer replayer = start(FixtureServer.replaying(0, corpus, new ReplayPolicy(0, 0, 1, 0, 10), log()));
+		assertEquals(FixtureServer.THROTTLED, status(replayer.getBaseUrl() + "yahoo/quote"));
+		assertEquals(1, replayer.getThrottled());
+
+		FixtureServer failing = start(FixtureServer.replaying(0, corpus, new ReplayPolicy(0, 0, 0, 1, 10), log()));
+		assertEquals(500, status(failing.getBaseUrl() + "yahoo/quote"));
+		assertEquals(1, failing.getFailed());
+	}
+
+	@Test
+	public void testRequestsBeyondTheConcurrencyLimitAreThrottled() throws Exception {
+		corpus.save("/yahoo/quote", new Fixture(200, Collections.emptyMap(), new byte[] { 1 }));
+		FixtureServer replayer = start(FixtureServer.replaying(0, corpus, new ReplayPolicy(300, 0, 0, 0, 2), log()));
+		ExecutorService executor = Executors.newFixedThreadPool(6);
+		try {
+			List<Future<Integer>> statuses = new ArrayList<>();
+			for (int i = 0; i < 6; i++) {
+				statuses.add(executor.submit(() -> status(replayer.getBaseUrl() + "yahoo/quote")));
+			}
+			int served = 0;
+			for (Future<Integer> status : statuses) {
+				served += status.get() == 200 ? 1 : 0;
+			}
+			assertTrue("at most 2 requests at once, " + served + " served", served <= 2);
+			assertEquals(6 - served, replayer.getThrottled());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testFinancialDataDaoReadsTheReplayedQuoteSummary() throws IOException {
+		FixtureServer recorder = start(FixtureServer.recording(0, corpus, "http", log()));
+		CircuitBreaker circuitBreaker = CircuitBreaker.withDefaults("test", LogManager.getLogger(CircuitBreaker.class));
+		PooledHttpClient httpClient = new PooledHttpClient(2, 1000, 5000, LogManager.getLogger(PooledHttpClient.class));
+		try {
+			new YahooJsonFinancialDataDao(LogManager.getLogger(YahooJsonFinancialDataDao.class), circuitBreaker,
+					httpClient, recorder.getBaseUrl() + upstreamHost + "/v10/finance/quoteSummary/")
+							.getFinancialDataForSymbol("AAPL", null);
+			upstream.stop(0);
+
+			FixtureServer replayer = start(FixtureServer.replaying(0, corpus, ReplayPolicy.faithful(), log()));
+			FinancialData data = new YahooJsonFinancialDataDao(LogManager.getLogger(YahooJsonFinancialDataDao.class),
+					circuitBreaker, httpClient, replayer.getBaseUrl() + upstreamHost + "/v10/finance/quoteSummary/")
+							.getFinancialDataForSymbol("AAPL", null);
+			assertEquals("AAPL", data.getSymbol());
+			assertEquals(2, data.getAnnualBalanceSheet().size());
+			assertEquals(1, replayer.getServed());
+		} finally {
+			httpClient.shutdown();
+			circuitBreaker.shutdown();
+		}
+	}
+
+	private FixtureServer start(FixtureServer server) {
+		servers.add(server);
+		server.start();
+		return server;
+	}
+
+	private static Logger log() {
+		return LogManager.getLogger(FixtureServer.class);
+	}
+
+	private static HttpURLConnection open(String url) throws IOException {
+		HttpURLConnection ret = (HttpURLConnection) new URL(url).openConnection();
+		ret.setConnectTimeout(1000);
+		ret.setReadTimeout(5000);
+		return ret;
+	}
+
+	private static int status(String url) throws IOException {
+		HttpURLConnection connection = open(url);
+		int ret = connection.getResponseCode();
+		connection.disconnect();
+		return ret;
+	}
+
+	private static String body(String url) throws IOException {
+		HttpURLConnection connection = open(url);
+		assertEquals(200, connection.getResponseCode());
+		String ret = read(connection.getInputStream());
+		return ret;
+	}
+
+	private static String read(InputStream in) throws IOException {
+		try (InputStream closing = in) {
+			return IOUtils.toString(closing, StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,193 @@
+package com.oak.finance.app.backtest;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.logging.log4j.LogManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.oak.api.finance.model.dto.Quote;
+import com.oak.api.finance.model.dto.Screen0Result;
+import com.oak.api.finance.repository.FilterRepository;
+import com.oak.api.finance.repository.MappedQuoteStore;
+import com.oak.api.finance.repository.Screen0ResultsRepository;
+import com.oak.finance.app.screeners.Filter;
+
+public class BacktesterTest {
+
+	private static final LocalDate FIRST_DAY = LocalDate.of(2007, 1, 1);
+	private static final Set<String> CURRENCIES = new HashSet<>(Arrays.asList("USD"));
+
+	@Rule
+	public TemporaryFolder directory = new TemporaryFolder();
+
+	private final ForkJoinPool pool = new ForkJoinPool(4);
+	private MappedQuoteStore store;
+
+	@Before
+	public void setUp() {
+		store = new MappedQuoteStore(directory.getRoot(), LogManager.getLogger(MappedQuoteStore.class));
+	}
+
+	@After
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Test
+	public void testForwardReturnsOfTheStocksAFilterSelected() throws IOException {
+		store.save(closes("CHEAP", 20, 100, 1));
+		store.save(closes("DEAR", 20, 100, -1));
+		List<Screen0Result> history = Arrays.asList(result("CHEAP", FIRST_DAY.plusDays(2), 10.0),
+				result("DEAR", FIRST_DAY.plusDays(2), 30.0), result("CHEAP", FIRST_DAY.plusDays(17), 10.0));
+		List<PointInTimeSnapshot> snapshots = PointInTimeSnapshot.fromScreenResults(history, CURRENCIES);
+		Filter filter = maxPe(15.0);
+		Queue<BacktestResult> results = new ConcurrentLinkedQueue<>();
+
+		newBacktester(new int[] { 1, 5 }).run(Arrays.asList(filter), snapshots, results::add);
+
+		List<BacktestResult> sorted = new ArrayList<>(results);
+		sorted.sort((a, b) -> a.getRunDate().compareTo(b.getRunDate()));
+		assertEquals(2, sorted.size());
+		BacktestResult first = sorted.get(0);
+		assertEquals("CHEAP", first.getTicker());
+		assertEquals(FIRST_DAY.plusDays(2), first.getEntryDate());
+		assertEquals(102.0, first.getEntryPrice(), 0);
+		assertEquals(103.0 / 102.0 - 1, first.getForwardReturn(0), 1e-12);
+		assertEquals(107.0 / 102.0 - 1, first.getForwardReturn(1), 1e-12);
+		// the history stops before the 5 days horizon of the last run date
+		BacktestResult last = sorted.get(1);
+		assertEquals(118.0 / 117.0 - 1, last.getForwardReturn(0), 1e-12);
+		assertTrue(Double.isNaN(last.getForwardReturn(1)));
+	}
+
+	@Test
+	public void testAStockWithoutQuotesIsReportedUnpriced() {
+		List<PointInTimeSnapshot> snapshots = PointInTimeSnapshot
+				.fromScreenResults(Arrays.asList(result("GONE", FIRST_DAY, 10.0)), CURRENCIES);
+		Queue<BacktestResult> results = new ConcurrentLinkedQueue<>();
+
+		newBacktester(new int[] { 1 }).run(Arrays.asList(maxPe(15.0)), snapshots, results::add);
+
+		assertEquals(1, results.size());
+		assertNull(results.peek().getEntryDate());
+		assertTrue(Double.isNaN(results.peek().getForwardReturn(0)));
+	}
+
+	@Test
+	public void testTenYearsOfRunDatesAreSummarizedAsTheyStream() throws IOException {
+		int tickers = 50;
+		int days = 2520;
+		for (int t = 0; t < tickers; t++) {
+			store.save(closes("T" + t, days + 10, 50 + t, 0.002 * (t % 5 - 2)));
+		}
+		Random random = new Random(17);
+		List<Screen0Result> history = new ArrayList<>();
+		long selected = 0;
+		for (int d = 0; d < days; d += 5) {
+			for (int t = 0; t < tickers; t++) {
+				double pe = 1 + random.nextDouble() * 29;
+				selected += pe < 15 ? 1 : 0;
+				history.add(result("T" + t, FIRST_DAY.plusDays(d), pe));
+			}
+		}
+		List<PointInTimeSnapshot> snapshots = PointInTimeSnapshot.fromScreenResults(history, CURRENCIES);
+		Filter filter = maxPe(15.0);
+		BacktestSummary summary = new BacktestSummary(new int[] { 5 });
+
+		newBacktester(new int[] { 5 }).run(Collections.singletonList(filter), snapshots, summary);
+
+		assertEquals(selected, summary.getCount(filter, 0));
+		assertTrue(summary.getMeanReturn(filter, 0) > -0.2 && summary.getMeanReturn(filter, 0) < 0.2);
+		assertTrue(summary.getHitRate(filter, 0) > 0 && summary.getHitRate(filter, 0) < 1);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testStoredScreensAreReadAPageOfRunDaysAtATime() throws IOException {
+		store.save(closes("CHEAP", 60, 100, 1));
+		List<Screen0Result> history = new ArrayList<>();
+		for (int d = 0; d < 40; d++) {
+			history.add(result("CHEAP", FIRST_DAY.plusDays(d), 10.0));
+		}
+		Filter filter = maxPe(15.0);
+		FilterRepository filters = mock(FilterRepository.class);
+		when(filters.findAll()).thenReturn(Collections.singletonList(filter));
+		Screen0ResultsRepository results = mock(Screen0ResultsRepository.class);
+		when(results.findRunDates()).thenReturn(history.stream().map(Screen0Result::getRunDate).collect(toList()));
+		when(results.findByRunDateIn(any(Collection.class))).thenAnswer(i -> {
+			Collection<Date> runDates = (Collection<Date>) i.getArguments()[0];
+			return history.stream().filter(r -> runDates.contains(r.getRunDate())).collect(toList());
+		});
+		BacktestSummary summary = new BacktestSummary(new int[] { 1 });
+
+		new Backtester(store, filters, results, CURRENCIES, new int[] { 1 }, pool,
+				LogManager.getLogger(Backtester.class)).runStoredScreens(summary);
+
+		assertEquals(40, summary.getCount(filter, 0));
+		// 16 run days per page for 4 workers
+		verify(results, times(3)).findByRunDateIn(any(Collection.class));
+		verify(results, never()).findAll();
+	}
+
+	private Backtester newBacktester(int[] horizons) {
+		return new Backtester(store, null, null, CURRENCIES, horizons, pool, LogManager.getLogger(Backtester.class));
+	}
+
+	private Filter maxPe(double maxPe) {
+		Filter ret = new Filter();
+		ret.setMaxPe(maxPe);
+		return ret;
+	}
+
+	private List<Quote> closes(String ticker, int days, double first, double dailyChange) {
+		List<Quote> ret = new ArrayList<>();
+		for (int i = 0; i < days; i++) {
+			double close = first + i * dailyChange;
+			ret.add(new Quote(null, ticker, close, close, close, close, 1.0, 100L, date(FIRST_DAY.plusDays(i))));
+		}
+		return ret;
+	}
+
+	private Screen0Result result(String ticker, LocalDate runDate, double pe) {
+		Screen0Result ret = new Screen0Result();
+		ret.setTicker(ticker);
+		ret.setCurrency("USD");
+		ret.setRunDate(date(runDate));
+		ret.setPrice(10.0);
+		ret.setPer(pe);
+		return ret;
+	}
+
+	private Date date(LocalDate day) {
+		return Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant());
+	}
+}
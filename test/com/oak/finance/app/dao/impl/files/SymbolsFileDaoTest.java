@@ -0,0 +1,103 @@
+package com.oak.finance.app.dao.impl.files;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.logging.log4j.LogManager;
+import org.junit.Test;
+
+import com.oak.api.finance.model.dto.Screen0Result;
+import com.oak.external.utils.web.WebParsingUtils;
+
+public class SymbolsFileDaoTest {
+
+	private static final int LINES = 500;
+	private static final int THREADS = 8;
+
+	private final SymbolsFileDao underTest = new SymbolsFileDao("stocks", "noprice", "results", "interesting",
+			filename -> new ByteArrayInputStream(resultsFile().getBytes(StandardCharsets.UTF_8)),
+			new WebParsingUtils(), LogManager.getLogger(SymbolsFileDao.class));
+
+	@Test
+	public void testRunDatesAreParsed() {
+		List<Screen0Result> results = new ArrayList<>(underTest.readPreviousResults());
+		assertEquals(LINES, results.size());
+		assertEquals(date(2016, 6, 3, 21, 3), results.get(0).getRunDate());
+		assertEquals("screen0", results.get(0).getScreenId());
+	}
+
+	@Test
+	public void testTwoDigitYearsAreInThisCentury() {
+		SymbolsFileDao dao = new SymbolsFileDao("stocks", "noprice", "results", "interesting",
+				filename -> new ByteArrayInputStream(line("AAPL", "03/06/16 09:30").getBytes(StandardCharsets.UTF_8)),
+				new WebParsingUtils(), LogManager.getLogger(SymbolsFileDao.class));
+		Screen0Result result = dao.readPreviousResults().iterator().next();
+		assertEquals(date(2016, 6, 3, 9, 30), result.getRunDate());
+	}
+
+	@Test
+	public void testOneInstanceSharedByManyThreads() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			List<Future<Collection<Screen0Result>>> reads = new ArrayList<>();
+			for (int i = 0; i < THREADS * 4; i++) {
+				Callable<Collection<Screen0Result>> read = () -> {
+					start.await();
+					return underTest.readPreviousResults();
+				};
+				reads.add(executor.submit(read));
+			}
+			start.countDown();
+			for (Future<Collection<Screen0Result>> read : reads) {
+				int i = 0;
+				for (Screen0Result result : read.get()) {
+					assertEquals("T" + i, result.getTicker());
+					assertEquals(expectedRunDate(i), result.getRunDate());
+					i++;
+				}
+				assertEquals(LINES, i);
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static String resultsFile() {
+		StringBuilder ret = new StringBuilder("symbol,company,exchange,currency,date\n");
+		for (int i = 0; i < LINES; i++) {
+			LocalDateTime runDate = LocalDateTime.of(2016, 6, 3, 21, 3).plusDays(i).plusMinutes(i);
+			String text = String.format("%02d/%02d/%d %02d:%02d", runDate.getDayOfMonth(), runDate.getMonthValue(),
+					runDate.getYear(), runDate.getHour(), runDate.getMinute());
+			ret.append(line("T" + i, text)).append("\n");
+		}
+		return ret.toString();
+	}
+
+	private static String line(String ticker, String runDate) {
+		return ticker + ",Company,NYSE,USD," + runDate + ",1.0,2.0,3.0,4.0,5.0,6.0,7.0,8.0,9.0,10.0,11.0";
+	}
+
+	private Date expectedRunDate(int i) {
+		LocalDateTime runDate = LocalDateTime.of(2016, 6, 3, 21, 3).plusDays(i).plusMinutes(i);
+		return new java.sql.Date(runDate.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+	}
+
+	private Date date(int year, int month, int day, int hour, int minute) {
+		LocalDateTime dateTime = LocalDateTime.of(year, month, day, hour, minute);
+		return new java.sql.Date(dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+	}
+}
@@ -0,0 +1,202 @@
+package com.oak.finance.app.indicators;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.logging.log4j.LogManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.oak.api.finance.model.dto.Quote;
+import com.oak.api.finance.repository.MappedQuoteStore;
+
+public class IndicatorEngineTest {
+
+	private static final LocalDate FIRST_DAY = LocalDate.of(2000, 1, 3);
+	private static final double TOLERANCE = 1e-9;
+
+	@Rule
+	public TemporaryFolder directory = new TemporaryFolder();
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(4);
+	private MappedQuoteStore store;
+	private IndicatorEngine underTest;
+
+	@Before
+	public void setUp() {
+		store = new MappedQuoteStore(directory.getRoot(), LogManager.getLogger(MappedQuoteStore.class));
+		underTest = new IndicatorEngine(store, executor, LogManager.getLogger(IndicatorEngine.class));
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdown();
+	}
+
+	@Test
+	public void testIndicatorsMatchAFullRecomputation() throws IOException {
+		List<Quote> quotes = randomWalk("IBM", 600, new Random(7));
+		store.save(quotes);
+		underTest.refreshAll().join();
+
+		Indicators indicators = underTest.get("IBM");
+		double[] closes = quotes.stream().mapToDouble(Quote::getClose).toArray();
+		int n = closes.length;
+		assertEquals(n, indicators.getDays());
+		assertEquals(FIRST_DAY.plusDays(n - 1), indicators.getDate());
+		assertEquals(average(closes, n - 50, n), indicators.getSma50(), TOLERANCE);
+		assertEquals(average(closes, n - 200, n), indicators.getSma200(), TOLERANCE);
+		assertEquals(max(quotes, n - 252, n), indicators.getHigh52Weeks(), TOLERANCE);
+		assertEquals(min(quotes, n - 252, n), indicators.getLow52Weeks(), TOLERANCE);
+		assertEquals(rsi(closes), indicators.getRsi14(), TOLERANCE);
+		assertEquals(volatility(closes), indicators.getVolatility20(), TOLERANCE);
+		double peak = Arrays.stream(closes).max().getAsDouble();
+		assertEquals((peak - closes[n - 1]) / peak, indicators.getDrawdown(), TOLERANCE);
+		assertTrue(indicators.getMaxDrawdown() >= indicators.getDrawdown());
+		assertTrue(indicators.getAtr14() > 0);
+	}
+
+	@Test
+	public void testRefreshingDayByDayEqualsOneRefresh() throws IOException {
+		List<Quote> quotes = randomWalk("MSFT", 300, new Random(11));
+		for (Quote quote : quotes) {
+			store.save(Arrays.asList(quote));
+			underTest.onQuotesSaved(Arrays.asList(quote)).join();
+		}
+		IndicatorEngine replayed = new IndicatorEngine(store, executor, LogManager.getLogger(IndicatorEngine.class));
+		replayed.refreshAll().join();
+
+		assertEquals(replayed.get("MSFT").toString(), underTest.get("MSFT").toString());
+		assertEquals(replayed.get("MSFT").getMaxDrawdown(), underTest.get("MSFT").getMaxDrawdown(), 0);
+	}
+
+	@Test
+	public void testAReadjustedHistoryIsFoldedInAgain() throws IOException {
+		List<Quote> walk = randomWalk("AAPL", 300, new Random(13));
+		// stored as loaded day by day: the closes before the 2:1 split at day 250 are twice the walk
+		store.save(split(walk, 250, 1.0));
+		underTest.refreshAll().join();
+		assertTrue(underTest.get("AAPL").getMaxDrawdown() >= 0.5);
+
+		// the history reloaded after the split, adjusted
+		store.save(split(walk, 250, 0.5));
+		underTest.refreshAll().join();
+
+		store.save(walk);
+		IndicatorEngine adjusted = new IndicatorEngine(store, executor, LogManager.getLogger(IndicatorEngine.class));
+		adjusted.refreshAll().join();
+		assertEquals(adjusted.get("AAPL").toString(), underTest.get("AAPL").toString());
+		assertEquals(adjusted.get("AAPL").getMaxDrawdown(), underTest.get("AAPL").getMaxDrawdown(), TOLERANCE);
+		assertTrue(underTest.get("AAPL").getMaxDrawdown() < 0.5);
+	}
+
+	@Test
+	public void testTooShortAHistoryLeavesIndicatorsMissing() throws IOException {
+		store.save(randomWalk("NEW", 10, new Random(3)));
+		underTest.refreshAll().join();
+
+		Indicators indicators = underTest.get("NEW");
+		assertTrue(Double.isNaN(indicators.getSma50()));
+		assertTrue(Double.isNaN(indicators.getRsi14()));
+		assertTrue(Double.isNaN(indicators.getVolatility20()));
+		assertNull(underTest.get("UNKNOWN"));
+	}
+
+	@Test
+	public void testTheUniverseIsRankedWithoutRescanning() throws IOException {
+		Random random = new Random(5);
+		for (int i = 0; i < 40; i++) {
+			store.save(randomWalk("T" + i, 260, random));
+		}
+		underTest.refreshAll().join();
+
+		List<Indicators> oversold = underTest.rank(Comparator.comparingDouble(Indicators::getRsi14), 5);
+		assertEquals(5, oversold.size());
+		for (Indicators indicators : underTest.getAll()) {
+			assertTrue(oversold.get(4).getRsi14() <= indicators.getRsi14() || oversold.contains(indicators));
+		}
+	}
+
+	private List<Quote> randomWalk(String ticker, int days, Random random) {
+		List<Quote> ret = new ArrayList<>();
+		double close = 50;
+		for (int i = 0; i < days; i++) {
+			close = Math.max(1, close * (1 + (random.nextDouble() - 0.5) * 0.06));
+			double high = close * (1 + random.nextDouble() * 0.02);
+			double low = close * (1 - random.nextDouble() * 0.02);
+			Date date = Date.from(FIRST_DAY.plusDays(i).atStartOfDay(ZoneId.systemDefault()).toInstant());
+			ret.add(new Quote(null, ticker, close, close, high, low, 1.0, 1000L, date));
+		}
+		return ret;
+	}
+
+	/**
+	 * The quotes as they were before the split on day splitDay: prices
+	 * doubled, with the factor adjusting them back.
+	 */
+	private List<Quote> split(List<Quote> quotes, int splitDay, double factor) {
+		List<Quote> ret = new ArrayList<>();
+		for (int i = 0; i < quotes.size(); i++) {
+			Quote q = quotes.get(i);
+			ret.add(i >= splitDay ? q
+					: new Quote(null, q.getTicker(), q.getOpen() * 2, q.getClose() * 2, q.getHigh() * 2,
+							q.getLow() * 2, factor, q.getVolume(), q.getDate()));
+		}
+		return ret;
+	}
+
+	private double average(double[] values, int from, int to) {
+		return Arrays.stream(values, from, to).average().getAsDouble();
+	}
+
+	private double max(List<Quote> quotes, int from, int to) {
+		return quotes.subList(from, to).stream().mapToDouble(Quote::getHigh).max().getAsDouble();
+	}
+
+	private double min(List<Quote> quotes, int from, int to) {
+		return quotes.subList(from, to).stream().mapToDouble(Quote::getLow).min().getAsDouble();
+	}
+
+	private double rsi(double[] closes) {
+		double gain = 0;
+		double loss = 0;
+		for (int i = 1; i <= 14; i++) {
+			double change = closes[i] - closes[i - 1];
+			gain += Math.max(change, 0) / 14;
+			loss += Math.max(-change, 0) / 14;
+		}
+		for (int i = 15; i < closes.length; i++) {
+			double change = closes[i] - closes[i - 1];
+			gain = (gain * 13 + Math.max(change, 0)) / 14;
+			loss = (loss * 13 + Math.max(-change, 0)) / 14;
+		}
+		return 100 - 100 / (1 + gain / loss);
+	}
+
+	private double volatility(double[] closes) {
+		int n = closes.length;
+		double[] returns = new double[20];
+		for (int i = 0; i < 20; i++) {
+			returns[i] = Math.log(closes[n - 20 + i] / closes[n - 21 + i]);
+		}
+		double mean = Arrays.stream(returns).average().getAsDouble();
+		double variance = Arrays.stream(returns).map(r -> (r - mean) * (r - mean)).sum() / 19;
+		return Math.sqrt(variance * 252);
+	}
+}
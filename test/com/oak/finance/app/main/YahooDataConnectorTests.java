@@ -3,8 +3,11 @@ package com.oak.finance.app.main;
 import java.util.Date;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.logging.log4j.Logger;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -14,9 +17,12 @@ import org.mockito.runners.MockitoJUnitRunner;
 
 import com.oak.api.finance.model.Economic;
 import com.oak.api.finance.model.Stock;
+import com.oak.external.finance.app.marketdata.api.impl.yahoo.BatchFetchEngine;
 import com.oak.external.finance.app.marketdata.api.impl.yahoo.YahooDataConnector;
 import com.oak.external.finance.app.marketdata.api.impl.yahoo.YahooDataConverter;
 import com.oak.external.finance.app.marketdata.api.yahoo.YahooDataConverterImpl;
+import com.oak.external.finance.app.marketdata.api.yahoo.YahooFinanceWrapper;
+import com.oak.external.utils.web.CircuitBreaker;
 
 @RunWith(MockitoJUnitRunner.class)
 public class YahooDataConnectorTests {
@@ -27,12 +33,26 @@ public class YahooDataConnectorTests {
 	private YahooDataConverter converter;
 	
 	private Set<String> stocks = Sets.newSet("AAPL");
+	private BatchFetchEngine fetchEngine;
+	private CircuitBreaker circuitBreaker;
+	private ExecutorService historicalExecutor;
 	private YahooDataConnector undertest;
 
 	@Before
 	public void setUp() throws Exception {
 		converter = new YahooDataConverterImpl(log);
-		undertest = new YahooDataConnector(log, converter);
+		fetchEngine = new BatchFetchEngine(log, 1, 1000.0, 6, 1000, 60000);
+		circuitBreaker = CircuitBreaker.withDefaults("yahoo", log);
+		historicalExecutor = Executors.newFixedThreadPool(YahooFinanceWrapper.DEFAULT_HISTORICAL_CONCURRENCY);
+		undertest = new YahooDataConnector(log, converter, fetchEngine, new YahooFinanceWrapper(log,
+				historicalExecutor, YahooFinanceWrapper.DEFAULT_HISTORICAL_CONCURRENCY, circuitBreaker));
+	}
+
+	@After
+	public void tearDown() {
+		fetchEngine.shutdown();
+		circuitBreaker.shutdown();
+		historicalExecutor.shutdown();
 	}
 
 	@Test
@@ -0,0 +1,182 @@
+package com.oak.finance.app.monitor.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+
+import org.apache.logging.log4j.LogManager;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.oak.api.finance.model.BalanceSheet;
+import com.oak.api.finance.model.Economic;
+import com.oak.api.finance.model.FinancialAnalysis;
+import com.oak.api.finance.model.FinancialAnalysis.Acceptance;
+import com.oak.api.finance.model.FinancialData;
+import com.oak.api.finance.model.Stock;
+import com.oak.api.finance.repository.MappedQuoteStore;
+import com.oak.external.finance.app.marketdata.api.FinancialStatementsProvider;
+import com.oak.finance.app.monitor.analysis.FinanceAnalysisController.FinanceAnalysisCallback;
+import com.oak.finance.app.indicators.IndicatorEngine;
+import com.oak.finance.app.screeners.Filter;
+import com.oak.finance.app.screeners.FilterSreener;
+import com.oak.finance.app.screeners.SreenerRegistry;
+
+public class FinanceFundamentalAnalysisControllerImplTest {
+
+	@Rule
+	public TemporaryFolder quotesDirectory = new TemporaryFolder();
+
+	private final Executor sameThread = Runnable::run;
+	private final RecordingProvider provider = new RecordingProvider();
+	private final RecordingCallback callback = new RecordingCallback();
+
+	@Test
+	public void testEveryScreenRunsInOnePassAndTagsItsResults() {
+		SreenerRegistry screens = new SreenerRegistry(new FilterSreener("cheap", filter(15.0)), null,
+				LogManager.getLogger(SreenerRegistry.class));
+		screens.register(new FilterSreener("very-cheap", filter(4.0)));
+		FinanceFundamentalAnalysisControllerImpl underTest = newController(screens);
+
+		Map<Stock, Map<Date, Economic>> marketData = new LinkedHashMap<>();
+		marketData.put(stock("VALUE"), economics("VALUE", 3.0));
+		marketData.put(stock("FAIR"), economics("FAIR", 10.0));
+		marketData.put(stock("DEAR"), economics("DEAR", 40.0));
+		underTest.onEconomicsUpdateAsync(callback, marketData, Collections.emptySet()).join();
+
+		assertEquals(1, provider.batches.size());
+		assertEquals(new HashSet<>(Arrays.asList("VALUE", "FAIR")), new HashSet<>(provider.batches.get(0)));
+		assertEquals(Arrays.asList("VALUE@cheap", "VALUE@very-cheap", "FAIR@cheap"), callback.bought);
+	}
+
+	@Test
+	public void testAStockNoScreenBoughtIsWatchedOnce() {
+		SreenerRegistry screens = new SreenerRegistry(new FilterSreener("cheap", filter(15.0)), null,
+				LogManager.getLogger(SreenerRegistry.class));
+		screens.register(new FilterSreener("very-cheap", filter(4.0)));
+		FinanceFundamentalAnalysisControllerImpl underTest = newController(screens);
+
+		Map<Stock, Map<Date, Economic>> marketData = new LinkedHashMap<>();
+		marketData.put(stock("DEAR"), economics("DEAR", 40.0));
+		underTest.onEconomicsUpdateAsync(callback, marketData, Collections.singleton("DEAR")).join();
+
+		assertTrue(callback.bought.isEmpty());
+		assertEquals(Arrays.asList("DEAR@cheap"), callback.watched);
+	}
+
+	@Test
+	public void testAFailedStatementsBatchStillAnalysesTheBatch() {
+		SreenerRegistry screens = new SreenerRegistry(new FilterSreener("cheap", filter(15.0)), null,
+				LogManager.getLogger(SreenerRegistry.class));
+		FinanceFundamentalAnalysisControllerImpl underTest = newController(screens);
+		provider.failing = true;
+
+		Map<Stock, Map<Date, Economic>> marketData = new LinkedHashMap<>();
+		marketData.put(stock("VALUE"), economics("VALUE", 3.0));
+		marketData.put(stock("DEAR"), economics("DEAR", 40.0));
+		underTest.onEconomicsUpdateAsync(callback, marketData, Collections.singleton("DEAR")).join();
+
+		assertEquals(1, provider.batches.size());
+		// not bought without its statements, the unattractive stock is handled as usual
+		assertTrue(callback.bought.isEmpty());
+		assertEquals(Arrays.asList("DEAR@cheap"), callback.watched);
+	}
+
+	private FinanceFundamentalAnalysisControllerImpl newController(SreenerRegistry screens) {
+		IndicatorEngine indicators = new IndicatorEngine(
+				new MappedQuoteStore(quotesDirectory.getRoot(), LogManager.getLogger(MappedQuoteStore.class)),
+				sameThread, LogManager.getLogger(IndicatorEngine.class));
+		return new FinanceFundamentalAnalysisControllerImpl(provider, 2.0, 1.0, 3.0, screens, indicators,
+				new HashSet<>(Arrays.asList("USD")), sameThread, sameThread,
+				LogManager.getLogger(FinanceFundamentalAnalysisControllerImpl.class));
+	}
+
+	private Filter filter(double maxPe) {
+		Filter ret = new Filter();
+		ret.setMaxPe(maxPe);
+		ret.setMaxPeg(1.0);
+		return ret;
+	}
+
+	private Stock stock(String symbol) {
+		return new Stock("Company " + symbol, symbol, null, null, "NYSE", "USD");
+	}
+
+	private Map<Date, Economic> economics(String symbol, double pe) {
+		Map<Date, Economic> ret = new HashMap<>();
+		ret.put(new Date(0), new Economic(new Date(0), 10.0, null, 10.0, null, null, null, null, null, null, null,
+				null, null, null, null, null, null, null, null, null, null, null, null, null, symbol, null, null, null,
+				null, 10.0 / pe, null, null, null, null, null, null, null, pe, 0.5, null, null, null, null, null,
+				null, null, null, null, null, null));
+		return ret;
+	}
+
+	private static class RecordingProvider implements FinancialStatementsProvider {
+		final List<Collection<String>> batches = new ArrayList<>();
+		boolean failing;
+
+		@Override
+		public FinancialData getFinancialStatements(String ticker) {
+			SortedMap<Date, BalanceSheet> balanceSheets = new TreeMap<>();
+			// current ratio 20/3, quick ratio 20/3 and asset to debt 10
+			balanceSheets.put(new Date(0), new BalanceSheet(ticker, 10.0, 0, 10.0, 0, 0.0, 20, 0.0, 0, 0.0, 0, 0.0,
+					0, 100.0, 0, 1.0, 1, 1.0, 3, 0.0, 0, 10.0, 0, 0.0, 0, 0.0, 0, 0.0, 0, 0.0, 0, 0.0, 0));
+			FinancialData ret = new FinancialData(ticker, balanceSheets, balanceSheets, new TreeMap<>(),
+					new TreeMap<>(), new TreeMap<>(), new TreeMap<>());
+			return ret;
+		}
+
+		@Override
+		public Map<String, FinancialData> getFinancialStatements(Collection<String> tickers) {
+			batches.add(new ArrayList<>(tickers));
+			if (failing) {
+				throw new IllegalStateException("statements database unavailable");
+			}
+			Map<String, FinancialData> ret = new HashMap<>();
+			tickers.forEach(t -> ret.put(t, getFinancialStatements(t)));
+			return ret;
+		}
+
+		@Override
+		public void statementsChanged(String ticker) {
+		}
+	}
+
+	private static class RecordingCallback implements FinanceAnalysisCallback {
+		final List<String> bought = new ArrayList<>();
+		final List<String> watched = new ArrayList<>();
+
+		@Override
+		public void onPriceMissing(Stock stock, Map<Date, Economic> economics) {
+		}
+
+		@Override
+		public void onBuy(Stock stock, Map<Date, Economic> economics, FinancialAnalysis financialAnalysis) {
+			assertEquals(Acceptance.STRONG_BUY, financialAnalysis.getAcceptance());
+			bought.add(stock.getSymbol() + "@" + financialAnalysis.getScreenId());
+		}
+
+		@Override
+		public void onSell(Stock stock, Map<Date, Economic> economics) {
+		}
+
+		@Override
+		public void onWatchList(Stock stock, Map<Date, Economic> economics, FinancialAnalysis stockAnalysis) {
+			watched.add(stock.getSymbol() + "@" + stockAnalysis.getScreenId());
+		}
+	}
+}
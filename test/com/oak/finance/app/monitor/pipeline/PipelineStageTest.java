@@ -0,0 +1,161 @@
+package com.oak.finance.app.monitor.pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.junit.After;
+import org.junit.Test;
+
+public class PipelineStageTest {
+
+	private ExecutorService executor = Executors.newCachedThreadPool();
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testCloseDrainsRemainingItems() throws InterruptedException {
+		AtomicInteger sum = new AtomicInteger();
+		PipelineStage<Integer> underTest = new PipelineStage<>("sum", 4, 3, sum::addAndGet,
+				LogManager.getLogger(PipelineStage.class));
+		underTest.start(executor);
+		for (int i = 1; i <= 100; i++) {
+			underTest.put(i);
+		}
+		underTest.close();
+		underTest.awaitCompletion();
+		assertEquals(5050, sum.get());
+		StageMetrics metrics = underTest.getMetrics();
+		assertEquals(100, metrics.getProcessed());
+		assertEquals(0, metrics.getQueueDepth());
+	}
+
+	@Test
+	public void testPutBlocksWhenStageIsFull() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		PipelineStage<Integer> underTest = new PipelineStage<>("blocked", 2, 1, i -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, LogManager.getLogger(PipelineStage.class));
+		underTest.start(executor);
+		CountDownLatch producerDone = new CountDownLatch(1);
+		executor.execute(() -> {
+			try {
+				for (int i = 0; i < 10; i++) {
+					underTest.put(i);
+				}
+				producerDone.countDown();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		assertTrue(!producerDone.await(300, TimeUnit.MILLISECONDS));
+		assertTrue(underTest.getMetrics().getQueueDepth() <= 2);
+		release.countDown();
+		assertTrue(producerDone.await(5, TimeUnit.SECONDS));
+		underTest.close();
+		underTest.awaitCompletion();
+		assertEquals(10, underTest.getMetrics().getProcessed());
+	}
+
+	@Test
+	public void testFailuresAreCountedAndDoNotStopTheStage() throws InterruptedException {
+		PipelineStage<Integer> underTest = new PipelineStage<>("failing", 4, 2, i -> {
+			if (i % 2 == 0) {
+				throw new IllegalArgumentException("even");
+			}
+		}, LogManager.getLogger(PipelineStage.class));
+		underTest.start(executor);
+		for (int i = 0; i < 10; i++) {
+			underTest.put(i);
+		}
+		underTest.close();
+		underTest.awaitCompletion();
+		assertEquals(5, underTest.getMetrics().getProcessed());
+		assertEquals(5, underTest.getMetrics().getFailed());
+	}
+
+	@Test
+	public void testOfferGivesUpWhenTheStageStaysFull() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		PipelineStage<Integer> underTest = new PipelineStage<>("slow", 1, 1, i -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, LogManager.getLogger(PipelineStage.class));
+		underTest.start(executor);
+		underTest.put(1);
+		// taken by the worker, which then holds on to it
+		while (underTest.getMetrics().getQueueDepth() > 0) {
+			Thread.sleep(10);
+		}
+		assertTrue(underTest.offer(2, 1, TimeUnit.SECONDS));
+		assertFalse(underTest.offer(3, 200, TimeUnit.MILLISECONDS));
+		release.countDown();
+		underTest.close();
+		underTest.awaitCompletion();
+		assertEquals(2, underTest.getMetrics().getProcessed());
+	}
+
+	@Test
+	public void testAbortedStageFailsTheBlockedProducer() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		PipelineStage<Integer> underTest = new PipelineStage<>("aborted", 1, 1, i -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, LogManager.getLogger(PipelineStage.class));
+		underTest.start(executor);
+		AtomicInteger put = new AtomicInteger();
+		CountDownLatch producerFailed = new CountDownLatch(1);
+		executor.execute(() -> {
+			try {
+				for (int i = 0; i < 10; i++) {
+					underTest.put(i);
+					put.incrementAndGet();
+				}
+			} catch (IllegalStateException e) {
+				producerFailed.countDown();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		assertFalse(producerFailed.await(300, TimeUnit.MILLISECONDS));
+		underTest.abort(new IllegalStateException("downstream failed"));
+		assertTrue(producerFailed.await(5, TimeUnit.SECONDS));
+		assertFalse(underTest.isAccepting());
+		release.countDown();
+		underTest.awaitCompletion();
+		// the item the worker held, the buffered ones were dropped
+		assertEquals(1, underTest.getMetrics().getProcessed());
+		assertTrue(put.get() < 10);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testStageWithoutWorkersRefusesItems() throws InterruptedException {
+		PipelineStage<Integer> underTest = new PipelineStage<>("dead", 4, 1, i -> {
+			throw new AssertionError("not a RuntimeException");
+		}, LogManager.getLogger(PipelineStage.class));
+		underTest.start(executor);
+		underTest.put(1);
+		underTest.awaitCompletion();
+		underTest.offer(2, 1, TimeUnit.SECONDS);
+	}
+}
@@ -0,0 +1,171 @@
+package com.oak.finance.app.screeners;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.oak.api.finance.model.Economic;
+import com.oak.api.finance.model.FinancialComment;
+import com.oak.api.finance.model.FinancialComment.CommentType;
+import com.oak.api.finance.model.Stock;
+import com.oak.finance.app.indicators.Indicators;
+
+public class CompiledFilterTest {
+
+	private static final Set<String> CURRENCIES = new HashSet<>(Arrays.asList("USD", "EUR", "GBp"));
+
+	@Test
+	public void testMatchesTheRulesItReplacesOverAFullUniverse() {
+		Random random = new Random(42);
+		List<Stock> stocks = new ArrayList<>();
+		List<Economic> economics = new ArrayList<>();
+		for (int i = 0; i < 20000; i++) {
+			String currency = random.nextInt(10) == 0 ? "JPY" : "USD";
+			stocks.add(new Stock("Company " + i, "T" + i, null, null, "NYSE", currency));
+			economics.add(economic("T" + i, 1 + random.nextDouble() * 99, randomValue(random, -2, 10),
+					randomValue(random, -5, 30), randomValue(random, -1, 3), randomValue(random, -5, 120),
+					randomValue(random, -1, 10), randomValue(random, -1, 5), randomValue(random, -1, 10)));
+		}
+		ScreeningColumns columns = ScreeningColumns.of(stocks, economics, CURRENCIES);
+
+		int[] passing = CompiledFilter.compile(defaultFilter()).screen(columns);
+
+		List<Integer> expected = new ArrayList<>();
+		for (int i = 0; i < economics.size(); i++) {
+			if (referenceRules(stocks.get(i), economics.get(i))) {
+				expected.add(i);
+			}
+		}
+		assertTrue("the universe should not be trivially screened out", expected.size() > 0);
+		assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), passing);
+	}
+
+	@Test
+	public void testCommentsOfAPassingStock() {
+		Economic e = economic("AAPL", 10.0, 2.0, 5.0, 0.5, 20.0, 1.0, 0.5, 1.0);
+		ScreeningColumns columns = columns(e, "USD");
+		CompiledFilter underTest = CompiledFilter.compile(defaultFilter());
+
+		assertTrue(underTest.test(columns, 0));
+		List<FinancialComment> comments = underTest.explain(columns, 0);
+		assertEquals(6, comments.size());
+		assertEquals(CommentType.PastEarnings, comments.get(0).getType());
+		assertEquals("pe=5.0, pe calculated by yahoo", comments.get(0).getComment());
+		assertEquals(CommentType.Peg, comments.get(5).getType());
+	}
+
+	@Test
+	public void testMissingValuesFailTheirBounds() {
+		CompiledFilter underTest = CompiledFilter.compile(defaultFilter());
+		assertFalse(underTest.test(columns(economic("A", 10.0, 2.0, 5.0, null, 20.0, 1.0, 0.5, 1.0), "USD"), 0));
+		assertFalse(underTest.test(columns(economic("B", null, 2.0, 5.0, 0.5, 20.0, 1.0, 0.5, 1.0), "USD"), 0));
+		assertFalse(underTest.test(columns(economic("C", 0.0, 2.0, 5.0, 0.5, 20.0, 1.0, 0.5, 1.0), "USD"), 0));
+		assertFalse(underTest.test(columns(economic("D", 10.0, 2.0, 5.0, 0.5, 20.0, 1.0, 0.5, 1.0), "JPY"), 0));
+	}
+
+	@Test
+	public void testNullBoundsAreNotChecked() {
+		Filter filter = new Filter();
+		filter.setMaxPeg(1.0);
+		CompiledFilter underTest = CompiledFilter.compile(filter);
+		Economic noEarnings = economic("A", 10.0, null, null, 0.5, null, null, null, null);
+		assertTrue(underTest.test(columns(noEarnings, "USD"), 0));
+		assertEquals(1, underTest.explain(columns(noEarnings, "USD"), 0).size());
+	}
+
+	@Test
+	public void testTechnicalBoundsNeedIndicators() {
+		Filter filter = new Filter();
+		filter.setMaxRsi(30.0);
+		filter.setMaxDrawdown(0.5);
+		CompiledFilter underTest = CompiledFilter.compile(filter);
+		ScreeningColumns columns = columns(economic("A", 10.0, 2.0, 5.0, 0.5, 20.0, 1.0, 0.5, 1.0), "USD");
+		assertFalse(underTest.test(columns, 0));
+
+		columns.setIndicators(0, indicators(25.0, 0.2));
+		assertTrue(underTest.test(columns, 0));
+		assertEquals(CommentType.Technical, underTest.explain(columns, 0).get(0).getType());
+		columns.setIndicators(0, indicators(45.0, 0.2));
+		assertFalse(underTest.test(columns, 0));
+		columns.setIndicators(0, indicators(25.0, 0.7));
+		assertFalse(underTest.test(columns, 0));
+	}
+
+	private Indicators indicators(double rsi, double drawdown) {
+		return new Indicators("A", 0, 300, 10.0, 11.0, 12.0, 10.0, 10.0, rsi, 0.4, drawdown, drawdown, 15.0, 8.0,
+				0.3);
+	}
+
+	private ScreeningColumns columns(Economic e, String currency) {
+		Stock stock = new Stock("Company", e.getSymbol(), null, null, "NYSE", currency);
+		return ScreeningColumns.of(Collections.singletonList(stock), Collections.singletonList(e), CURRENCIES);
+	}
+
+	private Filter defaultFilter() {
+		Filter ret = new Filter();
+		ret.setMaxPe(15.0);
+		ret.setMaxPerCalculated(15.0);
+		ret.setMaxPeg(1.0);
+		ret.setMinEpsCurrentYr(0.05);
+		ret.setMinEpsNextQtr(0.024);
+		ret.setMinEpsNextYr(0.01);
+		ret.setMaxBookValueMultiple(25.0);
+		ret.setMaxPerBookValueMultiple(27.0);
+		return ret;
+	}
+
+	/**
+	 * The rules that used to be hard coded in the analysis controller, with
+	 * the book value fallback multiplying by per as intended.
+	 */
+	private boolean referenceRules(Stock stock, Economic e) {
+		if (!CURRENCIES.contains(stock.getCurrency())) {
+			return false;
+		}
+		double ask = e.getAsk();
+		double pe = e.getPe() == null ? 0 : e.getPe();
+		double eps = e.getEps() == null ? 0 : e.getEps();
+		double per = eps > 0 ? ask / eps : 0;
+		boolean isPeAttractive = (pe > 0 && pe < 15) || (per > 0 && per < 15);
+		boolean isPegAttractive = e.getPeg() != null && e.getPeg() < 1;
+		double current = e.getEpsEstimateCurrentYear() == null ? 0 : e.getEpsEstimateCurrentYear() / ask;
+		double quarter = e.getEpsEstimateNextQuarter() == null ? 0 : e.getEpsEstimateNextQuarter() / ask;
+		double year = e.getEpsEstimateNextYear() == null ? 0 : e.getEpsEstimateNextYear() / ask;
+		boolean isEpsAttractive = current > 0.05 && quarter > 0.024 && year > 0.01;
+		double bookValueMultiple = e.getBookValuePerShare() == null || e.getBookValuePerShare() == 0 ? 0
+				: ask / e.getBookValuePerShare();
+		boolean isBookValueAttractive = (pe > 0 && bookValueMultiple > 0 && bookValueMultiple * pe < 25)
+				|| (per > 0 && bookValueMultiple > 0 && bookValueMultiple * per < 27);
+		return isPeAttractive && isPegAttractive && isEpsAttractive && isBookValueAttractive;
+	}
+
+	private Double randomValue(Random random, double min, double max) {
+		Double ret;
+		if (random.nextInt(20) == 0) {
+			ret = null;
+		} else {
+			ret = min + random.nextDouble() * (max - min);
+		}
+		return ret;
+	}
+
+	private Economic economic(String symbol, Double ask, Double eps, Double pe, Double peg, Double bookValuePerShare,
+			Double epsEstimateCurrentYear, Double epsEstimateNextQuarter, Double epsEstimateNextYear) {
+		return new Economic(new Date(), ask, null, ask, null, null, null, null, null, null, null, null, null, null,
+				null, null, null, null, null, null, null, null, null, null, symbol, null, null, null, null, eps,
+				bookValuePerShare, null, epsEstimateCurrentYear, epsEstimateNextQuarter, epsEstimateNextYear, null,
+				null, pe, peg, null, null, null, null, null, null, null, null, null, null, null);
+	}
+}
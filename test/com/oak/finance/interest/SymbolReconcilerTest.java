@@ -0,0 +1,201 @@
+package com.oak.finance.interest;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.Logger;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.oak.api.finance.model.SectorsIndustriesCompanies;
+import com.oak.api.finance.model.dto.Company;
+import com.oak.api.finance.model.dto.CompanyWithProblems;
+import com.oak.api.finance.model.dto.Sector;
+import com.oak.api.finance.model.dto.SymbolRowHash;
+import com.oak.api.finance.repository.CompanyRepository;
+import com.oak.api.finance.repository.CompanyWithProblemsRepository;
+import com.oak.api.finance.repository.SectorRepository;
+import com.oak.api.finance.repository.SymbolRowHashRepository;
+
+@SuppressWarnings("unchecked")
+@RunWith(MockitoJUnitRunner.class)
+public class SymbolReconcilerTest {
+
+	@Mock
+	private Logger log;
+	@Mock
+	private SectorRepository sectorRepository;
+	@Mock
+	private CompanyRepository companyRepository;
+	@Mock
+	private CompanyWithProblemsRepository companyWithProblemsRepository;
+	@Mock
+	private SymbolRowHashRepository hashRepository;
+	@Mock
+	private PlatformTransactionManager transactionManager;
+
+	private final Map<String, SymbolRowHash> index = new HashMap<>();
+	private final AtomicLong ids = new AtomicLong(100);
+	private SymbolReconciler underTest;
+
+	@Before
+	public void setUp() {
+		// the index table, kept in a map
+		when(hashRepository.count()).thenAnswer(i -> (long) index.size());
+		when(hashRepository.findAll()).thenAnswer(i -> new ArrayList<>(index.values()));
+		when(hashRepository.save(any(Iterable.class))).thenAnswer(i -> {
+			for (SymbolRowHash h : (Iterable<SymbolRowHash>) i.getArguments()[0]) {
+				index.put(h.getRowKey(), h);
+			}
+			return i.getArguments()[0];
+		});
+		when(sectorRepository.findAll()).thenReturn(Collections.emptyList());
+		when(companyRepository.findAll()).thenReturn(Collections.emptyList());
+		// new rows get an id
+		when(sectorRepository.save(any(Iterable.class))).thenAnswer(i -> {
+			for (Sector s : (Iterable<Sector>) i.getArguments()[0]) {
+				if (s.getId() == null) {
+					s.setId(ids.incrementAndGet());
+				}
+			}
+			return i.getArguments()[0];
+		});
+		when(companyRepository.save(any(Iterable.class))).thenAnswer(i -> {
+			for (Company c : (Iterable<Company>) i.getArguments()[0]) {
+				if (c.getId() == null) {
+					c.setId(ids.incrementAndGet());
+				}
+			}
+			return i.getArguments()[0];
+		});
+		underTest = new SymbolReconciler(sectorRepository, companyRepository, companyWithProblemsRepository,
+				hashRepository, new TransactionTemplate(transactionManager), 2, log);
+	}
+
+	@Test
+	public void testEmptyIndexIsBuiltFromTheTables() {
+		Sector tech = sector(1L, "Technology", null, 0.5);
+		Sector software = sector(2L, "Software", "Technology", 0.7);
+		software.setParentSectorId(1L);
+		when(sectorRepository.findAll()).thenReturn(Arrays.asList(tech, software));
+		when(companyRepository.findAll()).thenReturn(
+				Arrays.asList(company(10L, "MSFT", "Microsoft", 1L, 2L), company(11L, "MSFT", "Microsoft", 1L, 2L)));
+
+		SymbolReconciliation result = underTest.reconcile(tree(0.5, 0.7, "Microsoft"));
+
+		assertEquals(2, result.getSectorsUnchanged());
+		assertEquals(1, result.getCompaniesUnchanged());
+		assertEquals(0, result.getSectorsInserted() + result.getSectorsUpdated() + result.getCompaniesInserted()
+				+ result.getCompaniesUpdated());
+		assertEquals(Long.valueOf(10L), index.get("company:MSFT").getEntityId());
+		ArgumentCaptor<Iterable> duplicates = ArgumentCaptor.forClass(Iterable.class);
+		verify(companyWithProblemsRepository).save(duplicates.capture());
+		CompanyWithProblems duplicate = (CompanyWithProblems) duplicates.getValue().iterator().next();
+		assertEquals("MSFT", duplicate.getTicker());
+	}
+
+	@Test
+	public void testUnchangedRowsAreNotWritten() {
+		underTest.reconcile(tree(0.5, 0.7, "Microsoft"));
+
+		SymbolReconciliation result = underTest.reconcile(tree(0.5, 0.7, "Microsoft"));
+
+		assertEquals(2, result.getSectorsUnchanged());
+		assertEquals(1, result.getCompaniesUnchanged());
+		// by the first reconciliation only
+		verify(sectorRepository, times(2)).save(any(Iterable.class));
+		verify(companyRepository).save(any(Iterable.class));
+		verify(sectorRepository).findAll();
+	}
+
+	@Test
+	public void testChangedRowsAreUpdatedKeepingTheirIdAndExchange() {
+		underTest.reconcile(tree(0.5, 0.7, "Microsoft"));
+		long msft = index.get("company:MSFT").getEntityId();
+		long software = index.get("sector:Software").getEntityId();
+		Company saved = company(msft, "MSFT", "Microsoft", null, null);
+		saved.setExchange("NMS");
+		when(companyRepository.findAll(any(Iterable.class))).thenReturn(Collections.singletonList(saved));
+
+		SymbolReconciliation result = underTest.reconcile(tree(0.5, 0.9, "Microsoft Corporation"));
+
+		assertEquals(1, result.getSectorsUpdated());
+		assertEquals(1, result.getSectorsUnchanged());
+		assertEquals(1, result.getCompaniesUpdated());
+		ArgumentCaptor<Iterable> companies = ArgumentCaptor.forClass(Iterable.class);
+		verify(companyRepository, times(2)).save(companies.capture());
+		Company updated = (Company) companies.getValue().iterator().next();
+		assertEquals(Long.valueOf(msft), updated.getId());
+		assertEquals("NMS", updated.getExchange());
+		assertEquals(Long.valueOf(software), updated.getIndustryId());
+		assertEquals("Microsoft Corporation", updated.getName());
+	}
+
+	@Test
+	public void testNewRowsAreInsertedInBatches() {
+		SectorsIndustriesCompanies scraped = tree(0.5, 0.7, "Microsoft");
+		Sector software = scraped.industries().iterator().next();
+		Company crm = company(null, "CRM", "Salesforce", null, null);
+		scraped.addCompanyToIndustry(software, company(null, "ORCL", "Oracle", null, null));
+		scraped.addCompanyToIndustry(software, company(null, "ADBE", "Adobe", null, null));
+		scraped.addCompanyToIndustry(software, crm);
+
+		SymbolReconciliation result = underTest.reconcile(scraped);
+
+		assertEquals(2, result.getSectorsInserted());
+		assertEquals(4, result.getCompaniesInserted());
+		// four companies, two per batch
+		verify(companyRepository, times(2)).save(anyListOf(Company.class));
+		assertEquals(index.get("sector:Technology").getEntityId(), crm.getSectorId());
+		assertEquals(index.get("sector:Software").getEntityId(), crm.getIndustryId());
+		assertEquals(crm.getId(), index.get("company:CRM").getEntityId());
+	}
+
+	private SectorsIndustriesCompanies tree(double sectorChange, double industryChange, String name) {
+		SectorsIndustriesCompanies ret = new SectorsIndustriesCompanies();
+		Sector tech = sector(null, "Technology", null, sectorChange);
+		Sector software = sector(null, "Software", null, industryChange);
+		ret.addIndustriesToSector(tech, new HashSet<>(Collections.singleton(software)));
+		ret.addCompanyToIndustry(software, company(null, "MSFT", name, null, null));
+		return ret;
+	}
+
+	private static Sector sector(Long id, String description, String parent, double oneDayPriceChangePercent) {
+		Sector ret = new Sector();
+		ret.setId(id);
+		ret.setDescription(description);
+		ret.setParentSectorDescription(parent);
+		ret.setOneDayPriceChangePercent(oneDayPriceChangePercent);
+		return ret;
+	}
+
+	private static Company company(Long id, String ticker, String name, Long sectorId, Long industryId) {
+		Company ret = new Company();
+		ret.setId(id);
+		ret.setTicker(ticker);
+		ret.setName(name);
+		ret.setSectorId(sectorId);
+		ret.setIndustryId(industryId);
+		ret.setSectorDescription("Technology");
+		ret.setIndustryDescription("Software");
+		return ret;
+	}
+}
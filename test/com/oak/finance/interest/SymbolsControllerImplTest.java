@@ -0,0 +1,104 @@
+package com.oak.finance.interest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.apache.logging.log4j.Logger;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.oak.api.finance.model.SymbolUniverse;
+import com.oak.api.finance.model.dto.Company;
+import com.oak.api.finance.model.dto.ExcludedCompany;
+import com.oak.api.finance.repository.CompanyRepository;
+import com.oak.api.finance.repository.CompanyWithProblemsRepository;
+import com.oak.api.finance.repository.ExcludedCompanyRepository;
+import com.oak.api.finance.repository.Screen0ResultsRepository;
+import com.oak.api.providers.control.ControlProvider;
+import com.oak.external.finance.app.marketdata.api.DataConnector;
+import com.oak.external.finance.app.marketdata.api.SectorsCompaniesYahooWebDao;
+import com.oak.finance.app.dao.SymbolsDao;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SymbolsControllerImplTest {
+
+	@Mock
+	private SymbolsDao symbolsDao;
+	@Mock
+	private SectorsCompaniesYahooWebDao sectorCompaniesDao;
+	@Mock
+	private ControlProvider controlProvider;
+	@Mock
+	private ExcludedCompanyRepository excludedCompanyRepository;
+	@Mock
+	private CompanyRepository companyRepository;
+	@Mock
+	private CompanyWithProblemsRepository companyWithProblemsRepository;
+	@Mock
+	private SymbolReconciler symbolReconciler;
+	@Mock
+	private Screen0ResultsRepository screen0ResultsRepository;
+	@Mock
+	private DataConnector dataConnector;
+	@Mock
+	private Logger log;
+
+	private SymbolsControllerImpl underTest;
+
+	@Before
+	public void setUp() {
+		when(companyRepository.findAll()).thenReturn(Arrays.asList(company("AAPL"), company("MSFT")));
+		underTest = new SymbolsControllerImpl(symbolsDao, sectorCompaniesDao, controlProvider,
+				excludedCompanyRepository, companyRepository, companyWithProblemsRepository, symbolReconciler,
+				screen0ResultsRepository, dataConnector, new SymbolUniverse(4), log);
+	}
+
+	@Test
+	public void testExclusionsEditedWhileRunningApplyToTheNextAnalysis() {
+		when(excludedCompanyRepository.findAll()).thenReturn(Collections.emptyList());
+		underTest.reloadExclusions();
+		assertTrue(underTest.getExcludedSymbols().isEmpty());
+
+		when(excludedCompanyRepository.findAll()).thenReturn(Collections.singletonList(excluded("MSFT")));
+		underTest.reloadExclusions();
+
+		assertEquals(Collections.singleton("MSFT"), underTest.getExcludedSymbols());
+		assertEquals(Collections.singleton("AAPL"),
+				underTest.getUniverse().withoutExcluded(Arrays.asList("AAPL", "MSFT")));
+		// the companies are read once
+		verify(companyRepository, times(1)).findAll();
+	}
+
+	@Test
+	public void testSavedCompaniesJoinTheUniverse() {
+		when(excludedCompanyRepository.findAll()).thenReturn(Collections.emptyList());
+		assertFalse(underTest.getUniverse().getTickers().contains("IBM"));
+
+		underTest.saveNewCompanies(new HashSet<>(Collections.singleton(company("IBM"))));
+
+		assertTrue(underTest.getUniverse().getTickers().contains("IBM"));
+	}
+
+	private static Company company(String ticker) {
+		Company ret = new Company();
+		ret.setTicker(ticker);
+		return ret;
+	}
+
+	private static ExcludedCompany excluded(String ticker) {
+		ExcludedCompany ret = new ExcludedCompany();
+		ret.setTicker(ticker);
+		return ret;
+	}
+}
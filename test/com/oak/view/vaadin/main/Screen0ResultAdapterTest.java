@@ -0,0 +1,34 @@
+package com.oak.view.vaadin.main;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.Date;
+
+import org.junit.Test;
+
+import com.oak.api.finance.model.dto.Screen0Result;
+import com.vaadin.data.util.BeanItemContainer;
+import com.vaadin.ui.Grid;
+
+public class Screen0ResultAdapterTest {
+
+	@Test
+	public void testTheResultsGridAcceptsTheAdapterContainer() {
+		Screen0Result result = new Screen0Result();
+		result.setRunDate(new Date(0));
+		result.setScreenId("graham");
+		result.setTicker("AAPL");
+		result.setMarketCap(1.5e9);
+		Grid grid = new Grid();
+		grid.setColumns((Object[]) StockScreenerControlUI.SCREEN0_COLUMNS);
+
+		grid.setContainerDataSource(new BeanItemContainer<>(Screen0ResultAdapter.class,
+				Collections.singletonList(new Screen0ResultAdapter(result))));
+
+		assertEquals(StockScreenerControlUI.SCREEN0_COLUMNS.length, grid.getColumns().size());
+		Object item = grid.getContainerDataSource().getIdByIndex(0);
+		assertEquals("graham", grid.getContainerDataSource().getContainerProperty(item, "screenId").getValue());
+		assertEquals("1.50 B", grid.getContainerDataSource().getContainerProperty(item, "marketCap").getValue());
+	}
+}